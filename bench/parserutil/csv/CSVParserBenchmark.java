@@ -0,0 +1,128 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.csv;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.parserutil.main.Corpus;
+import bench.parserutil.main.Throughput;
+import parserutil.impl.csv.parser.CSVGeneratedParser;
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Parsing CSV to a receiver: one value at a time from chars and bytes, and in batches.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class CSVParserBenchmark
+{
+  /**
+   * <p>Input shape.  See {@link Corpus#csv(String)}.
+   */
+  @Param({"narrow", "wide", "quoted"})
+  public String shape;
+  
+  /**
+   * <p>Lexer engine.
+   */
+  @Param({"INTERPRETED", "COMPILED", "GENERATED"})
+  public LexerEngine engine;
+  
+  /**
+   * <p>The input as chars.
+   */
+  private char[] chars;
+  
+  /**
+   * <p>The input as UTF-8 bytes.
+   */
+  private byte[] bytes;
+  
+  /**
+   * <p>The parser, reused for each parse.
+   */
+  private CSVParser parser;
+  
+  @Setup
+  public void setup()
+  {
+    String text = Corpus.csv(shape);
+    chars = text.toCharArray();
+    bytes = text.getBytes(StandardCharsets.UTF_8);
+    parser = (engine == LexerEngine.GENERATED) ? new CSVGeneratedParser() : new CSVParser(engine);
+  }
+  
+  @Benchmark
+  public void parseChars(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    parser.parse(new CharArrayReader(chars), v -> bh.consume(v));
+  }
+  
+  @Benchmark
+  public void parseBytes(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    parser.parse(ByteBuffer.wrap(bytes), v -> bh.consume(v));
+  }
+  
+  @Benchmark
+  public void parseBatches(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    parser.parseBatches(ByteBuffer.wrap(bytes), b -> bh.consume(b.getCodes()));
+  }
+}
@@ -0,0 +1,355 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.main;
+
+import java.util.Random;
+
+/**
+ * <p>Synthetic benchmark inputs.  Each is generated from a fixed seed, so the same arguments always give the same text.
+ * Sizes are in chars and are approximate; generation stops at the first whole record past the size.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class Corpus
+{
+  /**
+   * <p>Seed for every generator.
+   */
+  private static final long SEED = 17;
+  
+  /**
+   * <p>Words for string values.
+   */
+  private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india",
+      "juliet", "kilo", "lima", "mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango"};
+  
+  /**
+   * <p>Size of the large inputs, 1MB.
+   */
+  public static final int LARGE = 1 << 20;
+  
+  /**
+   * <p>Get the JSON input of the shape given: config, largeArray, deepNesting, stringHeavy or numberHeavy.  All but
+   * config are {@link #LARGE}.
+   * 
+   * @param shape
+   * @return
+   */
+  public static String json(String shape)
+  {
+    switch(shape)
+    {
+      case "config":
+        return jsonConfig();
+      case "largeArray":
+        return jsonLargeArray(LARGE);
+      case "deepNesting":
+        return jsonDeepNesting(LARGE, 64);
+      case "stringHeavy":
+        return jsonStringHeavy(LARGE);
+      case "numberHeavy":
+        return jsonNumberHeavy(LARGE);
+      default:
+        throw new IllegalArgumentException(shape);
+    }
+  }
+  
+  /**
+   * <p>Get the CSV input of the shape given: narrow (8 columns), wide (64 columns) or quoted (8 columns, mostly
+   * quoted).  All are {@link #LARGE}.
+   * 
+   * @param shape
+   * @return
+   */
+  public static String csv(String shape)
+  {
+    switch(shape)
+    {
+      case "narrow":
+        return csvRows(LARGE, 8);
+      case "wide":
+        return csvRows(LARGE, 64);
+      case "quoted":
+        return csvQuoted(LARGE, 8);
+      default:
+        throw new IllegalArgumentException(shape);
+    }
+  }
+  
+  /**
+   * <p>A small configuration document of a couple of KB: nested objects of settings with comments and a few arrays.
+   * 
+   * @return
+   */
+  public static String jsonConfig()
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder("# Service configuration\n{\n");
+    for(int s = 0; s < 8; s++)
+    {
+      if(s > 0) sb.append(",\n");
+      sb.append("  \"section").append(s).append("\": {\n");
+      sb.append("    # Settings for section ").append(s).append('\n');
+      sb.append("    \"enabled\": ").append(random.nextBoolean()).append(",\n");
+      sb.append("    \"name\": \"").append(word(random)).append('-').append(word(random)).append("\",\n");
+      sb.append("    \"timeout\": ").append(random.nextInt(60000)).append(",\n");
+      sb.append("    \"ratio\": ").append(random.nextInt(1000) / 1000.0).append(",\n");
+      sb.append("    \"hosts\": [\"").append(word(random)).append(".example.com\", \"").append(word(random)).append(".example.com\"],\n");
+      sb.append("    \"fallback\": null\n  }");
+    }
+    return sb.append("\n}\n").toString();
+  }
+  
+  /**
+   * <p>A large array of small objects with mixed values.
+   * 
+   * @param size
+   * @return
+   */
+  public static String jsonLargeArray(int size)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; sb.length() < size; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      sb.append("{\"id\":").append(i).append(", \"name\":\"").append(word(random)).append(' ').append(random.nextInt(100000))
+          .append("\", \"price\":").append(random.nextInt(100000) / 100.0).append(", \"tags\":[\"").append(word(random))
+          .append("\", \"").append(word(random)).append("\"], \"active\":").append(random.nextBoolean()).append(", \"parent\":null}");
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>An array of deeply nested objects and arrays.
+   * 
+   * @param size
+   * @param depth the nesting depth of each element.
+   * @return
+   */
+  public static String jsonDeepNesting(int size, int depth)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; sb.length() < size; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      for(int d = 0; d < depth; d++) sb.append( ((d & 1) == 0) ? "{\"" + word(random) + "\":" : "[");
+      sb.append(random.nextInt(1000));
+      for(int d = depth - 1; d >= 0; d--) sb.append( ((d & 1) == 0) ? '}' : ']');
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>An array of objects whose values are long strings with escapes and non-ASCII text.
+   * 
+   * @param size
+   * @return
+   */
+  public static String jsonStringHeavy(int size)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; sb.length() < size; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      sb.append("{\"text\":\"");
+      for(int w = 8 + random.nextInt(24); w > 0; w--)
+      {
+        sb.append(word(random));
+        switch(random.nextInt(16))
+        {
+          case 0: sb.append("\\\""); break;
+          case 1: sb.append("\\n"); break;
+          case 2: sb.append("\\u00e9"); break;
+          case 3: sb.append("\u00fc\u00df"); break;
+          case 4: sb.append("\u4e16\u754c"); break;
+          default: sb.append(' ');
+        }
+      }
+      sb.append("\", \"note\":\"").append(word(random)).append(' ').append(word(random)).append("\"}");
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>Arrays of numbers: integers, negative decimals and exponents.
+   * 
+   * @param size
+   * @return
+   */
+  public static String jsonNumberHeavy(int size)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; sb.length() < size; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      sb.append('[');
+      for(int n = 0; n < 16; n++)
+      {
+        if(n > 0) sb.append(", ");
+        switch(n % 4)
+        {
+          case 0: sb.append(random.nextInt()); break;
+          case 1: sb.append(-random.nextInt(1000000) / 1000.0); break;
+          case 2: sb.append(random.nextInt(1000)).append("e-").append(random.nextInt(20)); break;
+          default: sb.append(random.nextDouble());
+        }
+      }
+      sb.append(']');
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>Newline delimited JSON: one small log record object per line.
+   * 
+   * @param size
+   * @return
+   */
+  public static String jsonLines(int size)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; sb.length() < size; i++)
+    {
+      sb.append("{\"seq\":").append(i).append(", \"level\":\"").append(random.nextBoolean() ? "INFO" : "WARN").append("\", \"msg\":\"")
+          .append(word(random)).append(' ').append(word(random)).append(' ').append(random.nextInt(100000)).append("\", \"ms\":")
+          .append(random.nextInt(100000) / 100.0).append(", \"ok\":").append(random.nextBoolean()).append("}\n");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>CSV rows of unquoted fields.
+   * 
+   * @param size
+   * @param columns the number of fields in each row.
+   * @return
+   */
+  public static String csvRows(int size, int columns)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    while(sb.length() < size)
+    {
+      for(int c = 0; c < columns; c++)
+      {
+        if(c > 0) sb.append(',');
+        if( (c % 3) == 0) sb.append(random.nextInt(1000000));
+        else if( (c % 3) == 1) sb.append(word(random));
+        else sb.append(random.nextInt(100000) / 100.0);
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>CSV rows where most fields are quoted, with embedded delimiters, quotes and newlines.
+   * 
+   * @param size
+   * @param columns the number of fields in each row.
+   * @return
+   */
+  public static String csvQuoted(int size, int columns)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    while(sb.length() < size)
+    {
+      for(int c = 0; c < columns; c++)
+      {
+        if(c > 0) sb.append(',');
+        switch(random.nextInt(4))
+        {
+          case 0: sb.append('"').append(word(random)).append(", ").append(word(random)).append('"'); break;
+          case 1: sb.append('"').append(word(random)).append(" \"\"").append(word(random)).append("\"\"\""); break;
+          case 2: sb.append('"').append(word(random)).append("\r\n").append(word(random)).append('"'); break;
+          default: sb.append(random.nextInt(1000000));
+        }
+      }
+      sb.append("\r\n");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>A text template with markup for replacement every few words.
+   * 
+   * @param size
+   * @param keys the number of different replacement keys.
+   * @return
+   */
+  public static String template(int size, int keys)
+  {
+    Random random = new Random(SEED);
+    StringBuilder sb = new StringBuilder();
+    while(sb.length() < size)
+    {
+      for(int w = 2 + random.nextInt(10); w > 0; w--) sb.append(word(random)).append(' ');
+      sb.append('~').append(key(random.nextInt(keys))).append("~ ");
+      if(random.nextInt(8) == 0) sb.append("\\~ ");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Get the replacement key for the number given, as used in {@link #template(int, int)}.
+   * 
+   * @param n
+   * @return
+   */
+  public static String key(int n)
+  {
+    return "key" + n;
+  }
+  
+  /**
+   * <p>Pick a word.
+   * 
+   * @param random
+   * @return
+   */
+  private static String word(Random random)
+  {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+  
+  /**
+   * <p>Static methods only.
+   */
+  private Corpus()
+  {
+  }
+}
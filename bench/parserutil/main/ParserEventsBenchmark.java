@@ -0,0 +1,153 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.main;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jdk.jfr.Recording;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.LongTokenEvent;
+import parserutil.main.ParseEvent;
+import parserutil.main.ParserMetricsRecorder;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Cost of the parser instrumentation.  Modes:
+ * <ul>
+ * <li>off - no metrics and no recording.</li>
+ * <li>recording - a flight recording running with the parser events left disabled.  This is the disabled path as it
+ * is in production with continuous recording.</li>
+ * <li>events - a flight recording running with the parse and long token events enabled.</li>
+ * <li>metrics - a {@link ParserMetricsRecorder} set on the parser.</li>
+ * </ul>
+ * <p>The cost of the disabled path is the difference between off here and the same benchmark on a tree without the
+ * instrumentation, and between off and recording.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ParserEventsBenchmark
+{
+  /**
+   * <p>Instrumentation mode.
+   */
+  @Param({"off", "recording", "events", "metrics"})
+  public String mode;
+  
+  /**
+   * <p>Lexer engine.
+   */
+  @Param({"INTERPRETED", "COMPILED"})
+  public LexerEngine engine;
+  
+  /**
+   * <p>The document parsed, about 1MB of objects in an array.
+   */
+  private char[] document;
+  
+  /**
+   * <p>Size of the document in UTF-8.
+   */
+  private int byteLength;
+  
+  /**
+   * <p>The parser, reused for each parse.
+   */
+  private JSONElementParser parser;
+  
+  /**
+   * <p>The flight recording, if the mode has one.
+   */
+  private Recording recording;
+  
+  @Setup
+  public void setup()
+  {
+    String text = Corpus.jsonLargeArray(Corpus.LARGE);
+    document = text.toCharArray();
+    byteLength = text.getBytes(StandardCharsets.UTF_8).length;
+    
+    parser = new JSONElementParser(engine);
+    switch(mode)
+    {
+      case "recording":
+        recording = new Recording();
+        recording.start();
+        break;
+      case "events":
+        recording = new Recording();
+        recording.enable(ParseEvent.NAME);
+        recording.enable(LongTokenEvent.NAME);
+        recording.start();
+        break;
+      case "metrics":
+        parser.setMetrics(new ParserMetricsRecorder(parser.getTokenDescriptors()));
+        break;
+      default:
+    }
+  }
+  
+  @TearDown
+  public void tearDown()
+  {
+    if(recording != null) recording.close();
+  }
+  
+  @Benchmark
+  public void parse(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(byteLength);
+    parser.parse(new CharArrayReader(document), t -> bh.consume(t));
+  }
+}
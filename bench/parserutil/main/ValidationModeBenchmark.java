@@ -0,0 +1,142 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>The cost of validation: the same input parsed with each {@link ValidationMode}.  Compare the scores for a shape
+ * across modes to see the gain from skipping checks on trusted input.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ValidationModeBenchmark
+{
+  /**
+   * <p>Validation mode.
+   */
+  @Param({"FULL", "STRUCTURAL", "NONE"})
+  public ValidationMode mode;
+  
+  /**
+   * <p>JSON input shape.  See {@link Corpus#json(String)}.
+   */
+  @Param({"largeArray", "deepNesting", "numberHeavy"})
+  public String shape;
+  
+  /**
+   * <p>The JSON input as UTF-8 bytes.
+   */
+  private byte[] json;
+  
+  /**
+   * <p>The CSV input as UTF-8 bytes.
+   */
+  private byte[] csv;
+  
+  /**
+   * <p>The element parser, reused for each parse.
+   */
+  private JSONElementParser elementParser;
+  
+  /**
+   * <p>The document parser, reused for each parse.
+   */
+  private JSONDocumentParser documentParser;
+  
+  /**
+   * <p>The CSV parser, reused for each parse.
+   */
+  private CSVParser csvParser;
+  
+  @Setup
+  public void setup()
+  {
+    json = Corpus.json(shape).getBytes(StandardCharsets.UTF_8);
+    csv = Corpus.csv("narrow").getBytes(StandardCharsets.UTF_8);
+    elementParser = new JSONElementParser(LexerEngine.COMPILED);
+    documentParser = new JSONDocumentParser(LexerEngine.COMPILED);
+    csvParser = new CSVParser(LexerEngine.COMPILED);
+    elementParser.setValidationMode(mode);
+    documentParser.setValidationMode(mode);
+    csvParser.setValidationMode(mode);
+  }
+  
+  @Benchmark
+  public void jsonElements(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(json.length);
+    elementParser.parse(ByteBuffer.wrap(json), t -> bh.consume(t));
+  }
+  
+  @Benchmark
+  public Object jsonDocument(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(json.length);
+    return documentParser.parse(ByteBuffer.wrap(json));
+  }
+  
+  @Benchmark
+  public void csvValues(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(csv.length);
+    csvParser.parse(ByteBuffer.wrap(csv), v -> bh.consume(v));
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.textreplace;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.parserutil.main.Corpus;
+import bench.parserutil.main.Throughput;
+import parserutil.impl.textreplace.parser.TextReplaceParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Replacing the markup in text templates.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class TextReplaceParserBenchmark
+{
+  /**
+   * <p>Number of different replacement keys.
+   */
+  private static final int KEYS = 32;
+  
+  /**
+   * <p>Template size in chars.
+   */
+  @Param({"4096", "1048576"})
+  public int size;
+  
+  /**
+   * <p>Lexer engine.
+   */
+  @Param({"INTERPRETED", "COMPILED"})
+  public LexerEngine engine;
+  
+  /**
+   * <p>The template.
+   */
+  private char[] chars;
+  
+  /**
+   * <p>Size of the template in UTF-8.
+   */
+  private int byteLength;
+  
+  /**
+   * <p>Replacement for each key.
+   */
+  private final Map<String, String> replacements = new HashMap<>();
+  
+  /**
+   * <p>The parser, reused for each template.
+   */
+  private TextReplaceParser parser;
+  
+  @Setup
+  public void setup()
+  {
+    String text = Corpus.template(size, KEYS);
+    chars = text.toCharArray();
+    byteLength = text.getBytes(StandardCharsets.UTF_8).length;
+    for(int i = 0; i < KEYS; i++) replacements.put(Corpus.key(i), "value " + i);
+    parser = new TextReplaceParser(engine);
+  }
+  
+  @Benchmark
+  public String replace(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(byteLength);
+    return parser.doReplacement(new CharArrayReader(chars), replacements);
+  }
+}
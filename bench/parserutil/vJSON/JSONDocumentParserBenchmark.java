@@ -0,0 +1,141 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.vJSON;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bench.parserutil.main.Corpus;
+import bench.parserutil.main.Throughput;
+import parserutil.impl.json.JSONValueHolder;
+import parserutil.impl.json.parser.JSONArenaDocument;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Parsing whole JSON documents into values and into the parser's arena, from chars and from UTF-8 bytes.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JSONDocumentParserBenchmark
+{
+  /**
+   * <p>Input shape.  See {@link Corpus#json(String)}.
+   */
+  @Param({"config", "largeArray", "deepNesting", "stringHeavy", "numberHeavy"})
+  public String shape;
+  
+  /**
+   * <p>Lexer engine.
+   */
+  @Param({"INTERPRETED", "COMPILED"})
+  public LexerEngine engine;
+  
+  /**
+   * <p>The input as chars.
+   */
+  private char[] chars;
+  
+  /**
+   * <p>The input as UTF-8 bytes.
+   */
+  private byte[] bytes;
+  
+  /**
+   * <p>The parser, reused for each parse.
+   */
+  private JSONDocumentParser parser;
+  
+  @Setup
+  public void setup()
+  {
+    String text = Corpus.json(shape);
+    chars = text.toCharArray();
+    bytes = text.getBytes(StandardCharsets.UTF_8);
+    parser = new JSONDocumentParser(engine);
+  }
+  
+  @Benchmark
+  public JSONValueHolder parseChars(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    return parser.parse(new CharArrayReader(chars));
+  }
+  
+  @Benchmark
+  public JSONValueHolder parseBytes(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    return parser.parse(ByteBuffer.wrap(bytes));
+  }
+  
+  @Benchmark
+  public int parseArenaChars(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    try(JSONArenaDocument doc = parser.parseToArena(new CharArrayReader(chars)))
+    {
+      return doc.size(doc.getRoot());
+    }
+  }
+  
+  @Benchmark
+  public int parseArenaBytes(Throughput throughput) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    try(JSONArenaDocument doc = parser.parseToArena(ByteBuffer.wrap(bytes)))
+    {
+      return doc.size(doc.getRoot());
+    }
+  }
+}
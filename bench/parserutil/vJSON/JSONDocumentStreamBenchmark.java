@@ -0,0 +1,140 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package bench.parserutil.vJSON;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.parserutil.main.Corpus;
+import bench.parserutil.main.Throughput;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Reading newline delimited JSON: each record parsed on its own, against one document stream over the whole input,
+ * in order and in parallel.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JSONDocumentStreamBenchmark
+{
+  /**
+   * <p>Lexer engine.
+   */
+  @Param({"INTERPRETED", "COMPILED"})
+  public LexerEngine engine;
+  
+  /**
+   * <p>The input as chars.
+   */
+  private char[] chars;
+  
+  /**
+   * <p>The input as UTF-8 bytes.
+   */
+  private byte[] bytes;
+  
+  /**
+   * <p>The index in the bytes of the start of each record, and the end of the input.
+   */
+  private int[] lineStarts;
+  
+  /**
+   * <p>The parser, reused for each parse.
+   */
+  private JSONDocumentParser parser;
+  
+  @Setup
+  public void setup()
+  {
+    String text = Corpus.jsonLines(Corpus.LARGE);
+    chars = text.toCharArray();
+    bytes = text.getBytes(StandardCharsets.UTF_8);
+    
+    int lines = 0;
+    for(byte b : bytes) if(b == '\n') lines++;
+    lineStarts = new int[lines + 1];
+    for(int i = 0, l = 1; i < bytes.length; i++) if(bytes[i] == '\n') lineStarts[l++] = i + 1;
+    
+    parser = new JSONDocumentParser(engine);
+  }
+  
+  @Benchmark
+  public void eachRecord(Throughput throughput, Blackhole bh) throws IOException, GeneralParserException
+  {
+    throughput.add(bytes.length);
+    for(int l = 0; l + 1 < lineStarts.length; l++) bh.consume(parser.parse(ByteBuffer.wrap(bytes, lineStarts[l], lineStarts[l + 1] - lineStarts[l])));
+  }
+  
+  @Benchmark
+  public void streamChars(Throughput throughput, Blackhole bh)
+  {
+    throughput.add(bytes.length);
+    parser.documents(new CharArrayReader(chars)).forEach(bh::consume);
+  }
+  
+  @Benchmark
+  public void streamBytes(Throughput throughput, Blackhole bh)
+  {
+    throughput.add(bytes.length);
+    parser.documents(ByteBuffer.wrap(bytes)).forEach(bh::consume);
+  }
+  
+  @Benchmark
+  public long streamBytesParallel(Throughput throughput)
+  {
+    throughput.add(bytes.length);
+    return parser.documents(ByteBuffer.wrap(bytes), 1 << 16).parallel().count();
+  }
+}
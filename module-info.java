@@ -8,5 +8,8 @@ module tools.parseutil
   exports parserutil.impl.textreplace;
   exports parserutil.impl.textreplace.parser;
   exports parserutil.main;
+  exports parserutil.main.lexer;
   requires static junit;
+  requires static jdk.management;
+  requires static jdk.jfr;
 }
\ No newline at end of file
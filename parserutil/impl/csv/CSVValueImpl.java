@@ -30,6 +30,7 @@
 package parserutil.impl.csv;
 
 import parserutil.impl.csv.parser.CSVTokenType;
+import parserutil.main.Utf8Text;
 
 /**
  * <p>'Normal' text value - one that is not wrapped in ~ chars.
@@ -39,7 +40,14 @@ import parserutil.impl.csv.parser.CSVTokenType;
  */
 public class CSVValueImpl implements CSVValue
 {
+  /**
+   * <p>The field text as it is in the input.  A string, or a {@link Utf8Text} view for byte input.
+   */
+  private final CharSequence raw;
   
+  /**
+   * <p>The field value, worked out from the raw text when first asked for.
+   */
   private String val;
 
   /**
@@ -49,21 +57,34 @@ public class CSVValueImpl implements CSVValue
    */
   public CSVValueImpl(String val)
   {
-    val = val.replaceAll("\\\"\\\"", "\"");
-    if(val.startsWith("\""))
-    {
-      this.val = val.substring(1, val.length() - 1);
-    }
-    else
-    {
-      this.val = val;
-    }
+    this.raw = val;
+  }
+  
+  /**
+   * <p>Construct the value implementation from token text.  Text from byte input is kept as a view of the input and
+   * only decoded if the value is asked for; anything else is copied.
+   * 
+   * @param val
+   */
+  public CSVValueImpl(CharSequence val)
+  {
+    this.raw = Utf8Text.keep(val);
   }
 
   @Override
   public String getValue()
   {
-    return val;
+    String ret = val;
+    if(ret == null)
+    {
+      ret = raw.toString().replaceAll("\\\"\\\"", "\"");
+      if(ret.startsWith("\""))
+      {
+        ret = ret.substring(1, ret.length() - 1);
+      }
+      val = ret;
+    }
+    return ret;
   }
 
   @Override
@@ -75,7 +96,7 @@ public class CSVValueImpl implements CSVValue
   @Override
   public String toString()
   {
-    return "VALUE: " + val;
+    return "VALUE: " + getValue();
   }
   
   
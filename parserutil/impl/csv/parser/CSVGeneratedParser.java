@@ -0,0 +1,153 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.csv.parser;
+
+import java.io.IOException;
+
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>{@link CSVParser} with a generated lexer.  Generated by {@link parserutil.main.lexer.LexerGenerator}
+ * from the parser's token patterns; regenerate rather than edit when the patterns change.
+ * <p>Token descriptors:
+ * <ol start="0">
+ * <li>(([U+0000-U+0009U+000b-U+000cU+000e-!#-+\--U+fffe][U+0000-U+0009U+000b-U+000cU+000e-+\--U+fffe]{0,})...</li>
+ * <li>[,]</li>
+ * <li>[U+000aU+000d]{1,}</li>
+ * </ol>
+ */
+public class CSVGeneratedParser extends CSVParser
+{
+  /**
+   * <p>Create the parser with the generated lexer.
+   */
+  public CSVGeneratedParser()
+  {
+    super(LexerEngine.GENERATED);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int lexGenerated(char ch) throws IOException
+  {
+    //First char.
+    int state;
+    switch(ch)
+    {
+      case '\n': case '\r':
+        state = 2;
+        break;
+      case '"':
+        state = 3;
+        break;
+      case ',':
+        state = 4;
+        break;
+      default:
+        if(ch <= '\t'
+            || (ch >= 0x000b && ch <= 0x000c)
+            || (ch >= 0x000e && ch <= '!')
+            || (ch >= '#' && ch <= '+')
+            || (ch >= '-' && ch <= 0xfffe)) state = 1;
+        else return LEX_NO_TOKEN;
+    }
+
+    //Further chars until there is no transition.
+    while(true)
+    {
+      ch = nextChar();
+      switch(state)
+      {
+        case 1:
+          if(ch <= '\t' || (ch >= 0x000b && ch <= 0x000c) || (ch >= 0x000e && ch <= '+') || (ch >= '-' && ch <= 0xfffe)) state = 1;
+          else return 0;
+          break;
+        case 2:
+          switch(ch)
+          {
+            case '\n': case '\r':
+              state = 2;
+              break;
+            default:
+              return 2;
+          }
+          break;
+        case 3:
+          switch(ch)
+          {
+            case '"':
+              state = 5;
+              break;
+            default:
+              if(ch <= '!' || (ch >= '#' && ch <= 0xfffe)) state = 3;
+              else return LEX_INCOMPLETE;
+          }
+          break;
+        case 4:
+          return 1;
+        case 5:
+          switch(ch)
+          {
+            case '"':
+              state = 6;
+              break;
+            default:
+              if(ch <= '\t'
+                  || (ch >= 0x000b && ch <= 0x000c)
+                  || (ch >= 0x000e && ch <= '!')
+                  || (ch >= '#' && ch <= '+')
+                  || (ch >= '-' && ch <= 0xfffe)) state = 1;
+              else return 0;
+          }
+          break;
+        case 6:
+          switch(ch)
+          {
+            case '\n': case '\r': case ',':
+              state = 3;
+              break;
+            case '"':
+              state = 5;
+              break;
+            default:
+              if(ch <= '\t'
+                  || (ch >= 0x000b && ch <= 0x000c)
+                  || (ch >= 0x000e && ch <= '!')
+                  || (ch >= '#' && ch <= '+')
+                  || (ch >= '-' && ch <= 0xfffe)) state = 6;
+              else return 0;
+          }
+          break;
+      }
+    }
+  }
+}
@@ -32,9 +32,16 @@ package parserutil.impl.csv.parser;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import parserutil.impl.csv.CSVRowDelimiterImpl;
 import parserutil.impl.csv.CSVValueImpl;
@@ -42,9 +49,17 @@ import parserutil.impl.textreplace.TextNormalValueImpl;
 import parserutil.impl.textreplace.TextReplaceValue;
 import parserutil.impl.textreplace.TextReplaceValueImpl;
 import parserutil.main.GeneralParser;
+import parserutil.main.GeneralParserCursor;
 import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
 import parserutil.main.GeneralParserToken;
+import parserutil.main.InputSegments;
+import parserutil.main.MappedFileReader;
+import parserutil.main.TokenBatch;
 import parserutil.main.TokenLocation;
+import parserutil.main.Utf8BufferReader;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
 
 /**
  * <p>
@@ -58,6 +73,22 @@ import parserutil.main.TokenLocation;
  */
 public class CSVParser extends GeneralParser<CSVTokenDescriptor>
 {
+  /**
+   * <p>Shared CSV grammars, one per lexer engine, created when first needed.
+   */
+  private static final Map<LexerEngine, GeneralParserGrammar<CSVTokenDescriptor>> GRAMMARS = new ConcurrentHashMap<>();
+  
+  /**
+   * <p>The version of the CSV descriptors' lexing logic.  Change it when they read different tokens, so tokens
+   * cached by the old descriptors aren't replayed.
+   */
+  public static final int GRAMMAR_VERSION = 1;
+  
+  /**
+   * <p>The receiver for values in pushed input.
+   */
+  private CSVTokenReceiver feedReceiver;
+  
   /**
    * <p>
    * 
@@ -74,6 +105,37 @@ public class CSVParser extends GeneralParser<CSVTokenDescriptor>
     return cp;
   }
   
+  /**
+   * <p>Provide a list of declarative CSV parser tokens, for the compiled and generated lexer engines.  The descriptors
+   * are in the same order as {@link #getParserTokenList()}.
+   * 
+   * @return
+   */
+  private static List<CSVTokenDescriptor> getPatternTokenList()
+  {
+    List<CSVTokenDescriptor> cp = new ArrayList<>();
+    cp.add(new CSVTokenDescriptorPatternImpl(CSVTokenType.VALUE, CSVTokenPatterns.VALUE));
+    cp.add(new CSVTokenDescriptorPatternImpl(CSVTokenType.FIELD_DELIM, CSVTokenPatterns.FIELD_DELIM));
+    cp.add(new CSVTokenDescriptorPatternImpl(CSVTokenType.ROW_DELIM, CSVTokenPatterns.ROW_DELIM));
+    
+    return cp;
+  }
+  
+  /**
+   * <p>Get the shared CSV grammar for the given lexer engine.  The grammar is built the first time it is asked for and
+   * is thread safe; every parser created with the engine is a session of it.
+   * 
+   * @param engine
+   * @return
+   */
+  public static GeneralParserGrammar<CSVTokenDescriptor> getSharedGrammar(LexerEngine engine)
+  {
+    return GRAMMARS.computeIfAbsent(engine, e -> {
+      if(e == LexerEngine.INTERPRETED) return new GeneralParserGrammar<>(CSVParser::getParserTokenList, e, GRAMMAR_VERSION);
+      return new GeneralParserGrammar<>(CSVParser::getPatternTokenList, e, GRAMMAR_VERSION);
+    });
+  }
+  
 //  private final Reader content;
 //  
 //  private final Map<String, String> replacementMap;
@@ -83,10 +145,37 @@ public class CSVParser extends GeneralParser<CSVTokenDescriptor>
    * Create an instance of a unit configuration file parser.
    */
   public CSVParser()
+  {
+    this(LexerEngine.INTERPRETED);
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a CSV parser using the given lexer engine.  The interpreted engine uses the CSV token
+   * descriptors and the compiled and generated engines use their declarative equivalents.
+   * 
+   * @param engine
+   */
+  public CSVParser(LexerEngine engine)
+  {
+    this(getSharedGrammar(engine));
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a CSV parser as a session of the given grammar.  The grammar must have the CSV token
+   * descriptors, as from {@link #getSharedGrammar(LexerEngine)}.
+   * 
+   * @param grammar
+   */
+  public CSVParser(GeneralParserGrammar<CSVTokenDescriptor> grammar)
   {
     // Create the general parser instance with the lexical elements of unit config
     // files.
-    super(getParserTokenList(), new CSVParseStateMachine<>());
+    super(grammar, new CSVParseStateMachine<>());
+    
+    //Tokens are turned straight into values, so read them in zero-copy mode.  Only field values copy their text.
+    setZeroCopyTokens(true);
 
 //    //Content.
 //    this.content = content;
@@ -97,18 +186,338 @@ public class CSVParser extends GeneralParser<CSVTokenDescriptor>
     // Initialise the parser.
     init();
   }
+  
+  /**
+   * <p>
+   * Put the parser back as it was created, forgetting the receiver of any input being fed.
+   */
+  @Override
+  protected void resetSession()
+  {
+    super.resetSession();
+    setZeroCopyTokens(true);
+    feedReceiver = null;
+  }
 
   public void parse(Reader content, CSVTokenReceiver receiver) throws IOException, GeneralParserException
   {
     //Initialise underlying parser.
     init();
     
-    //Get tokens.
-    GeneralParserToken<CSVTokenDescriptor> nextToken;
-    while( (nextToken = getNextToken(content)) != null)
+    //Get tokens.  The cursor is reused for every token so only field values are allocated.
+    GeneralParserCursor<CSVTokenDescriptor> cursor = getCursor();
+    while(advance(content))
+    {
+      receiver.receiveCSVValue(cursor.getDescriptor().getValue(cursor));
+    }
+  }
+  
+  /**
+   * <p>Parse the given content, checking the tokens as the given mode says.  The mode applies to this parse only;
+   * the parser's own mode (see {@link #setValidationMode(ValidationMode)}) is left as it was.
+   * 
+   * @param content
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Reader content, CSVTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(content, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>Parse the given content, sending the tokens to the receiver in batches of {@link #getBatchSize()}.  The last
+   * batch may be smaller.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parseBatches(Reader content, CSVTokenBatchReceiver receiver) throws IOException, GeneralParserException
+  {
+    init();
+    TokenBatch<CSVTokenDescriptor> batch = getBatch();
+    while(advance(content))
+    {
+      if(addToBatch(batch))
+      {
+        receiver.receiveCSVBatch(batch);
+        batch.clear();
+      }
+    }
+    if(batch.getSize() > 0) receiver.receiveCSVBatch(batch);
+  }
+  
+  /**
+   * <p>Parse the UTF-8 bytes between the position and limit of the given buffer, sending the tokens to the receiver in
+   * batches.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parseBatches(ByteBuffer content, CSVTokenBatchReceiver receiver) throws IOException, GeneralParserException
+  {
+    parseBatches(new Utf8BufferReader(content), receiver);
+  }
+  
+  /**
+   * <p>Parse the UTF-8 bytes between the position and limit of the given buffer.  The bytes are lexed directly and field
+   * values hold views of them, decoded when asked for, so the bytes must be left unchanged while the values are in use.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(ByteBuffer content, CSVTokenReceiver receiver) throws IOException, GeneralParserException
+  {
+    parse(new Utf8BufferReader(content), receiver);
+  }
+  
+  /**
+   * <p>Parse the UTF-8 bytes between the position and limit of the given buffer, checking the tokens as the given
+   * mode says for this parse only.
+   * 
+   * @param content
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(ByteBuffer content, CSVTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(content, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>Parse the given UTF-8 file.  The file is memory mapped rather than read, or opened from the token cache if one is set.
+   * 
+   * @param file
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Path file, CSVTokenReceiver receiver) throws IOException, GeneralParserException
+  {
+    try(Reader content = openFile(file))
+    {
+      parse(content, receiver);
+    }
+  }
+  
+  /**
+   * <p>Parse the given UTF-8 file, checking the tokens as the given mode says for this parse only.
+   * 
+   * @param file
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Path file, CSVTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(file, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>Get the tokens in the given UTF-8 bytes as a stream that splits between rows, so it can be read in parallel; see
+   * {@link #tokens(ByteBuffer, int)}.
+   * 
+   * @param content
+   * @return
+   */
+  public Stream<GeneralParserToken<CSVTokenDescriptor>> tokens(ByteBuffer content)
+  {
+    return tokens(content, InputSegments.DEFAULT_SEGMENT_SIZE);
+  }
+  
+  /**
+   * <p>Get the tokens in the given UTF-8 bytes as a stream.  A quick scan of the bytes finds the row ends outside
+   * quoted fields, and the stream splits at row ends at least the given number of bytes apart.  Each part is read by a
+   * new parser session sharing this parser's grammar and settings.
+   * 
+   * @param content
+   * @param segmentSize the minimum size of a split in bytes.
+   * @return
+   */
+  public Stream<GeneralParserToken<CSVTokenDescriptor>> tokens(ByteBuffer content, int segmentSize)
+  {
+    //Generated lexers belong to their subclass, so sessions use the compiled lexer for the same tokens.
+    GeneralParserGrammar<CSVTokenDescriptor> sessionGrammar = (getGrammar().getLexerEngine() == LexerEngine.GENERATED) ? getSharedGrammar(LexerEngine.COMPILED) : getGrammar();
+    
+    //Rows are independent; there's nothing to validate at a boundary.
+    return tokens(content, rowSegments(content, segmentSize), () -> new CSVParser(sessionGrammar), List.of());
+  }
+  
+  /**
+   * <p>Get the tokens in the given UTF-8 file as a stream.  The file is memory mapped, and the stream splits between
+   * rows as {@link #tokens(ByteBuffer)}.  A file too big to map in one buffer is read in order instead.  Close the
+   * stream when done with it.
+   * 
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public Stream<GeneralParserToken<CSVTokenDescriptor>> tokens(Path file) throws IOException
+  {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
     {
+      //The mapping stays valid after the channel is closed.
+      if(channel.size() <= Integer.MAX_VALUE) return tokens(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    
+    MappedFileReader content = new MappedFileReader(file);
+    return tokens(content).onClose(() -> {
+      try
+      {
+        content.close();
+      }
+      catch(IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+  
+  /**
+   * <p>Find the row ends outside quoted fields, at least the given number of bytes apart.  A boundary is never put
+   * before a '\r' or '\n', as a run of them is one row delimiter.  A '"' only opens a quoted field at the start of a
+   * field; anywhere else outside quotes it is a plain char.  Inside quotes a doubled '"' is a quote char.
+   * 
+   * @param content
+   * @param segmentSize
+   * @return
+   */
+  private static InputSegments rowSegments(ByteBuffer content, int segmentSize)
+  {
+    int end = content.limit();
+    InputSegments segments = new InputSegments(content.position(), end);
+    int last = content.position();
+    int line = 0;
+    boolean quoted = false;
+    boolean fieldStart = true;
+    
+    for(int i = InputSegments.skipByteOrderMark(content, last, end); i < end; i++)
+    {
+      byte b = content.get(i);
+      if(quoted)
+      {
+        //Close the quotes unless the quote is doubled.
+        if(b == '"')
+        {
+          if(i + 1 < end && content.get(i + 1) == '"') i++;
+          else quoted = false;
+        }
+        else if(b == '\n')
+        {
+          line++;
+        }
+        continue;
+      }
       
-      receiver.receiveCSVValue(nextToken.descriptor.getValue(nextToken.tokenValue));
+      quoted = fieldStart && (b == '"');
+      fieldStart = (b == ',') || (b == '\r') || (b == '\n');
+      if(b == '\n')
+      {
+        line++;
+        
+        //Row end.
+        if(i + 1 - last >= segmentSize && i + 1 < end)
+        {
+          byte next = content.get(i + 1);
+          if(next != '\r' && next != '\n')
+          {
+            last = i + 1;
+            segments.add(last, line, -1);
+          }
+        }
+      }
+    }
+    return segments;
+  }
+  
+  /**
+   * <p>Start parsing input that arrives in chunks, such as from a non-blocking channel.  Push each chunk with
+   * {@link #feed(char[], int, int)} or {@link #feed(ByteBuffer)} and finish with {@link #endOfInput()}.  Each value is
+   * sent to the receiver once it is complete; a chunk may end part way through a quoted field.
+   * A field split between chunks is lexed again from its start as each chunk arrives, so keep chunks large compared
+   * with the longest field expected.
+   * 
+   * @param receiver
+   */
+  public void beginFeed(CSVTokenReceiver receiver)
+  {
+    feedReceiver = receiver;
+    beginPush();
+  }
+  
+  /**
+   * <p>Push the next chunk of chars and send the values completed by it to the receiver.
+   * 
+   * @param chunk
+   * @param off
+   * @param len
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void feed(char[] chunk, int off, int len) throws IOException, GeneralParserException
+  {
+    push(chunk, off, len);
+    deliverFed();
+  }
+  
+  /**
+   * <p>Push the next chunk of UTF-8 bytes and send the values completed by it to the receiver.  The buffer's position
+   * is moved to its limit.
+   * 
+   * @param chunk
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void feed(ByteBuffer chunk) throws IOException, GeneralParserException
+  {
+    push(chunk);
+    deliverFed();
+  }
+  
+  /**
+   * <p>Finish the pushed input and send the remaining values to the receiver.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException if the input stops part way through a value.
+   */
+  public void endOfInput() throws IOException, GeneralParserException
+  {
+    pushEnd();
+    deliverFed();
+  }
+  
+  /**
+   * <p>Send each complete value in the pushed input to the receiver.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private void deliverFed() throws IOException, GeneralParserException
+  {
+    GeneralParserCursor<CSVTokenDescriptor> cursor = getCursor();
+    while(advancePushed())
+    {
+      feedReceiver.receiveCSVValue(cursor.getDescriptor().getValue(cursor));
     }
   }
 
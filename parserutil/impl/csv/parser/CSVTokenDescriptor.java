@@ -48,4 +48,16 @@ public interface CSVTokenDescriptor extends TokenDescriptor
    * @return
    */
   public CSVValue getValue(String val);
+  
+  /**
+   * <p>Get the value associated with the token from text that may be a view into the parser's read buffer.  The default
+   * copies the text; descriptors whose value doesn't depend on the text can override this to avoid the copy.
+   * 
+   * @param val
+   * @return
+   */
+  public default CSVValue getValue(CharSequence val)
+  {
+    return getValue(val.toString());
+  }
 }
@@ -40,6 +40,11 @@ import parserutil.impl.csv.CSVValue;
  */
 public class CSVTokenDescriptorFieldDelimImpl implements CSVTokenDescriptor
 {
+  /**
+   * <p>Shared delimiter value.
+   */
+  private static final CSVValue DELIMITER = new CSVFieldDelimiterImpl();
+  
   /**
    * <p>Any non-comma and non-newline char is the start of a csv field value.
    */
@@ -53,6 +58,15 @@ public class CSVTokenDescriptorFieldDelimImpl implements CSVTokenDescriptor
     return ( (',' == ch));
   }
 
+  /**
+   * <p>Field delimiters are ','.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {','};
+  }
+
 
   /**
    * <p>The token continues as long as the characters are valid identifier chars.
@@ -86,4 +100,14 @@ public class CSVTokenDescriptorFieldDelimImpl implements CSVTokenDescriptor
   {
     return new CSVFieldDelimiterImpl();
   }
+
+  /**
+   * <p>The delimiter value doesn't depend on the token text, so don't copy it.  Delimiter values hold no state, so the
+   * same one is returned every time.
+   */
+  @Override
+  public CSVValue getValue(CharSequence val)
+  {
+    return DELIMITER;
+  }
 }
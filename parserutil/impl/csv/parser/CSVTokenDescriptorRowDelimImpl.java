@@ -40,6 +40,11 @@ import parserutil.impl.csv.CSVValue;
  */
 public class CSVTokenDescriptorRowDelimImpl implements CSVTokenDescriptor
 {
+  /**
+   * <p>Shared delimiter value.
+   */
+  private static final CSVValue DELIMITER = new CSVRowDelimiterImpl();
+  
   /**
    * <p>Any non-comma and non-newline char is the start of a csv field value.
    */
@@ -62,6 +67,15 @@ public class CSVTokenDescriptorRowDelimImpl implements CSVTokenDescriptor
     return false;
   }
 
+  /**
+   * <p>Row delimiters start with '\r' or '\n'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'\r', '\n'};
+  }
+
 
   /**
    * <p>The token continues as long as the characters are valid identifier chars.
@@ -95,4 +109,14 @@ public class CSVTokenDescriptorRowDelimImpl implements CSVTokenDescriptor
   {
     return new CSVRowDelimiterImpl();
   }
+
+  /**
+   * <p>The delimiter value doesn't depend on the token text, so don't copy it.  Delimiter values hold no state, so the
+   * same one is returned every time.
+   */
+  @Override
+  public CSVValue getValue(CharSequence val)
+  {
+    return DELIMITER;
+  }
 }
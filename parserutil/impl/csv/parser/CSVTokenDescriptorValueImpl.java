@@ -45,6 +45,12 @@ public class CSVTokenDescriptorValueImpl implements CSVTokenDescriptor
    */
   private boolean isTokenQuoted;
   
+  /**
+   * <p>Was the last char the quote closing a quoted section?  A quote straight after it is a doubled quote, which
+   * opens the next section.
+   */
+  private boolean isQuoteClosed;
+  
   /**
    * <p>Any non-comma and non-newline char is the start of a csv field value.
    */
@@ -78,14 +84,24 @@ public class CSVTokenDescriptorValueImpl implements CSVTokenDescriptor
       return isTokenQuoted;
     }
     
-    //Handle quotes.
+    //Handle quotes.  Outside quotes a quote is a plain char, unless it doubles the quote that closed a section.
     if('"' == ch)
     {
-      //If the last char was a quote then reset the was last quote status and set the token quoted status.
-      isTokenQuoted = !isTokenQuoted;
+      if(isTokenQuoted)
+      {
+        isTokenQuoted = false;
+        isQuoteClosed = true;
+      }
+      else if(isQuoteClosed)
+      {
+        isTokenQuoted = true;
+        isQuoteClosed = false;
+      }
+      return true;
     }
     
     //Default - is a token content char.
+    isQuoteClosed = false;
     return true;
 
   }
@@ -98,6 +114,7 @@ public class CSVTokenDescriptorValueImpl implements CSVTokenDescriptor
   {
     //Reset the quote active status.
     isTokenQuoted = false;
+    isQuoteClosed = false;
   }
 
 
@@ -114,5 +131,15 @@ public class CSVTokenDescriptorValueImpl implements CSVTokenDescriptor
     return new CSVValueImpl(val);
   }
 
+  /**
+   * <p>Make the value from the token text without copying it first.  Text from byte input is only decoded if the value
+   * is asked for.
+   */
+  @Override
+  public CSVValue getValue(CharSequence val)
+  {
+    return new CSVValueImpl(val);
+  }
+
   
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.csv.parser;
+
+import static parserutil.main.lexer.TokenPattern.alt;
+import static parserutil.main.lexer.TokenPattern.character;
+import static parserutil.main.lexer.TokenPattern.chars;
+import static parserutil.main.lexer.TokenPattern.oneOrMore;
+import static parserutil.main.lexer.TokenPattern.seq;
+import static parserutil.main.lexer.TokenPattern.zeroOrMore;
+
+import parserutil.main.lexer.CharClass;
+import parserutil.main.lexer.TokenPattern;
+
+/**
+ * <p>Declarative patterns for the CSV tokens.  These are the compiled lexer equivalents of the CSV token descriptors.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class CSVTokenPatterns
+{
+  /**
+   * <p>A double-quoted section of a field value.
+   */
+  private static final TokenPattern QUOTED = seq(character('"'), zeroOrMore(chars(CharClass.of('"').complement())), character('"'));
+  
+  /**
+   * <p>Plain chars of a field value: anything but a delimiter.
+   */
+  private static final TokenPattern PLAIN = zeroOrMore(chars(CharClass.of(',', '\r', '\n').complement()));
+  
+  /**
+   * <p>Field value.  A value starting with a quote is double-quoted sections, then plain chars; delimiters are only part
+   * of the value inside quotes, and a doubled quote inside quotes closes one section and opens the next.  A quote
+   * anywhere else is a plain char.
+   */
+  public static final TokenPattern VALUE = alt(seq(chars(CharClass.of(',', '\r', '\n', '"').complement()), PLAIN), seq(oneOrMore(QUOTED), PLAIN));
+  
+  /**
+   * <p>Field delimiter ','.
+   */
+  public static final TokenPattern FIELD_DELIM = character(',');
+  
+  /**
+   * <p>Row delimiter: any run of '\r' and '\n'.
+   */
+  public static final TokenPattern ROW_DELIM = oneOrMore(chars(CharClass.of('\r', '\n')));
+  
+  /**
+   * <p>Constants only.
+   */
+  private CSVTokenPatterns()
+  {
+  }
+}
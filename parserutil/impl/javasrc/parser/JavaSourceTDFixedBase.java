@@ -62,6 +62,15 @@ public abstract class JavaSourceTDFixedBase implements JavaSourceTokenDescriptor
     return ( (fixedWord[0] == ch));
   }
 
+  /**
+   * <p>The fixed word starts with its first char.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {fixedWord[0]};
+  }
+
   /**
    * <p>The token continues as long as the characters are valid identifier chars.
    */
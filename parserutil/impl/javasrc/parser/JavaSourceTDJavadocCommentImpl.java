@@ -65,6 +65,15 @@ public class JavaSourceTDJavadocCommentImpl implements JavaSourceTokenDescriptor
     //Return.
     return ret;
   }
+
+  /**
+   * <p>Comments start with '/'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'/'};
+  }
   
   /**
    * <p>The newline character is a content char, but the next character afterwards is not.  Set the finished
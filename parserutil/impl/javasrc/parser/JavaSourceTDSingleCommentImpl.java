@@ -64,6 +64,15 @@ public class JavaSourceTDSingleCommentImpl implements JavaSourceTokenDescriptor
     return ret;
   }
 
+  /**
+   * <p>Comments start with '/'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'/'};
+  }
+
   /**
    * <p>Get the general token type.
    */
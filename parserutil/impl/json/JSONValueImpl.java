@@ -31,12 +31,15 @@ package parserutil.impl.json;
 
 import parserutil.impl.json.parser.JSONTokenDescriptor;
 import parserutil.main.GeneralParserToken;
+import parserutil.main.Utf8Text;
 
 /**
  * <p>
  * <p>This class defines the JSON value implementation.  Values are stored as strings, 
  * and contain an additional {@link VALTYPE} which describes the actual type of the
  * value.
+ * <p>Values parsed from byte input (see {@link parserutil.main.Utf8BufferReader}) hold a view of the input bytes
+ * instead, which is decoded when the value is asked for.
  * 
  * @author James David Foster jdfoster73@gmail.com
  *
@@ -59,9 +62,9 @@ public class JSONValueImpl implements JSONValue
   }
   
   /**
-   * <p>The string value.
+   * <p>The value text as it is in the input.  A string, or a {@link Utf8Text} view for byte input.
    */
-  private final String fieldValue;
+  private final CharSequence fieldValue;
   
   /**
    * <p>The type of value.
@@ -75,8 +78,8 @@ public class JSONValueImpl implements JSONValue
    */
   public JSONValueImpl(GeneralParserToken<JSONTokenDescriptor> generalParserToken)
   {
-    //Condition the string - make sure any quotes are stripped.
-    this.fieldValue = generalParserToken.tokenValue;
+    //Keep the text.  Byte input views are decoded later if needed; anything else is copied now.
+    this.fieldValue = Utf8Text.keep(generalParserToken.getText());
     
     //Store the value type.
     switch(generalParserToken.descriptor.getDesignation())
@@ -101,6 +104,19 @@ public class JSONValueImpl implements JSONValue
     }
   }
 
+  /**
+   * <p>Construct the value implementation from text as it is in the input.
+   * 
+   * @param fieldValue
+   * @param type
+   */
+  public JSONValueImpl(CharSequence fieldValue, VALTYPE type)
+  {
+    if(fieldValue == null || type == null) throw new IllegalArgumentException();
+    this.fieldValue = fieldValue;
+    this.type = type;
+  }
+  
   /**
    * <p>Type of JSON object is {@link JSONInstanceType#VALUE}.
    */
@@ -128,11 +144,11 @@ public class JSONValueImpl implements JSONValue
     //If STR then make sure this is given without quotes.
     if(type == VALTYPE.STR)
     {
-      return fieldValue.substring(1, fieldValue.length() - 1);
+      return fieldValue.subSequence(1, fieldValue.length() - 1).toString();
     }
 
     //Just return the value otherwise.
-    return fieldValue;
+    return fieldValue.toString();
   }
   
   /**
@@ -146,7 +162,7 @@ public class JSONValueImpl implements JSONValue
     if(type != VALTYPE.NUM_INT) throw new IllegalStateException();
     
     //Parse and return.
-    return Integer.parseInt(fieldValue);
+    return Integer.parseInt(fieldValue, 0, fieldValue.length(), 10);
   }
   
   /**
@@ -154,7 +170,7 @@ public class JSONValueImpl implements JSONValue
    */
   public String toString()
   {
-    return fieldValue;
+    return fieldValue.toString();
   }
 
   /**
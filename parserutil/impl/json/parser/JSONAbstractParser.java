@@ -33,12 +33,16 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 import parserutil.main.GeneralParser;
 import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
 import parserutil.main.GeneralParserToken;
 import parserutil.main.TokenLocation;
+import parserutil.main.lexer.LexerEngine;
 
 /**
  * <p>
@@ -52,6 +56,16 @@ import parserutil.main.TokenLocation;
  */
 public abstract class JSONAbstractParser extends GeneralParser<JSONTokenDescriptor>
 {
+  /**
+   * <p>Shared JSON grammars, one per lexer engine, created when first needed.
+   */
+  private static final Map<LexerEngine, GeneralParserGrammar<JSONTokenDescriptor>> GRAMMARS = new ConcurrentHashMap<>();
+  
+  /**
+   * <p>The version of the JSON descriptors' lexing logic.  Change it when they read different tokens, so tokens
+   * cached by the old descriptors aren't replayed.
+   */
+  public static final int GRAMMAR_VERSION = 1;
 
   /**
    * <p>Provide a list of JSON parser tokens for a given instance.  This should be thread safe as only local references
@@ -81,16 +95,82 @@ public abstract class JSONAbstractParser extends GeneralParser<JSONTokenDescript
     return cp;
   }
   
+  /**
+   * <p>Provide a list of declarative JSON parser tokens, for the compiled and generated lexer engines.  The descriptors
+   * are in the same order as {@link #getParserTokenList()}, with the number split into integer and real patterns.
+   * Integer and real numbers share a prefix, so the split relies on the lexer deciding the type where the token ends.
+   * 
+   * @return
+   */
+  private static List<JSONTokenDescriptor> getPatternTokenList()
+  {
+    // Create all token descriptors used in JSON schema.
+    List<JSONTokenDescriptor> cp = new ArrayList<>();
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.COMMENT, JSONTokenDesignation.COMMENT, JSONTokenPatterns.COMMENT));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.COMMENT, JSONTokenDesignation.WHITESPACE, JSONTokenPatterns.WHITESPACE));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.IDENTIFIER, JSONTokenDesignation.ID_NUM_INT, JSONTokenPatterns.NUMBER_INT));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.IDENTIFIER, JSONTokenDesignation.ID_NUM_REA, JSONTokenPatterns.NUMBER_REAL));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.IDENTIFIER, JSONTokenDesignation.ID_BOOL, JSONTokenPatterns.BOOL));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.IDENTIFIER, JSONTokenDesignation.ID_NULL, JSONTokenPatterns.NULL));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_FLDASG, JSONTokenPatterns.FIELD_SEPARATOR));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_SEP, JSONTokenPatterns.ENTRY_SEPARATOR));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.IDENTIFIER, JSONTokenDesignation.ID_STR, JSONTokenPatterns.STRING));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_START_OBJ, JSONTokenPatterns.START_OBJECT));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_FINISH_OBJ, JSONTokenPatterns.END_OBJECT));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_START_ARR, JSONTokenPatterns.START_ARRAY));
+    cp.add(new JSONTokenDescriptorPatternImpl(JSONTokenType.OPERATOR, JSONTokenDesignation.OP_FINISH_ARR, JSONTokenPatterns.END_ARRAY));
+    
+    return cp;
+  }
+  
+  /**
+   * <p>Get the shared JSON grammar for the given lexer engine.  The grammar is built the first time it is asked for and
+   * is thread safe; every parser created with the engine is a session of it.
+   * 
+   * @param engine
+   * @return
+   */
+  public static GeneralParserGrammar<JSONTokenDescriptor> getSharedGrammar(LexerEngine engine)
+  {
+    return GRAMMARS.computeIfAbsent(engine, e -> {
+      if(e == LexerEngine.INTERPRETED) return new GeneralParserGrammar<>(JSONAbstractParser::getParserTokenList, e, GRAMMAR_VERSION);
+      return new GeneralParserGrammar<>(JSONAbstractParser::getPatternTokenList, e, GRAMMAR_VERSION);
+    });
+  }
+  
   /**
    * <p>
    * Create an instance of a unit configuration file parser.
    */
   public JSONAbstractParser()
   {
-    
+    this(LexerEngine.INTERPRETED);
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a JSON parser using the given lexer engine.  The interpreted engine uses the JSON token
+   * descriptors and the compiled and generated engines use their declarative equivalents.
+   * 
+   * @param engine
+   */
+  public JSONAbstractParser(LexerEngine engine)
+  {
+    this(getSharedGrammar(engine));
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a JSON parser as a session of the given grammar.  The grammar must have the JSON token
+   * descriptors, as from {@link #getSharedGrammar(LexerEngine)}.
+   * 
+   * @param grammar
+   */
+  public JSONAbstractParser(GeneralParserGrammar<JSONTokenDescriptor> grammar)
+  {
     // Create the general parser instance with the lexical elements of unit config
     // files.
-    super(getParserTokenList(), new JSONParseStateMachine<>());
+    super(grammar, new JSONParseStateMachine<>());
     // Initialise the parser.
     init();
   }
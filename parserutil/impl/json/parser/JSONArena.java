@@ -0,0 +1,266 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.json.parser;
+
+import java.util.Arrays;
+
+/**
+ * <p>Storage for the documents a {@link JSONDocumentParser} parses with
+ * {@link JSONDocumentParser#parseToArena(java.io.Reader)}.  The text of the values and field names is packed into one
+ * char array, and the nodes of the document into one int array, so a document is a handful of objects however large
+ * it is.  The arrays belong to the parser and are reused for each document once the one before has been released, so
+ * they grow to the size of the largest document and stay there.
+ * <p>Each node takes {@link #NODE_SIZE} ints.  The first is the tag.  A value or field name then has the start and
+ * length of its text; an object or array has its number of fields or elements and the position of the node after its
+ * last descendant.  The fields of an object are a name node followed by a value node.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class JSONArena
+{
+  /**
+   * <p>Ints per node.
+   */
+  static final int NODE_SIZE = 3;
+  
+  /**
+   * <p>Tag of an object node.  Value nodes are tagged with the ordinal of their value type.
+   */
+  static final int OBJECT = 16;
+  
+  /**
+   * <p>Tag of an array node.
+   */
+  static final int ARRAY = 17;
+  
+  /**
+   * <p>Tag of a field name node.
+   */
+  static final int NAME = 18;
+  
+  /**
+   * <p>Default text capacity in chars.
+   */
+  private static final int TEXT_CAPACITY = 4096;
+  
+  /**
+   * <p>Default node capacity in nodes.
+   */
+  private static final int NODE_CAPACITY = 1024;
+  
+  /**
+   * <p>Value and field name text.
+   */
+  char[] text;
+  
+  /**
+   * <p>Chars of text used by the current document.
+   */
+  int textUsed;
+  
+  /**
+   * <p>Node data.
+   */
+  int[] nodes;
+  
+  /**
+   * <p>Ints of node data used by the current document.
+   */
+  int nodesUsed;
+  
+  /**
+   * <p>Most chars of text used by a document.
+   */
+  private int textHighWater;
+  
+  /**
+   * <p>Most nodes used by a document.
+   */
+  private int nodeHighWater;
+  
+  /**
+   * <p>The document using the arena, or null if the arena is free.
+   */
+  private JSONArenaDocument document;
+  
+  /**
+   * <p>Create an empty arena.
+   */
+  JSONArena()
+  {
+    text = new char[TEXT_CAPACITY];
+    nodes = new int[NODE_CAPACITY * NODE_SIZE];
+  }
+  
+  /**
+   * <p>Start a new document.
+   * 
+   * @throws IllegalStateException if the last document hasn't been released.
+   */
+  void begin()
+  {
+    if(document != null) throw new IllegalStateException();
+    textUsed = 0;
+    nodesUsed = 0;
+  }
+  
+  /**
+   * <p>Add a node.
+   * 
+   * @param tag
+   * @param a the text start, or the number of fields or elements.
+   * @param b the text length, or the position after the last descendant.
+   * @return the position of the node.
+   */
+  int addNode(int tag, int a, int b)
+  {
+    if(nodesUsed + NODE_SIZE > nodes.length) nodes = Arrays.copyOf(nodes, nodes.length * 2);
+    int node = nodesUsed;
+    nodes[node] = tag;
+    nodes[node + 1] = a;
+    nodes[node + 2] = b;
+    nodesUsed += NODE_SIZE;
+    return node;
+  }
+  
+  /**
+   * <p>Add a value or field name node with the given text.
+   * 
+   * @param tag
+   * @param chars
+   * @param offset
+   * @param length
+   */
+  void addText(int tag, char[] chars, int offset, int length)
+  {
+    if(textUsed + length > text.length) text = Arrays.copyOf(text, Math.max(text.length * 2, textUsed + length));
+    System.arraycopy(chars, offset, text, textUsed, length);
+    addNode(tag, textUsed, length);
+    textUsed += length;
+  }
+  
+  /**
+   * <p>Finish an object or array node once its descendants have been added.
+   * 
+   * @param node
+   * @param count the number of fields or elements.
+   */
+  void close(int node, int count)
+  {
+    nodes[node + 1] = count;
+    nodes[node + 2] = nodesUsed;
+  }
+  
+  /**
+   * <p>Finish the document.
+   * 
+   * @return the document.
+   */
+  JSONArenaDocument finish()
+  {
+    textHighWater = Math.max(textHighWater, textUsed);
+    nodeHighWater = Math.max(nodeHighWater, nodesUsed / NODE_SIZE);
+    document = new JSONArenaDocument(this);
+    return document;
+  }
+  
+  /**
+   * <p>Free the arena for the next document, if the given document is using it.
+   * 
+   * @param doc
+   */
+  void release(JSONArenaDocument doc)
+  {
+    if(document == doc) document = null;
+  }
+  
+  /**
+   * <p>Check whether the given document is the one using the arena.
+   * 
+   * @param doc
+   * @return
+   */
+  boolean isUsedBy(JSONArenaDocument doc)
+  {
+    return document == doc;
+  }
+  
+  /**
+   * <p>Check whether a document is using the arena.  A new document can only be parsed into the arena once the last has
+   * been released.
+   * 
+   * @return
+   */
+  public boolean isInUse()
+  {
+    return document != null;
+  }
+  
+  /**
+   * <p>Get the most chars of text any document has used.
+   * 
+   * @return
+   */
+  public int getTextHighWater()
+  {
+    return textHighWater;
+  }
+  
+  /**
+   * <p>Get the most nodes any document has used.
+   * 
+   * @return
+   */
+  public int getNodeHighWater()
+  {
+    return nodeHighWater;
+  }
+  
+  /**
+   * <p>Get the most bytes of the arena arrays any document has used.
+   * 
+   * @return
+   */
+  public long getHighWaterBytes()
+  {
+    return (long) textHighWater * Character.BYTES + (long) nodeHighWater * NODE_SIZE * Integer.BYTES;
+  }
+  
+  /**
+   * <p>Get the bytes the arena arrays take up.  They grow as needed and are never shrunk.
+   * 
+   * @return
+   */
+  public long getCapacityBytes()
+  {
+    return (long) text.length * Character.BYTES + (long) nodes.length * Integer.BYTES;
+  }
+}
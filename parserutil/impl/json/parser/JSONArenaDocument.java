@@ -0,0 +1,380 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.json.parser;
+
+import java.nio.CharBuffer;
+
+import parserutil.impl.json.JSONArrayImpl;
+import parserutil.impl.json.JSONField;
+import parserutil.impl.json.JSONInstanceType;
+import parserutil.impl.json.JSONObjectImpl;
+import parserutil.impl.json.JSONValueHolder;
+import parserutil.impl.json.JSONValueImpl;
+import parserutil.impl.json.JSONValueImpl.VALTYPE;
+import parserutil.main.TokenText;
+
+/**
+ * <p>A JSON document held in a {@link JSONArena}.  Nodes are identified by their position in the arena, starting with
+ * the root at {@link #getRoot()}, and read through the methods of the document rather than as objects of their own.
+ * <p>The document is valid until it is released, when the arena is free for the parser's next document.  Any use of a
+ * released document fails.  Use {@link #toValueHolder(int)} to copy all or part of a document into
+ * {@link JSONValueHolder} form to keep.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class JSONArenaDocument implements AutoCloseable
+{
+  /**
+   * <p>Value types, indexed by value node tag.
+   */
+  private static final VALTYPE[] VALUE_TYPES = VALTYPE.values();
+  
+  /**
+   * <p>The arena holding the document.
+   */
+  private final JSONArena arena;
+  
+  /**
+   * <p>Create the document.
+   * 
+   * @param arena
+   */
+  JSONArenaDocument(JSONArena arena)
+  {
+    this.arena = arena;
+  }
+  
+  /**
+   * <p>Get the root node.
+   * 
+   * @return
+   */
+  public int getRoot()
+  {
+    check();
+    return 0;
+  }
+  
+  /**
+   * <p>Get the instance type of a node.
+   * 
+   * @param node
+   * @return
+   */
+  public JSONInstanceType getType(int node)
+  {
+    switch(tag(node))
+    {
+      case JSONArena.OBJECT:
+        return JSONInstanceType.OBJECT;
+      case JSONArena.ARRAY:
+        return JSONInstanceType.ARRAY;
+      default:
+        return JSONInstanceType.VALUE;
+    }
+  }
+  
+  /**
+   * <p>Get the value type of a value node.
+   * 
+   * @param node
+   * @return
+   * @throws IllegalStateException if the node isn't a value.
+   */
+  public VALTYPE getValueType(int node)
+  {
+    int tag = tag(node);
+    if(tag >= VALUE_TYPES.length) throw new IllegalStateException();
+    return VALUE_TYPES[tag];
+  }
+  
+  /**
+   * <p>Get the text of a value node as it is in the input, as a view of the arena.  The view is only valid until the
+   * document is released.
+   * 
+   * @param node
+   * @return
+   */
+  public CharSequence getText(int node)
+  {
+    getValueType(node);
+    return new TokenText(arena.text, arena.nodes[node + 1], arena.nodes[node + 2]);
+  }
+  
+  /**
+   * <p>Get the value of a node as {@link JSONValueImpl#getValue()} and {@link JSONValueHolder#getValue()} would: a
+   * string value without quotes, any other value as it is in the input, and an object or array as JSON text.
+   * 
+   * @param node
+   * @return
+   */
+  public String getValue(int node)
+  {
+    int tag = tag(node);
+    if(tag >= VALUE_TYPES.length) return toValueHolder(node).getValue();
+    int start = arena.nodes[node + 1];
+    int length = arena.nodes[node + 2];
+    if(tag == VALTYPE.STR.ordinal()) return new String(arena.text, start + 1, length - 2);
+    return new String(arena.text, start, length);
+  }
+  
+  /**
+   * <p>Get the value of an integer value node.
+   * 
+   * @param node
+   * @return
+   * @throws IllegalStateException if the node isn't an integer value.
+   */
+  public int getIntegerValue(int node)
+  {
+    if(getValueType(node) != VALTYPE.NUM_INT) throw new IllegalStateException();
+    return Integer.parseInt(CharBuffer.wrap(arena.text), arena.nodes[node + 1], arena.nodes[node + 1] + arena.nodes[node + 2], 10);
+  }
+  
+  /**
+   * <p>Get the number of fields of an object node or elements of an array node.
+   * 
+   * @param node
+   * @return
+   * @throws IllegalStateException if the node is a value.
+   */
+  public int size(int node)
+  {
+    int tag = tag(node);
+    if(tag != JSONArena.OBJECT && tag != JSONArena.ARRAY) throw new IllegalStateException();
+    return arena.nodes[node + 1];
+  }
+  
+  /**
+   * <p>Get an element of an array node.
+   * 
+   * @param node
+   * @param ix
+   * @return the element node.
+   * @throws IllegalStateException if the node isn't an array.
+   */
+  public int getElement(int node, int ix)
+  {
+    if(tag(node) != JSONArena.ARRAY) throw new IllegalStateException();
+    return child(node, ix);
+  }
+  
+  /**
+   * <p>Get the name of a field of an object node.
+   * 
+   * @param node
+   * @param ix
+   * @return
+   * @throws IllegalStateException if the node isn't an object.
+   */
+  public String getFieldName(int node, int ix)
+  {
+    if(tag(node) != JSONArena.OBJECT) throw new IllegalStateException();
+    int name = child(node, ix);
+    return new String(arena.text, arena.nodes[name + 1] + 1, arena.nodes[name + 2] - 2);
+  }
+  
+  /**
+   * <p>Get the value of a field of an object node.
+   * 
+   * @param node
+   * @param ix
+   * @return the value node.
+   * @throws IllegalStateException if the node isn't an object.
+   */
+  public int getField(int node, int ix)
+  {
+    if(tag(node) != JSONArena.OBJECT) throw new IllegalStateException();
+    return child(node, ix) + JSONArena.NODE_SIZE;
+  }
+  
+  /**
+   * <p>Get the value of the named field of an object node.  This throws a runtime exception if the field doesn't exist.
+   * 
+   * @param node
+   * @param name
+   * @return the value node.
+   */
+  public int getField(int node, String name)
+  {
+    int value = peekField(node, name);
+    if(value < 0) throw new IllegalArgumentException(name);
+    return value;
+  }
+  
+  /**
+   * <p>Get the value of the named field of an object node.  This returns -1 if the field doesn't exist.  The name is
+   * compared with the text in the arena, so nothing is allocated.
+   * 
+   * @param node
+   * @param name
+   * @return the value node, or -1.
+   * @throws IllegalStateException if the node isn't an object.
+   */
+  public int peekField(int node, String name)
+  {
+    if(tag(node) != JSONArena.OBJECT) throw new IllegalStateException();
+    int[] nodes = arena.nodes;
+    char[] text = arena.text;
+    int field = node + JSONArena.NODE_SIZE;
+    for(int i = 0, n = nodes[node + 1]; i < n; i++)
+    {
+      //Compare without the quotes.
+      int start = nodes[field + 1] + 1;
+      int length = nodes[field + 2] - 2;
+      if(length == name.length())
+      {
+        int c = 0;
+        while(c < length && text[start + c] == name.charAt(c)) c++;
+        if(c == length) return field + JSONArena.NODE_SIZE;
+      }
+      field = next(field + JSONArena.NODE_SIZE);
+    }
+    return -1;
+  }
+  
+  /**
+   * <p>Copy a node and its descendants into {@link JSONValueHolder} form, which stays valid after the document is
+   * released.
+   * 
+   * @param node
+   * @return
+   */
+  public JSONValueHolder toValueHolder(int node)
+  {
+    int tag = tag(node);
+    int[] nodes = arena.nodes;
+    if(tag == JSONArena.OBJECT)
+    {
+      JSONObjectImpl object = new JSONObjectImpl();
+      int field = node + JSONArena.NODE_SIZE;
+      for(int i = 0, n = nodes[node + 1]; i < n; i++)
+      {
+        String name = new String(arena.text, nodes[field + 1], nodes[field + 2]);
+        object.addField(new JSONField(name, toValueHolder(field + JSONArena.NODE_SIZE)));
+        field = next(field + JSONArena.NODE_SIZE);
+      }
+      return new JSONValueHolder(object);
+    }
+    if(tag == JSONArena.ARRAY)
+    {
+      JSONArrayImpl array = new JSONArrayImpl();
+      int element = node + JSONArena.NODE_SIZE;
+      for(int i = 0, n = nodes[node + 1]; i < n; i++)
+      {
+        array.addField(toValueHolder(element));
+        element = next(element);
+      }
+      return new JSONValueHolder(array);
+    }
+    return new JSONValueHolder(new JSONValueImpl(new String(arena.text, nodes[node + 1], nodes[node + 2]), VALUE_TYPES[tag]));
+  }
+  
+  /**
+   * <p>Release the document, freeing the arena for the parser's next document.  Releasing more than once has no effect.
+   */
+  public void release()
+  {
+    arena.release(this);
+  }
+  
+  /**
+   * <p>Release the document.
+   */
+  @Override
+  public void close()
+  {
+    release();
+  }
+  
+  /**
+   * <p>JSON-formatted string of the document, the same as for the {@link JSONValueHolder} form.
+   */
+  @Override
+  public String toString()
+  {
+    return toValueHolder(getRoot()).toString();
+  }
+  
+  /**
+   * <p>Get the tag of a node.
+   * 
+   * @param node
+   * @return
+   * @throws IllegalStateException if the document has been released.
+   * @throws IndexOutOfBoundsException if there is no such node.
+   */
+  private int tag(int node)
+  {
+    check();
+    if(node < 0 || node >= arena.nodesUsed || node % JSONArena.NODE_SIZE != 0) throw new IndexOutOfBoundsException(node);
+    return arena.nodes[node];
+  }
+  
+  /**
+   * <p>Get a child of an object or array node.  The children of an object are its field name nodes.
+   * 
+   * @param node
+   * @param ix
+   * @return
+   */
+  private int child(int node, int ix)
+  {
+    int[] nodes = arena.nodes;
+    if(ix < 0 || ix >= nodes[node + 1]) throw new IndexOutOfBoundsException(ix);
+    int child = node + JSONArena.NODE_SIZE;
+    
+    //An object's children are name and value pairs.
+    boolean object = (nodes[node] == JSONArena.OBJECT);
+    for(int i = 0; i < ix; i++) child = object ? next(child + JSONArena.NODE_SIZE) : next(child);
+    return child;
+  }
+  
+  /**
+   * <p>Get the node after a node and its descendants.
+   * 
+   * @param node
+   * @return
+   */
+  private int next(int node)
+  {
+    int tag = arena.nodes[node];
+    return (tag == JSONArena.OBJECT || tag == JSONArena.ARRAY) ? arena.nodes[node + 2] : node + JSONArena.NODE_SIZE;
+  }
+  
+  /**
+   * <p>Make sure the document hasn't been released.
+   */
+  private void check()
+  {
+    if(!arena.isUsedBy(this)) throw new IllegalStateException();
+  }
+}
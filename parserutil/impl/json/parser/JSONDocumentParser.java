@@ -31,16 +31,30 @@ package parserutil.impl.json.parser;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ResourceBundle;
+import java.util.stream.Stream;
 
 import parserutil.impl.json.JSONArrayImpl;
 import parserutil.impl.json.JSONField;
 import parserutil.impl.json.JSONObjectImpl;
 import parserutil.impl.json.JSONValueHolder;
 import parserutil.impl.json.JSONValueImpl;
+import parserutil.impl.json.JSONValueImpl.VALTYPE;
 import parserutil.main.GeneralParser;
+import parserutil.main.GeneralParserCursor;
 import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
 import parserutil.main.GeneralParserToken;
+import parserutil.main.InputSegments;
+import parserutil.main.MappedFileReader;
+import parserutil.main.Utf8BufferReader;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
 
 /**
  * <p>
@@ -54,6 +68,60 @@ import parserutil.main.GeneralParserToken;
  */
 public class JSONDocumentParser extends JSONAbstractParser
 {
+  /**
+   * <p>The arena documents are parsed into by {@link #parseToArena(Reader)}.  Null until first needed.
+   */
+  private JSONArena arena;
+  
+  /**
+   * <p>
+   * Create an instance of a JSON document parser.  Tokens are read in zero-copy mode as they never leave the parser;
+   * only the text of values and field names is copied, into the document.
+   */
+  public JSONDocumentParser()
+  {
+    this(LexerEngine.INTERPRETED);
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a JSON document parser using the given lexer engine.
+   * 
+   * @param engine
+   */
+  public JSONDocumentParser(LexerEngine engine)
+  {
+    this(getSharedGrammar(engine));
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a JSON document parser as a session of the given grammar.  Parsers are cheap to create this
+   * way; use one per thread or per document.
+   * 
+   * @param grammar
+   */
+  public JSONDocumentParser(GeneralParserGrammar<JSONTokenDescriptor> grammar)
+  {
+    super(grammar);
+    setZeroCopyTokens(true);
+  }
+  
+  /**
+   * <p>
+   * Put the parser back as it was created.  The arena is kept, as it is only a buffer for the next document, unless a
+   * document parsed into it hasn't been released yet: that document still reads the arena, so it keeps it and the
+   * parser starts a new one when next needed.
+   */
+  @Override
+  protected void resetSession()
+  {
+    super.resetSession();
+    setZeroCopyTokens(true);
+    //Leave an arena still in use to its document.
+    if(arena != null && arena.isInUse()) arena = null;
+  }
+  
   /**
    * <p>
    * Parse the given content.
@@ -83,46 +151,14 @@ public class JSONDocumentParser extends JSONAbstractParser
 //        if (!"".equals(nextToken.machineStatus))
 //          throw new GeneralParserException(nextToken.machineStatus, nextToken.getLocation());
         
-        // Check type. Top level type can be an object, array or a string.
-        if (nextToken.descriptor.getDesignation() == JSONTokenDesignation.OP_START_OBJ)
-        {
-          //Parse the return object.
-          JSONValueHolder jsonRetObject = doJSONParseObject(content);
-          
-          //Test for follow-on token.  If there are further tokens (not allowed) then this will fail.
-          getNextJSONToken(content);
-          
-          //Return the object.
-          return jsonRetObject;
-        }
-        else if (nextToken.descriptor.getDesignation() == JSONTokenDesignation.OP_START_ARR)
-        {
-          //Parse the return object.
-          JSONValueHolder jsonRetObject = doJSONParseArray(content);
-          
-          //Test for follow-on token.  If there are further tokens (not allowed) then this will fail.
-          getNextJSONToken(content);
-          
-          //Return the object.
-          return jsonRetObject;
-        }
-        //Test for a simple value
-        else if (nextToken.descriptor.getType() == JSONTokenType.IDENTIFIER)
-        {
-          //Parse the return object.
-          JSONValueHolder jsonRetObject = new JSONValueHolder(new JSONValueImpl(nextToken));
-          
-          //Test for follow-on token.  If there are further tokens (not allowed) then this will fail.
-          getNextJSONToken(content);
-          
-          //Return the object.
-          return jsonRetObject;
-        }
-        else
-        {
-          //No start token type.
-          throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
-        }
+        //Parse the return object.
+        JSONValueHolder jsonRetObject = doJSONParseDocument(content, nextToken);
+        
+        //Test for follow-on token.  If there are further tokens (not allowed) then this will fail.
+        getNextJSONToken(content);
+        
+        //Return the object.
+        return jsonRetObject;
       }
     }
     catch (NullPointerException npe)
@@ -134,6 +170,493 @@ public class JSONDocumentParser extends JSONAbstractParser
     throw new IllegalStateException();
   }
   
+  /**
+   * <p>
+   * Parse the given content, checking the tokens as the given mode says.  The mode applies to this parse only; the
+   * parser's own mode (see {@link #setValidationMode(ValidationMode)}) is left as it was.
+   * 
+   * @param content
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONValueHolder parse(Reader content, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    return withValidationMode(mode, () -> parse(content));
+  }
+  
+  /**
+   * <p>
+   * Get the documents in the given content as a stream.  The content is a sequence of JSON values - objects, arrays or
+   * simple values - such as newline delimited JSON or concatenated JSON, and each is a document of the stream.  The
+   * parser is initialised once for the content; only the validation machine is reset between documents.  The parser
+   * can't be used for anything else until the stream has been consumed.
+   * <p>
+   * Errors are thrown from the stream as {@link parserutil.main.UncheckedGeneralParserException} and
+   * {@link java.io.UncheckedIOException}.
+   * 
+   * @param content
+   * @return
+   */
+  public Stream<JSONValueHolder> documents(Reader content)
+  {
+    return records(content, (parser, in) -> nextDocument(in));
+  }
+  
+  /**
+   * <p>
+   * Get the documents in the given UTF-8 bytes as a stream, as {@link #documents(Reader)}, that splits between documents
+   * so it can be read in parallel; see {@link #documents(ByteBuffer, int)}.
+   * 
+   * @param content
+   * @return
+   */
+  public Stream<JSONValueHolder> documents(ByteBuffer content)
+  {
+    return documents(content, InputSegments.DEFAULT_SEGMENT_SIZE);
+  }
+  
+  /**
+   * <p>
+   * Get the documents in the given UTF-8 bytes as a stream, as {@link #documents(Reader)}.  A quick scan of the bytes
+   * finds the line ends outside any document, and the stream splits at line ends at least the given number of bytes
+   * apart, so newline delimited JSON splits between any records.  Each part is read by a new parser session sharing this
+   * parser's grammar and settings.
+   * <p>
+   * Values hold views of the bytes, as for {@link #parse(ByteBuffer)}.
+   * 
+   * @param content
+   * @param segmentSize the minimum size of a split in bytes.
+   * @return
+   */
+  public Stream<JSONValueHolder> documents(ByteBuffer content, int segmentSize)
+  {
+    GeneralParserGrammar<JSONTokenDescriptor> sessionGrammar = getGrammar();
+    
+    return records(content, documentSegments(content, segmentSize), () -> new JSONDocumentParser(sessionGrammar), JSONDocumentParser::nextDocument);
+  }
+  
+  /**
+   * <p>
+   * Get the documents in the given UTF-8 file as a stream.  The file is memory mapped, and the stream splits between
+   * documents as {@link #documents(ByteBuffer)}.  A file too big to map in one buffer is read in order instead.  Close
+   * the stream when done with it.
+   * 
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  public Stream<JSONValueHolder> documents(Path file) throws IOException
+  {
+    try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+    {
+      //The mapping stays valid after the channel is closed.
+      if(channel.size() <= Integer.MAX_VALUE) return documents(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    
+    MappedFileReader content = new MappedFileReader(file);
+    return documents(content).onClose(() -> {
+      try
+      {
+        content.close();
+      }
+      catch(IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+  
+  /**
+   * <p>
+   * Find the line ends outside strings, comments and objects and arrays, at least the given number of bytes apart.  A
+   * line end there is between documents, or after a comment or whitespace between them.
+   * 
+   * @param content
+   * @param segmentSize
+   * @return
+   */
+  private static InputSegments documentSegments(ByteBuffer content, int segmentSize)
+  {
+    int end = content.limit();
+    InputSegments segments = new InputSegments(content.position(), end);
+    int last = content.position();
+    int line = 0;
+    int depth = 0;
+    boolean string = false;
+    boolean escape = false;
+    boolean comment = false;
+    
+    for(int i = InputSegments.skipByteOrderMark(content, last, end); i < end; i++)
+    {
+      byte b = content.get(i);
+      if(b == '\n') line++;
+      
+      if(string)
+      {
+        //Only an unescaped quote ends a string.
+        if(escape) escape = false;
+        else if(b == '\\') escape = true;
+        else if(b == '"') string = false;
+      }
+      else if(comment)
+      {
+        //A comment runs to the line end.
+        if(b == '\n') comment = false;
+      }
+      else if(b == '"')
+      {
+        string = true;
+      }
+      else if(b == '#')
+      {
+        comment = true;
+      }
+      else if(b == '{' || b == '[')
+      {
+        depth++;
+      }
+      else if(b == '}' || b == ']')
+      {
+        depth--;
+      }
+      else if(b == '\n' && depth == 0 && i + 1 - last >= segmentSize && i + 1 < end)
+      {
+        //Line end between documents.
+        last = i + 1;
+        segments.add(last, line, -1);
+      }
+    }
+    return segments;
+  }
+  
+  /**
+   * <p>
+   * Read the next document from content already being parsed.  The validation machine is reset so the document is
+   * checked as new input, but the input carries on from the end of the last document.
+   * 
+   * @param content
+   * @return the document, or null at the end of the content.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private JSONValueHolder nextDocument(Reader content) throws IOException, GeneralParserException
+  {
+    try
+    {
+      resetValidation();
+      
+      // Get the first non-comment token.  Null implies the end of stream.
+      GeneralParserToken<JSONTokenDescriptor> nextToken = getNextJSONToken(content);
+      return (nextToken != null) ? doJSONParseDocument(content, nextToken) : null;
+    }
+    catch (NullPointerException npe)
+    {
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null, npe);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the document starting with the given token.
+   * 
+   * @param content
+   * @param nextToken the first token of the document.
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private JSONValueHolder doJSONParseDocument(Reader content, GeneralParserToken<JSONTokenDescriptor> nextToken) throws IOException, GeneralParserException
+  {
+    // Check type. Top level type can be an object, array or a simple value.
+    if (nextToken.descriptor.getDesignation() == JSONTokenDesignation.OP_START_OBJ)
+    {
+      return doJSONParseObject(content);
+    }
+    else if (nextToken.descriptor.getDesignation() == JSONTokenDesignation.OP_START_ARR)
+    {
+      return doJSONParseArray(content);
+    }
+    //Test for a simple value
+    else if (nextToken.descriptor.getType() == JSONTokenType.IDENTIFIER)
+    {
+      return new JSONValueHolder(new JSONValueImpl(nextToken));
+    }
+    else
+    {
+      //No start token type.
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the given UTF-8 file.  The file is memory mapped rather than read, or opened from the token cache if one is set.
+   * 
+   * @param file
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONValueHolder parse(Path file) throws IOException, GeneralParserException
+  {
+    try(Reader content = openFile(file))
+    {
+      return parse(content);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the given UTF-8 file, checking the tokens as the given mode says for this parse only.
+   * 
+   * @param file
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONValueHolder parse(Path file, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    return withValidationMode(mode, () -> parse(file));
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer.  The bytes are lexed directly and values
+   * hold views of them, decoded when asked for, so the bytes must be left unchanged while the document is in use.
+   * 
+   * @param content
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONValueHolder parse(ByteBuffer content) throws IOException, GeneralParserException
+  {
+    return parse(new Utf8BufferReader(content));
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer, checking the tokens as the given mode
+   * says for this parse only.
+   * 
+   * @param content
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONValueHolder parse(ByteBuffer content, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    return withValidationMode(mode, () -> parse(content));
+  }
+  
+  /**
+   * <p>
+   * Parse the given content into this parser's arena.  Tokens aren't built and the document isn't made of objects: its
+   * text and nodes are packed into arrays the parser reuses for each document, so a parse allocates next to nothing
+   * once the arena has grown to the size of the documents parsed.
+   * <p>
+   * The document must be released before the next is parsed into the arena.
+   * 
+   * @param content
+   * @return the document.
+   * @throws IOException
+   * @throws GeneralParserException
+   * @throws IllegalStateException if the last document parsed into the arena hasn't been released.
+   */
+  public JSONArenaDocument parseToArena(Reader content) throws IOException, GeneralParserException
+  {
+    if(arena == null) arena = new JSONArena();
+    arena.begin();
+    init();
+    
+    // Get the first non-comment token.  The end of input means there's no document.
+    if(!advanceJSON(content)) throw new IllegalStateException();
+    
+    // Top level type can be an object, array or a simple value.
+    if(!arenaValue(content)) throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
+    
+    //Test for follow-on token.  If there are further tokens (not allowed) then this will fail.
+    advanceJSON(content);
+    
+    return arena.finish();
+  }
+  
+  /**
+   * <p>
+   * Parse the given UTF-8 file into this parser's arena.  The file is memory mapped rather than read, or opened from the
+   * token cache if one is set, and the text of the document is copied out of it.
+   * 
+   * @param file
+   * @return the document.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONArenaDocument parseToArena(Path file) throws IOException, GeneralParserException
+  {
+    try(Reader content = openFile(file))
+    {
+      return parseToArena(content);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer into this parser's arena.  The text of the
+   * document is decoded into the arena, so the bytes can be changed once this returns.
+   * 
+   * @param content
+   * @return the document.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public JSONArenaDocument parseToArena(ByteBuffer content) throws IOException, GeneralParserException
+  {
+    return parseToArena(new Utf8BufferReader(content));
+  }
+  
+  /**
+   * <p>
+   * Get the arena documents are parsed into by {@link #parseToArena(Reader)}, for its high-water marks.
+   * 
+   * @return the arena, or null if nothing has been parsed into it yet.
+   */
+  public JSONArena getArena()
+  {
+    return arena;
+  }
+  
+  /**
+   * <p>
+   * Advance the cursor to the next token that isn't a comment or whitespace.
+   * 
+   * @param content
+   * @return false if the end of input has been reached.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private boolean advanceJSON(Reader content) throws IOException, GeneralParserException
+  {
+    while(advance(content))
+    {
+      JSONTokenDesignation designation = getCursor().getDescriptor().getDesignation();
+      if( (designation != JSONTokenDesignation.COMMENT) && (designation != JSONTokenDesignation.WHITESPACE) ) return true;
+    }
+    return false;
+  }
+  
+  /**
+   * <p>
+   * Advance the cursor to the next token that isn't a comment or whitespace, which there must be.
+   * 
+   * @param content
+   * @return the designation of the token.
+   * @throws IOException
+   * @throws GeneralParserException if the end of input has been reached.
+   */
+  private JSONTokenDesignation nextJSON(Reader content) throws IOException, GeneralParserException
+  {
+    if(!advanceJSON(content)) throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
+    return getCursor().getDescriptor().getDesignation();
+  }
+  
+  /**
+   * <p>
+   * Add the value the cursor is at the start of to the arena: an object, array or simple value.
+   * 
+   * @param content
+   * @return false if the cursor isn't at the start of a value.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private boolean arenaValue(Reader content) throws IOException, GeneralParserException
+  {
+    GeneralParserCursor<JSONTokenDescriptor> cursor = getCursor();
+    switch(cursor.getDescriptor().getDesignation())
+    {
+      case OP_START_OBJ:
+        arenaObject(content);
+        return true;
+      case OP_START_ARR:
+        arenaArray(content);
+        return true;
+      case ID_STR:
+        arena.addText(VALTYPE.STR.ordinal(), cursor.getBuffer(), cursor.getOffset(), cursor.length());
+        return true;
+      case ID_NUM_INT:
+        arena.addText(VALTYPE.NUM_INT.ordinal(), cursor.getBuffer(), cursor.getOffset(), cursor.length());
+        return true;
+      case ID_NUM_REA:
+        arena.addText(VALTYPE.NUM_REA.ordinal(), cursor.getBuffer(), cursor.getOffset(), cursor.length());
+        return true;
+      case ID_BOOL:
+        arena.addText(VALTYPE.BOOL.ordinal(), cursor.getBuffer(), cursor.getOffset(), cursor.length());
+        return true;
+      case ID_NULL:
+        arena.addText(VALTYPE.NULL.ordinal(), cursor.getBuffer(), cursor.getOffset(), cursor.length());
+        return true;
+      default:
+        return false;
+    }
+  }
+  
+  /**
+   * <p>
+   * Add the object the cursor is at the start of to the arena.
+   * 
+   * @param content
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private void arenaObject(Reader content) throws IOException, GeneralParserException
+  {
+    GeneralParserCursor<JSONTokenDescriptor> cursor = getCursor();
+    int node = arena.addNode(JSONArena.OBJECT, 0, 0);
+    int count = 0;
+    
+    // Pull fields until object finished.
+    JSONTokenDesignation designation = nextJSON(content);
+    while(designation != JSONTokenDesignation.OP_FINISH_OBJ)
+    {
+      // Name, then ignore separator and get value.
+      arena.addText(JSONArena.NAME, cursor.getBuffer(), cursor.getOffset(), cursor.length());
+      nextJSON(content);
+      nextJSON(content);
+      if(!arenaValue(content)) throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
+      count++;
+      
+      // Get next. If it's a close brace then we're done, otherwise it's a separator.
+      designation = nextJSON(content);
+      if(designation != JSONTokenDesignation.OP_FINISH_OBJ) designation = nextJSON(content);
+    }
+    arena.close(node, count);
+  }
+  
+  /**
+   * <p>
+   * Add the array the cursor is at the start of to the arena.
+   * 
+   * @param content
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private void arenaArray(Reader content) throws IOException, GeneralParserException
+  {
+    int node = arena.addNode(JSONArena.ARRAY, 0, 0);
+    int count = 0;
+    
+    // Pull elements until array finished.
+    JSONTokenDesignation designation = nextJSON(content);
+    while(designation != JSONTokenDesignation.OP_FINISH_ARR)
+    {
+      if(!arenaValue(content)) throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null);
+      count++;
+      
+      // Get next. If it's a close bracket then we're done, otherwise it's a separator.
+      designation = nextJSON(content);
+      if(designation != JSONTokenDesignation.OP_FINISH_ARR) designation = nextJSON(content);
+    }
+    arena.close(node, count);
+  }
+  
   /**
    * <p>
    * Parse the given object contents of the parent object.
@@ -163,7 +686,7 @@ public class JSONDocumentParser extends JSONAbstractParser
         continue;
       }
       
-      String identifier = idToken.tokenValue;
+      String identifier = idToken.getTokenValue();
       // Ignore separator.
       getNextJSONToken(content);// parser.getNextToken(content);
       // Get value.
@@ -0,0 +1,616 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.json.parser;
+
+import java.io.IOException;
+
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>{@link JSONElementParser} with a generated lexer.  Generated by {@link parserutil.main.lexer.LexerGenerator}
+ * from the parser's token patterns; regenerate rather than edit when the patterns change.
+ * <p>Token descriptors:
+ * <ol start="0">
+ * <li>([#][U+0000-U+0009U+000b-U+fffe]{0,}[U+000a]{0,1})</li>
+ * <li>[U+0009-U+000dU+001c-U+0020U+1680U+2000-U+2006U+2008-U+200aU+2028-U+2029U+205fU+3000]{1,}</li>
+ * <li>([\-]{0,1}[0-9U+0660-U+0669U+06f0-U+06f9U+07c0-U+07c9U+0966-U+096fU+09e6-U+09efU+0a66-U+0a6fU+0ae6-\...</li>
+ * <li>([\-]{0,1}[0-9U+0660-U+0669U+06f0-U+06f9U+07c0-U+07c9U+0966-U+096fU+09e6-U+09efU+0a66-U+0a6fU+0ae6-\...</li>
+ * <li>(([t][r][u][e])|([f][a][l][s][e]))</li>
+ * <li>([n][u][l][l])</li>
+ * <li>[:]</li>
+ * <li>[,]</li>
+ * <li>(["]([U+0000-!#-\[\]-U+fffe]|([\\][U+0000-U+fffe])){0,}["])</li>
+ * <li>[{]</li>
+ * <li>[}]</li>
+ * <li>[\[]</li>
+ * <li>[\]]</li>
+ * </ol>
+ */
+public class JSONElementGeneratedParser extends JSONElementParser
+{
+  /**
+   * <p>Create the parser with the generated lexer.
+   */
+  public JSONElementGeneratedParser()
+  {
+    super(LexerEngine.GENERATED);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int lexGenerated(char ch) throws IOException
+  {
+    //First char.
+    int state;
+    switch(ch)
+    {
+      case '\t': case '\n': case 0x000b: case 0x000c: case '\r': case 0x001c: case 0x001d: case 0x001e: case 0x001f: case ' ':
+        state = 1;
+        break;
+      case '"':
+        state = 2;
+        break;
+      case '#':
+        state = 3;
+        break;
+      case ',':
+        state = 4;
+        break;
+      case '-':
+        state = 5;
+        break;
+      case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+        state = 6;
+        break;
+      case ':':
+        state = 7;
+        break;
+      case '[':
+        state = 8;
+        break;
+      case ']':
+        state = 9;
+        break;
+      case 'f':
+        state = 10;
+        break;
+      case 'n':
+        state = 11;
+        break;
+      case 't':
+        state = 12;
+        break;
+      case '{':
+        state = 13;
+        break;
+      case '}':
+        state = 14;
+        break;
+      default:
+        if(ch == 0x1680
+            || (ch >= 0x2000 && ch <= 0x2006)
+            || (ch >= 0x2008 && ch <= 0x200a)
+            || (ch >= 0x2028 && ch <= 0x2029)
+            || ch == 0x205f
+            || ch == 0x3000) state = 1;
+        else if((ch >= 0x0660 && ch <= 0x0669)
+            || (ch >= 0x06f0 && ch <= 0x06f9)
+            || (ch >= 0x07c0 && ch <= 0x07c9)
+            || (ch >= 0x0966 && ch <= 0x096f)
+            || (ch >= 0x09e6 && ch <= 0x09ef)
+            || (ch >= 0x0a66 && ch <= 0x0a6f)
+            || (ch >= 0x0ae6 && ch <= 0x0aef)
+            || (ch >= 0x0b66 && ch <= 0x0b6f)
+            || (ch >= 0x0be6 && ch <= 0x0bef)
+            || (ch >= 0x0c66 && ch <= 0x0c6f)
+            || (ch >= 0x0ce6 && ch <= 0x0cef)
+            || (ch >= 0x0d66 && ch <= 0x0d6f)
+            || (ch >= 0x0de6 && ch <= 0x0def)
+            || (ch >= 0x0e50 && ch <= 0x0e59)
+            || (ch >= 0x0ed0 && ch <= 0x0ed9)
+            || (ch >= 0x0f20 && ch <= 0x0f29)
+            || (ch >= 0x1040 && ch <= 0x1049)
+            || (ch >= 0x1090 && ch <= 0x1099)
+            || (ch >= 0x17e0 && ch <= 0x17e9)
+            || (ch >= 0x1810 && ch <= 0x1819)
+            || (ch >= 0x1946 && ch <= 0x194f)
+            || (ch >= 0x19d0 && ch <= 0x19d9)
+            || (ch >= 0x1a80 && ch <= 0x1a89)
+            || (ch >= 0x1a90 && ch <= 0x1a99)
+            || (ch >= 0x1b50 && ch <= 0x1b59)
+            || (ch >= 0x1bb0 && ch <= 0x1bb9)
+            || (ch >= 0x1c40 && ch <= 0x1c49)
+            || (ch >= 0x1c50 && ch <= 0x1c59)
+            || (ch >= 0xa620 && ch <= 0xa629)
+            || (ch >= 0xa8d0 && ch <= 0xa8d9)
+            || (ch >= 0xa900 && ch <= 0xa909)
+            || (ch >= 0xa9d0 && ch <= 0xa9d9)
+            || (ch >= 0xa9f0 && ch <= 0xa9f9)
+            || (ch >= 0xaa50 && ch <= 0xaa59)
+            || (ch >= 0xabf0 && ch <= 0xabf9)
+            || (ch >= 0xff10 && ch <= 0xff19)) state = 6;
+        else return LEX_NO_TOKEN;
+    }
+
+    //Further chars until there is no transition.
+    while(true)
+    {
+      ch = nextChar();
+      switch(state)
+      {
+        case 1:
+          switch(ch)
+          {
+            case '\t': case '\n': case 0x000b: case 0x000c: case '\r': case 0x001c: case 0x001d: case 0x001e: case 0x001f: case ' ':
+              state = 1;
+              break;
+            default:
+              if(ch == 0x1680
+                  || (ch >= 0x2000 && ch <= 0x2006)
+                  || (ch >= 0x2008 && ch <= 0x200a)
+                  || (ch >= 0x2028 && ch <= 0x2029)
+                  || ch == 0x205f
+                  || ch == 0x3000) state = 1;
+              else return 1;
+          }
+          break;
+        case 2:
+          switch(ch)
+          {
+            case '"':
+              state = 15;
+              break;
+            case '\\':
+              state = 16;
+              break;
+            default:
+              if(ch <= '!' || (ch >= '#' && ch <= '[') || (ch >= ']' && ch <= 0xfffe)) state = 2;
+              else return LEX_INCOMPLETE;
+          }
+          break;
+        case 3:
+          switch(ch)
+          {
+            case '\n':
+              state = 17;
+              break;
+            default:
+              if(ch <= '\t' || (ch >= 0x000b && ch <= 0xfffe)) state = 3;
+              else return 0;
+          }
+          break;
+        case 4:
+          return 7;
+        case 5:
+          switch(ch)
+          {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 6;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 6;
+              else return LEX_INCOMPLETE;
+          }
+          break;
+        case 6:
+          switch(ch)
+          {
+            case '.':
+              state = 18;
+              break;
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 6;
+              break;
+            case 'E': case 'e':
+              state = 19;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 6;
+              else return 2;
+          }
+          break;
+        case 7:
+          return 6;
+        case 8:
+          return 11;
+        case 9:
+          return 12;
+        case 10:
+          switch(ch)
+          {
+            case 'a':
+              state = 20;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 11:
+          switch(ch)
+          {
+            case 'u':
+              state = 21;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 12:
+          switch(ch)
+          {
+            case 'r':
+              state = 22;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 13:
+          return 9;
+        case 14:
+          return 10;
+        case 15:
+          return 8;
+        case 16:
+          if(ch <= 0xfffe) state = 2;
+          else return LEX_INCOMPLETE;
+          break;
+        case 17:
+          return 0;
+        case 18:
+          switch(ch)
+          {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 18;
+              break;
+            case 'E': case 'e':
+              state = 19;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 18;
+              else return 3;
+          }
+          break;
+        case 19:
+          switch(ch)
+          {
+            case '+': case '-':
+              state = 23;
+              break;
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 24;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 24;
+              else return LEX_INCOMPLETE;
+          }
+          break;
+        case 20:
+          switch(ch)
+          {
+            case 'l':
+              state = 25;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 21:
+          switch(ch)
+          {
+            case 'l':
+              state = 26;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 22:
+          switch(ch)
+          {
+            case 'u':
+              state = 27;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 23:
+          switch(ch)
+          {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 24;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 24;
+              else return LEX_INCOMPLETE;
+          }
+          break;
+        case 24:
+          switch(ch)
+          {
+            case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+              state = 24;
+              break;
+            default:
+              if((ch >= 0x0660 && ch <= 0x0669)
+                  || (ch >= 0x06f0 && ch <= 0x06f9)
+                  || (ch >= 0x07c0 && ch <= 0x07c9)
+                  || (ch >= 0x0966 && ch <= 0x096f)
+                  || (ch >= 0x09e6 && ch <= 0x09ef)
+                  || (ch >= 0x0a66 && ch <= 0x0a6f)
+                  || (ch >= 0x0ae6 && ch <= 0x0aef)
+                  || (ch >= 0x0b66 && ch <= 0x0b6f)
+                  || (ch >= 0x0be6 && ch <= 0x0bef)
+                  || (ch >= 0x0c66 && ch <= 0x0c6f)
+                  || (ch >= 0x0ce6 && ch <= 0x0cef)
+                  || (ch >= 0x0d66 && ch <= 0x0d6f)
+                  || (ch >= 0x0de6 && ch <= 0x0def)
+                  || (ch >= 0x0e50 && ch <= 0x0e59)
+                  || (ch >= 0x0ed0 && ch <= 0x0ed9)
+                  || (ch >= 0x0f20 && ch <= 0x0f29)
+                  || (ch >= 0x1040 && ch <= 0x1049)
+                  || (ch >= 0x1090 && ch <= 0x1099)
+                  || (ch >= 0x17e0 && ch <= 0x17e9)
+                  || (ch >= 0x1810 && ch <= 0x1819)
+                  || (ch >= 0x1946 && ch <= 0x194f)
+                  || (ch >= 0x19d0 && ch <= 0x19d9)
+                  || (ch >= 0x1a80 && ch <= 0x1a89)
+                  || (ch >= 0x1a90 && ch <= 0x1a99)
+                  || (ch >= 0x1b50 && ch <= 0x1b59)
+                  || (ch >= 0x1bb0 && ch <= 0x1bb9)
+                  || (ch >= 0x1c40 && ch <= 0x1c49)
+                  || (ch >= 0x1c50 && ch <= 0x1c59)
+                  || (ch >= 0xa620 && ch <= 0xa629)
+                  || (ch >= 0xa8d0 && ch <= 0xa8d9)
+                  || (ch >= 0xa900 && ch <= 0xa909)
+                  || (ch >= 0xa9d0 && ch <= 0xa9d9)
+                  || (ch >= 0xa9f0 && ch <= 0xa9f9)
+                  || (ch >= 0xaa50 && ch <= 0xaa59)
+                  || (ch >= 0xabf0 && ch <= 0xabf9)
+                  || (ch >= 0xff10 && ch <= 0xff19)) state = 24;
+              else return 3;
+          }
+          break;
+        case 25:
+          switch(ch)
+          {
+            case 's':
+              state = 27;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 26:
+          switch(ch)
+          {
+            case 'l':
+              state = 28;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 27:
+          switch(ch)
+          {
+            case 'e':
+              state = 29;
+              break;
+            default:
+              return LEX_INCOMPLETE;
+          }
+          break;
+        case 28:
+          return 5;
+        case 29:
+          return 4;
+      }
+    }
+  }
+}
@@ -31,11 +31,22 @@ package parserutil.impl.json.parser;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.stream.Stream;
 
 import parserutil.main.GeneralParser;
+import parserutil.main.GeneralParserCursor;
 import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
 import parserutil.main.GeneralParserToken;
+import parserutil.main.InputSegments;
+import parserutil.main.TokenBatch;
+import parserutil.main.Utf8BufferReader;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
 
 /**
  * <p>
@@ -49,6 +60,11 @@ import parserutil.main.GeneralParserToken;
  */
 public class JSONElementParser extends JSONAbstractParser
 {
+  /**
+   * <p>
+   * The receiver for elements in pushed input.
+   */
+  private JSONTokenReceiver feedReceiver;
   
   /**
    * <p>
@@ -58,6 +74,39 @@ public class JSONElementParser extends JSONAbstractParser
   {
   }
   
+  /**
+   * <p>
+   * Create an instance of a JSON element parser using the given lexer engine.
+   * 
+   * @param engine
+   */
+  public JSONElementParser(LexerEngine engine)
+  {
+    super(engine);
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a JSON element parser as a session of the given grammar.
+   * 
+   * @param grammar
+   */
+  public JSONElementParser(GeneralParserGrammar<JSONTokenDescriptor> grammar)
+  {
+    super(grammar);
+  }
+  
+  /**
+   * <p>
+   * Put the parser back as it was created, forgetting the receiver of any input being fed.
+   */
+  @Override
+  protected void resetSession()
+  {
+    super.resetSession();
+    feedReceiver = null;
+  }
+  
   /**
    * <p>
    * Parse the given content. Send elements to the token receiver specified.
@@ -92,4 +141,344 @@ public class JSONElementParser extends JSONAbstractParser
       throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null, npe);
     }
   }
+  
+  /**
+   * <p>
+   * Parse the given content, checking the tokens as the given mode says.  The mode applies to this parse only; the
+   * parser's own mode (see {@link #setValidationMode(ValidationMode)}) is left as it was.
+   * 
+   * @param content
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Reader content, JSONTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(content, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>
+   * Parse the given content, sending elements to the receiver in batches of {@link #getBatchSize()}.  Comments and
+   * whitespace are skipped.  The last batch may be smaller.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parseBatches(Reader content, JSONTokenBatchReceiver receiver) throws IOException, GeneralParserException
+  {
+    try
+    {
+      init();
+      TokenBatch<JSONTokenDescriptor> batch = getBatch();
+      GeneralParserCursor<JSONTokenDescriptor> cursor = getCursor();
+      while(advance(content))
+      {
+        JSONTokenDesignation designation = cursor.getDescriptor().getDesignation();
+        if(designation != JSONTokenDesignation.COMMENT && designation != JSONTokenDesignation.WHITESPACE && addToBatch(batch))
+        {
+          receiver.receiveJSONBatch(batch);
+          batch.clear();
+        }
+      }
+      if(batch.getSize() > 0) receiver.receiveJSONBatch(batch);
+    }
+    catch (NullPointerException npe)
+    {
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null, npe);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer, sending elements to the receiver in
+   * batches.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parseBatches(ByteBuffer content, JSONTokenBatchReceiver receiver) throws IOException, GeneralParserException
+  {
+    parseBatches(new Utf8BufferReader(content), receiver);
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer.  The bytes are lexed directly, and token
+   * text is a view of them that is decoded when asked for.
+   * 
+   * @param content
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(ByteBuffer content, JSONTokenReceiver receiver) throws IOException, GeneralParserException
+  {
+    parse(new Utf8BufferReader(content), receiver);
+  }
+  
+  /**
+   * <p>
+   * Parse the UTF-8 bytes between the position and limit of the given buffer, checking the tokens as the given mode
+   * says for this parse only.
+   * 
+   * @param content
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(ByteBuffer content, JSONTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(content, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>
+   * Parse the given UTF-8 file.  The file is memory mapped rather than read, or opened from the token cache if one is
+   * set, and the location of each token has its byte offsets in the file.
+   * 
+   * @param file
+   * @param receiver
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Path file, JSONTokenReceiver receiver) throws IOException, GeneralParserException
+  {
+    try(Reader content = openFile(file))
+    {
+      parse(content, receiver);
+    }
+  }
+  
+  /**
+   * <p>
+   * Parse the given UTF-8 file, checking the tokens as the given mode says for this parse only.
+   * 
+   * @param file
+   * @param receiver
+   * @param mode
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void parse(Path file, JSONTokenReceiver receiver, ValidationMode mode) throws IOException, GeneralParserException
+  {
+    withValidationMode(mode, () -> {
+      parse(file, receiver);
+      return null;
+    });
+  }
+  
+  /**
+   * <p>
+   * Get the tokens in the given UTF-8 bytes as a stream, including whitespace and comments.  A document that is a
+   * top-level array splits between its elements, so the stream can be read in parallel; see
+   * {@link #tokens(ByteBuffer, int)}.
+   * 
+   * @param content
+   * @return
+   */
+  public Stream<GeneralParserToken<JSONTokenDescriptor>> tokens(ByteBuffer content)
+  {
+    return tokens(content, InputSegments.DEFAULT_SEGMENT_SIZE);
+  }
+  
+  /**
+   * <p>
+   * Get the tokens in the given UTF-8 bytes as a stream, including whitespace and comments.  If the document is a
+   * top-level array, a quick scan of the bytes finds the separators between its elements, and the stream splits at
+   * separators at least the given number of bytes apart.  Each part is read by a new parser session sharing this
+   * parser's grammar and settings.
+   * 
+   * @param content
+   * @param segmentSize the minimum size of a split in bytes.
+   * @return
+   */
+  public Stream<GeneralParserToken<JSONTokenDescriptor>> tokens(ByteBuffer content, int segmentSize)
+  {
+    //Generated lexers belong to their subclass, so sessions use the compiled lexer for the same tokens.
+    GeneralParserGrammar<JSONTokenDescriptor> sessionGrammar = (getGrammar().getLexerEngine() == LexerEngine.GENERATED) ? getSharedGrammar(LexerEngine.COMPILED) : getGrammar();
+    
+    //A segment after the first starts just after a separator in the top-level array, which validates as just after the
+    //start of the array.
+    JSONTokenDescriptor startArray = null;
+    for(JSONTokenDescriptor d : sessionGrammar.getTokenDescriptors())
+    {
+      if(d.getDesignation() == JSONTokenDesignation.OP_START_ARR) startArray = d;
+    }
+    
+    return tokens(content, arraySegments(content, segmentSize), () -> new JSONElementParser(sessionGrammar), List.of(startArray));
+  }
+  
+  /**
+   * <p>
+   * Find the separators between the elements of a top-level array, at least the given number of bytes apart.  Strings
+   * and comments are skipped.  There is only one segment if the document isn't an array.
+   * 
+   * @param content
+   * @param segmentSize
+   * @return
+   */
+  private static InputSegments arraySegments(ByteBuffer content, int segmentSize)
+  {
+    int end = content.limit();
+    InputSegments segments = new InputSegments(content.position(), end);
+    int last = content.position();
+    int line = 0;
+    int column = -1;
+    int depth = 0;
+    boolean array = false;
+    boolean inString = false;
+    boolean escape = false;
+    boolean inComment = false;
+    
+    for(int i = InputSegments.skipByteOrderMark(content, last, end); i < end; i++)
+    {
+      byte b = content.get(i);
+      
+      //Count lines and columns as the parser does.
+      if(b == '\n')
+      {
+        line++;
+        column = -1;
+        inComment = false;
+        continue;
+      }
+      column += InputSegments.charWidth(b);
+      
+      //Skip comments and strings.
+      if(inComment) continue;
+      if(inString)
+      {
+        if(escape) escape = false;
+        else if(b == '\\') escape = true;
+        else if(b == '"') inString = false;
+        continue;
+      }
+      
+      switch(b)
+      {
+        case '"':
+          inString = true;
+          break;
+        case '#':
+          inComment = true;
+          break;
+        case '[':
+        case '{':
+          if(depth++ == 0) array = (b == '[');
+          break;
+        case ']':
+        case '}':
+          depth--;
+          break;
+        case ',':
+          //Separator in the top-level array.
+          if(array && depth == 1 && i + 1 - last >= segmentSize)
+          {
+            last = i + 1;
+            segments.add(last, line, column);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return segments;
+  }
+  
+  /**
+   * <p>
+   * Start parsing input that arrives in chunks, such as from a non-blocking channel.  Push each chunk with
+   * {@link #feed(char[], int, int)} or {@link #feed(ByteBuffer)} and finish with {@link #endOfInput()}.  Each element is
+   * sent to the receiver once it is complete; a chunk may end part way through a string literal or any other token.
+   * A token split between chunks is lexed again from its start as each chunk arrives, so keep chunks large compared
+   * with the longest token expected.
+   * 
+   * @param receiver
+   */
+  public void beginFeed(JSONTokenReceiver receiver)
+  {
+    feedReceiver = receiver;
+    beginPush();
+  }
+  
+  /**
+   * <p>
+   * Push the next chunk of chars and send the elements completed by it to the receiver.
+   * 
+   * @param chunk
+   * @param off
+   * @param len
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void feed(char[] chunk, int off, int len) throws IOException, GeneralParserException
+  {
+    push(chunk, off, len);
+    deliverFed();
+  }
+  
+  /**
+   * <p>
+   * Push the next chunk of UTF-8 bytes and send the elements completed by it to the receiver.  The buffer's position is
+   * moved to its limit.
+   * 
+   * @param chunk
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  public void feed(ByteBuffer chunk) throws IOException, GeneralParserException
+  {
+    push(chunk);
+    deliverFed();
+  }
+  
+  /**
+   * <p>
+   * Finish the pushed input and send the remaining elements to the receiver.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException if the input stops part way through a token.
+   */
+  public void endOfInput() throws IOException, GeneralParserException
+  {
+    pushEnd();
+    deliverFed();
+  }
+  
+  /**
+   * <p>
+   * Send each complete element in the pushed input to the receiver.  Comments and whitespace are skipped.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private void deliverFed() throws IOException, GeneralParserException
+  {
+    try
+    {
+      GeneralParserCursor<JSONTokenDescriptor> cursor = getCursor();
+      while(advancePushed())
+      {
+        JSONTokenDesignation designation = cursor.getDescriptor().getDesignation();
+        if(designation != JSONTokenDesignation.COMMENT && designation != JSONTokenDesignation.WHITESPACE) feedReceiver.receiveJSONValue(cursor.toToken(isZeroCopyTokens()));
+      }
+    }
+    catch (NullPointerException npe)
+    {
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("general"), null, npe);
+    }
+  }
 }
@@ -29,344 +29,203 @@
  */
 package parserutil.impl.json.parser;
 
-import java.util.ArrayList;
 import java.util.ResourceBundle;
 
-import parserutil.main.GeneralParserException;
-import parserutil.main.GeneralParserStateMachine;
 import parserutil.main.GeneralParserStateMachineException;
+import parserutil.main.StateTable;
+import parserutil.main.TableStateMachine;
 
 /**
  * <p>This provides state checking of JSON input.  It makes sure that each token is valid following the
  * previous token and that the input is therefore valid and correct.
+ * <p>The rules are a {@link StateTable} shared by every instance.  Each token's symbol is its designation, and objects
+ * and arrays are nested sections of the table.
  * 
  * @author James David Foster jdfoster73@gmail.com
  *
  */
-public class JSONParseStateMachine<T> implements GeneralParserStateMachine<JSONTokenDescriptor>
+public class JSONParseStateMachine<T> extends TableStateMachine<JSONTokenDescriptor>
 {
-  enum STATE
-  {
-    START,
-    FIELD_NAME,   //Field name - must be a string
-    FIELD_ASG,    //Field assignment char ':'
-    FIELD_SEP,    //Field separator char ',' or end '}'
-    FIELD_DES,    //Field type decision - identifier (string, literal, number, boolean), object or array.
-    FIELD_VAL,    //Field value
-    FIELD_OBJ,  
-    FIELD_ARRAY,
-    FIELD_END,
-    END           //No further tokens allowed.
-  }
-    
   /**
-   * <p>Nesting list.  As this instance is called as tokens are processed, it must have a means of maintaining the token tree state.
+   * <p>Start of input, or after a complete object or array at the top level.  A value, object or array is needed.
+   */
+  private static final int START = 0;
+  
+  /**
+   * <p>Object field name - must be a string, or '}' to end the object.
+   */
+  private static final int OBJ_NAME = 1;
+  
+  /**
+   * <p>Field assignment char ':'.
+   */
+  private static final int OBJ_ASG = 2;
+  
+  /**
+   * <p>Object field value - value, object or array.
+   */
+  private static final int OBJ_VAL = 3;
+  
+  /**
+   * <p>After an object field value - field separator ',' or end '}'.
+   */
+  private static final int OBJ_SEP = 4;
+  
+  /**
+   * <p>Array item - value, object or array, or ']' to end the array.
+   */
+  private static final int ARR_VAL = 5;
+  
+  /**
+   * <p>After an array item - separator ',' or end ']'.
+   */
+  private static final int ARR_SEP = 6;
+  
+  /**
+   * <p>After a single value at the top level.  No further tokens allowed.
+   */
+  private static final int VAL_END = 7;
+  
+  /**
+   * <p>The rules, shared by every instance.
    */
-  private final ArrayList<GeneralParserStateMachine<JSONTokenDescriptor>> nestingList = new ArrayList<>();
+  private static final StateTable TABLE = buildTable();
+  
+  /**
+   * <p>Objects and arrays opened and not yet closed, for structural checks.
+   */
+  private int openSections;
   
   /**
    * <p>Create instance.
    */
   public JSONParseStateMachine()
   {
+    super(TABLE);
     reset();
   }
   
   /**
-   * <p>Check the token.  If the state machine detects an error with the input state then it will throw a {@link GeneralParserException}.
-   * @throws GeneralParserException 
+   * <p>The token's symbol is its designation.  Comment type tokens are comments whatever their designation.
    */
-  public void check(JSONTokenDescriptor desc) throws GeneralParserStateMachineException
+  @Override
+  protected int symbol(JSONTokenDescriptor desc)
   {
     //Check the input is not null.
     if(desc == null) throw new NullPointerException();
     
-    //Comment - don't check, don't move state.
-    if(desc.getType() == JSONTokenType.COMMENT) return;
-
-    //Whitespace - don't check, don't move state.
-    if(desc.getDesignation() == JSONTokenDesignation.WHITESPACE)  return;
-
-    //The currently processed JSON instance checker is the last entry in the nesting list. 
-    nestingList.get(nestingList.size() - 1).check(desc);
+    return (desc.getType() == JSONTokenType.COMMENT) ? JSONTokenDesignation.COMMENT.ordinal() : desc.getDesignation().ordinal();
   }
 
   /**
-   * <p>Initialise the state of the state machine.
+   * <p>Check only that objects and arrays are closed no more often than they are opened.
    */
   @Override
-  public void initialise()
+  public void checkStructure(JSONTokenDescriptor desc) throws GeneralParserStateMachineException
   {
-    //
-    reset();
+    switch(desc.getDesignation())
+    {
+      case OP_START_OBJ:
+      case OP_START_ARR:
+        openSections++;
+        return;
+      case OP_FINISH_OBJ:
+      case OP_FINISH_ARR:
+        if(--openSections < 0) throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("unbalanced"));
+        return;
+      default:
+    }
   }
-
+  
   /**
-   * <p>Set the current state back to start.
+   * <p>Initialise the state of the state machine.
    */
-  public void reset()
+  @Override
+  public void initialise()
   {
-    //Clear the nesting list.
-    nestingList.clear();
-    
-    //Add a start validator to the nesting list.
-    nestingList.add(new StartValidator());
+    super.initialise();
+    openSections = 0;
   }
 
   /**
-   * <p>The section (object, array contents for example) has finished processing.  Remove it from the nesting list.
-   */
-  private void completeSection()
-  {
-    //Remove the last entry from the nesting list.
-    nestingList.remove(nestingList.size() - 1);
-  }
-  
-  /**
-   * <p>Add a new section (object, array contents for example) to the nesting list.
-   * 
-   * @param val
+   * <p>Set the current state back to start.
    */
-  private void addSection(GeneralParserStateMachine<JSONTokenDescriptor> val)
+  public void reset()
   {
-    //Remove the last entry from the nesting list.
-    nestingList.add(val);
+    initialise();
   }
   
   /**
-   * <p>Validate the initial token.  JSON input can start with a value, an object start '{' or an array start '['.
+   * <p>Build the JSON rules.
    * 
-   * @author jdf19
-   *
+   * @return
    */
-  private class StartValidator implements GeneralParserStateMachine<JSONTokenDescriptor>
+  private static StateTable buildTable()
   {
+    ResourceBundle strings = ResourceBundle.getBundle("parserutil.impl.json.parser.strings");
+    StateTable.Builder b = new StateTable.Builder(VAL_END + 1, JSONTokenDesignation.values().length);
     
-    @Override
-    public void check(JSONTokenDescriptor desc) throws GeneralParserStateMachineException
-    {
-      //Field type decision.
-      if(desc.getDesignation() == JSONTokenDesignation.OP_START_OBJ)
-      {
-        nestingList.add(new ObjectValidator());
-        return;
-      }
-      else if(desc.getDesignation() == JSONTokenDesignation.OP_START_ARR)
-      {
-        nestingList.add(new ArrayValidator());
-        return;
-      }
-      else if(desc.getType() == JSONTokenType.IDENTIFIER)
-      {
-        nestingList.add(new ValueValidator());
-        return;
-      }
-      //None of the required tokens found.
-      throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("nostartok"));
-    }
-
-    @Override
-    public void initialise()
-    {
-      //No need to initialise this instance.  The main parser instance will discard it if it is reset.      
-    }
+    //Comments and whitespace - don't check, don't move state.
+    b.ignore(JSONTokenDesignation.COMMENT.ordinal());
+    b.ignore(JSONTokenDesignation.WHITESPACE.ordinal());
     
-  }
-
-  /**
-   * <p>Validate a token while processing a JSON object.
-   * 
-   * @author jdf19
-   *
-   */
-  private class ObjectValidator implements GeneralParserStateMachine<JSONTokenDescriptor>
-  {
-    //Start - need to get the field identifier first.
-    private STATE state = STATE.FIELD_NAME;
+    //Input can start with a value, an object start '{' or an array start '['.  Another can follow an object or array.
+    b.push(START, JSONTokenDesignation.OP_START_OBJ.ordinal(), START, OBJ_NAME);
+    b.push(START, JSONTokenDesignation.OP_START_ARR.ordinal(), START, ARR_VAL);
+    values(b, START, VAL_END);
+    b.fail(START, strings.getString("nostartok"));
     
-    /**
-     * <p>Check the next token against the current parsing state.  Only certain tokens are allowed to follow other tokens in a JSON object.
-     * @throws GeneralParserStateMachineException 
-     */
-    @Override
-    public void check(JSONTokenDescriptor tokenDescriptor) throws GeneralParserStateMachineException
-    {
-      switch(state)
-      {
-        case FIELD_NAME:
-          //We're looking for an identifier.
-          //Check we've got a string.
-          //Check for end of array.  This would be the case in the event of an empty object.
-          if(tokenDescriptor.getDesignation() == JSONTokenDesignation.OP_FINISH_OBJ)
-          {
-            //Finished object def.  Complete this section.
-            completeSection();
-            return;
-          }
-          //Not the end of object and not a string.  Object fields must start with a string identifier.
-          if(tokenDescriptor.getDesignation() != JSONTokenDesignation.ID_STR) throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("objfldnostr"));
-          //Still here - we now need the field assignment character ':'.
-          state = STATE.FIELD_ASG;
-          //Success.
-          return;
-        case FIELD_ASG:
-          //Separator needed.  After this we need to get a value.
-          if(tokenDescriptor.getDesignation() != JSONTokenDesignation.OP_FLDASG) throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("objfldnosep"));
-          //Success.  Got the field name and separator, now get the field value.
-          state = STATE.FIELD_DES;
-          return;
-        case FIELD_DES:
-          //We're looking for an OBJECT, ARRAY OR VALUE.
-          if(tokenDescriptor.getDesignation() == JSONTokenDesignation.OP_START_OBJ)
-          {
-            state = STATE.FIELD_SEP;             //We're looking for field separator (or end) when nested validator completes.
-            addSection(new ObjectValidator());
-            return;
-          }
-          else if(tokenDescriptor.getDesignation() == JSONTokenDesignation.OP_START_ARR)
-          {
-            state = STATE.FIELD_SEP;             //We're looking for field separator (or end) when nested validator completes.
-            addSection(new ArrayValidator());
-            return;
-          }
-          else if(tokenDescriptor.getType() == JSONTokenType.IDENTIFIER)
-          {
-            state = STATE.FIELD_SEP;    //Looking for a simple value.
-            return;
-          }
-          //None of the required tokens found.
-          throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("objnoval"));          
-        case FIELD_SEP:
-          //We're looking for separator or end.
-          if(tokenDescriptor.getDesignation() == JSONTokenDesignation.OP_SEP)
-          {
-            //Expecting another field.
-            state = STATE.FIELD_NAME;
-            return;
-          }
-          else if(tokenDescriptor.getDesignation() == JSONTokenDesignation.OP_FINISH_OBJ)
-          {
-            //Finished object def.  Complete this section.
-            completeSection();
-            return;
-          }
-          else
-          {
-            //Expected - separator or end.
-            throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("objfol"));
-          }
-        default:
-          break;
-      }
-      
-      //Default - illegal state. 
-      throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("badstate"));
-    }
-
-    @Override
-    public void initialise()
-    {
-      //No need to initialise this instance.  The main parser instance will discard it if it is reset.      
-    }
-  }
-  
-  /**
-   * <p>Validate a token while processing a JSON array.
-   * 
-   * @author jdf19
-   *
-   */
-  private class ArrayValidator implements GeneralParserStateMachine<JSONTokenDescriptor>
-  {
-    //Start - need to decide on the field type first.
-    private STATE state = STATE.FIELD_DES;
-
-    @Override
-    public void check(JSONTokenDescriptor desc) throws GeneralParserStateMachineException
-    {
-      switch(state)
-      {
-        case FIELD_DES:
-          //We're looking for a VALUE.
-          if(desc.getDesignation() == JSONTokenDesignation.OP_START_OBJ)
-          {
-            state = STATE.FIELD_SEP;             //We're looking for field separator (or end) when nested validator completes.
-            addSection(new ObjectValidator());
-            return;
-          }
-          else if(desc.getDesignation() == JSONTokenDesignation.OP_START_ARR)
-          {
-            state = STATE.FIELD_SEP;             //We're looking for field separator (or end) when nested validator completes.
-            addSection(new ArrayValidator());
-            return;
-          }
-          else if(desc.getDesignation() == JSONTokenDesignation.OP_FINISH_ARR)
-          {
-            //Finished array def; empty.  Complete this section.
-            completeSection();
-            return;
-          }
-          else if(desc.getType() == JSONTokenType.IDENTIFIER)
-          {
-            state = STATE.FIELD_SEP;    //Simple value - looking for separator or end.
-            return;
-          }
-          //None of the required tokens found.   
-          throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("arrnoval"));          
-        case FIELD_SEP:
-          //We're looking for separator or end.
-          if(desc.getDesignation() == JSONTokenDesignation.OP_SEP)
-          {
-            //Expecting another field.
-            state = STATE.FIELD_DES;
-            return;
-          }
-          else if(desc.getDesignation() == JSONTokenDesignation.OP_FINISH_ARR)
-          {
-            //Finished object def.  Complete this section.
-            completeSection();
-            return;
-          }
-          else
-          {
-            throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("arrfol"));
-          }
-        default:
-          break;
-      }
-
-      //Default - illegal state. 
-      throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("badstate"));
-    }
-
-    @Override
-    public void initialise()
-    {
-      //No need to initialise this instance.  The main parser instance will discard it if it is reset.      
-    }
+    //Object fields must start with a string identifier.  An empty object can end here, as can one after a ','.
+    b.move(OBJ_NAME, JSONTokenDesignation.ID_STR.ordinal(), OBJ_ASG);
+    b.pop(OBJ_NAME, JSONTokenDesignation.OP_FINISH_OBJ.ordinal());
+    b.fail(OBJ_NAME, strings.getString("objfldnostr"));
     
+    //Separator needed.  After this we need to get a value.
+    b.move(OBJ_ASG, JSONTokenDesignation.OP_FLDASG.ordinal(), OBJ_VAL);
+    b.fail(OBJ_ASG, strings.getString("objfldnosep"));
+    
+    //We're looking for an object, array or value.  Nested sections return to look for the separator or end.
+    b.push(OBJ_VAL, JSONTokenDesignation.OP_START_OBJ.ordinal(), OBJ_SEP, OBJ_NAME);
+    b.push(OBJ_VAL, JSONTokenDesignation.OP_START_ARR.ordinal(), OBJ_SEP, ARR_VAL);
+    values(b, OBJ_VAL, OBJ_SEP);
+    b.fail(OBJ_VAL, strings.getString("objnoval"));
+    
+    //We're looking for separator or end.
+    b.move(OBJ_SEP, JSONTokenDesignation.OP_SEP.ordinal(), OBJ_NAME);
+    b.pop(OBJ_SEP, JSONTokenDesignation.OP_FINISH_OBJ.ordinal());
+    b.fail(OBJ_SEP, strings.getString("objfol"));
+    
+    //We're looking for an array item.  An empty array can end here, as can one after a ','.
+    b.push(ARR_VAL, JSONTokenDesignation.OP_START_OBJ.ordinal(), ARR_SEP, OBJ_NAME);
+    b.push(ARR_VAL, JSONTokenDesignation.OP_START_ARR.ordinal(), ARR_SEP, ARR_VAL);
+    b.pop(ARR_VAL, JSONTokenDesignation.OP_FINISH_ARR.ordinal());
+    values(b, ARR_VAL, ARR_SEP);
+    b.fail(ARR_VAL, strings.getString("arrnoval"));
+    
+    //We're looking for separator or end.
+    b.move(ARR_SEP, JSONTokenDesignation.OP_SEP.ordinal(), ARR_VAL);
+    b.pop(ARR_SEP, JSONTokenDesignation.OP_FINISH_ARR.ordinal());
+    b.fail(ARR_SEP, strings.getString("arrfol"));
+    
+    //No tokens following a single value are permitted.
+    b.fail(VAL_END, strings.getString("valfol"));
+    
+    return b.build();
   }
-
+  
   /**
-   * <p>Validate a token while processing a JSON value.
+   * <p>Move from the state to the next on any identifier: string, number, boolean or null.
    * 
-   * @author jdf19
-   *
+   * @param b
+   * @param state
+   * @param next
    */
-  private class ValueValidator implements GeneralParserStateMachine<JSONTokenDescriptor>
+  private static void values(StateTable.Builder b, int state, int next)
   {
-    @Override
-    public void check(JSONTokenDescriptor t) throws GeneralParserStateMachineException
-    {
-      //No tokens following the string are permitted.  
-      throw new GeneralParserStateMachineException(ResourceBundle.getBundle("parserutil.impl.json.parser.strings").getString("valfol"));
-    }
-
-    @Override
-    public void initialise()
+    for(JSONTokenDesignation d : new JSONTokenDesignation[] {JSONTokenDesignation.ID_VAR, JSONTokenDesignation.ID_STR,
+        JSONTokenDesignation.ID_NUM_INT, JSONTokenDesignation.ID_NUM_REA, JSONTokenDesignation.ID_BOOL, JSONTokenDesignation.ID_NULL})
     {
-      //No need to initialise this instance.  The main parser instance will discard it if it is reset.      
+      b.move(state, d.ordinal(), next);
     }
-    
   }
 }
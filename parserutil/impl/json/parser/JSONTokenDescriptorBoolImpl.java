@@ -38,13 +38,12 @@ package parserutil.impl.json.parser;
 public class JSONTokenDescriptorBoolImpl implements JSONTokenDescriptor
 {
   /**
-   * <p>Stage - <br>
-   * 0 = start (require 'f' or 't')<br>
-   * 1 = start (require 'a' or 'r')<br>
-   * 2 = start (require 'l' or 'u')<br>
-   * 3 = start (require 's' or 'e')<br>
-   * 4 = start (require 'e')<br>
-   * 
+   * <p>The literal being read - "true" or "false".
+   */
+  private String literal = "true";
+  
+  /**
+   * <p>Stage - the number of chars of the literal read so far.
    */
   private int stage = 0;
   
@@ -54,13 +53,23 @@ public class JSONTokenDescriptorBoolImpl implements JSONTokenDescriptor
   @Override
   public boolean isTokenStartChar(char ch)
   {
-    //Set the stage to 0.
-    stage = 0;
+    //The start char is the first char of the literal.
+    literal = ('f' == ch) ? "false" : "true";
+    stage = 1;
     
     //Return.
     return ( ('t' == ch) || ('f' == ch));
   }
 
+  /**
+   * <p>Booleans start with 't' or 'f'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'t', 'f'};
+  }
+
   /**
    * <p>These are identifiers.
    */
@@ -84,21 +93,11 @@ public class JSONTokenDescriptorBoolImpl implements JSONTokenDescriptor
   @Override
   public boolean isTokenContentChar(char ch)
   {
-    //
-    switch(stage)
+    //The next char of the literal continues the token.
+    if( (stage < literal.length()) && (literal.charAt(stage) == ch) )
     {
-      case 0:
-        stage = 1;
-        return (('a' == ch) || ('r' == ch));
-      case 1:
-        stage = 2;
-        return (('l' == ch) || ('u' == ch));
-      case 2:
-        stage = 3;
-        return (('s' == ch) || ('e' == ch));
-      case 3:
-        stage = 4;
-        return (('e' == ch));
+      stage++;
+      return true;
     }
 
     //Default - not a token content char.
@@ -106,6 +105,15 @@ public class JSONTokenDescriptorBoolImpl implements JSONTokenDescriptor
 
   }
 
+  /**
+   * <p>Complete once the whole literal has been read.
+   */
+  @Override
+  public boolean isTokenComplete()
+  {
+    return stage == literal.length();
+  }
+
   /**
    * Stringify.
    */
@@ -123,5 +131,6 @@ public class JSONTokenDescriptorBoolImpl implements JSONTokenDescriptor
   {
     //
     stage = 0;
+    literal = "true";
   }
 }
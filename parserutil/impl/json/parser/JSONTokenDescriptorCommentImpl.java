@@ -57,6 +57,15 @@ public class JSONTokenDescriptorCommentImpl implements JSONTokenDescriptor
     return ret;
   }
 
+  /**
+   * <p>Comments only start with '#'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'#'};
+  }
+
   /**
    * <p>Get the general token type.
    */
@@ -48,6 +48,15 @@ public class JSONTokenDescriptorEndArrayImpl implements JSONTokenDescriptor
     return ch == ']';
   }
 
+  /**
+   * <p>Single char token ']'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {']'};
+  }
+
   /**
    * <p>Get the general token type.
    */
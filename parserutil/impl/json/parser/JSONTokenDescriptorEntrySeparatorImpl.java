@@ -48,6 +48,15 @@ public class JSONTokenDescriptorEntrySeparatorImpl implements JSONTokenDescripto
     return ch == ',';
   }
 
+  /**
+   * <p>Single char token ','.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {','};
+  }
+
   /**
    * <p>Separators treated as operators - there to declare fields ([field name] : [field value]) in the current unit config object.
    */
@@ -48,6 +48,15 @@ public class JSONTokenDescriptorFieldSeparatorImpl implements JSONTokenDescripto
     return ch == ':';
   }
 
+  /**
+   * <p>Single char token ':'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {':'};
+  }
+
   /**
    * <p>Separators treated as comment - just there to separate field name and value.
    */
@@ -39,10 +39,10 @@ public class JSONTokenDescriptorNullImpl implements JSONTokenDescriptor
 {
   /**
    * <p>Stage - <br>
-   * 0 = require 'n'<br>
-   * 1 = require 'u'<br>
+   * 0 = require 'u'<br>
+   * 1 = require 'l'<br>
    * 2 = require 'l'<br>
-   * 3 = require 'l'<br>
+   * 3 = complete<br>
    * 
    */
   private int stage = 0;
@@ -60,6 +60,15 @@ public class JSONTokenDescriptorNullImpl implements JSONTokenDescriptor
     return ('n' == ch);
   }
 
+  /**
+   * <p>Null starts with 'n'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'n'};
+  }
+
   /**
    * <p>These are identifiers.
    */
@@ -87,14 +96,17 @@ public class JSONTokenDescriptorNullImpl implements JSONTokenDescriptor
     switch(stage)
     {
       case 0:
+        if('u' != ch) return false;
         stage = 1;
-        return ('u' == ch);
+        return true;
       case 1:
+        if('l' != ch) return false;
         stage = 2;
-        return ('l' == ch);
+        return true;
       case 2:
+        if('l' != ch) return false;
         stage = 3;
-        return ('l' == ch);
+        return true;
     }
 
     //Default - not a token content char.
@@ -102,6 +114,15 @@ public class JSONTokenDescriptorNullImpl implements JSONTokenDescriptor
 
   }
 
+  /**
+   * <p>Complete once "null" has been read.
+   */
+  @Override
+  public boolean isTokenComplete()
+  {
+    return stage == 3;
+  }
+
   /**
    * Stringify.
    */
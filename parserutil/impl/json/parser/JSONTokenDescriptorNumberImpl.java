@@ -50,6 +50,11 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
    * <p>Valid number token?
    */
   private boolean valid = false;
+  
+  /**
+   * <p>Set once the mantissa has a digit, and again once the exponent has one.
+   */
+  private boolean digit = false;
   /**
    * <p>Any unicode identifier start is valid.
    */
@@ -61,6 +66,7 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
     
     //Valid?
     valid = (Character.isDigit(ch) || ('-' == ch) ); 
+    digit = Character.isDigit(ch);
     
     //Return.
     return valid;
@@ -94,8 +100,13 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
     {
       case 0:
         //Number is OK.
-        if(Character.isDigit(ch)) return true;
-        //Can end in '.' or 'e'|'E' only.
+        if(Character.isDigit(ch))
+        {
+          digit = true;
+          return true;
+        }
+        //Can end in '.' or 'e'|'E' only, after a digit.
+        if(!digit) return false;
         if('.' == ch)
         {
           stage = 1;
@@ -104,6 +115,7 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
         if( ('e' == ch) || ('E' == ch) )
         {
           stage = 2;
+          digit = false;
           return true;
         }
         //Nothing else is ok.
@@ -114,6 +126,7 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
         if( ('e' == ch) || ('E' == ch) )
         {
           stage = 2;
+          digit = false;
           return true;
         }
         //Nothing else is ok.
@@ -129,6 +142,7 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
         if(Character.isDigit(ch))
         {
           stage = 3;
+          digit = true;
           return true;
         }
         //Nothing else is ok.
@@ -136,6 +150,7 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
       case 3:
         if(Character.isDigit(ch))
         {
+          digit = true;
           return true;
         }
         //Nothing else is ok.
@@ -144,6 +159,15 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
     return false;
   }
 
+  /**
+   * <p>Complete if the mantissa has a digit, and the exponent too if there is one.
+   */
+  @Override
+  public boolean isTokenComplete()
+  {
+    return digit;
+  }
+
   /**
    * Stringify.
    */
@@ -162,5 +186,6 @@ public class JSONTokenDescriptorNumberImpl implements JSONTokenDescriptor
     //Set stage and validity flag to initial state.
     stage = 0;
     valid = false;
+    digit = false;
   }  
 }
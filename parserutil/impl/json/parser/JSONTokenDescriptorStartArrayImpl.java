@@ -48,6 +48,15 @@ public class JSONTokenDescriptorStartArrayImpl implements JSONTokenDescriptor
     return ch == '[';
   }
 
+  /**
+   * <p>Single char token '['.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'['};
+  }
+
   /**
    * <p>This is an operator.
    */
@@ -54,12 +54,22 @@ public class JSONTokenDescriptorStringLiteralImpl implements JSONTokenDescriptor
   @Override
   public boolean isTokenStartChar(char ch)
   {
-    //Set the escape flag to false on start.
+    //Set the escape and finished flags to false on start.
     escape = false;
+    finished = false;
     //Return.
     return ch == '"';
   }
 
+  /**
+   * <p>String literals start with '"'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'"'};
+  }
+
   /**
    * <p>This is an identifier.
    */
@@ -84,20 +94,27 @@ public class JSONTokenDescriptorStringLiteralImpl implements JSONTokenDescriptor
   @Override
   public boolean isTokenContentChar(char ch)
   {
+    //Return when finished - AFTER the closing '"' character.
+    if(finished) return false;
+    
     //Was last char escaped?
     boolean thisEsc = escape;
     
-    //This char is escape char?
-    escape = (ch == '\\');
-    
-    //Store the return flag - return true if we are not finished.
-    boolean thisRet = !finished;
+    //This char is escape char?  An escaped '\' doesn't escape the char after it.
+    escape = (ch == '\\') && (!thisEsc);
     
     //Set the finished flag - the unsescaped '"' char is received.
     finished = ( (ch == '"') && (!thisEsc) );
-    
-    //Return when finished - AFTER the closing '"' character.
-    return thisRet;
+    return true;
+  }
+
+  /**
+   * <p>Complete once the closing '"' has been read.
+   */
+  @Override
+  public boolean isTokenComplete()
+  {
+    return finished;
   }
 
   /**
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.json.parser;
+
+import static parserutil.main.lexer.TokenPattern.alt;
+import static parserutil.main.lexer.TokenPattern.character;
+import static parserutil.main.lexer.TokenPattern.chars;
+import static parserutil.main.lexer.TokenPattern.escaped;
+import static parserutil.main.lexer.TokenPattern.literal;
+import static parserutil.main.lexer.TokenPattern.oneOrMore;
+import static parserutil.main.lexer.TokenPattern.optional;
+import static parserutil.main.lexer.TokenPattern.seq;
+import static parserutil.main.lexer.TokenPattern.zeroOrMore;
+
+import parserutil.main.lexer.CharClass;
+import parserutil.main.lexer.TokenPattern;
+
+/**
+ * <p>Declarative patterns for the JSON tokens.  These are the compiled lexer equivalents of the JSON token descriptors.
+ * <p>Numbers have separate integer and real patterns, as the compiled lexer gives each token its type from the pattern
+ * it ends in rather than from descriptor state.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class JSONTokenPatterns
+{
+  /**
+   * <p>Digits, as accepted by {@link Character#isDigit(char)}.
+   */
+  private static final CharClass DIGIT = CharClass.matching(Character::isDigit);
+  
+  /**
+   * <p>Exponent: 'e' or 'E', an optional sign and digits.
+   */
+  private static final TokenPattern EXPONENT = seq(chars(CharClass.of('e', 'E')), optional(chars(CharClass.of('+', '-'))), oneOrMore(chars(DIGIT)));
+
+  /**
+   * <p>Comment: '#' to the end of the line, including the newline.
+   */
+  public static final TokenPattern COMMENT = seq(character('#'), zeroOrMore(chars(CharClass.of('\n').complement())), optional(character('\n')));
+  
+  /**
+   * <p>Whitespace, as accepted by {@link Character#isWhitespace(char)}.
+   */
+  public static final TokenPattern WHITESPACE = oneOrMore(chars(CharClass.matching(Character::isWhitespace)));
+  
+  /**
+   * <p>Integer number: optional '-' and digits.
+   */
+  public static final TokenPattern NUMBER_INT = seq(optional(character('-')), oneOrMore(chars(DIGIT)));
+  
+  /**
+   * <p>Real number: optional '-', digits, then a fraction, an exponent or both.
+   */
+  public static final TokenPattern NUMBER_REAL = seq(optional(character('-')), oneOrMore(chars(DIGIT)), alt(seq(character('.'), zeroOrMore(chars(DIGIT)), optional(EXPONENT)), EXPONENT));
+  
+  /**
+   * <p>Boolean: 'true' or 'false'.
+   */
+  public static final TokenPattern BOOL = alt(literal("true"), literal("false"));
+  
+  /**
+   * <p>Null: 'null'.
+   */
+  public static final TokenPattern NULL = literal("null");
+  
+  /**
+   * <p>String literal: double-quoted, with '\' escaping the next char.
+   */
+  public static final TokenPattern STRING = seq(character('"'), zeroOrMore(escaped('\\', CharClass.of('"').complement())), character('"'));
+  
+  /**
+   * <p>Field separator ':'.
+   */
+  public static final TokenPattern FIELD_SEPARATOR = character(':');
+  
+  /**
+   * <p>Entry separator ','.
+   */
+  public static final TokenPattern ENTRY_SEPARATOR = character(',');
+  
+  /**
+   * <p>Start object '{'.
+   */
+  public static final TokenPattern START_OBJECT = character('{');
+  
+  /**
+   * <p>End object '}'.
+   */
+  public static final TokenPattern END_OBJECT = character('}');
+  
+  /**
+   * <p>Start array '['.
+   */
+  public static final TokenPattern START_ARRAY = character('[');
+  
+  /**
+   * <p>End array ']'.
+   */
+  public static final TokenPattern END_ARRAY = character(']');
+  
+  /**
+   * <p>Constants only.
+   */
+  private JSONTokenPatterns()
+  {
+  }
+}
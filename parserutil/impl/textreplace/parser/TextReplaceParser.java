@@ -35,14 +35,17 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import parserutil.impl.textreplace.TextNormalValueImpl;
 import parserutil.impl.textreplace.TextReplaceValue;
 import parserutil.impl.textreplace.TextReplaceValueImpl;
 import parserutil.main.GeneralParser;
 import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
 import parserutil.main.GeneralParserToken;
 import parserutil.main.TokenLocation;
+import parserutil.main.lexer.LexerEngine;
 
 /**
  * <p>
@@ -56,6 +59,17 @@ import parserutil.main.TokenLocation;
  */
 public class TextReplaceParser extends GeneralParser<TextReplaceTokenDescriptor>
 {
+  /**
+   * <p>Shared text replacement grammars, one per lexer engine, created when first needed.
+   */
+  private static final Map<LexerEngine, GeneralParserGrammar<TextReplaceTokenDescriptor>> GRAMMARS = new ConcurrentHashMap<>();
+  
+  /**
+   * <p>The version of the text replacement descriptors' lexing logic.  Change it when they read different tokens, so
+   * tokens cached by the old descriptors aren't replayed.
+   */
+  public static final int GRAMMAR_VERSION = 1;
+  
   /**
    * <p>
    * 
@@ -71,6 +85,36 @@ public class TextReplaceParser extends GeneralParser<TextReplaceTokenDescriptor>
     return cp;
   }
   
+  /**
+   * <p>Provide a list of declarative text replacement parser tokens, for the compiled and generated lexer engines.  The
+   * descriptors are in the same order as {@link #getParserTokenList()}.
+   * 
+   * @return
+   */
+  private static List<TextReplaceTokenDescriptor> getPatternTokenList()
+  {
+    List<TextReplaceTokenDescriptor> cp = new ArrayList<>();
+    cp.add(new TokenDescriptorPatternImpl(true, TextReplaceTokenPatterns.MARKUP));
+    cp.add(new TokenDescriptorPatternImpl(false, TextReplaceTokenPatterns.NORMAL));
+    
+    return cp;
+  }
+  
+  /**
+   * <p>Get the shared text replacement grammar for the given lexer engine.  The grammar is built the first time it is
+   * asked for and is thread safe; every parser created with the engine is a session of it.
+   * 
+   * @param engine
+   * @return
+   */
+  public static GeneralParserGrammar<TextReplaceTokenDescriptor> getSharedGrammar(LexerEngine engine)
+  {
+    return GRAMMARS.computeIfAbsent(engine, e -> {
+      if(e == LexerEngine.INTERPRETED) return new GeneralParserGrammar<>(TextReplaceParser::getParserTokenList, e, GRAMMAR_VERSION);
+      return new GeneralParserGrammar<>(TextReplaceParser::getPatternTokenList, e, GRAMMAR_VERSION);
+    });
+  }
+  
 //  private final Reader content;
 //  
 //  private final Map<String, String> replacementMap;
@@ -80,10 +124,34 @@ public class TextReplaceParser extends GeneralParser<TextReplaceTokenDescriptor>
    * Create an instance of a unit configuration file parser.
    */
   public TextReplaceParser()
+  {
+    this(LexerEngine.INTERPRETED);
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a text replacement parser using the given lexer engine.  The interpreted engine uses the text
+   * replacement token descriptors and the compiled and generated engines use their declarative equivalents.
+   * 
+   * @param engine
+   */
+  public TextReplaceParser(LexerEngine engine)
+  {
+    this(getSharedGrammar(engine));
+  }
+  
+  /**
+   * <p>
+   * Create an instance of a text replacement parser as a session of the given grammar.  The grammar must have the text
+   * replacement token descriptors, as from {@link #getSharedGrammar(LexerEngine)}.
+   * 
+   * @param grammar
+   */
+  public TextReplaceParser(GeneralParserGrammar<TextReplaceTokenDescriptor> grammar)
   {
     // Create the general parser instance with the lexical elements of unit config
     // files.
-    super(getParserTokenList(), new TextReplaceParseStateMachine<>());
+    super(grammar, new TextReplaceParseStateMachine<>());
 
 //    //Content.
 //    this.content = content;
@@ -110,12 +178,12 @@ public class TextReplaceParser extends GeneralParser<TextReplaceTokenDescriptor>
       //Replacement?
       if(nextToken.descriptor.isReplaceMarkupToken())
       {
-        sb.append(replacementMap.get(new TextReplaceValueImpl(nextToken.tokenValue).getValue().trim()));
+        sb.append(replacementMap.get(new TextReplaceValueImpl(nextToken.getTokenValue()).getValue().trim()));
         sb.append(" ");
       }
       else
       {
-        sb.append(new TextNormalValueImpl(nextToken.tokenValue).getValue().trim());
+        sb.append(new TextNormalValueImpl(nextToken.getTokenValue()).getValue().trim());
         sb.append(" ");
       }
     }
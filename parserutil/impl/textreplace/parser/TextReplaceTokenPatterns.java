@@ -0,0 +1,71 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.textreplace.parser;
+
+import static parserutil.main.lexer.TokenPattern.character;
+import static parserutil.main.lexer.TokenPattern.escaped;
+import static parserutil.main.lexer.TokenPattern.optional;
+import static parserutil.main.lexer.TokenPattern.seq;
+import static parserutil.main.lexer.TokenPattern.zeroOrMore;
+
+import parserutil.main.lexer.CharClass;
+import parserutil.main.lexer.TokenPattern;
+
+/**
+ * <p>Declarative patterns for the text replacement tokens.  These are the compiled lexer equivalents of the text
+ * replacement token descriptors.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class TextReplaceTokenPatterns
+{
+  /**
+   * <p>A char other than '~', or '\' followed by any char.
+   */
+  private static final TokenPattern TEXT_CHAR = escaped('\\', CharClass.of('~').complement());
+  
+  /**
+   * <p>Markup: text between '~' chars.
+   */
+  public static final TokenPattern MARKUP = seq(character('~'), zeroOrMore(TEXT_CHAR), character('~'));
+  
+  /**
+   * <p>Normal text: everything up to the next unescaped '~'.  A '\' at the end of the input stands for itself.
+   */
+  public static final TokenPattern NORMAL = seq(zeroOrMore(TEXT_CHAR), optional(character('\\')));
+  
+  /**
+   * <p>Constants only.
+   */
+  private TextReplaceTokenPatterns()
+  {
+  }
+}
@@ -55,6 +55,15 @@ public class TokenDescriptorMarkupTextImpl implements TextReplaceTokenDescriptor
     return ch == '~';
   }
 
+  /**
+   * <p>Markup starts with '~'.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return new char[] {'~'};
+  }
+
   /**
    * <p>The newline character is, but the next character afterwards is not.
    */
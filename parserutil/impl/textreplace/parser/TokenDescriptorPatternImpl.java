@@ -0,0 +1,123 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.impl.textreplace.parser;
+
+import parserutil.main.lexer.TokenPattern;
+import parserutil.main.lexer.TokenPatternMatcher;
+
+/**
+ * <p>Implementation of a declarative token descriptor.  The token is described by a {@link TokenPattern}, so the
+ * descriptor can be compiled into a table-driven lexer.  It also answers the interpreted engine's questions by running
+ * its pattern.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class TokenDescriptorPatternImpl implements TextReplaceTokenDescriptor
+{
+  /**
+   * <p>Is this a replacement markup token?
+   */
+  private final boolean replaceMarkup;
+  
+  /**
+   * <p>Token pattern.
+   */
+  private final TokenPattern pattern;
+  
+  /**
+   * <p>Pattern matcher for the interpreted engine.
+   */
+  private final TokenPatternMatcher matcher;
+  
+  /**
+   * <p>Create the descriptor.
+   * 
+   * @param replaceMarkup
+   * @param pattern
+   */
+  public TokenDescriptorPatternImpl(boolean replaceMarkup, TokenPattern pattern)
+  {
+    this.replaceMarkup = replaceMarkup;
+    this.pattern = pattern;
+    this.matcher = new TokenPatternMatcher(pattern);
+  }
+
+  /**
+   * <p>The token starts on any char its pattern starts with.
+   */
+  @Override
+  public boolean isTokenStartChar(char ch)
+  {
+    return matcher.start(ch);
+  }
+
+  /**
+   * <p>Declare the start chars if there aren't too many to list.
+   */
+  @Override
+  public char[] getTokenStartChars()
+  {
+    return matcher.getStartChars(256);
+  }
+
+  /**
+   * <p>The token continues as long as its pattern does.
+   */
+  @Override
+  public boolean isTokenContentChar(char ch)
+  {
+    return matcher.next(ch);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public TokenPattern getTokenPattern()
+  {
+    return pattern;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void init()
+  {
+    matcher.reset();
+  }
+
+  @Override
+  public boolean isReplaceMarkupToken()
+  {
+    return replaceMarkup;
+  }
+}
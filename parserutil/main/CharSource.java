@@ -0,0 +1,266 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>Character source for the {@link GeneralParser}.  Characters are delivered from a reusable block which is refilled
+ * from the underlying input only when it has been exhausted, so the per-character cost of reading is an array access
+ * rather than a call into the input stream.
+ * <p>This is an internal abstraction; parser implementations read their input through the {@link GeneralParser} and
+ * do not normally deal with character sources directly.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+abstract class CharSource
+{
+  /**
+   * <p>Default number of characters held in the block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 8192;
+  
+  /**
+   * <p>Character returned when the end of the input has been reached.  This is the same value the general parser has
+   * always used for end of stream ((char) -1).
+   */
+  public static final char END = 0xFFFF;
+
+  /**
+   * <p>The character block.
+   */
+  protected char[] block;
+  
+  /**
+   * <p>The index of the next character to be delivered from the block.
+   */
+  protected int pos;
+  
+  /**
+   * <p>The number of valid characters in the block.
+   */
+  protected int limit;
+  
+  /**
+   * <p>End of input flag.  Set when the underlying input has no more characters.
+   */
+  private boolean ended;
+  
+  /**
+   * <p>Index in the block of the first character of the token being read, or -1 if no token is marked.  Characters from
+   * the mark onwards are kept in the block when it is refilled, so a token is always contiguous in the block.
+   */
+  private int mark = -1;
+  
+  /**
+   * <p>The offset in the input of the first character in the block.
+   */
+  private long origin;
+  
+  /**
+   * <p>Index the newlines of each block are added to as it is filled, or null.
+   */
+  private LineIndex lineIndex;
+  
+  /**
+   * <p>Create the character source with a block of the given size.
+   * 
+   * @param blockSize
+   */
+  protected CharSource(int blockSize)
+  {
+    block = new char[blockSize];
+  }
+  
+  /**
+   * <p>Get the next character from the block, refilling it from the input if it has been exhausted.  Returns {@link #END}
+   * when there are no more characters.
+   * 
+   * @return
+   * @throws IOException
+   */
+  public final char next() throws IOException
+  {
+    //Fast path - the character is already in the block.
+    if(pos < limit) return block[pos++];
+    
+    //Slow path - refill the block.
+    return nextFromNewBlock();
+  }
+  
+  /**
+   * <p>Refill the block and return the first character in it.
+   * 
+   * @return
+   * @throws IOException
+   */
+  private char nextFromNewBlock() throws IOException
+  {
+    //Once the end has been reached then don't go back to the input.
+    if(ended) return END;
+    
+    //Everything before the marked token is dropped from the block.
+    int dropped = (mark >= 0) ? mark : limit;
+    discarded(dropped);
+    origin += dropped;
+    
+    //Keep the marked token, moving it to the start of the block.  Grow the block if the token already fills it.
+    int keep = 0;
+    if(mark >= 0)
+    {
+      keep = limit - mark;
+      if(keep == block.length)
+      {
+        block = Arrays.copyOf(block, block.length << 1);
+      }
+      else if(mark > 0)
+      {
+        System.arraycopy(block, mark, block, 0, keep);
+      }
+      mark = 0;
+    }
+    
+    //Fill the block.  Zero characters filled is not the end of input; try again.
+    int read;
+    while( (read = fill(block, keep, block.length - keep)) == 0);
+    
+    //End of input?  Leave the block as it is; the marked token is still in it.
+    if(read < 0)
+    {
+      ended = true;
+      pos = limit = keep;
+      return END;
+    }
+    
+    //Index the newlines.
+    if(lineIndex != null) lineIndex.scan(block, keep, read, origin + keep);
+    
+    //Deliver from the first new character in the block.
+    limit = keep + read;
+    pos = keep + 1;
+    return block[keep];
+  }
+  
+  /**
+   * <p>Mark the last character delivered as the first character of a token.
+   */
+  void markTokenStart()
+  {
+    mark = pos - 1;
+  }
+  
+  /**
+   * <p>Get the block holding the marked token.  The block can be replaced when it is refilled.
+   * 
+   * @return
+   */
+  char[] getBlock()
+  {
+    return block;
+  }
+  
+  /**
+   * <p>Get the index in the block of the first character of the marked token.
+   * 
+   * @return
+   */
+  int getTokenStart()
+  {
+    return mark;
+  }
+  
+  /**
+   * <p>Get the index in the block just past the last character of the marked token.  The token ends before the last
+   * character delivered, which is the first character after the token, unless the end of input has been reached.
+   * 
+   * @return
+   */
+  int getTokenEnd()
+  {
+    return ended ? pos : pos - 1;
+  }
+  
+  /**
+   * <p>Get the offset in the input of the character at the given index in the block.
+   * 
+   * @param index
+   * @return
+   */
+  long getOffset(int index)
+  {
+    return origin + index;
+  }
+  
+  /**
+   * <p>Set the index to add newlines to as the input is read.
+   * 
+   * @param lineIndex the index, or null to stop indexing.
+   */
+  void setLineIndex(LineIndex lineIndex)
+  {
+    this.lineIndex = lineIndex;
+  }
+  
+  /**
+   * <p>Discard any characters held in the block and clear the end of input flag.  Implementations call this when
+   * the underlying input changes.
+   */
+  protected void clear()
+  {
+    pos = limit = 0;
+    mark = -1;
+    ended = false;
+    origin = 0;
+    lineIndex = null;
+  }
+  
+  /**
+   * <p>Called before the block is refilled with the number of characters about to be dropped from the front of it.  The
+   * characters are still in the block.  Implementations that track positions in the underlying input override this.
+   * 
+   * @param count
+   */
+  protected void discarded(int count)
+  {
+  }
+  
+  /**
+   * <p>Fill the destination array with characters from the underlying input.
+   * 
+   * @param dst the destination array.
+   * @param off the offset in the destination to start filling at.
+   * @param len the maximum number of characters to fill.
+   * @return the number of characters filled, or -1 if the end of input has been reached.
+   * @throws IOException
+   */
+  protected abstract int fill(char[] dst, int off, int len) throws IOException;
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>How often each token descriptor of a grammar has matched.  A parser given a profile with
+ * {@link GeneralParser#setDescriptorProfile(DescriptorProfile)} adds the tokens it reads to it, and asks the most often
+ * matched descriptor about each char first, from a call site of its own so that the JIT can inline it.  Only that one
+ * descriptor is treated specially, and only if it is one of the first 64: the other candidates, and the start table
+ * they come from, stay in grammar order.  This is deliberate.  Every candidate is asked about every char whatever the
+ * order, to reset its state at the start of a token and to eliminate it later, so ranking the rest would save no calls.
+ * <p>Any number of parsers of the same grammar, on any number of threads, can share a profile.  Each parser counts
+ * matches in plain fields of its own and adds them to the profile every few thousand tokens and at the end of its
+ * input; the profile's counts are {@link LongAdder}s, so the additions need no locking.  A parser's ranking is taken
+ * when it adds its counts, so parsers sharing a profile may briefly rank the descriptors differently.
+ * <p>A profile can be stored and loaded, so that a new process starts with what an earlier one learned.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class DescriptorProfile
+{
+  /**
+   * <p>Descriptor class names, indexed by code.
+   */
+  private final List<String> descriptorClasses;
+  
+  /**
+   * <p>Matches for each descriptor code.
+   */
+  private final LongAdder[] matches;
+  
+  /**
+   * <p>Create an empty profile for parsers with the given token descriptors.  Descriptors are named in stored profiles
+   * by their class, which stays the same from one process to the next.
+   * 
+   * @param descriptors
+   */
+  public DescriptorProfile(List<? extends TokenDescriptor> descriptors)
+  {
+    List<String> names = new ArrayList<>(descriptors.size());
+    for(TokenDescriptor d : descriptors) names.add(d.getClass().getName());
+    descriptorClasses = Collections.unmodifiableList(names);
+    
+    matches = new LongAdder[descriptors.size()];
+    for(int i = 0; i < matches.length; i++) matches[i] = new LongAdder();
+  }
+  
+  /**
+   * <p>Get the number of descriptors profiled.
+   * 
+   * @return
+   */
+  public int getDescriptorCount()
+  {
+    return matches.length;
+  }
+  
+  /**
+   * <p>Get the number of times the descriptor with the given code has matched.
+   * 
+   * @param code
+   * @return
+   */
+  public long getMatches(int code)
+  {
+    return matches[code].sum();
+  }
+  
+  /**
+   * <p>Add matches counted by a parser.
+   * 
+   * @param counts matches for each descriptor code.
+   */
+  void add(int[] counts)
+  {
+    for(int i = 0; i < counts.length; i++)
+    {
+      if(counts[i] != 0) matches[i].add(counts[i]);
+    }
+  }
+  
+  /**
+   * <p>Get the descriptor codes ranked by matches, most matched first.  Codes with the same number of matches are in
+   * code order.
+   * 
+   * @return
+   */
+  public int[] getRanking()
+  {
+    long[] counts = new long[matches.length];
+    List<Integer> codes = new ArrayList<>(matches.length);
+    for(int i = 0; i < matches.length; i++)
+    {
+      counts[i] = matches[i].sum();
+      codes.add(i);
+    }
+    
+    //Stable sort, so ties stay in code order.
+    codes.sort((a, b) -> Long.compare(counts[b], counts[a]));
+    int[] ranking = new int[codes.size()];
+    for(int i = 0; i < ranking.length; i++) ranking[i] = codes.get(i);
+    return ranking;
+  }
+  
+  /**
+   * <p>Set every count back to zero.
+   */
+  public void reset()
+  {
+    for(LongAdder a : matches) a.reset();
+  }
+  
+  /**
+   * <p>Write the profile in properties format, one entry per descriptor keyed by its code and class.
+   * 
+   * @param out
+   * @throws IOException
+   */
+  public void store(Writer out) throws IOException
+  {
+    Properties props = new Properties();
+    for(int i = 0; i < matches.length; i++) props.setProperty(key(i), Long.toString(matches[i].sum()));
+    props.store(out, "Descriptor profile");
+  }
+  
+  /**
+   * <p>Add the counts of a stored profile to this one.  Entries are matched on both code and class, so entries for
+   * descriptors this profile doesn't have, from a grammar that has since changed, are ignored.
+   * 
+   * @param in
+   * @throws IOException
+   * @throws IllegalArgumentException if a count isn't a non-negative number.
+   */
+  public void load(Reader in) throws IOException
+  {
+    Properties props = new Properties();
+    props.load(in);
+    for(int i = 0; i < matches.length; i++)
+    {
+      String count = props.getProperty(key(i));
+      if(count == null) continue;
+      
+      long n = Long.parseLong(count.trim());
+      if(n < 0) throw new IllegalArgumentException();
+      matches[i].add(n);
+    }
+  }
+  
+  /**
+   * <p>Get the stored profile key for a descriptor code.
+   * 
+   * @param code
+   * @return
+   */
+  private String key(int code)
+  {
+    return code + "." + descriptorClasses.get(code);
+  }
+}
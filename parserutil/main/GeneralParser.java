@@ -31,8 +31,19 @@ package parserutil.main;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.ResourceBundle;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import parserutil.main.lexer.CompiledLexer;
+import parserutil.main.lexer.LexerEngine;
+import parserutil.main.lexer.TokenPattern;
 
 /**
  * <p>General parser.  This takes the rules given it in the constructor and parses a stream of characters.  Every new token
@@ -43,23 +54,220 @@ import java.util.List;
  */
 public abstract class GeneralParser<T extends TokenDescriptor>
 {
+  /**
+   * <p>Returned by {@link #lexGenerated(char)} when no token starts with the char.
+   */
+  protected static final int LEX_NO_TOKEN = -1;
+  
+  /**
+   * <p>Returned by {@link #lexGenerated(char)} when the token stops part way through its pattern.
+   */
+  protected static final int LEX_INCOMPLETE = -2;
+  
+  /**
+   * <p>Tokens read between additions to the descriptor profile, and so between rankings of the descriptors.
+   */
+  private static final int PROFILE_INTERVAL = 4096;
+  
+  /**
+   * <p>Whether each parser class has a generated lexer, found once per class.
+   */
+  private static final ClassValue<Boolean> GENERATED_LEXER = new ClassValue<>()
+  {
+    @Override
+    protected Boolean computeValue(Class<?> type)
+    {
+      for(Class<?> c = type; c != GeneralParser.class; c = c.getSuperclass())
+      {
+        try
+        {
+          c.getDeclaredMethod("lexGenerated", char.class);
+          return true;
+        }
+        catch(NoSuchMethodException e)
+        {
+          //Not declared at this level.
+        }
+      }
+      return false;
+    }
+  };
+  
+  /**
+   * <p>The grammar this parser is a session of.
+   */
+  private final GeneralParserGrammar<T> grammar;
+  
   /**
    * <p>These token descriptors are set by the owning class.  They are the way that the general parser
    * decides the types of tokens and the boundaries between them.
    */
-  private final List<T> configuredParserTokenList = new ArrayList<>();
+  private final List<T> configuredParserTokenList;
+
+  /**
+   * <p>The engine used to find tokens.
+   */
+  private final LexerEngine engine;
+  
+  /**
+   * <p>The lexer compiled from the descriptors' token patterns.  Null unless the engine is {@link LexerEngine#COMPILED}.
+   */
+  private final CompiledLexer compiledLexer;
+
+  /**
+   * <p>Start character dispatch table, built once by the grammar from the configured token descriptors.  This gives the
+   * candidates for a token from its first character without asking every descriptor.  Null unless the engine is
+   * {@link LexerEngine#INTERPRETED}.
+   */
+  private final TokenStartTable startTable;
 
   /**
-   * <p>These token descriptors are candidates for the token currently being processed.  Tokens may share characters
-   * at the start.  These descriptors are loaded as candidates on the initial character and whittled down until only
-   * one possible token type remains.  We then know what the type of token is.
+   * <p>The token descriptors that are candidates for the token currently being processed, as a bitmask of descriptor
+   * positions in the configured list.  Tokens may share characters at the start.  These descriptors are loaded as
+   * candidates on the initial character and whittled down until only one possible token type remains.  We then know
+   * what the type of token is.
+   * <p>This holds the first 64 descriptors.
+   */
+  private long candidates;
+  
+  /**
+   * <p>Candidate bitmask words for descriptors 64 onwards.  Null if 64 or fewer descriptors are configured.
+   */
+  private final long[] spillCandidates;
+  
+  /**
+   * <p>The profile the tokens read are added to, or null to keep no profile.
+   */
+  private DescriptorProfile descriptorProfile;
+  
+  /**
+   * <p>Matches for each descriptor code since the profile was last added to.  Null if there is no profile.
+   */
+  private int[] profileCounts;
+  
+  /**
+   * <p>Tokens read since the profile was last added to.
+   */
+  private int profiledTokens;
+  
+  /**
+   * <p>The most often matched descriptor in the profile.  It is asked about each char before any other candidate, from
+   * a call site of its own, so that the JIT can inline it.  Null if there is no profile or nothing has matched yet.
+   */
+  private T hotDescriptor;
+  
+  /**
+   * <p>The candidate bit of the hot descriptor, or zero if there is none.  Only descriptors 0 to 63 can be hot.
    */
-  private final List<T> parserTokenProcessingList = new ArrayList<>();
+  private long hotBit;
 
   /**
-   * <p>Builder for the current token.
+   * <p>Zero-copy token mode.  When set, token text is a view into the read buffer rather than a new string.
+   */
+  private boolean zeroCopyTokens;
+  
+  /**
+   * <p>Lazy location mode.  When set, lines and columns are looked up from offsets when asked for.
+   */
+  private boolean lazyLocations;
+  
+  /**
+   * <p>Index of the newlines in the input being parsed in lazy location mode, otherwise null.  Lines and columns are
+   * counted as chars are read only when this is null.
+   */
+  private LineIndex lineIndex;
+  
+  /**
+   * <p>Block-buffered source of characters for the reader currently being parsed.
+   */
+  private final ReaderCharSource readerSource = new ReaderCharSource();
+  
+  /**
+   * <p>The byte input currently being parsed, if the content is a {@link Utf8BufferReader}.  Its bytes are lexed
+   * directly rather than through the reader source.  Null for any other content.
    */
-  private final StringBuilder currentTokenBuilder = new StringBuilder();
+  private Utf8BufferReader byteSource;
+  
+  /**
+   * <p>The cache reader of the file being parsed, when the input was opened from the token cache.  Null otherwise.
+   */
+  private TokenCacheReader cacheSource;
+  
+  /**
+   * <p>The cache of tokens read from files, or null to lex every file.
+   */
+  private TokenCache tokenCache;
+  
+  /**
+   * <p>The pushed input, between {@link #beginPush()} and the next {@link #init()}.  Null when parsing a reader.
+   */
+  private PushCharSource pushSource;
+  
+  /**
+   * <p>The push source kept between pushed inputs, so its buffer is reused by the next {@link #beginPush()}.  Null
+   * until input is first pushed.
+   */
+  private PushCharSource pushBuffer;
+  
+  /**
+   * <p>The position in the configured list of the descriptor of the current token, or -1 if it has none.
+   */
+  private int tokenCode = -1;
+  
+  /**
+   * <p>The number of chars at which more than one descriptor was a candidate for the current token.
+   */
+  private int eliminationSteps;
+  
+  /**
+   * <p>How much tokens are checked.
+   */
+  private ValidationMode validationMode = ValidationMode.FULL;
+  
+  /**
+   * <p>The metrics to record parsing to, or null to record nothing.
+   */
+  private ParserMetrics metrics;
+  
+  /**
+   * <p>When the current input was started, if metrics are recorded.
+   */
+  private long parseStart;
+  
+  /**
+   * <p>Set while the end of the current input hasn't been recorded in the metrics.
+   */
+  private boolean parseTimed;
+  
+  /**
+   * <p>The flight recorder event for the current input, or null if parse events aren't being recorded.
+   */
+  private ParseEvent parseEvent;
+  
+  /**
+   * <p>Set if long token events are being recorded for the current input.
+   */
+  private boolean longTokenEvents;
+  
+  /**
+   * <p>Set if each token is recorded in the metrics or flight recorder events.
+   */
+  private boolean instrumented;
+  
+  /**
+   * <p>The number of tokens delivered in each batch.
+   */
+  private int batchSize = TokenBatch.DEFAULT_CAPACITY;
+  
+  /**
+   * <p>The batch reused for each block of tokens, created when first needed.
+   */
+  private TokenBatch<T> batch;
+  
+  /**
+   * <p>The reusable cursor describing the current token.
+   */
+  private final GeneralParserCursor<T> cursor = new GeneralParserCursor<>();
   
   /**
    * <p>The current character.
@@ -110,7 +318,48 @@ public abstract class GeneralParser<T extends TokenDescriptor>
    */
   public GeneralParser(List<T> tokenTypes, GeneralParserStateMachine<T> validationMachine)
   {
-    for(T t : tokenTypes) configuredParserTokenList.add(t);
+    this(tokenTypes, validationMachine, LexerEngine.INTERPRETED);
+  }
+  
+  /**
+   * <p>Create the general parser with the token types, validation machine and lexer engine provided.  The compiled
+   * engine needs every token type to declare a {@link TokenPattern}.
+   * 
+   * @param tokenTypes
+   * @param validationMachine
+   * @param engine
+   */
+  public GeneralParser(List<T> tokenTypes, GeneralParserStateMachine<T> validationMachine, LexerEngine engine)
+  {
+    this(new GeneralParserGrammar<>(tokenTypes, engine), validationMachine);
+  }
+  
+  /**
+   * <p>Create the general parser as a session of the given grammar.  The grammar's lookup structures are shared, so
+   * this costs little more than the session state.  The validation machine belongs to the session and must not be
+   * shared.
+   * <p>The {@link LexerEngine#GENERATED} engine needs a subclass written by {@link parserutil.main.lexer.LexerGenerator}.
+   * 
+   * @param grammar
+   * @param validationMachine
+   * @throws IllegalArgumentException if the grammar's engine is generated and this parser has no generated lexer.
+   */
+  public GeneralParser(GeneralParserGrammar<T> grammar, GeneralParserStateMachine<T> validationMachine)
+  {
+    if(grammar.getLexerEngine() == LexerEngine.GENERATED && !GENERATED_LEXER.get(getClass()))
+    {
+      throw new IllegalArgumentException(ResourceBundle.getBundle("parserutil.main.strings").getString("0003") + " " + getClass().getName());
+    }
+    this.grammar = grammar;
+    configuredParserTokenList = grammar.sessionDescriptors();
+    
+    //Take the engine structures from the grammar.
+    engine = grammar.getLexerEngine();
+    compiledLexer = grammar.getCompiledLexer();
+    startTable = grammar.getStartTable();
+    
+    //Spill candidate words are only needed for large interpreted grammars.
+    spillCandidates = (startTable != null && startTable.getSpillWords() > 0) ? new long[startTable.getSpillWords()] : null;
     
     //Set validation machine.
     this.validationMachine = validationMachine;
@@ -124,6 +373,58 @@ public abstract class GeneralParser<T extends TokenDescriptor>
    * @throws GeneralParserException
    */
   protected void init()
+  {
+    //Forget the previous input.
+    clearInput();
+    
+    //Initialise the state machine.
+    validationMachine.initialise();
+    
+    //Initialise all parser tokens.
+    initDescriptors();
+    
+    //Time the input if metrics are recorded.
+    parseTimed = (metrics != null);
+    if(parseTimed) parseStart = System.nanoTime();
+    
+    //Start the flight recorder events if they're enabled.
+    parseEvent = ParserEvents.beginParse(this);
+    longTokenEvents = ParserEvents.isLongTokenEnabled();
+    instrumented = (metrics != null) || (parseEvent != null) || longTokenEvents;
+  }
+  
+  /**
+   * <p>Put the parser back as it was created, ready to be handed to another user.  The input is dropped and every
+   * setting returns to its default.  Unlike {@link #init()} nothing is started: no input is timed and no flight
+   * recorder event is begun.
+   * <p>Subclasses with settings of their own, or different defaults, override this and call it first.
+   */
+  protected void resetSession()
+  {
+    //Forget the previous input, and any token still pointing into it.
+    clearInput();
+    cursor.clear();
+    
+    //Settings.
+    zeroCopyTokens = false;
+    lazyLocations = false;
+    validationMode = ValidationMode.FULL;
+    batchSize = TokenBatch.DEFAULT_CAPACITY;
+    tokenCache = null;
+    setDescriptorProfile(null);
+    
+    //Instrumentation.  A parse abandoned part way through leaves its event open; it is dropped, not committed.
+    metrics = null;
+    parseTimed = false;
+    parseEvent = null;
+    longTokenEvents = false;
+    instrumented = false;
+  }
+  
+  /**
+   * <p>Drop the input and its position.
+   */
+  private void clearInput()
   {
     //Set the line and column numbers.  Start on line 0 but column is -1.  We want it to be 0 when the first char is read.
     line = 0;
@@ -132,18 +433,33 @@ public abstract class GeneralParser<T extends TokenDescriptor>
     //Set the current char to 0.
     currentChar = 0;
     
-    //Initialise the state machine.
-    validationMachine.initialise();
-    
-    //Initialise all parser tokens.  Reset any state they contain to initial.
-    for(T t : configuredParserTokenList)
+    //Discard anything buffered from previous input.
+    readerSource.bind(null);
+    byteSource = null;
+    cacheSource = null;
+    pushSource = null;
+    lineIndex = null;
+  }
+  
+  /**
+   * <p>Reset any state the token descriptors contain to initial.  Only the interpreted engine asks descriptors about
+   * chars; the others share their descriptors between sessions and leave them alone.
+   */
+  private void initDescriptors()
+  {
+    if(engine == LexerEngine.INTERPRETED)
     {
-      t.init();
+      for(T t : configuredParserTokenList)
+      {
+        t.init();
+      }
     }
   }
 
   /**
    * <p>Read characters from the stream until the next token has been found, built and dealt with (sent to the token listener).
+   * <p>This builds a new token object from the parser cursor.  Use {@link #advance(Reader)} to read tokens without
+   * allocating.
    * 
    * @param content
    * @return
@@ -152,163 +468,1246 @@ public abstract class GeneralParser<T extends TokenDescriptor>
    */
   protected GeneralParserToken<T> getNextToken(Reader content) throws IOException, GeneralParserException
   {
-    //Check the end of stream hasn't already been reached.
-    if(currentChar == 0xffff) return null;
-    
-    //Check the current char for whitespace.  We don't process WS between tokens.
-    if(currentChar == 0)
-    {
-      //Move to first non-null character.
-      while(true)
-      {
-        //Read the next char.
-        currentChar = readNext(content);
-        
-        //If end of stream then 
-        if(currentChar == 0xFFFF) return null;
-
-        //If not whitespace then break and continue processing;
-        if(currentChar != 0) break;
-      }
-    }
-    
-//    //Check the current char for whitespace.  We don't process WS between tokens.
-//    if(currentChar == 0 || Character.isWhitespace(currentChar))
-//    {
-//      //Move to first non-whitespace character.
-//      while(true)
-//      {
-//        //Read the next char.
-//        currentChar = readNext(content);
-//        
-//        //If end of stream then 
-//        if(currentChar == 0xFFFF) return null;
-//
-//        //If not whitespace then break and continue processing;
-//        if(!Character.isWhitespace(currentChar)) break;
-//      }
-//    }
-
-    //Initialise the current token type to null.
-    T current = null;
-        
-    //First char - let's find the token.
-    loadTokensForStartChar();
-    
-    //If there's only one option then set that as current.
-    if(parserTokenProcessingList.size() == 1) current = parserTokenProcessingList.get(0);
-    
-    //Token type found flag - initially false.
-    boolean found = false;
-    
-    //Load characters until we've whittled down the options to 1.
-    while( (currentChar = readNext(content)) != 0xFFFF)
-    {
-      //Keep processing types in the candidate type list until type is found.
-      if(!found)
-      {
-        int ix = 0;
-        while(ix < parserTokenProcessingList.size())
-        {
-          //Remove any tokens that aren't applicable.
-          if(!parserTokenProcessingList.get(ix).isTokenContentChar(currentChar)) 
-          {
-            parserTokenProcessingList.remove(ix);
-          }
-          else
-          {
-            ix++;
-          }
-        }
-
-        //If we have zero left then we are dealing with a 1-char token.
-        if(parserTokenProcessingList.size() == 0)
-        {
-          //Break out of the loop.  Current token set above.
-          break;
-        }
-        //We need to be left with 1 token type.
-        if(parserTokenProcessingList.size() == 1)
-        {
-          //Found the only option.
-          found = true;
-          //Set the current token.
-          current = parserTokenProcessingList.get(0);
-        }
-
-        currentTokenBuilder.append(currentChar);
-      }
-      else
-      {
-        //We have the only type it can be.  Proceed to get the rest of the token.
-        if(!current.isTokenContentChar(currentChar)) 
-        {
-          //Break out of the loop - finished.
-          break;
-        }
-        else
-        {
-          currentTokenBuilder.append(currentChar);
-        }
-      }
-    }
-        
-    //Got a token - check and return it.
-    try
-    {
-      validationMachine.check(current);
-    }
-    catch (GeneralParserStateMachineException e)
-    {
-      //Throw exception if state machine check failed.
-      throw new GeneralParserException(e.getMessage(), new TokenLocation(startLine, startColumn, prevLine, prevColumn));
-    }
-
-    //OK - return the token.
-    return new GeneralParserToken<>(current, currentTokenBuilder.toString(), startLine, startColumn, prevLine, prevColumn);
+    if(!advance(content)) return null;
+    return cursor.toToken(zeroCopyTokens);
   }
-
+  
   /**
-   * <p>Load the possible tokens types for the given token start character.
-   * @throws GeneralParserException 
+   * <p>Get the tokens in the given content as a stream.  The parser is initialised and reads a token each time the
+   * stream asks for one, so it can't be used for anything else until the stream has been consumed.  Errors are thrown
+   * from the stream as {@link UncheckedGeneralParserException} and {@link java.io.UncheckedIOException}.
+   * <p>Token text is a view in zero-copy mode, as for {@link #getNextToken(Reader)}.  A reader is read in order, so the
+   * stream doesn't split; subclasses offer splittable streams over byte input where the grammar allows.
    * 
+   * @param content
+   * @return
    */
-  private void loadTokensForStartChar() throws GeneralParserException
+  public Stream<GeneralParserToken<T>> tokens(Reader content)
   {
-    //Clear out the possible tokens list.
-    parserTokenProcessingList.clear();
-    
-    configuredParserTokenList.forEach((v) -> {
-      if(v.isTokenStartChar(currentChar)) parserTokenProcessingList.add(v);
-    });
-    
-    //We need at least one candidate.
-    if(parserTokenProcessingList.size() == 0) 
-    {
-      //throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0001"), new TokenLocation(line, column, line, column));
-      handleNoProcessingToken(new TokenLocation(line, column, line, column));
-    }
-    
-    //Start the next token in the string builder.
-    currentTokenBuilder.setLength(0);
-    currentTokenBuilder.append(currentChar);
+    init();
+    return StreamSupport.stream(new TokenSpliterator<>(this, content), false);
+  }
+  
+  /**
+   * <p>Get the tokens in the given UTF-8 bytes as a stream that splits at the given segment boundaries.  Each part of
+   * a split stream reads its segments with a parser session from the given supplier, so a parallel stream uses a
+   * session per thread.  This parser isn't used, but its settings are given to each session as it is created (see
+   * {@link #sessionSettings(Supplier)}).
+   * <p>A session starting a segment other than the first validates the given descriptors before reading it, to put its
+   * validation machine in the state it would be in at the boundary.  Lines and columns are counted from the ones kept
+   * with the segment.
+   * 
+   * @param content
+   * @param segments
+   * @param sessions
+   * @param resume
+   * @return
+   */
+  protected Stream<GeneralParserToken<T>> tokens(ByteBuffer content, InputSegments segments, Supplier<? extends GeneralParser<T>> sessions, List<T> resume)
+  {
+    return StreamSupport.stream(new SegmentTokenSpliterator<>(content, segments, sessionSettings(sessions), resume, 0, segments.getCount()), false);
+  }
+  
+  /**
+   * <p>Get the records the given record reader reads from the content as a stream.  The parser is initialised once and
+   * the reader is called for each record, so records are read one after another from the same input without starting
+   * again.  Errors are thrown from the stream as for {@link #tokens(Reader)}.
+   * 
+   * @param <R>
+   * @param content
+   * @param records
+   * @return
+   */
+  protected <R> Stream<R> records(Reader content, RecordReader<? super GeneralParser<T>, ? extends R> records)
+  {
+    init();
+    return StreamSupport.stream(new RecordSpliterator<T, GeneralParser<T>, R>(this, content, records), false);
+  }
+  
+  /**
+   * <p>Get the records in the given UTF-8 bytes as a stream that splits at the given segment boundaries, as
+   * {@link #tokens(ByteBuffer, InputSegments, Supplier, List)}.  A session starts each segment as new input, and its
+   * record reader is called until the segment ends, so no record may cross a boundary.  This parser isn't used, but its
+   * settings are given to each session.
+   * 
+   * @param <P>
+   * @param <R>
+   * @param content
+   * @param segments
+   * @param sessions
+   * @param records
+   * @return
+   */
+  protected <P extends GeneralParser<T>, R> Stream<R> records(ByteBuffer content, InputSegments segments, Supplier<? extends P> sessions, RecordReader<? super P, ? extends R> records)
+  {
+    return StreamSupport.stream(new RecordSpliterator<T, P, R>(content, segments, sessionSettings(sessions), records, 0, segments.getCount()), false);
+  }
+  
+  /**
+   * <p>Wrap a supplier of parser sessions so each session it creates has this parser's settings as they are now: the
+   * validation mode, zero-copy and lazy location modes, batch size, metrics and descriptor profile.  Sessions may run
+   * on other threads, so metrics and profiles shared with them must be thread safe, as {@link ParserMetricsRecorder}
+   * and {@link DescriptorProfile} are.  Sessions only read byte input, so they have no token cache.
+   * 
+   * @param <P>
+   * @param sessions
+   * @return
+   */
+  private <P extends GeneralParser<T>> Supplier<P> sessionSettings(Supplier<? extends P> sessions)
+  {
+    ValidationMode mode = validationMode;
+    boolean zeroCopy = zeroCopyTokens;
+    boolean lazy = lazyLocations;
+    int size = batchSize;
+    ParserMetrics sessionMetrics = metrics;
+    DescriptorProfile profile = descriptorProfile;
+    
+    return () -> {
+      P session = sessions.get();
+      session.setValidationMode(mode);
+      session.setZeroCopyTokens(zeroCopy);
+      session.setLazyLocations(lazy);
+      session.setBatchSize(size);
+      session.setMetrics(sessionMetrics);
+      session.setDescriptorProfile(profile);
+      return session;
+    };
+  }
+  
+  /**
+   * <p>Put the validation machine back in its initial state without touching the input, so the next token is checked as
+   * the start of new input.  For input that is a sequence of independent records.
+   */
+  protected void resetValidation()
+  {
+    validationMachine.initialise();
+  }
+  
+  /**
+   * <p>Start reading a segment of byte input.
+   * 
+   * @param content the segment.
+   * @param line the line counted up to the segment.
+   * @param column the column counted up to the segment.
+   * @param resume descriptors to validate before the segment.
+   * @throws GeneralParserException
+   */
+  void beginSegment(Utf8BufferReader content, int line, int column, List<T> resume) throws GeneralParserException
+  {
+    init();
+    bind(content);
+    
+    //Locations are from the start of the whole input.  A lazy index only scans the segment.
+    if(lazyLocations)
+    {
+      lineIndex = lazyLineIndex(new LineIndex(content.getBuffer(), content.getOrigin(), content.getStart(), content.getLimit(), line, column + 1));
+    }
+    else
+    {
+      lineIndex = null;
+      this.line = line;
+      this.column = column;
+    }
+    
+    try
+    {
+      for(T t : resume)
+      {
+        if(validationMode == ValidationMode.FULL) validationMachine.check(t);
+        else if(validationMode == ValidationMode.STRUCTURAL) validationMachine.checkStructure(t);
+      }
+    }
+    catch (GeneralParserStateMachineException e)
+    {
+      //The failure is at the start of the segment.
+      throw new GeneralParserException(e.getMessage(), charLocation(), e);
+    }
+  }
+  
+  /**
+   * <p>Read characters from the stream until the next token has been found and validated, and point the parser cursor
+   * at it.  Nothing is allocated per token; the cursor is overwritten by the next call.
+   * 
+   * @param content
+   * @return true if a token was read, false at the end of stream.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  protected boolean advance(Reader content) throws IOException, GeneralParserException
+  {
+    //Bind the character source to the content if it isn't already.  Characters are read from the source in blocks,
+    //except for byte input which is lexed in place.
+    if(readerSource.getReader() != content) bind(content);
+    return nextToken();
+  }
+  
+  /**
+   * <p>Start parsing input pushed in chunks with {@link #push(char[], int, int)} or {@link #push(ByteBuffer)} and
+   * finished with {@link #pushEnd()}.  Tokens are read with {@link #advancePushed()} as the input arrives.
+   */
+  protected void beginPush()
+  {
+    init();
+    if(pushBuffer == null) pushBuffer = new PushCharSource();
+    else pushBuffer.reset();
+    pushSource = pushBuffer;
+    if(lazyLocations) pushSource.setLineIndex(lineIndex = lazyLineIndex(new LineIndex()));
+  }
+  
+  /**
+   * <p>Push the next chunk of chars.
+   * 
+   * @param chunk
+   * @param off
+   * @param len
+   */
+  protected void push(char[] chunk, int off, int len)
+  {
+    pushSource().push(chunk, off, len);
+  }
+  
+  /**
+   * <p>Push the next chunk of UTF-8 bytes.  A multibyte sequence may be split between chunks.
+   * 
+   * @param chunk
+   * @throws MalformedInputException
+   */
+  protected void push(ByteBuffer chunk) throws MalformedInputException
+  {
+    pushSource().push(chunk);
+  }
+  
+  /**
+   * <p>Mark the end of the pushed input.
+   * 
+   * @throws MalformedInputException if a UTF-8 sequence was left unfinished.
+   */
+  protected void pushEnd() throws MalformedInputException
+  {
+    pushSource().end();
+  }
+  
+  /**
+   * <p>Get the push source, checking pushing has begun.
+   * 
+   * @return
+   */
+  private PushCharSource pushSource()
+  {
+    if(pushSource == null) throw new IllegalStateException();
+    return pushSource;
+  }
+  
+  /**
+   * <p>Point the parser cursor at the next complete token in the pushed input, as {@link #advance(Reader)}.  A token
+   * is only complete once the char after it has arrived, or the end of input has been pushed.  If the input so far
+   * runs out part way through a token, the parser goes back to the start of the token and returns false; the token is
+   * lexed again from the start when the next chunk is pushed.
+   * <p>The lexer doesn't keep its state between chunks, so a token split over n chunks is lexed n times.  The work for
+   * a long token is quadratic in its length over the chunk size; push chunks that are large compared with the longest
+   * token expected.
+   * 
+   * @return true if a token was read, false if more input is needed or at the end of input.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  protected boolean advancePushed() throws IOException, GeneralParserException
+  {
+    //Save the state before the token.
+    char savedChar = currentChar;
+    int savedLine = line;
+    int savedColumn = column;
+    int savedPrevLine = prevLine;
+    int savedPrevColumn = prevColumn;
+    pushSource.save();
+    
+    try
+    {
+      boolean ret = nextToken();
+      if(!pushSource.isStarved()) return ret;
+    }
+    catch(GeneralParserException | RuntimeException e)
+    {
+      //Running out of input part way through a token isn't an error until the end of input.
+      if(!pushSource.isStarved()) throw e;
+    }
+    
+    //Ran out of input - go back to the start of the token and wait for more.
+    pushSource.restore();
+    currentChar = savedChar;
+    line = savedLine;
+    column = savedColumn;
+    prevLine = savedPrevLine;
+    prevColumn = savedPrevColumn;
+    
+    //The descriptors may have been left part way through the token.
+    initDescriptors();
+    return false;
+  }
+  
+  /**
+   * <p>Read the next token from the bound input and point the cursor at it.  A failure ends the parse event, if there
+   * is one.
+   * 
+   * @return true if a token was read, false at the end of stream.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private boolean nextToken() throws IOException, GeneralParserException
+  {
+    if(parseEvent == null) return readToken();
+    
+    try
+    {
+      return readToken();
+    }
+    catch(IOException | GeneralParserException | RuntimeException e)
+    {
+      //Pushed input that ran out part way through a token hasn't failed.
+      if(pushSource == null || !pushSource.isStarved())
+      {
+        ParserEvents.endParse(parseEvent, e);
+        parseEvent = null;
+      }
+      throw e;
+    }
+  }
+  
+  /**
+   * <p>Read the next token from the bound input and point the cursor at it.
+   * 
+   * @return true if a token was read, false at the end of stream.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private boolean readToken() throws IOException, GeneralParserException
+  {
+    //Tokens from the cache are replayed rather than lexed.
+    if(cacheSource != null && cacheSource.isReplaying()) return replayToken();
+    
+    //Check the end of stream hasn't already been reached.
+    if(currentChar == 0xffff) return endOfStream();
+    
+    //Check the current char for whitespace.  We don't process WS between tokens.
+    if(currentChar == 0)
+    {
+      //Move to first non-null character.
+      while(true)
+      {
+        //Read the next char.
+        currentChar = readNext();
+        
+        //If end of stream then 
+        if(currentChar == 0xFFFF) return endOfStream();
+
+        //If not whitespace then break and continue processing;
+        if(currentChar != 0) break;
+      }
+    }
+    
+//    //Check the current char for whitespace.  We don't process WS between tokens.
+//    if(currentChar == 0 || Character.isWhitespace(currentChar))
+//    {
+//      //Move to first non-whitespace character.
+//      while(true)
+//      {
+//        //Read the next char.
+//        currentChar = readNext();
+//        
+//        //If end of stream then 
+//        if(currentChar == 0xFFFF) return null;
+//
+//        //If not whitespace then break and continue processing;
+//        if(!Character.isWhitespace(currentChar)) break;
+//      }
+//    }
+
+    //Find the token.
+    T current;
+    switch(engine)
+    {
+      case GENERATED:
+        current = lexWithGenerated();
+        break;
+      case COMPILED:
+        current = lexCompiled();
+        break;
+      default:
+        current = lexInterpreted();
+    }
+        
+    //Pushed input that ran out part way through the token - don't let the validation machine see it.
+    if(pushSource != null && pushSource.isStarved()) return false;
+    
+    //Got a token - check and return it.
+    try
+    {
+      if(validationMode != ValidationMode.FULL)
+      {
+        if(validationMode == ValidationMode.STRUCTURAL) validationMachine.checkStructure(current);
+      }
+      else if(metrics == null)
+      {
+        validationMachine.check(current);
+      }
+      else
+      {
+        long checkStart = System.nanoTime();
+        validationMachine.check(current);
+        metrics.tokenChecked(System.nanoTime() - checkStart);
+      }
+    }
+    catch (GeneralParserStateMachineException e)
+    {
+      //Throw exception if state machine check failed.
+      throw new GeneralParserException(e.getMessage(), tokenLocation());
+    }
+
+    //OK - point the cursor at the token.  The token characters are contiguous in the read buffer.
+    if(byteSource != null)
+    {
+      //Byte input - the token is a region of the input bytes.
+      int tokenStart = byteSource.getTokenStart();
+      int tokenEnd = byteSource.getTokenEnd();
+      int origin = byteSource.getOrigin();
+      cursor.setBytes(current, byteSource.getBuffer(), tokenStart, tokenEnd - tokenStart, byteSource.isTokenAscii(), startLine, startColumn, prevLine, prevColumn,
+          tokenStart - origin, tokenEnd - origin);
+      if(cacheSource != null) cacheSource.record(tokenCode, tokenStart - origin, tokenEnd - tokenStart, byteSource.isTokenAscii(), startLine, startColumn, prevLine, prevColumn);
+    }
+    else if(pushSource != null)
+    {
+      //Pushed input - the token is a region of the pushed chars.  Byte offsets aren't tracked.
+      int tokenStart = pushSource.getTokenStart();
+      cursor.set(current, pushSource.getBuffer(), tokenStart, pushSource.getTokenEnd() - tokenStart, startLine, startColumn, prevLine, prevColumn,
+          -1, -1);
+    }
+    else
+    {
+      int tokenStart = readerSource.getTokenStart();
+      int tokenEnd = readerSource.getTokenEnd();
+      cursor.set(current, readerSource.getBlock(), tokenStart, tokenEnd - tokenStart, startLine, startColumn, prevLine, prevColumn,
+          readerSource.getByteOffset(tokenStart), readerSource.getByteOffset(tokenEnd));
+    }
+    
+    //Lazy locations are looked up from the offsets when asked for.
+    if(lineIndex != null) cursor.locate(lineIndex, tokenStartOffset(), charOffset(true));
+    
+    if(descriptorProfile != null) profileToken();
+    if(instrumented) recordToken();
+    return true;
+  }
+  
+  /**
+   * <p>Point the cursor at the next token recorded in the token cache.  The token was validated when it was recorded,
+   * so it isn't checked again.
+   * 
+   * @return true if a token was replayed, false at the end of stream.
+   */
+  private boolean replayToken()
+  {
+    if(!cacheSource.next()) return endOfStream();
+    
+    tokenCode = cacheSource.getCode();
+    T current = (tokenCode >= 0) ? configuredParserTokenList.get(tokenCode) : null;
+    int offset = cacheSource.getOffset();
+    int length = cacheSource.getByteLength();
+    cursor.setBytes(current, byteSource.getBuffer(), byteSource.getOrigin() + offset, length, cacheSource.isAscii(), cacheSource.getLineStart(),
+        cacheSource.getColumnStart(), cacheSource.getLineEnd(), cacheSource.getColumnEnd(), offset, offset + length);
+    eliminationSteps = 0;
+    
+    if(descriptorProfile != null) profileToken();
+    if(instrumented) recordToken();
+    return true;
+  }
+  
+  /**
+   * <p>Bind the given content as the input.
+   * 
+   * @param content
+   */
+  private void bind(Reader content)
+  {
+    readerSource.bind(content);
+    
+    //A file opened from the token cache is lexed as bytes, or replayed.
+    cacheSource = (content instanceof TokenCacheReader) ? (TokenCacheReader) content : null;
+    if(cacheSource != null) content = cacheSource.getSource();
+    byteSource = (content instanceof Utf8BufferReader) ? (Utf8BufferReader) content : null;
+    
+    //Replayed tokens have the lines and columns they were recorded with.  Only fully validated tokens with their lines
+    //and columns counted are recorded.
+    lineIndex = null;
+    if(cacheSource != null && cacheSource.isReplaying()) return;
+    if(cacheSource != null && (validationMode != ValidationMode.FULL || lazyLocations)) cacheSource.abandon();
+    
+    //Index the newlines for lazy locations.  Byte input is all there, so it is only scanned if a location is asked for.
+    if(lazyLocations)
+    {
+      if(byteSource != null) lineIndex = lazyLineIndex(new LineIndex(byteSource.getBuffer(), byteSource.getOrigin(), byteSource.getStart(), byteSource.getLimit()));
+      else readerSource.setLineIndex(lineIndex = lazyLineIndex(new LineIndex()));
+    }
+  }
+  
+  /**
+   * <p>Start lazy locations with the given newline index.  Lines and columns aren't counted, so they are left as -1 in
+   * the cursor and tokens.
+   * 
+   * @param index
+   * @return the index.
+   */
+  private LineIndex lazyLineIndex(LineIndex index)
+  {
+    line = column = prevLine = prevColumn = -1;
+    return index;
+  }
+  
+  /**
+   * <p>Get the location of the token being read, from its first char to the char before the current char.
+   * 
+   * @return
+   */
+  private TokenLocation tokenLocation()
+  {
+    if(lineIndex == null) return new TokenLocation(startLine, startColumn, prevLine, prevColumn);
+    return lineIndex.getLocation(tokenStartOffset(), charOffset(true), -1, -1);
+  }
+  
+  /**
+   * <p>Get the location of the current char.
+   * 
+   * @return
+   */
+  private TokenLocation charLocation()
+  {
+    if(lineIndex == null) return new TokenLocation(line, column, line, column);
+    long offset = charOffset(false);
+    return lineIndex.getLocation(offset, offset, -1, -1);
+  }
+  
+  /**
+   * <p>Get the offset in the input of the first char of the marked token, for lazy locations.
+   * 
+   * @return
+   */
+  private long tokenStartOffset()
+  {
+    if(byteSource != null) return byteSource.getTokenStart() - byteSource.getOrigin();
+    if(pushSource != null) return pushSource.getOffset(pushSource.getTokenStart());
+    return readerSource.getOffset(readerSource.getTokenStart());
+  }
+  
+  /**
+   * <p>Get the offset in the input of the current char, or of the char before it, for lazy locations.  At the end of
+   * input the current char is just past the last char.
+   * 
+   * @param before
+   * @return
+   */
+  private long charOffset(boolean before)
+  {
+    if(byteSource != null)
+    {
+      int index = byteSource.getTokenEnd();
+      return (before ? byteSource.getCharBefore(index) : index) - byteSource.getOrigin();
+    }
+    int back = before ? 1 : 0;
+    if(pushSource != null) return pushSource.getOffset(pushSource.getTokenEnd() - back);
+    return readerSource.getOffset(readerSource.getTokenEnd() - back);
+  }
+  
+  /**
+   * <p>Mark the last char read as the first char of a token.
+   */
+  private void markTokenStart()
+  {
+    if(byteSource != null) byteSource.markTokenStart();
+    else if(pushSource != null) pushSource.markTokenStart();
+    else readerSource.markTokenStart();
+  }
+  
+  /**
+   * <p>Find the token starting at the current char by asking the token descriptors about each char.  On return the
+   * current char is the first char after the token.
+   * 
+   * @return the token descriptor.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private T lexInterpreted() throws IOException, GeneralParserException
+  {
+    //Initialise the current token type to null.
+    T current = null;
+    tokenCode = -1;
+        
+    //First char - let's find the token.
+    loadTokensForStartChar();
+    
+    //If there's only one option then set that as current.
+    int remaining = candidateCount();
+    if(remaining == 1) current = firstCandidate();
+    
+    //Token type found flag - initially false.
+    boolean found = false;
+    
+    //Count the chars at which there's more than one option.
+    int steps = 0;
+    
+    //Load characters until we've whittled down the options to 1.
+    while( (currentChar = readNext()) != 0xFFFF)
+    {
+      //Keep processing types in the candidate type list until type is found.
+      if(!found)
+      {
+        //Remove any tokens that aren't applicable.
+        if(remaining > 1) steps++;
+        eliminateCandidates();
+        
+        //Count what's left.
+        remaining = candidateCount();
+
+        //If we have zero left then we are dealing with a 1-char token.
+        if(remaining == 0)
+        {
+          //Break out of the loop.  Current token set above.
+          break;
+        }
+        //We need to be left with 1 token type.
+        if(remaining == 1)
+        {
+          //Found the only option.
+          found = true;
+          //Set the current token.
+          current = firstCandidate();
+        }
+      }
+      else
+      {
+        //We have the only type it can be.  Proceed to get the rest of the token.  The hot descriptor is asked from its
+        //own call site.
+        boolean content = (current == hotDescriptor) ? hotDescriptor.isTokenContentChar(currentChar) : current.isTokenContentChar(currentChar);
+        if(!content)
+        {
+          //Break out of the loop - finished.
+          break;
+        }
+      }
+    }
+    
+    eliminationSteps = steps;
+    
+    //The token must be complete, as in the compiled engine.
+    if(current != null && !current.isTokenComplete())
+    {
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0002"), tokenLocation());
+    }
+    return current;
+  }
+  
+  /**
+   * <p>Find the token starting at the current char by running the compiled lexer.  The token runs until there is no
+   * transition on the next char, and must then be in an accepting state.  On return the current char is the first char
+   * after the token.
+   * 
+   * @return the token descriptor.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private T lexCompiled() throws IOException, GeneralParserException
+  {
+    //First char - there must be a transition from the start state.
+    int state = compiledLexer.next(compiledLexer.getStartState(), currentChar);
+    if(state == CompiledLexer.NONE)
+    {
+      handleNoProcessingToken(charLocation());
+      
+      //Not thrown - the char is a token of no type, as in the interpreted engine.
+      markTokenStart();
+      startColumn = column;
+      startLine = line;
+      currentChar = readNext();
+      tokenCode = -1;
+      return null;
+    }
+    
+    //Mark the start of the token in the read buffer.
+    markTokenStart();
+    
+    //Set up the start line and column.
+    startColumn = column;
+    startLine = line;
+    
+    //Follow transitions until the next char has none.
+    while( (currentChar = readNext()) != 0xFFFF)
+    {
+      int next = compiledLexer.next(state, currentChar);
+      if(next == CompiledLexer.NONE) break;
+      state = next;
+    }
+    
+    //The token must be complete.
+    int accepted = compiledLexer.getAccepted(state);
+    if(accepted == CompiledLexer.NONE)
+    {
+      throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0002"), tokenLocation());
+    }
+    tokenCode = accepted;
+    return configuredParserTokenList.get(accepted);
+  }
+  
+  /**
+   * <p>Clear the cursor at the end of stream, and record the end of the input in the metrics and parse event.
+   * 
+   * @return false, for the caller to return.
+   */
+  private boolean endOfStream()
+  {
+    cursor.clear();
+    
+    //Record the end of the input once.  Pushed input that has run out hasn't ended.
+    if(parseTimed && (pushSource == null || !pushSource.isStarved()))
+    {
+      parseTimed = false;
+      metrics.parseFinished(System.nanoTime() - parseStart);
+    }
+    if(parseEvent != null && (pushSource == null || !pushSource.isStarved()))
+    {
+      ParserEvents.endParse(parseEvent, null);
+      parseEvent = null;
+    }
+    if(profiledTokens > 0 && (pushSource == null || !pushSource.isStarved())) updateProfile();
+    if(cacheSource != null) cacheSource.finish();
+    return false;
+  }
+  
+  /**
+   * <p>Count the token just read towards the descriptor profile.
+   */
+  private void profileToken()
+  {
+    if(tokenCode >= 0) profileCounts[tokenCode]++;
+    if(++profiledTokens == PROFILE_INTERVAL) updateProfile();
+  }
+  
+  /**
+   * <p>Add the tokens counted so far to the descriptor profile, and rank the descriptors again.
+   */
+  private void updateProfile()
+  {
+    descriptorProfile.add(profileCounts);
+    Arrays.fill(profileCounts, 0);
+    profiledTokens = 0;
+    rankDescriptors();
+  }
+  
+  /**
+   * <p>Make the most often matched descriptor in the profile the hot descriptor.  Which descriptor wins a token is
+   * decided by the candidate bits, never by the order they are asked in, so this can't change the tokens read.
+   */
+  private void rankDescriptors()
+  {
+    hotDescriptor = null;
+    hotBit = 0;
+    if(descriptorProfile == null) return;
+    
+    int top = descriptorProfile.getRanking()[0];
+    if(top < 64 && descriptorProfile.getMatches(top) > 0)
+    {
+      hotDescriptor = configuredParserTokenList.get(top);
+      hotBit = 1L << top;
+    }
+  }
+  
+  /**
+   * <p>Record the token the cursor is pointing at in the metrics and flight recorder events.
+   */
+  private void recordToken()
+  {
+    int length = cursor.charLength();
+    if(metrics != null) metrics.tokenRead(tokenCode, length, eliminationSteps);
+    if(parseEvent != null)
+    {
+      parseEvent.tokens++;
+      parseEvent.chars += length;
+    }
+    if(longTokenEvents) ParserEvents.token(cursor, length);
+  }
+  
+  /**
+   * <p>Get the parser cursor.  This is the same object for the life of the parser and describes the token most
+   * recently read by {@link #advance(Reader)}.
+   * 
+   * @return
+   */
+  protected GeneralParserCursor<T> getCursor()
+  {
+    return cursor;
+  }
+  
+  /**
+   * <p>Find the token starting at the current char by running the generated lexer of the subclass.
+   * 
+   * @return the token descriptor.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private T lexWithGenerated() throws IOException, GeneralParserException
+  {
+    //Mark the start of the token in the read buffer.
+    markTokenStart();
+    
+    //Set up the start line and column.
+    startColumn = column;
+    startLine = line;
+    
+    //Run the lexer.  It leaves the char after the token as the current char.
+    int accepted = lexGenerated(currentChar);
+    tokenCode = accepted;
+    if(accepted >= 0) return configuredParserTokenList.get(accepted);
+    
+    //No token starts with the char.
+    if(accepted == LEX_NO_TOKEN)
+    {
+      handleNoProcessingToken(charLocation());
+      
+      //Not thrown - the char is a token of no type, as in the interpreted engine.
+      currentChar = readNext();
+      return null;
+    }
+    
+    //The token must be complete.
+    throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0002"), tokenLocation());
+  }
+  
+  /**
+   * <p>Generated lexer.  Subclasses written by {@link parserutil.main.lexer.LexerGenerator} override this with the
+   * lexer for their token descriptors, and are created with the {@link LexerEngine#GENERATED} engine.  A parser without
+   * one can't be created with that engine, so this is never called on it.
+   * <p>The lexer is given the first char of the token.  It reads each further char with {@link #nextChar()} until the
+   * token ends, which leaves the char after the token as the current char.
+   * 
+   * @param ch the first char of the token.
+   * @return the position of the token descriptor in the configured list, {@link #LEX_NO_TOKEN} or
+   * {@link #LEX_INCOMPLETE}.
+   * @throws IOException
+   * @throws GeneralParserException if the parser has no generated lexer.
+   */
+  protected int lexGenerated(char ch) throws IOException, GeneralParserException
+  {
+    throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0003") + " " + getClass().getName(), charLocation());
+  }
+  
+  /**
+   * <p>Read the next char for the generated lexer and make it the current char.
+   * 
+   * @return the char, or 0xFFFF at the end of stream.
+   * @throws IOException
+   */
+  protected final char nextChar() throws IOException
+  {
+    return currentChar = readNext();
+  }
+  
+  /**
+   * <p>Get the configured token descriptors, in order.
+   * 
+   * @return an unmodifiable list.
+   */
+  public List<T> getTokenDescriptors()
+  {
+    return configuredParserTokenList;
+  }
+  
+  /**
+   * <p>Get the grammar this parser is a session of.
+   * 
+   * @return
+   */
+  public GeneralParserGrammar<T> getGrammar()
+  {
+    return grammar;
+  }
+  
+  /**
+   * <p>Get the engine used to find tokens.
+   * 
+   * @return
+   */
+  public LexerEngine getLexerEngine()
+  {
+    return engine;
+  }
+  
+  /**
+   * <p>Set zero-copy token mode.  In this mode the text of each token is a {@link TokenText} view into the read buffer
+   * rather than a copy, so tokens that are discarded cost no string allocation.  The view is only valid until the next
+   * token is read; call {@link GeneralParserToken#copy()} or {@link GeneralParserToken#getTokenValue()} to keep it.
+   * <p>For byte input (see {@link Utf8BufferReader}) the text is a {@link Utf8Text} view of the input instead, which stays
+   * valid as long as the input bytes are unchanged.
+   * 
+   * @param zeroCopyTokens
+   */
+  public void setZeroCopyTokens(boolean zeroCopyTokens)
+  {
+    this.zeroCopyTokens = zeroCopyTokens;
+  }
+  
+  /**
+   * <p>Is zero-copy token mode set?
+   * 
+   * @return
+   */
+  public boolean isZeroCopyTokens()
+  {
+    return zeroCopyTokens;
+  }
+  
+  /**
+   * <p>Set the number of tokens delivered in each batch to batch receivers.
+   * 
+   * @param batchSize
+   */
+  public void setBatchSize(int batchSize)
+  {
+    if(batchSize < 1) throw new IllegalArgumentException();
+    this.batchSize = batchSize;
+  }
+  
+  /**
+   * <p>Get the number of tokens delivered in each batch.
+   * 
+   * @return
+   */
+  public int getBatchSize()
+  {
+    return batchSize;
+  }
+  
+  /**
+   * <p>Get the empty batch for the next block of tokens.  The same batch is reused unless the batch size changes.
+   * 
+   * @return
+   */
+  protected TokenBatch<T> getBatch()
+  {
+    if(batch == null || batch.getCapacity() != batchSize) batch = new TokenBatch<>(configuredParserTokenList, batchSize);
+    batch.clear();
+    return batch;
+  }
+  
+  /**
+   * <p>Add the token the cursor points at to the given batch.
+   * 
+   * @param batch
+   * @return true if the batch is now full.
+   */
+  protected boolean addToBatch(TokenBatch<T> batch)
+  {
+    batch.add(cursor, tokenCode);
+    return batch.isFull();
+  }
+  
+  /**
+   * <p>Set lazy location mode.  In this mode lines and columns aren't counted as each char is read.  Each token keeps
+   * its offset in the input instead, and its line and columns are looked up in an index of the newlines only when
+   * asked for through {@link GeneralParserToken#getLocation()}, the cursor or a {@link GeneralParserException}.  The
+   * line and column fields of tokens are -1.
+   * <p>The newlines of text input are indexed a block at a time as it is read; byte input is only scanned when a
+   * location is first asked for.  The mode takes effect from the next parse.
+   * 
+   * @param lazyLocations
+   */
+  public void setLazyLocations(boolean lazyLocations)
+  {
+    this.lazyLocations = lazyLocations;
+  }
+  
+  /**
+   * <p>Is lazy location mode set?
+   * 
+   * @return
+   */
+  public boolean isLazyLocations()
+  {
+    return lazyLocations;
+  }
+
+  /**
+   * <p>Set how much the tokens are checked by default.  The default is {@link ValidationMode#FULL}.  Lower modes are
+   * for input that has already been validated, such as input generated by another part of the same system.  Parsers
+   * with parse methods taking a mode use it in place of this one for that parse only.
+   *
+   * @param validationMode
+   */
+  public void setValidationMode(ValidationMode validationMode)
+  {
+    if(validationMode == null) throw new IllegalArgumentException();
+    this.validationMode = validationMode;
+  }
+
+  /**
+   * <p>Get how much the tokens are checked.
+   *
+   * @return
+   */
+  public ValidationMode getValidationMode()
+  {
+    return validationMode;
+  }
+
+  /**
+   * <p>Run the given parse with the given validation mode, and put the parser's own mode back afterwards, whether the
+   * parse succeeds or not.  For parse methods taking a mode for that parse only.
+   *
+   * @param <R>
+   * @param mode
+   * @param action
+   * @return the result of the parse.
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  protected <R> R withValidationMode(ValidationMode mode, ParseAction<R> action) throws IOException, GeneralParserException
+  {
+    ValidationMode defaultMode = validationMode;
+    setValidationMode(mode);
+    try
+    {
+      return action.parse();
+    }
+    finally
+    {
+      validationMode = defaultMode;
+    }
+  }
+
+  /**
+   * <p>Set the metrics to record parsing to, or null (the default) to record nothing.  Takes effect from the next
+   * input parsed.
+   *
+   * @param metrics
+   */
+  public void setMetrics(ParserMetrics metrics)
+  {
+    this.metrics = metrics;
+    parseTimed = false;
+    instrumented = (metrics != null) || (parseEvent != null) || longTokenEvents;
+  }
+
+  /**
+   * <p>Get the metrics parsing is recorded to.
+   *
+   * @return the metrics, or null if none are recorded.
+   */
+  public ParserMetrics getMetrics()
+  {
+    return metrics;
+  }
+
+  /**
+   * <p>Set the descriptor profile to add the tokens read to, or null (the default) to keep no profile.  The profile
+   * ranks the descriptors by how often they have matched, and the interpreted engine asks the most often matched
+   * descriptor about each char first.  Only that descriptor is moved; see {@link DescriptorProfile} for why.  The
+   * ranking is updated as tokens are read, so the parser adapts to the input.  The tokens read are the same with or
+   * without a profile.
+   * <p>Parsers of the same grammar can share a profile, on any number of threads.  A profile loaded with
+   * {@link DescriptorProfile#load(Reader)} carries what was learned in an earlier process.
+   *
+   * @param descriptorProfile
+   * @throws IllegalArgumentException if the profile is not for this parser's descriptors.
+   */
+  public void setDescriptorProfile(DescriptorProfile descriptorProfile)
+  {
+    if(descriptorProfile != null && descriptorProfile.getDescriptorCount() != configuredParserTokenList.size()) throw new IllegalArgumentException();
+    this.descriptorProfile = descriptorProfile;
+    profileCounts = (descriptorProfile != null) ? new int[configuredParserTokenList.size()] : null;
+    profiledTokens = 0;
+    rankDescriptors();
+  }
+
+  /**
+   * <p>Get the descriptor profile the tokens read are added to.
+   *
+   * @return the profile, or null if none is kept.
+   */
+  public DescriptorProfile getDescriptorProfile()
+  {
+    return descriptorProfile;
+  }
+
+  /**
+   * <p>Set the cache of tokens read from files, or null (the default) to lex every file.  Files parsed by path are
+   * looked up in the cache, and replayed from it if it has their tokens; otherwise they are lexed, and their tokens are
+   * added to the cache when the end of the file is reached.  Only parses in {@link ValidationMode#FULL} without lazy
+   * locations add to the cache, but any parse can replay from it.  Takes effect from the next file opened.
+   *
+   * @param tokenCache
+   */
+  public void setTokenCache(TokenCache tokenCache)
+  {
+    this.tokenCache = tokenCache;
+  }
+
+  /**
+   * <p>Get the cache of tokens read from files.
+   *
+   * @return the cache, or null if every file is lexed.
+   */
+  public TokenCache getTokenCache()
+  {
+    return tokenCache;
+  }
+
+  /**
+   * <p>Open the given UTF-8 file for parsing.  The file is memory mapped, or opened from the token cache if there is
+   * one.  The caller closes the reader.
+   *
+   * @param file
+   * @return
+   * @throws IOException
+   */
+  protected Reader openFile(Path file) throws IOException
+  {
+    if(tokenCache == null) return new MappedFileReader(file);
+    return tokenCache.open(file, grammar);
+  }
+
+  /**
+   * <p>Load the possible tokens types for the given token start character.
+   * @throws GeneralParserException 
+   * 
+   */
+  private void loadTokensForStartChar() throws GeneralParserException
+  {
+    //Only the descriptors in the dispatch table entry for this char can start the token.  Each is still asked, as this
+    //resets any state it holds for the new token.
+    candidates = loadCandidates(startTable.candidates(currentChar), 0);
+    if(spillCandidates != null)
+    {
+      long[] spill = startTable.spillCandidates(currentChar);
+      for(int w = 0; w < spillCandidates.length; w++) spillCandidates[w] = loadCandidates(spill[w], (w + 1) << 6);
+    }
+    
+    //We need at least one candidate.
+    if(candidateCount() == 0) 
+    {
+      //throw new GeneralParserException(ResourceBundle.getBundle("parserutil.main.strings").getString("0001"), new TokenLocation(line, column, line, column));
+      handleNoProcessingToken(charLocation());
+    }
+    
+    //Mark the start of the token in the read buffer.
+    markTokenStart();
     
     //Set up the start line and column.
     startColumn = column;
     startLine = line;
   }
   
+  /**
+   * <p>Ask each descriptor in a dispatch table mask whether it starts a token with the current char.
+   * 
+   * @param mask the dispatch table mask.
+   * @param base the configured list position of bit 0 of the mask.
+   * @return the mask of descriptors that accepted the char.
+   */
+  private long loadCandidates(long mask, int base)
+  {
+    long ret = mask;
+    long m = mask;
+    
+    //Ask the hot descriptor first, from its own call site.
+    if(base == 0 && (m & hotBit) != 0)
+    {
+      m ^= hotBit;
+      if(!hotDescriptor.isTokenStartChar(currentChar)) ret ^= hotBit;
+    }
+    for(; m != 0; m &= m - 1)
+    {
+      long bit = m & -m;
+      if(!configuredParserTokenList.get(base + Long.numberOfTrailingZeros(bit)).isTokenStartChar(currentChar)) ret ^= bit;
+    }
+    return ret;
+  }
+  
+  /**
+   * <p>Offer the current char to each remaining candidate, clearing the bits of those that don't accept it as content.
+   */
+  private void eliminateCandidates()
+  {
+    candidates = eliminateCandidates(candidates, 0);
+    if(spillCandidates != null)
+    {
+      for(int w = 0; w < spillCandidates.length; w++) spillCandidates[w] = eliminateCandidates(spillCandidates[w], (w + 1) << 6);
+    }
+  }
+  
+  /**
+   * <p>Offer the current char to each candidate in a mask word.
+   * 
+   * @param mask the candidate mask word.
+   * @param base the configured list position of bit 0 of the word.
+   * @return the mask of candidates that accepted the char.
+   */
+  private long eliminateCandidates(long mask, int base)
+  {
+    long ret = mask;
+    long m = mask;
+    
+    //Ask the hot descriptor first, from its own call site.
+    if(base == 0 && (m & hotBit) != 0)
+    {
+      m ^= hotBit;
+      if(!hotDescriptor.isTokenContentChar(currentChar)) ret ^= hotBit;
+    }
+    for(; m != 0; m &= m - 1)
+    {
+      long bit = m & -m;
+      if(!configuredParserTokenList.get(base + Long.numberOfTrailingZeros(bit)).isTokenContentChar(currentChar)) ret ^= bit;
+    }
+    return ret;
+  }
+  
+  /**
+   * <p>Count the remaining candidates.
+   * 
+   * @return
+   */
+  private int candidateCount()
+  {
+    int count = Long.bitCount(candidates);
+    if(spillCandidates != null)
+    {
+      for(long w : spillCandidates) count += Long.bitCount(w);
+    }
+    return count;
+  }
+  
+  /**
+   * <p>Get the candidate with the lowest position in the configured list.  There must be at least one.
+   * 
+   * @return
+   */
+  private T firstCandidate()
+  {
+    if(candidates != 0) return configuredParserTokenList.get(tokenCode = Long.numberOfTrailingZeros(candidates));
+    
+    //Must be in the spill words.
+    int w = 0;
+    while(spillCandidates[w] == 0) w++;
+    return configuredParserTokenList.get(tokenCode = ((w + 1) << 6) + Long.numberOfTrailingZeros(spillCandidates[w]));
+  }
+  
   /**
    * <P>Read next char.  Examine the char before returning it and update the line and column numbers accordingly.
    * 
-   * @param content
    * @return
    * @throws IOException
    */
-  private char readNext(Reader content) throws IOException
+  private char readNext() throws IOException
   {
-    //Read the next character from the stream.
-    char ret = (char) (content.read());
+    //Read the next character from the current block.
+    char ret = (byteSource != null) ? byteSource.next() : (pushSource != null) ? pushSource.next() : readerSource.next();
+    
+    //Lines and columns are looked up from offsets when asked for in lazy location mode.
+    if(lineIndex != null) return ret;
     
     //Set the previous.
     prevLine = line;
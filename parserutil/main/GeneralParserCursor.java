@@ -0,0 +1,486 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Reusable view of the token most recently read by {@link GeneralParser#advance(java.io.Reader)}.  One cursor belongs
+ * to each parser and is overwritten in place by every call, so reading tokens through it allocates nothing.  The token
+ * text is the cursor itself as a {@link CharSequence}; it is a view into the read buffer and is only valid until the
+ * next token is read.  Call {@link #toString()} or {@link #toToken(boolean)} to keep it beyond that.
+ * <p>For input read through a {@link Utf8BufferReader} the token is a region of the input bytes.  The chars are only
+ * decoded, into a buffer reused for every token, if the text is read as chars.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ * @param <T>
+ */
+public final class GeneralParserCursor<T extends TokenDescriptor> implements CharSequence
+{
+  /**
+   * <p>The descriptor of the current token.  Null before the first token and after the end of stream.
+   */
+  private T descriptor;
+  
+  /**
+   * <p>The buffer holding the token text.  For byte input this is null until the text is decoded.
+   */
+  private char[] buffer;
+  
+  /**
+   * <p>The input bytes holding the token, for byte input.  Null otherwise.
+   */
+  private ByteBuffer bytes;
+  
+  /**
+   * <p>The index of the token in the input bytes.
+   */
+  private int bytesOffset;
+  
+  /**
+   * <p>The length of the token in bytes.
+   */
+  private int bytesLength;
+  
+  /**
+   * <p>Set if the token bytes are known to be all ASCII.
+   */
+  private boolean ascii;
+  
+  /**
+   * <p>Reusable buffer that byte input tokens are decoded into.
+   */
+  private char[] decoded;
+  
+  /**
+   * <p>The offset of the token text in the buffer.
+   */
+  private int offset;
+  
+  /**
+   * <p>The length of the token text.
+   */
+  private int length;
+  
+  /**
+   * <p>Token start line.
+   */
+  private int lineStart;
+  
+  /**
+   * <p>Token start column.
+   */
+  private int columnStart;
+  
+  /**
+   * <p>Token end line.
+   */
+  private int lineEnd;
+  
+  /**
+   * <p>Token end column.
+   */
+  private int columnEnd;
+  
+  /**
+   * <p>Token start byte offset, or -1 if not known.
+   */
+  private long byteStart;
+  
+  /**
+   * <p>Token end byte offset, or -1 if not known.
+   */
+  private long byteEnd;
+  
+  /**
+   * <p>Newline index the location is looked up in, in lazy location mode.  Null when the lines and columns are set.
+   */
+  private LineIndex lineIndex;
+  
+  /**
+   * <p>Offset of the first char of the token, in lazy location mode.
+   */
+  private long offsetStart;
+  
+  /**
+   * <p>Offset of the last char of the token, in lazy location mode.
+   */
+  private long offsetEnd;
+  
+  /**
+   * <p>Cursors are created by the general parser.
+   */
+  GeneralParserCursor()
+  {
+  }
+  
+  /**
+   * <p>Point the cursor at a new token.
+   * 
+   * @param descriptor
+   * @param buffer
+   * @param offset
+   * @param length
+   * @param lineStart
+   * @param columnStart
+   * @param lineEnd
+   * @param columnEnd
+   * @param byteStart
+   * @param byteEnd
+   */
+  void set(T descriptor, char[] buffer, int offset, int length, int lineStart, int columnStart, int lineEnd, int columnEnd, long byteStart, long byteEnd)
+  {
+    this.descriptor = descriptor;
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+    this.lineStart = lineStart;
+    this.columnStart = columnStart;
+    this.lineEnd = lineEnd;
+    this.columnEnd = columnEnd;
+    this.byteStart = byteStart;
+    this.byteEnd = byteEnd;
+    this.bytes = null;
+    this.lineIndex = null;
+  }
+  
+  /**
+   * <p>Point the cursor at a new token in byte input.
+   * 
+   * @param descriptor
+   * @param bytes the input bytes.
+   * @param bytesOffset the index of the token in the input bytes.
+   * @param bytesLength the length of the token in bytes.
+   * @param ascii set if the token is known to be all ASCII.
+   * @param lineStart
+   * @param columnStart
+   * @param lineEnd
+   * @param columnEnd
+   * @param byteStart
+   * @param byteEnd
+   */
+  void setBytes(T descriptor, ByteBuffer bytes, int bytesOffset, int bytesLength, boolean ascii, int lineStart, int columnStart, int lineEnd, int columnEnd, long byteStart, long byteEnd)
+  {
+    this.descriptor = descriptor;
+    this.bytes = bytes;
+    this.bytesOffset = bytesOffset;
+    this.bytesLength = bytesLength;
+    this.ascii = ascii;
+    this.buffer = null;
+    this.offset = 0;
+    this.length = 0;
+    this.lineStart = lineStart;
+    this.columnStart = columnStart;
+    this.lineEnd = lineEnd;
+    this.columnEnd = columnEnd;
+    this.byteStart = byteStart;
+    this.byteEnd = byteEnd;
+    this.lineIndex = null;
+  }
+  
+  /**
+   * <p>Give the current token a location to be looked up when asked for, in place of its lines and columns.
+   * 
+   * @param lineIndex
+   * @param offsetStart the offset of the first char of the token.
+   * @param offsetEnd the offset of the last char of the token.
+   */
+  void locate(LineIndex lineIndex, long offsetStart, long offsetEnd)
+  {
+    this.lineIndex = lineIndex;
+    this.offsetStart = offsetStart;
+    this.offsetEnd = offsetEnd;
+  }
+  
+  /**
+   * <p>Get the number of chars in the token without decoding byte input.
+   * 
+   * @return
+   */
+  int charLength()
+  {
+    if(buffer != null || bytes == null) return length;
+    if(ascii) return bytesLength;
+    
+    //One char per sequence, or two for the surrogate pair of a four byte sequence.
+    int n = 0;
+    for(int i = bytesOffset, end = bytesOffset + bytesLength; i < end; i++)
+    {
+      int b = bytes.get(i) & 0xff;
+      if( (b & 0xc0) != 0x80) n += (b >= 0xf0) ? 2 : 1;
+    }
+    return n;
+  }
+  
+  /**
+   * <p>Make sure the token text is in the char buffer, decoding byte input if it hasn't been already.
+   */
+  private void decodeBytes()
+  {
+    if(buffer != null || bytes == null) return;
+    
+    //ASCII bytes are widened; anything else is decoded.
+    String text = ascii ? null : Utf8Text.decode(bytes, bytesOffset, bytesLength);
+    int n = ascii ? bytesLength : text.length();
+    if(decoded == null || decoded.length < n) decoded = new char[Math.max(n, 64)];
+    if(ascii)
+    {
+      for(int i = 0; i < n; i++) decoded[i] = (char) bytes.get(bytesOffset + i);
+    }
+    else
+    {
+      text.getChars(0, n, decoded, 0);
+    }
+    buffer = decoded;
+    offset = 0;
+    length = n;
+  }
+  
+  /**
+   * <p>Get the token text in a form that can be kept after the parser moves on.  For byte input this is a
+   * {@link Utf8Text} view of the input bytes, otherwise it is a copy.
+   * 
+   * @return
+   */
+  public CharSequence keepText()
+  {
+    if(bytes != null) return new Utf8Text(bytes, bytesOffset, bytesLength, ascii);
+    return toString();
+  }
+  
+  /**
+   * <p>Clear the cursor at the end of stream.
+   */
+  void clear()
+  {
+    descriptor = null;
+    buffer = null;
+    bytes = null;
+    length = 0;
+  }
+  
+  /**
+   * <p>Get the descriptor of the current token.
+   * 
+   * @return the descriptor, or null if there is no current token.
+   */
+  public T getDescriptor()
+  {
+    return descriptor;
+  }
+  
+  /**
+   * <p>Get the buffer holding the token text.  The buffer belongs to the parser and must not be modified.
+   * 
+   * @return
+   */
+  public char[] getBuffer()
+  {
+    decodeBytes();
+    return buffer;
+  }
+  
+  /**
+   * <p>Get the offset of the token text in the buffer.
+   * 
+   * @return
+   */
+  public int getOffset()
+  {
+    decodeBytes();
+    return offset;
+  }
+  
+  /**
+   * <p>Get the token start line.
+   * 
+   * @return
+   */
+  public int getLineStart()
+  {
+    return (lineIndex != null) ? lineIndex.getLine(offsetStart) : lineStart;
+  }
+  
+  /**
+   * <p>Get the token start column.
+   * 
+   * @return
+   */
+  public int getColumnStart()
+  {
+    return (lineIndex != null) ? lineIndex.getColumn(offsetStart) : columnStart;
+  }
+  
+  /**
+   * <p>Get the token end line.
+   * 
+   * @return
+   */
+  public int getLineEnd()
+  {
+    return (lineIndex != null) ? lineIndex.getLine(offsetEnd) : lineEnd;
+  }
+  
+  /**
+   * <p>Get the token end column.
+   * 
+   * @return
+   */
+  public int getColumnEnd()
+  {
+    return (lineIndex != null) ? lineIndex.getColumn(offsetEnd) : columnEnd;
+  }
+  
+  /**
+   * <p>Get the offset in the input of the first byte of the token.  Only known for input read from a
+   * {@link MappedFileReader}.
+   * 
+   * @return the offset, or -1 if not known.
+   */
+  public long getByteStart()
+  {
+    return byteStart;
+  }
+  
+  /**
+   * <p>Get the offset in the input just past the last byte of the token.  Only known for input read from a
+   * {@link MappedFileReader}.
+   * 
+   * @return the offset, or -1 if not known.
+   */
+  public long getByteEnd()
+  {
+    return byteEnd;
+  }
+  
+  /**
+   * <p>Get the location of the current token.  This creates a new location object.
+   * 
+   * @return
+   */
+  public TokenLocation getLocation()
+  {
+    if(lineIndex != null) return lineIndex.getLocation(offsetStart, offsetEnd, byteStart, byteEnd);
+    return new TokenLocation(lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int length()
+  {
+    decodeBytes();
+    return length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public char charAt(int index)
+  {
+    decodeBytes();
+    if( (index < 0) || (index >= length) ) throw new IndexOutOfBoundsException(index);
+    return buffer[offset + index];
+  }
+
+  /**
+   * <p>Get a view of part of the token text.  The view has the same validity as the cursor text.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end)
+  {
+    decodeBytes();
+    if( (start < 0) || (end > length) || (start > end) ) throw new IndexOutOfBoundsException();
+    return new TokenText(buffer, offset + start, end - start);
+  }
+  
+  /**
+   * <p>Compare the token text with the given characters without copying it.
+   * 
+   * @param cs
+   * @return true if the text and the given characters are the same.
+   */
+  public boolean contentEquals(CharSequence cs)
+  {
+    decodeBytes();
+    
+    //Lengths must match.
+    if(cs.length() != length) return false;
+    
+    //Compare in place.
+    for(int i = 0; i < length; i++)
+    {
+      if(buffer[offset + i] != cs.charAt(i)) return false;
+    }
+    return true;
+  }
+  
+  /**
+   * <p>Build a standalone token from the cursor.
+   * 
+   * @param view if true, the token text is a {@link TokenText} view into the read buffer, otherwise it is copied.
+   * @return
+   */
+  public GeneralParserToken<T> toToken(boolean view)
+  {
+    GeneralParserToken<T> token;
+    if(bytes != null)
+    {
+      //Byte input views stay valid, so there is no need to decode.
+      if(view) token = new GeneralParserToken<>(descriptor, new Utf8Text(bytes, bytesOffset, bytesLength, ascii), lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+      else token = new GeneralParserToken<>(descriptor, toString(), lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+    }
+    else if(view)
+    {
+      token = new GeneralParserToken<>(descriptor, new TokenText(buffer, offset, length), lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+    }
+    else
+    {
+      token = new GeneralParserToken<>(descriptor, toString(), lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+    }
+    
+    //Lazy location.
+    if(lineIndex != null) token.locate(lineIndex, offsetStart, offsetEnd);
+    return token;
+  }
+
+  /**
+   * <p>Copy the token text into a new string.
+   */
+  @Override
+  public String toString()
+  {
+    if(bytes != null && buffer == null) return Utf8Text.decode(bytes, bytesOffset, bytesLength);
+    return (length == 0) ? "" : new String(buffer, offset, length);
+  }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import parserutil.main.lexer.CompiledLexer;
+import parserutil.main.lexer.LexerCompiler;
+import parserutil.main.lexer.LexerEngine;
+import parserutil.main.lexer.TokenPattern;
+
+/**
+ * <p>General parser grammar.  This is the immutable configuration of a parser: the token descriptors, the lexer engine
+ * and the lookup structures built from them.  It is built once and can be shared by any number of parsers on any number
+ * of threads.  Each parser is a parse session holding the mutable state - the position in the input, the token cursor
+ * and the validation machine.
+ * <p>Descriptors for the interpreted engine hold lexing state of their own, so each session gets a new list of them from
+ * the grammar's descriptor factory.  The compiled and generated engines only ask descriptors for their type and value,
+ * so their descriptors are created once and shared.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class GeneralParserGrammar<T extends TokenDescriptor>
+{
+  /**
+   * <p>Creates the descriptors for each session.  Null unless the engine is {@link LexerEngine#INTERPRETED} and the
+   * grammar was created with a factory.
+   */
+  private final Supplier<? extends List<T>> descriptorFactory;
+  
+  /**
+   * <p>The token descriptors, in configured order.  For the interpreted engine these are only used to build the start
+   * table; sessions have their own.
+   */
+  private final List<T> descriptors;
+  
+  /**
+   * <p>The engine used to find tokens.
+   */
+  private final LexerEngine engine;
+  
+  /**
+   * <p>The lexer compiled from the descriptors' token patterns.  Null unless the engine is {@link LexerEngine#COMPILED}.
+   */
+  private final CompiledLexer compiledLexer;
+  
+  /**
+   * <p>Start character dispatch table.  Null unless the engine is {@link LexerEngine#INTERPRETED}.
+   */
+  private final TokenStartTable startTable;
+  
+  /**
+   * <p>The version of the grammar's lexing logic.
+   */
+  private final int version;
+  
+  /**
+   * <p>Describes the tokens the grammar reads: the engine, the version and each descriptor's class, start chars and
+   * pattern.  Equal signatures read the same tokens from the same input.
+   */
+  private final String signature;
+  
+  /**
+   * <p>Create the grammar.  The factory is called once for the grammar's own descriptors and, for the interpreted
+   * engine, once more for each session.  It must return descriptors of the same types in the same order each time.
+   * <p>The compiled engine needs every descriptor to declare a {@link TokenPattern}.
+   * 
+   * @param descriptorFactory
+   * @param engine
+   */
+  public GeneralParserGrammar(Supplier<? extends List<T>> descriptorFactory, LexerEngine engine)
+  {
+    this(descriptorFactory, engine, 0);
+  }
+  
+  /**
+   * <p>Create the grammar with the given version of its lexing logic.  Tokens cached by a {@link TokenCache} are only
+   * replayed by a grammar of the same version.  Change the version when a descriptor reads different tokens without a
+   * change to its class, start chars or pattern, such as a fix to how an interpreted descriptor reads chars.
+   * 
+   * @param descriptorFactory
+   * @param engine
+   * @param version
+   */
+  public GeneralParserGrammar(Supplier<? extends List<T>> descriptorFactory, LexerEngine engine, int version)
+  {
+    this(descriptorFactory.get(), (engine == LexerEngine.INTERPRETED) ? descriptorFactory : null, engine, version);
+  }
+  
+  /**
+   * <p>Create a grammar from a single list of descriptors.  Interpreted sessions of the grammar all use the same
+   * descriptors, so it must have only one session.
+   * 
+   * @param descriptors
+   * @param engine
+   */
+  GeneralParserGrammar(List<T> descriptors, LexerEngine engine)
+  {
+    this(descriptors, null, engine, 0);
+  }
+  
+  /**
+   * <p>Create the grammar.
+   * 
+   * @param descriptors
+   * @param descriptorFactory
+   * @param engine
+   * @param version
+   */
+  private GeneralParserGrammar(List<T> descriptors, Supplier<? extends List<T>> descriptorFactory, LexerEngine engine, int version)
+  {
+    this.descriptors = Collections.unmodifiableList(new ArrayList<>(descriptors));
+    this.descriptorFactory = descriptorFactory;
+    this.engine = engine;
+    this.version = version;
+    signature = signature(this.descriptors, engine, version);
+    
+    if(engine == LexerEngine.COMPILED)
+    {
+      //Compile the token patterns.
+      List<TokenPattern> patterns = new ArrayList<>();
+      for(T t : this.descriptors) patterns.add(t.getTokenPattern());
+      compiledLexer = LexerCompiler.compile(patterns);
+      startTable = null;
+    }
+    else if(engine == LexerEngine.INTERPRETED)
+    {
+      //Build the start character dispatch table.
+      compiledLexer = null;
+      startTable = new TokenStartTable(this.descriptors);
+    }
+    else
+    {
+      //The generated subclass has the lexer built in.
+      compiledLexer = null;
+      startTable = null;
+    }
+  }
+  
+  /**
+   * <p>Build the signature of the given descriptors, engine and version.
+   * 
+   * @param descriptors
+   * @param engine
+   * @param version
+   * @return
+   */
+  private static String signature(List<? extends TokenDescriptor> descriptors, LexerEngine engine, int version)
+  {
+    StringBuilder sb = new StringBuilder(engine.name()).append(' ').append(version);
+    for(TokenDescriptor d : descriptors)
+    {
+      char[] startChars = d.getTokenStartChars();
+      sb.append('\n').append(d.getClass().getName()).append(' ').append((startChars != null) ? String.valueOf(startChars) : "").append(' ').append(d.getTokenPattern());
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Get the descriptors for a new session.
+   * 
+   * @return
+   */
+  List<T> sessionDescriptors()
+  {
+    if(descriptorFactory == null) return descriptors;
+    
+    //Stateful descriptors - each session needs its own.
+    List<T> ret = Collections.unmodifiableList(new ArrayList<>(descriptorFactory.get()));
+    if(ret.size() != descriptors.size()) throw new IllegalStateException();
+    return ret;
+  }
+  
+  /**
+   * <p>Get the grammar's signature.  Grammars with the same signature read the same tokens, so cached tokens are
+   * versioned by it.
+   * 
+   * @return
+   */
+  String getSignature()
+  {
+    return signature;
+  }
+  
+  /**
+   * <p>Get the compiled lexer.  Null unless the engine is {@link LexerEngine#COMPILED}.
+   * 
+   * @return
+   */
+  CompiledLexer getCompiledLexer()
+  {
+    return compiledLexer;
+  }
+  
+  /**
+   * <p>Get the start character dispatch table.  Null unless the engine is {@link LexerEngine#INTERPRETED}.
+   * 
+   * @return
+   */
+  TokenStartTable getStartTable()
+  {
+    return startTable;
+  }
+  
+  /**
+   * <p>Get the grammar's token descriptors, in order.
+   * 
+   * @return an unmodifiable list.
+   */
+  public List<T> getTokenDescriptors()
+  {
+    return descriptors;
+  }
+  
+  /**
+   * <p>Get the engine used to find tokens.
+   * 
+   * @return
+   */
+  public LexerEngine getLexerEngine()
+  {
+    return engine;
+  }
+  
+  /**
+   * <p>Get the version of the grammar's lexing logic.
+   * 
+   * @return
+   */
+  public int getVersion()
+  {
+    return version;
+  }
+}
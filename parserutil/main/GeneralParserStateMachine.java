@@ -49,6 +49,17 @@ public interface GeneralParserStateMachine<T extends TokenDescriptor>
    */
   public void check(T t) throws GeneralParserStateMachineException;
   
+  /**
+   * <p>Check only the structure of the tokens, for {@link ValidationMode#STRUCTURAL}.  This should be no more than
+   * counting, for example of the nesting depth.  The default checks nothing.
+   * 
+   * @param t the token to check
+   * @throws GeneralParserStateMachineException if the structure is broken.
+   */
+  public default void checkStructure(T t) throws GeneralParserStateMachineException
+  {
+  }
+  
   /**
    * <p>Initialise the state machine to its starting position.
    */
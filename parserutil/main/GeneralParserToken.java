@@ -29,8 +29,6 @@
  */
 package parserutil.main;
 
-import parserutil.impl.csv.CSVValue;
-
 /**
  * <p>A token, which contains the token descriptor given to the {@link GeneralParser} by the owning implementation
  * and the token value in string form.
@@ -46,9 +44,15 @@ public class GeneralParserToken<T extends TokenDescriptor>
   public final T descriptor;
   
   /**
-   * <p>Token value.
+   * <p>Token value.  This is null for tokens made in zero-copy mode (see {@link GeneralParser#setZeroCopyTokens(boolean)});
+   * use {@link #getTokenValue()} or {@link #getText()} for code that has to work in either mode.
    */
   public final String tokenValue;
+  
+  /**
+   * <p>Token text.  In zero-copy mode this is a view into the parser's read buffer.  Otherwise it is the token value.
+   */
+  private final CharSequence tokenText;
 
   /**
    * The line number from the text input that the token starts on.
@@ -69,6 +73,32 @@ public class GeneralParserToken<T extends TokenDescriptor>
    * The column number from the text input that the token ends on.
    */
   public final int columnEnd;
+  
+  /**
+   * The offset of the first byte of the token in the input, or -1 if not known.
+   */
+  public final long byteStart;
+  
+  /**
+   * The offset just past the last byte of the token in the input, or -1 if not known.
+   */
+  public final long byteEnd;
+  
+  /**
+   * <p>Newline index the location is looked up in, for tokens read in lazy location mode (see
+   * {@link GeneralParser#setLazyLocations(boolean)}).  The line and column fields of such tokens are -1.
+   */
+  private LineIndex lineIndex;
+  
+  /**
+   * <p>Offset of the first char of the token, in lazy location mode.
+   */
+  private long offsetStart;
+  
+  /**
+   * <p>Offset of the last char of the token, in lazy location mode.
+   */
+  private long offsetEnd;
 
   /**
    * <p>Status from the state machine.
@@ -82,23 +112,150 @@ public class GeneralParserToken<T extends TokenDescriptor>
    * @param tokenValue
    */
   public GeneralParserToken(T descriptor, String tokenValue, int lineStart, int columnStart, int lineEnd, int columnEnd)//, String machineStatus)
+  {
+    this(descriptor, tokenValue, lineStart, columnStart, lineEnd, columnEnd, -1, -1);
+  }
+  
+  /**
+   * <p>Construct the token with its byte offsets in the input.
+   * 
+   * @param descriptor
+   * @param tokenValue
+   */
+  public GeneralParserToken(T descriptor, String tokenValue, int lineStart, int columnStart, int lineEnd, int columnEnd, long byteStart, long byteEnd)
   {
     this.descriptor = descriptor;
     this.tokenValue = tokenValue;
+    this.tokenText = tokenValue;
     this.lineStart = lineStart;
     this.columnStart = columnStart;
     this.lineEnd = lineEnd;
     this.columnEnd = columnEnd;
+    this.byteStart = byteStart;
+    this.byteEnd = byteEnd;
     //this.machineStatus = machineStatus;
   }
 
+  /**
+   * <p>Construct a zero-copy token.  The token text is a view which is only valid until the parser reads the next token.
+   * 
+   * @param descriptor
+   * @param tokenText
+   */
+  public GeneralParserToken(T descriptor, TokenText tokenText, int lineStart, int columnStart, int lineEnd, int columnEnd)
+  {
+    this(descriptor, tokenText, lineStart, columnStart, lineEnd, columnEnd, -1, -1);
+  }
+  
+  /**
+   * <p>Construct a zero-copy token with its byte offsets in the input.
+   * 
+   * @param descriptor
+   * @param tokenText
+   */
+  public GeneralParserToken(T descriptor, TokenText tokenText, int lineStart, int columnStart, int lineEnd, int columnEnd, long byteStart, long byteEnd)
+  {
+    this.descriptor = descriptor;
+    this.tokenValue = null;
+    this.tokenText = tokenText;
+    this.lineStart = lineStart;
+    this.columnStart = columnStart;
+    this.lineEnd = lineEnd;
+    this.columnEnd = columnEnd;
+    this.byteStart = byteStart;
+    this.byteEnd = byteEnd;
+  }
+  
+  /**
+   * <p>Construct a token whose text is a view of UTF-8 input bytes.  The view stays valid as long as the input.
+   * 
+   * @param descriptor
+   * @param tokenText
+   */
+  public GeneralParserToken(T descriptor, Utf8Text tokenText, int lineStart, int columnStart, int lineEnd, int columnEnd, long byteStart, long byteEnd)
+  {
+    this.descriptor = descriptor;
+    this.tokenValue = null;
+    this.tokenText = tokenText;
+    this.lineStart = lineStart;
+    this.columnStart = columnStart;
+    this.lineEnd = lineEnd;
+    this.columnEnd = columnEnd;
+    this.byteStart = byteStart;
+    this.byteEnd = byteEnd;
+  }
+  
+  /**
+   * <p>Get the token text.  For a zero-copy token this is a view into the parser's read buffer, which is only valid until
+   * the parser reads the next token.  Nothing is copied.
+   * 
+   * @return
+   */
+  public CharSequence getText()
+  {
+    return tokenText;
+  }
+  
+  /**
+   * <p>Get the token value as a string.  For a zero-copy token the text is copied each time this is called.
+   * 
+   * @return
+   */
+  public String getTokenValue()
+  {
+    return (tokenValue != null) ? tokenValue : tokenText.toString();
+  }
+  
+  /**
+   * <p>Is this a zero-copy token?
+   * 
+   * @return
+   */
+  public boolean isView()
+  {
+    return tokenValue == null;
+  }
+  
+  /**
+   * <p>Get a token that can be kept after the parser has moved on.  A zero-copy token is copied; any other token is
+   * returned as it is.
+   * 
+   * @return
+   */
+  public GeneralParserToken<T> copy()
+  {
+    if(tokenValue != null) return this;
+    GeneralParserToken<T> ret = new GeneralParserToken<>(descriptor, tokenText.toString(), lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
+    if(lineIndex != null) ret.locate(lineIndex, offsetStart, offsetEnd);
+    return ret;
+  }
+  
+  /**
+   * <p>Give the token a location to be looked up when asked for.
+   * 
+   * @param lineIndex
+   * @param offsetStart the offset of the first char of the token.
+   * @param offsetEnd the offset of the last char of the token.
+   */
+  void locate(LineIndex lineIndex, long offsetStart, long offsetEnd)
+  {
+    this.lineIndex = lineIndex;
+    this.offsetStart = offsetStart;
+    this.offsetEnd = offsetEnd;
+  }
+
   /**
    * <p>Stringify.
    */
   @Override
   public String toString()
   {
-    return "Token [" + descriptor + ":" + tokenValue + "(" + lineStart + ":" + columnStart + ">" + lineEnd + ":" + columnEnd + ")]";
+    if(lineIndex != null)
+    {
+      TokenLocation l = getLocation();
+      return "Token [" + descriptor + ":" + tokenText + "(" + l.getSourceStartLine() + ":" + l.getSourceStartPos() + ">" + l.getSourceEndLine() + ":" + l.getSourceEndPos() + ")]";
+    }
+    return "Token [" + descriptor + ":" + tokenText + "(" + lineStart + ":" + columnStart + ">" + lineEnd + ":" + columnEnd + ")]";
   }
   
   /**
@@ -107,7 +264,8 @@ public class GeneralParserToken<T extends TokenDescriptor>
    */
   public TokenLocation getLocation()
   {
-    return new TokenLocation(lineStart, columnStart, lineEnd, columnEnd);
+    if(lineIndex != null) return lineIndex.getLocation(offsetStart, offsetEnd, byteStart, byteEnd);
+    return new TokenLocation(lineStart, columnStart, lineEnd, columnEnd, byteStart, byteEnd);
   }
 
 }
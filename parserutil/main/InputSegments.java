@@ -0,0 +1,194 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Boundaries in byte input at which tokens can be read independently, so a token stream over the input can be split
+ * between threads.  A boundary is only valid between tokens, and only where the lexer would end the token before it
+ * there anyway.  The grammar decides where that is, usually from a quick structural scan of the bytes.
+ * <p>Each segment starts at a boundary and runs to the next.  The line and column the parser would have counted up to
+ * the boundary are kept with it, so token locations are the same as when the input is read from the start.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class InputSegments
+{
+  /**
+   * <p>Default minimum size of a segment in bytes.  Small enough to share work between cores, big enough that starting
+   * a segment costs nothing in comparison.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+  
+  /**
+   * <p>The index in the buffer of the start of each segment.
+   */
+  private int[] starts = new int[16];
+  
+  /**
+   * <p>The line the parser has counted up to the start of each segment.
+   */
+  private int[] lines = new int[16];
+  
+  /**
+   * <p>The column the parser has counted up to the start of each segment.  This is the column of the char before it.
+   */
+  private int[] columns = new int[16];
+  
+  /**
+   * <p>The number of segments.
+   */
+  private int count;
+  
+  /**
+   * <p>The index in the buffer of the end of the last segment.
+   */
+  private final int end;
+  
+  /**
+   * <p>Create the segments with one segment covering the input.
+   * 
+   * @param start the index in the buffer of the start of the input.
+   * @param end the index in the buffer of the end of the input.
+   */
+  public InputSegments(int start, int end)
+  {
+    this.end = end;
+    add(start, 0, -1);
+  }
+  
+  /**
+   * <p>Start a new segment at the given index.  Indexes must be added in ascending order.
+   * 
+   * @param start the index in the buffer of the first byte of the segment.
+   * @param line the line of the char before the segment.
+   * @param column the column of the char before the segment.
+   */
+  public void add(int start, int line, int column)
+  {
+    if(count == starts.length)
+    {
+      starts = Arrays.copyOf(starts, count << 1);
+      lines = Arrays.copyOf(lines, count << 1);
+      columns = Arrays.copyOf(columns, count << 1);
+    }
+    starts[count] = start;
+    lines[count] = line;
+    columns[count] = column;
+    count++;
+  }
+  
+  /**
+   * <p>Get the number of segments.
+   * 
+   * @return
+   */
+  public int getCount()
+  {
+    return count;
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the start of the given segment.
+   * 
+   * @param segment
+   * @return
+   */
+  public int getStart(int segment)
+  {
+    return starts[segment];
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the end of the given segment.
+   * 
+   * @param segment
+   * @return
+   */
+  public int getEnd(int segment)
+  {
+    return (segment + 1 < count) ? starts[segment + 1] : end;
+  }
+  
+  /**
+   * <p>Get the line counted up to the start of the given segment.
+   * 
+   * @param segment
+   * @return
+   */
+  public int getLine(int segment)
+  {
+    return lines[segment];
+  }
+  
+  /**
+   * <p>Get the column counted up to the start of the given segment.
+   * 
+   * @param segment
+   * @return
+   */
+  public int getColumn(int segment)
+  {
+    return columns[segment];
+  }
+  
+  /**
+   * <p>Get the number of chars the given UTF-8 byte adds to the column when scanning: none for a continuation byte and
+   * two for the lead byte of a supplementary char.
+   * 
+   * @param b
+   * @return
+   */
+  public static int charWidth(byte b)
+  {
+    if((b & 0xc0) == 0x80) return 0;
+    return ((b & 0xf8) == 0xf0) ? 2 : 1;
+  }
+  
+  /**
+   * <p>Get the index of the first char of the given UTF-8 input, past any byte order mark.
+   * 
+   * @param bytes
+   * @param start
+   * @param end
+   * @return
+   */
+  public static int skipByteOrderMark(ByteBuffer bytes, int start, int end)
+  {
+    if(end - start >= 3 && (bytes.get(start) & 0xff) == 0xef && (bytes.get(start + 1) & 0xff) == 0xbb && (bytes.get(start + 2) & 0xff) == 0xbf)
+    {
+      return start + 3;
+    }
+    return start;
+  }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Index of the newlines in the input, for working out the line and column of an offset only when they are asked
+ * for.  Used by the general parser in lazy location mode, where the parser doesn't count lines and columns as it
+ * reads; tokens keep their offsets and look their location up here.
+ * <p>For text input the offsets are char offsets and the newlines are added a block at a time as the input is read.
+ * For byte input the offsets are byte offsets and the bytes are scanned for newlines when first asked; columns are
+ * still counted in chars.
+ * <p>Lines and columns are as the parser counts them: both start at 0, and a newline is at column -1 of the line it
+ * starts.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class LineIndex
+{
+  /**
+   * <p>The offsets of the newlines, in ascending order.
+   */
+  private long[] newlines = new long[64];
+  
+  /**
+   * <p>The number of newlines in the index.
+   */
+  private int count;
+  
+  /**
+   * <p>The byte input, or null for text input.
+   */
+  private final ByteBuffer bytes;
+  
+  /**
+   * <p>The index in the byte buffer of offset 0.
+   */
+  private final int origin;
+  
+  /**
+   * <p>The offset of the first char of the first line.  Past the byte order mark in byte input.
+   */
+  private final int firstLineStart;
+  
+  /**
+   * <p>The index in the byte buffer of the end of the input.
+   */
+  private final int limit;
+  
+  /**
+   * <p>The line of the first char.  0 unless the input is a segment of a larger input.
+   */
+  private final int firstLine;
+  
+  /**
+   * <p>The column of the first char.  0 unless the input is a segment of a larger input.
+   */
+  private final int firstColumn;
+  
+  /**
+   * <p>Set once the byte input has been scanned for newlines.
+   */
+  private boolean scanned;
+  
+  /**
+   * <p>Create an index for text input.  Newlines are added with {@link #scan(char[], int, int, long)}.
+   */
+  LineIndex()
+  {
+    bytes = null;
+    origin = firstLineStart = limit = firstLine = firstColumn = 0;
+    scanned = true;
+  }
+  
+  /**
+   * <p>Create an index for UTF-8 byte input.
+   * 
+   * @param bytes
+   * @param origin the index in the buffer of offset 0.
+   * @param start the index in the buffer of the first char.
+   * @param limit the index in the buffer of the end of the input.
+   */
+  LineIndex(ByteBuffer bytes, int origin, int start, int limit)
+  {
+    this(bytes, origin, start, limit, 0, 0);
+  }
+  
+  /**
+   * <p>Create an index for a segment of UTF-8 byte input, whose first char is at the given line and column of the
+   * whole input.  Only the segment is scanned, and only offsets in it can be looked up.
+   * 
+   * @param bytes
+   * @param origin the index in the buffer of offset 0.
+   * @param start the index in the buffer of the first char of the segment.
+   * @param limit the index in the buffer of the end of the segment.
+   * @param line the line of the first char.
+   * @param column the column of the first char.
+   */
+  LineIndex(ByteBuffer bytes, int origin, int start, int limit, int line, int column)
+  {
+    this.bytes = bytes;
+    this.origin = origin;
+    this.firstLineStart = start - origin;
+    this.limit = limit;
+    this.firstLine = line;
+    this.firstColumn = column;
+  }
+  
+  /**
+   * <p>Add the newlines in the given chars.
+   * 
+   * @param chars
+   * @param off
+   * @param len
+   * @param offset the offset in the input of the char at off.
+   */
+  void scan(char[] chars, int off, int len, long offset)
+  {
+    for(int i = off, end = off + len; i < end; i++)
+    {
+      if(chars[i] == '\n') add(offset + (i - off));
+    }
+  }
+  
+  /**
+   * <p>Add a newline.
+   * 
+   * @param offset
+   */
+  private void add(long offset)
+  {
+    if(count == newlines.length) newlines = Arrays.copyOf(newlines, count << 1);
+    newlines[count++] = offset;
+  }
+  
+  /**
+   * <p>Scan the byte input for newlines if it hasn't been already.  A newline byte is never part of a multibyte
+   * sequence.
+   */
+  private void scanBytes()
+  {
+    for(int i = origin + firstLineStart; i < limit; i++)
+    {
+      if(bytes.get(i) == '\n') add(i - origin);
+    }
+    scanned = true;
+  }
+  
+  /**
+   * <p>Get the number of newlines at or before the given offset.
+   * 
+   * @param offset
+   * @return
+   */
+  private int newlinesTo(long offset)
+  {
+    if(!scanned) scanBytes();
+    
+    //Find the first newline after the offset.
+    int low = 0;
+    int high = count;
+    while(low < high)
+    {
+      int mid = (low + high) >>> 1;
+      if(newlines[mid] <= offset) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+  
+  /**
+   * <p>Get the line of the char at the given offset.
+   * 
+   * @param offset
+   * @return
+   */
+  public int getLine(long offset)
+  {
+    return firstLine + newlinesTo(offset);
+  }
+  
+  /**
+   * <p>Get the column of the char at the given offset.
+   * 
+   * @param offset
+   * @return
+   */
+  public int getColumn(long offset)
+  {
+    int line = newlinesTo(offset);
+    long lineStart = (line == 0) ? firstLineStart : newlines[line - 1] + 1;
+    
+    //The newline itself.
+    if(offset < lineStart) return -1;
+    int column = (line == 0) ? firstColumn : 0;
+    if(bytes == null) return column + (int) (offset - lineStart);
+    
+    //Count the chars in the bytes before the offset.  A supplementary char is two chars.
+    for(int i = origin + (int) lineStart, end = origin + (int) offset; i < end; i++)
+    {
+      int b = bytes.get(i) & 0xff;
+      if((b & 0xc0) != 0x80) column++;
+      if(b >= 0xf0) column++;
+    }
+    return column;
+  }
+  
+  /**
+   * <p>Get the location of a token from the offsets of its first and last chars.
+   * 
+   * @param start
+   * @param end
+   * @param byteStart
+   * @param byteEnd
+   * @return
+   */
+  public TokenLocation getLocation(long start, long end, long byteStart, long byteEnd)
+  {
+    return new TokenLocation(getLine(start), getColumn(start), getLine(end), getColumn(end), byteStart, byteEnd);
+  }
+}
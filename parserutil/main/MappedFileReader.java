@@ -0,0 +1,300 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Reader for a UTF-8 file that is memory mapped rather than read.  Characters are decoded straight from the mapped
+ * bytes into the caller's array, so the general parser's read block is filled without any intermediate buffer or
+ * system call per block.
+ * <p>The file is mapped a window at a time, so files larger than 2GB can be read; a new window is mapped when the
+ * current one is used up.  A leading byte order mark is skipped.
+ * <p>Decoding is strict: malformed UTF-8 is reported with a {@link MalformedInputException} rather than replaced.  This
+ * keeps every character's length in bytes fixed by the character itself, which lets the general parser give each
+ * token's absolute byte offsets in the file (see {@link TokenLocation#getSourceStartByte()}).
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class MappedFileReader extends Reader
+{
+  /**
+   * <p>Default window size in bytes.
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+  
+  /**
+   * <p>The file channel.  Null when closed.
+   */
+  private FileChannel channel;
+  
+  /**
+   * <p>The file size in bytes.
+   */
+  private final long size;
+  
+  /**
+   * <p>The most bytes mapped at once.
+   */
+  private final int windowSize;
+  
+  /**
+   * <p>The mapped window.  Its position is the next byte to decode.
+   */
+  private MappedByteBuffer window;
+  
+  /**
+   * <p>The file offset of the start of the window.
+   */
+  private long windowStart;
+  
+  /**
+   * <p>The low surrogate of a supplementary character whose high surrogate filled the caller's array, or 0.
+   */
+  private char pendingLow;
+  
+  /**
+   * <p>Map the given file with the default window size.
+   * 
+   * @param file
+   * @throws IOException
+   */
+  public MappedFileReader(Path file) throws IOException
+  {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+  
+  /**
+   * <p>Map the given file a window of the given size at a time.
+   * 
+   * @param file
+   * @param windowSize the most bytes to map at once.  Must be at least 4, the longest UTF-8 sequence.
+   * @throws IOException
+   */
+  public MappedFileReader(Path file, int windowSize) throws IOException
+  {
+    if(windowSize < 4) throw new IllegalArgumentException();
+    this.windowSize = windowSize;
+    
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    try
+    {
+      size = channel.size();
+      map(0);
+    }
+    catch(IOException | RuntimeException e)
+    {
+      channel.close();
+      throw e;
+    }
+    
+    //Skip the byte order mark.
+    if(window.remaining() >= 3 && (window.get(0) & 0xff) == 0xef && (window.get(1) & 0xff) == 0xbb && (window.get(2) & 0xff) == 0xbf)
+    {
+      window.position(3);
+    }
+  }
+  
+  /**
+   * <p>Map the window starting at the given file offset.
+   * 
+   * @param start
+   * @throws IOException
+   */
+  private void map(long start) throws IOException
+  {
+    windowStart = start;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+  }
+  
+  /**
+   * <p>Get the file offset of the next byte to decode.
+   * 
+   * @return
+   */
+  public long getBytePosition()
+  {
+    return windowStart + window.position();
+  }
+  
+  /**
+   * <p>Get the length in bytes of the UTF-8 encoding of the given char.  A surrogate is half of a 4 byte sequence.
+   * 
+   * @param ch
+   * @return
+   */
+  static int utf8Length(char ch)
+  {
+    if(ch < 0x80) return 1;
+    if(ch < 0x800 || Character.isSurrogate(ch)) return 2;
+    return 3;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException
+  {
+    if(channel == null) throw new IOException("Stream closed");
+    if(len == 0) return 0;
+    
+    //Deliver the rest of a split supplementary char first.
+    int n = 0;
+    if(pendingLow != 0)
+    {
+      cbuf[off + n++] = pendingLow;
+      pendingLow = 0;
+    }
+    
+    MappedByteBuffer w = window;
+    int p = w.position();
+    int limit = w.limit();
+    while(n < len)
+    {
+      //Move to the next window when this one is used up, or doesn't hold the whole of the next sequence.
+      if(p == limit || ((w.get(p) & 0x80) != 0 && limit - p < sequenceLength(w.get(p))))
+      {
+        long next = windowStart + p;
+        if(next == size)
+        {
+          //End of file.  A partial sequence means the file is truncated.
+          break;
+        }
+        if(p < limit && windowStart + limit == size) throw new MalformedInputException(limit - p);
+        map(next);
+        w = window;
+        p = 0;
+        limit = w.limit();
+        continue;
+      }
+      
+      //ASCII.
+      int b0 = w.get(p);
+      if(b0 >= 0)
+      {
+        cbuf[off + n++] = (char) b0;
+        p++;
+        continue;
+      }
+      
+      //Multibyte sequence.  Reject anything that doesn't decode to a char of the same encoded length.
+      b0 &= 0xff;
+      int cp;
+      int seq = sequenceLength((byte) b0);
+      if(seq == 2)
+      {
+        cp = ((b0 & 0x1f) << 6) | continuation(w.get(p + 1));
+        if(cp < 0x80) throw new MalformedInputException(2);
+      }
+      else if(seq == 3)
+      {
+        cp = ((b0 & 0x0f) << 12) | (continuation(w.get(p + 1)) << 6) | continuation(w.get(p + 2));
+        if(cp < 0x800 || Character.isSurrogate((char) cp)) throw new MalformedInputException(3);
+      }
+      else if(seq == 4)
+      {
+        cp = ((b0 & 0x07) << 18) | (continuation(w.get(p + 1)) << 12) | (continuation(w.get(p + 2)) << 6) | continuation(w.get(p + 3));
+        if(cp < 0x10000 || cp > Character.MAX_CODE_POINT) throw new MalformedInputException(4);
+      }
+      else
+      {
+        throw new MalformedInputException(1);
+      }
+      p += seq;
+      
+      if(cp < 0x10000)
+      {
+        cbuf[off + n++] = (char) cp;
+      }
+      else
+      {
+        //Supplementary char.  Keep the low surrogate for next time if there's no room for it.
+        cbuf[off + n++] = Character.highSurrogate(cp);
+        if(n < len) cbuf[off + n++] = Character.lowSurrogate(cp);
+        else pendingLow = Character.lowSurrogate(cp);
+      }
+    }
+    w.position(p);
+    
+    return (n == 0) ? -1 : n;
+  }
+  
+  /**
+   * <p>Get the length of the UTF-8 sequence with the given lead byte, or 0 if it can't lead a sequence.
+   * 
+   * @param lead
+   * @return
+   */
+  private static int sequenceLength(byte lead)
+  {
+    int b = lead & 0xff;
+    if(b < 0x80) return 1;
+    if(b < 0xc2) return 0;
+    if(b < 0xe0) return 2;
+    if(b < 0xf0) return 3;
+    if(b < 0xf5) return 4;
+    return 0;
+  }
+  
+  /**
+   * <p>Get the payload of a continuation byte.
+   * 
+   * @param b
+   * @return
+   * @throws MalformedInputException if the byte isn't a continuation byte.
+   */
+  private static int continuation(byte b) throws MalformedInputException
+  {
+    if((b & 0xc0) != 0x80) throw new MalformedInputException(1);
+    return b & 0x3f;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if(channel != null)
+    {
+      channel.close();
+      channel = null;
+      window = null;
+    }
+  }
+}
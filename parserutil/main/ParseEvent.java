@@ -0,0 +1,80 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <p>Flight recorder event for the parsing of one input, from when the parser is initialised for it until the end of
+ * input or a failure.  Disabled by default; enable {@value #NAME} in a recording to record it.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+@Name(ParseEvent.NAME)
+@Label("Parse")
+@Category("Parser Util")
+@Description("Parsing of one input")
+@Enabled(false)
+@StackTrace(false)
+public final class ParseEvent extends jdk.jfr.Event
+{
+  /**
+   * <p>Event name.
+   */
+  public static final String NAME = "parserutil.Parse";
+  
+  @Label("Parser")
+  @Description("Class of the parser")
+  String parser;
+  
+  @Label("Lexer Engine")
+  String engine;
+  
+  @Label("Chars")
+  @Description("Chars in the tokens read")
+  long chars;
+  
+  @Label("Tokens")
+  long tokens;
+  
+  @Label("Outcome")
+  @Description("complete or failed")
+  String outcome;
+  
+  @Label("Error")
+  @Description("The failure, if the parse failed")
+  String error;
+}
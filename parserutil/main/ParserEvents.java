@@ -0,0 +1,206 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+/**
+ * <p>Flight recorder events from the parsers: {@link ParseEvent} for each input parsed, {@link LongTokenEvent} for long
+ * tokens and {@link NestingEvent} for deep nesting.  All are disabled by default and recorded only when enabled in a
+ * running recording, for example with the JFR {@code Recording.enable(String)} method.
+ * <p>Parsers check once per input whether the events are enabled, so with none enabled a parser does no more per token
+ * than it does without metrics.  If the jdk.jfr module isn't present, no events are ever recorded.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class ParserEvents
+{
+  /**
+   * <p>Set if the flight recorder classes can be loaded.
+   */
+  private static final boolean AVAILABLE = isFlightRecorderPresent();
+  
+  /**
+   * <p>Tokens this long or longer get a long token event.
+   */
+  private static volatile int longTokenLength = 1 << 16;
+  
+  /**
+   * <p>Nesting deeper than this gets a nesting event.
+   */
+  private static volatile int nestingDepth = 256;
+  
+  /**
+   * <p>Get the length from which tokens get a long token event.
+   * 
+   * @return
+   */
+  public static int getLongTokenLength()
+  {
+    return longTokenLength;
+  }
+  
+  /**
+   * <p>Set the length from which tokens get a long token event.  The default is 65536 chars.
+   * 
+   * @param length
+   */
+  public static void setLongTokenLength(int length)
+  {
+    if(length < 1) throw new IllegalArgumentException();
+    longTokenLength = length;
+  }
+  
+  /**
+   * <p>Get the nesting depth beyond which a nesting event is recorded.
+   * 
+   * @return
+   */
+  public static int getNestingDepth()
+  {
+    return nestingDepth;
+  }
+  
+  /**
+   * <p>Set the nesting depth beyond which a nesting event is recorded.  The default is 256.
+   * 
+   * @param depth
+   */
+  public static void setNestingDepth(int depth)
+  {
+    if(depth < 0) throw new IllegalArgumentException();
+    nestingDepth = depth;
+  }
+  
+  /**
+   * <p>Report the nesting depth a validation machine has gone down to.  A nesting event is recorded when the depth
+   * first goes past the nesting depth, rather than for each level beyond it.
+   * 
+   * @param machine
+   * @param depth
+   */
+  public static void nested(GeneralParserStateMachine<?> machine, int depth)
+  {
+    if(depth != nestingDepth + 1 || !AVAILABLE) return;
+    
+    NestingEvent event = new NestingEvent();
+    if(event.isEnabled())
+    {
+      event.machine = machine.getClass().getName();
+      event.depth = depth;
+      event.commit();
+    }
+  }
+  
+  /**
+   * <p>Start a parse event if parse events are enabled.
+   * 
+   * @param parser
+   * @return the started event, or null if parse events aren't enabled.
+   */
+  static ParseEvent beginParse(GeneralParser<?> parser)
+  {
+    if(!AVAILABLE) return null;
+    
+    ParseEvent event = new ParseEvent();
+    if(!event.isEnabled()) return null;
+    event.parser = parser.getClass().getName();
+    event.engine = parser.getLexerEngine().name();
+    event.begin();
+    return event;
+  }
+  
+  /**
+   * <p>Finish a parse event.
+   * 
+   * @param event
+   * @param failure the failure, or null if the input was parsed to the end.
+   */
+  static void endParse(ParseEvent event, Throwable failure)
+  {
+    event.end();
+    event.outcome = (failure == null) ? "complete" : "failed";
+    if(failure != null) event.error = failure.toString();
+    event.commit();
+  }
+  
+  /**
+   * <p>Check whether long token events are enabled.
+   * 
+   * @return
+   */
+  static boolean isLongTokenEnabled()
+  {
+    return AVAILABLE && new LongTokenEvent().isEnabled();
+  }
+  
+  /**
+   * <p>Record a long token event for the cursor's token if it is long enough.
+   * 
+   * @param cursor
+   * @param length the number of chars in the token.
+   */
+  static void token(GeneralParserCursor<?> cursor, int length)
+  {
+    if(length < longTokenLength) return;
+    
+    LongTokenEvent event = new LongTokenEvent();
+    event.descriptor = String.valueOf(cursor.getDescriptor());
+    event.length = length;
+    event.line = cursor.getLineStart();
+    event.column = cursor.getColumnStart();
+    event.byteStart = cursor.getByteStart();
+    event.commit();
+  }
+  
+  /**
+   * <p>Check whether the flight recorder classes can be loaded.
+   * 
+   * @return
+   */
+  private static boolean isFlightRecorderPresent()
+  {
+    try
+    {
+      Class.forName("jdk.jfr.Event", false, ParserEvents.class.getClassLoader());
+      return true;
+    }
+    catch(ClassNotFoundException | LinkageError e)
+    {
+      return false;
+    }
+  }
+  
+  /**
+   * <p>Static methods only.
+   */
+  private ParserEvents()
+  {
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+/**
+ * <p>Receives measurements from a general parser while it parses.  Set one with
+ * {@link GeneralParser#setMetrics(ParserMetrics)}; a parser with none set takes no measurements.
+ * <p>The calls are made on the parsing thread for each token, so implementations should be quick.  One implementation
+ * may be shared by parsers on different threads if it is thread safe, as {@link ParserMetricsRecorder} is.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public interface ParserMetrics
+{
+  /**
+   * <p>A token has been read and validated.
+   * 
+   * @param code the position of the token's descriptor in the grammar, or -1 if it has none.
+   * @param length the number of chars in the token.
+   * @param eliminations the number of chars at which more than one descriptor was still a candidate for the token.
+   * Always 0 unless the interpreted lexer engine is used.
+   */
+  public void tokenRead(int code, int length, int eliminations);
+  
+  /**
+   * <p>The validation state machine has checked a token.
+   * 
+   * @param nanos the time taken by the check.
+   */
+  public void tokenChecked(long nanos);
+  
+  /**
+   * <p>The end of the input has been reached.
+   * 
+   * @param nanos the time since the parser was initialised for the input.
+   */
+  public void parseFinished(long nanos);
+}
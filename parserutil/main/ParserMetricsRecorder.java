@@ -0,0 +1,207 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Parser metrics that add up the measurements of any number of parsers, on any number of threads, for scraping with
+ * {@link #snapshot()}.  Tokens are counted per descriptor, and token lengths in a histogram of power-of-two buckets.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class ParserMetricsRecorder implements ParserMetrics
+{
+  /**
+   * <p>Number of token length histogram buckets.  Bucket i counts lengths from 2^i up to 2^(i+1) - 1, except that
+   * bucket 0 also counts empty tokens.
+   */
+  public static final int LENGTH_BUCKETS = 31;
+  
+  /**
+   * <p>Descriptor names, indexed by code.
+   */
+  private final List<String> descriptorNames;
+  
+  /**
+   * <p>Tokens read for each descriptor code.
+   */
+  private final LongAdder[] tokens;
+  
+  /**
+   * <p>Tokens read that have no descriptor.
+   */
+  private final LongAdder unmatchedTokens = new LongAdder();
+  
+  /**
+   * <p>Token length histogram.
+   */
+  private final LongAdder[] lengths = new LongAdder[LENGTH_BUCKETS];
+  
+  /**
+   * <p>Chars in the tokens read.
+   */
+  private final LongAdder charsRead = new LongAdder();
+  
+  /**
+   * <p>Tokens read while more than one descriptor was a candidate.
+   */
+  private final LongAdder ambiguousTokens = new LongAdder();
+  
+  /**
+   * <p>Chars at which more than one descriptor was a candidate.
+   */
+  private final LongAdder eliminationSteps = new LongAdder();
+  
+  /**
+   * <p>Tokens checked by the validation machine.
+   */
+  private final LongAdder checks = new LongAdder();
+  
+  /**
+   * <p>Time spent in the validation machine.
+   */
+  private final LongAdder checkNanos = new LongAdder();
+  
+  /**
+   * <p>Inputs parsed to the end.
+   */
+  private final LongAdder parses = new LongAdder();
+  
+  /**
+   * <p>Time spent parsing the inputs parsed to the end.
+   */
+  private final LongAdder parseNanos = new LongAdder();
+  
+  /**
+   * <p>Create the recorder for parsers with the given token descriptors.  Descriptors are named in snapshots by their
+   * string form.
+   * 
+   * @param descriptors
+   */
+  public ParserMetricsRecorder(List<? extends TokenDescriptor> descriptors)
+  {
+    List<String> names = new ArrayList<>(descriptors.size());
+    for(TokenDescriptor d : descriptors) names.add(String.valueOf(d));
+    descriptorNames = Collections.unmodifiableList(names);
+    
+    tokens = new LongAdder[descriptors.size()];
+    for(int i = 0; i < tokens.length; i++) tokens[i] = new LongAdder();
+    for(int i = 0; i < lengths.length; i++) lengths[i] = new LongAdder();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tokenRead(int code, int length, int eliminations)
+  {
+    if(code >= 0 && code < tokens.length) tokens[code].increment();
+    else unmatchedTokens.increment();
+    
+    lengths[lengthBucket(length)].increment();
+    charsRead.add(length);
+    
+    if(eliminations > 0)
+    {
+      ambiguousTokens.increment();
+      eliminationSteps.add(eliminations);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void tokenChecked(long nanos)
+  {
+    checks.increment();
+    checkNanos.add(nanos);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void parseFinished(long nanos)
+  {
+    parses.increment();
+    parseNanos.add(nanos);
+  }
+  
+  /**
+   * <p>Get the histogram bucket for a token length.
+   * 
+   * @param length
+   * @return
+   */
+  static int lengthBucket(int length)
+  {
+    return (length <= 1) ? 0 : 31 - Integer.numberOfLeadingZeros(length);
+  }
+  
+  /**
+   * <p>Take a snapshot of the measurements so far.  Measurements made while the snapshot is taken may or may not be
+   * included.
+   * 
+   * @return
+   */
+  public ParserMetricsSnapshot snapshot()
+  {
+    long[] tokenCounts = new long[tokens.length];
+    for(int i = 0; i < tokenCounts.length; i++) tokenCounts[i] = tokens[i].sum();
+    long[] lengthCounts = new long[lengths.length];
+    for(int i = 0; i < lengthCounts.length; i++) lengthCounts[i] = lengths[i].sum();
+    
+    return new ParserMetricsSnapshot(descriptorNames, tokenCounts, unmatchedTokens.sum(), lengthCounts, charsRead.sum(),
+        ambiguousTokens.sum(), eliminationSteps.sum(), checks.sum(), checkNanos.sum(), parses.sum(), parseNanos.sum());
+  }
+  
+  /**
+   * <p>Set every measurement back to zero.
+   */
+  public void reset()
+  {
+    for(LongAdder a : tokens) a.reset();
+    for(LongAdder a : lengths) a.reset();
+    unmatchedTokens.reset();
+    charsRead.reset();
+    ambiguousTokens.reset();
+    eliminationSteps.reset();
+    checks.reset();
+    checkNanos.reset();
+    parses.reset();
+    parseNanos.reset();
+  }
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.List;
+
+/**
+ * <p>The measurements taken by a {@link ParserMetricsRecorder} at one point in time.  The string form lists them one
+ * per line in the Prometheus text exposition format, for scraping.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class ParserMetricsSnapshot
+{
+  /**
+   * <p>Descriptor names, indexed by code.
+   */
+  private final List<String> descriptorNames;
+  
+  /**
+   * <p>Tokens read for each descriptor code.
+   */
+  private final long[] tokenCounts;
+  
+  /**
+   * <p>Tokens read that have no descriptor.
+   */
+  private final long unmatchedTokens;
+  
+  /**
+   * <p>Token length histogram.
+   */
+  private final long[] lengthCounts;
+  
+  /**
+   * <p>Chars in the tokens read.
+   */
+  private final long charsRead;
+  
+  /**
+   * <p>Tokens read while more than one descriptor was a candidate.
+   */
+  private final long ambiguousTokens;
+  
+  /**
+   * <p>Chars at which more than one descriptor was a candidate.
+   */
+  private final long eliminationSteps;
+  
+  /**
+   * <p>Tokens checked by the validation machine.
+   */
+  private final long checks;
+  
+  /**
+   * <p>Time spent in the validation machine.
+   */
+  private final long checkNanos;
+  
+  /**
+   * <p>Inputs parsed to the end.
+   */
+  private final long parses;
+  
+  /**
+   * <p>Time spent parsing the inputs parsed to the end.
+   */
+  private final long parseNanos;
+  
+  /**
+   * <p>Create the snapshot.  The arrays are kept, not copied.
+   */
+  ParserMetricsSnapshot(List<String> descriptorNames, long[] tokenCounts, long unmatchedTokens, long[] lengthCounts,
+      long charsRead, long ambiguousTokens, long eliminationSteps, long checks, long checkNanos, long parses, long parseNanos)
+  {
+    this.descriptorNames = descriptorNames;
+    this.tokenCounts = tokenCounts;
+    this.unmatchedTokens = unmatchedTokens;
+    this.lengthCounts = lengthCounts;
+    this.charsRead = charsRead;
+    this.ambiguousTokens = ambiguousTokens;
+    this.eliminationSteps = eliminationSteps;
+    this.checks = checks;
+    this.checkNanos = checkNanos;
+    this.parses = parses;
+    this.parseNanos = parseNanos;
+  }
+  
+  /**
+   * <p>Get the descriptor names, indexed by code.
+   * 
+   * @return
+   */
+  public List<String> getDescriptorNames()
+  {
+    return descriptorNames;
+  }
+  
+  /**
+   * <p>Get the number of tokens read for the descriptor code given.
+   * 
+   * @param code
+   * @return
+   */
+  public long getTokenCount(int code)
+  {
+    return tokenCounts[code];
+  }
+  
+  /**
+   * <p>Get the number of tokens read that have no descriptor.
+   * 
+   * @return
+   */
+  public long getUnmatchedTokens()
+  {
+    return unmatchedTokens;
+  }
+  
+  /**
+   * <p>Get the total number of tokens read.
+   * 
+   * @return
+   */
+  public long getTokens()
+  {
+    long ret = unmatchedTokens;
+    for(long n : tokenCounts) ret += n;
+    return ret;
+  }
+  
+  /**
+   * <p>Get the number of tokens in a token length histogram bucket.  Bucket i counts lengths from 2^i up to
+   * 2^(i+1) - 1, and bucket 0 also counts empty tokens.
+   * 
+   * @param bucket
+   * @return
+   */
+  public long getLengthCount(int bucket)
+  {
+    return lengthCounts[bucket];
+  }
+  
+  /**
+   * <p>Get the number of chars in the tokens read.
+   * 
+   * @return
+   */
+  public long getCharsRead()
+  {
+    return charsRead;
+  }
+  
+  /**
+   * <p>Get the number of tokens read while more than one descriptor was a candidate.
+   * 
+   * @return
+   */
+  public long getAmbiguousTokens()
+  {
+    return ambiguousTokens;
+  }
+  
+  /**
+   * <p>Get the number of chars at which more than one descriptor was a candidate.
+   * 
+   * @return
+   */
+  public long getEliminationSteps()
+  {
+    return eliminationSteps;
+  }
+  
+  /**
+   * <p>Get the number of tokens checked by the validation machine.
+   * 
+   * @return
+   */
+  public long getChecks()
+  {
+    return checks;
+  }
+  
+  /**
+   * <p>Get the time spent in the validation machine, in nanoseconds.
+   * 
+   * @return
+   */
+  public long getCheckNanos()
+  {
+    return checkNanos;
+  }
+  
+  /**
+   * <p>Get the number of inputs parsed to the end.
+   * 
+   * @return
+   */
+  public long getParses()
+  {
+    return parses;
+  }
+  
+  /**
+   * <p>Get the time spent parsing the inputs parsed to the end, in nanoseconds.
+   * 
+   * @return
+   */
+  public long getParseNanos()
+  {
+    return parseNanos;
+  }
+
+  /**
+   * <p>List the measurements in the Prometheus text exposition format.  Token counts are labelled with the descriptor
+   * code as well as the name, as names needn't be unique.  The token length histogram is cumulative, as that format
+   * expects.
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < tokenCounts.length; i++)
+    {
+      sb.append("parser_tokens_total{code=\"").append(i).append("\",descriptor=\"").append(escape(descriptorNames.get(i))).append("\"} ").append(tokenCounts[i]).append('\n');
+    }
+    sb.append("parser_unmatched_tokens_total ").append(unmatchedTokens).append('\n');
+    
+    //Histogram buckets are labelled with their inclusive upper bound.
+    long cumulative = 0;
+    for(int i = 0; i < lengthCounts.length; i++)
+    {
+      cumulative += lengthCounts[i];
+      sb.append("parser_token_length_bucket{le=\"").append((2L << i) - 1).append("\"} ").append(cumulative).append('\n');
+    }
+    sb.append("parser_token_length_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+    sb.append("parser_token_length_sum ").append(charsRead).append('\n');
+    sb.append("parser_token_length_count ").append(cumulative).append('\n');
+    
+    sb.append("parser_chars_read_total ").append(charsRead).append('\n');
+    sb.append("parser_ambiguous_tokens_total ").append(ambiguousTokens).append('\n');
+    sb.append("parser_elimination_steps_total ").append(eliminationSteps).append('\n');
+    sb.append("parser_checks_total ").append(checks).append('\n');
+    sb.append("parser_check_seconds_total ").append(checkNanos / 1e9).append('\n');
+    sb.append("parser_parses_total ").append(parses).append('\n');
+    sb.append("parser_parse_seconds_total ").append(parseNanos / 1e9).append('\n');
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Escape a label value.
+   * 
+   * @param value
+   * @return
+   */
+  private static String escape(String value)
+  {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Bounded pool of initialised parsers.  Parsers are taken with {@link #acquire()} and handed back with
+ * {@link #release(GeneralParser)}, which puts them back as they were created with {@link GeneralParser#resetSession()}.  Settings
+ * made by one user (validation mode, zero-copy tokens, metrics and the rest) don't carry over to the next:
+ * <pre>
+ * JSONDocumentParser parser = pool.acquire();
+ * try
+ * {
+ *   return parser.parse(content);
+ * }
+ * finally
+ * {
+ *   pool.release(parser);
+ * }
+ * </pre>
+ * <p>The pool is lock-free.  Idle parsers sit in a fixed array of slots claimed and filled by compare-and-set, so it
+ * neither blocks nor pins virtual threads.  If no idle parser is found a new one is created (a miss); if no free slot is
+ * found on release the parser is left for the garbage collector (a discard).
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class ParserPool<P extends GeneralParser<?>>
+{
+  /**
+   * <p>Creates parsers on a miss.
+   */
+  private final Supplier<? extends P> factory;
+  
+  /**
+   * <p>Idle parser slots.  A null slot is free.
+   */
+  private final AtomicReferenceArray<P> slots;
+  
+  /**
+   * <p>Acquisitions served from the pool.
+   */
+  private final LongAdder hits = new LongAdder();
+  
+  /**
+   * <p>Acquisitions that created a new parser.
+   */
+  private final LongAdder misses = new LongAdder();
+  
+  /**
+   * <p>Releases that found the pool full.
+   */
+  private final LongAdder discards = new LongAdder();
+  
+  /**
+   * <p>Create an empty pool.
+   * 
+   * @param factory creates a new parser on a miss.
+   * @param capacity the most idle parsers held.
+   */
+  public ParserPool(Supplier<? extends P> factory, int capacity)
+  {
+    if(capacity < 1) throw new IllegalArgumentException();
+    this.factory = factory;
+    this.slots = new AtomicReferenceArray<>(capacity);
+  }
+  
+  /**
+   * <p>Create an empty pool holding up to two idle parsers per processor.
+   * 
+   * @param factory creates a new parser on a miss.
+   */
+  public ParserPool(Supplier<? extends P> factory)
+  {
+    this(factory, 2 * Runtime.getRuntime().availableProcessors());
+  }
+  
+  /**
+   * <p>Take an idle parser from the pool, or create a new one if there are none.  The parser is ready to use.
+   * 
+   * @return
+   */
+  public P acquire()
+  {
+    int capacity = slots.length();
+    int start = probe(capacity);
+    for(int i = 0; i < capacity; i++)
+    {
+      int slot = (start + i) % capacity;
+      P parser = slots.get(slot);
+      if(parser != null && slots.compareAndSet(slot, parser, null))
+      {
+        hits.increment();
+        return parser;
+      }
+    }
+    
+    //Nothing idle - make a new one.
+    misses.increment();
+    return factory.get();
+  }
+  
+  /**
+   * <p>Reset the parser's input and settings and return it to the pool.  It must not be used again by the caller.
+   * 
+   * @param parser
+   */
+  public void release(P parser)
+  {
+    //Reset the parser.  This also drops its reference to the input.
+    parser.resetSession();
+    
+    int capacity = slots.length();
+    int start = probe(capacity);
+    for(int i = 0; i < capacity; i++)
+    {
+      int slot = (start + i) % capacity;
+      if(slots.get(slot) == null && slots.compareAndSet(slot, null, parser)) return;
+    }
+    
+    //Full - let it go.
+    discards.increment();
+  }
+  
+  /**
+   * <p>Pick the slot to start searching from.  Threads start in different places so they don't contend for the same
+   * slots.
+   * 
+   * @param capacity
+   * @return
+   */
+  private static int probe(int capacity)
+  {
+    int h = System.identityHashCode(Thread.currentThread());
+    h ^= (h >>> 16);
+    return (h & 0x7fffffff) % capacity;
+  }
+  
+  /**
+   * <p>Get the number of acquisitions served from the pool.
+   * 
+   * @return
+   */
+  public long getHits()
+  {
+    return hits.sum();
+  }
+  
+  /**
+   * <p>Get the number of acquisitions that created a new parser.
+   * 
+   * @return
+   */
+  public long getMisses()
+  {
+    return misses.sum();
+  }
+  
+  /**
+   * <p>Get the number of released parsers that were dropped because the pool was full.
+   * 
+   * @return
+   */
+  public long getDiscards()
+  {
+    return discards.sum();
+  }
+  
+  /**
+   * <p>Get the number of idle parsers in the pool.  This is a snapshot and may be out of date by the time it returns.
+   * 
+   * @return
+   */
+  public int getSize()
+  {
+    int size = 0;
+    for(int i = 0; i < slots.length(); i++) if(slots.get(i) != null) size++;
+    return size;
+  }
+  
+  /**
+   * <p>Get the most idle parsers the pool holds.
+   * 
+   * @return
+   */
+  public int getCapacity()
+  {
+    return slots.length();
+  }
+}
@@ -0,0 +1,365 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * <p>Character source for input pushed to the general parser in chunks.  Chunks are appended to a buffer, bytes being
+ * decoded as UTF-8 on the way in; a multibyte sequence may be split between byte chunks.
+ * <p>When the parser reads past the end of the input so far the source returns {@link CharSource#END} and records that
+ * it was starved.  The parser then goes back to the point saved before the token with {@link #restore()} and lexes the
+ * token again when more input has arrived.  Once the end of input has been pushed, running out is the real end.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+final class PushCharSource
+{
+  /**
+   * <p>The pushed chars.
+   */
+  private char[] buffer = new char[CharSource.DEFAULT_BLOCK_SIZE];
+  
+  /**
+   * <p>The index of the next char to read.
+   */
+  private int pos;
+  
+  /**
+   * <p>The number of chars pushed and not yet dropped.
+   */
+  private int limit;
+  
+  /**
+   * <p>The index of the last char delivered.
+   */
+  private int charStart;
+  
+  /**
+   * <p>The index of the first char of the marked token, or -1.
+   */
+  private int mark = -1;
+  
+  /**
+   * <p>The saved read position.
+   */
+  private int savedPos;
+  
+  /**
+   * <p>The saved index of the last char delivered.
+   */
+  private int savedCharStart;
+  
+  /**
+   * <p>The offset in the input of the first char in the buffer.
+   */
+  private long origin;
+  
+  /**
+   * <p>Index the newlines of each chunk are added to as it is pushed, or null.
+   */
+  private LineIndex lineIndex;
+  
+  /**
+   * <p>Set when the end of input has been pushed.
+   */
+  private boolean ended;
+  
+  /**
+   * <p>Set when a char was asked for beyond the input pushed so far.
+   */
+  private boolean starved;
+  
+  /**
+   * <p>Continuation bytes still needed to finish the UTF-8 sequence split between byte chunks.
+   */
+  private int pendingNeed;
+  
+  /**
+   * <p>The length of the split UTF-8 sequence.
+   */
+  private int pendingLength;
+  
+  /**
+   * <p>The code point bits of the split UTF-8 sequence so far.
+   */
+  private int pendingCode;
+  
+  /**
+   * <p>Discard all input ready for a new stream.
+   */
+  void reset()
+  {
+    pos = limit = charStart = 0;
+    savedPos = savedCharStart = 0;
+    mark = -1;
+    ended = starved = false;
+    pendingNeed = 0;
+    origin = 0;
+    lineIndex = null;
+  }
+  
+  /**
+   * <p>Set the index to add newlines to as input is pushed.
+   * 
+   * @param lineIndex the index, or null to stop indexing.
+   */
+  void setLineIndex(LineIndex lineIndex)
+  {
+    this.lineIndex = lineIndex;
+  }
+  
+  /**
+   * <p>Get the offset in the input of the char at the given index in the buffer.
+   * 
+   * @param index
+   * @return
+   */
+  long getOffset(int index)
+  {
+    return origin + index;
+  }
+  
+  /**
+   * <p>Get the next char.  Returns {@link CharSource#END} at the end of the input so far, and marks the source starved
+   * unless the end of input has been pushed.
+   * 
+   * @return
+   */
+  char next()
+  {
+    charStart = pos;
+    if(pos < limit) return buffer[pos++];
+    if(!ended) starved = true;
+    return CharSource.END;
+  }
+  
+  /**
+   * <p>Has a char been asked for beyond the input pushed so far, since the last save?
+   * 
+   * @return
+   */
+  boolean isStarved()
+  {
+    return starved;
+  }
+  
+  /**
+   * <p>Save the read position.
+   */
+  void save()
+  {
+    savedPos = pos;
+    savedCharStart = charStart;
+    starved = false;
+  }
+  
+  /**
+   * <p>Go back to the saved read position.
+   */
+  void restore()
+  {
+    pos = savedPos;
+    charStart = savedCharStart;
+    starved = false;
+  }
+  
+  /**
+   * <p>Mark the last char delivered as the first char of a token.
+   */
+  void markTokenStart()
+  {
+    mark = charStart;
+  }
+  
+  /**
+   * <p>Get the buffer holding the marked token.
+   * 
+   * @return
+   */
+  char[] getBuffer()
+  {
+    return buffer;
+  }
+  
+  /**
+   * <p>Get the index of the first char of the marked token.
+   * 
+   * @return
+   */
+  int getTokenStart()
+  {
+    return mark;
+  }
+  
+  /**
+   * <p>Get the index just past the last char of the marked token.
+   * 
+   * @return
+   */
+  int getTokenEnd()
+  {
+    return charStart;
+  }
+  
+  /**
+   * <p>Append chars to the input.
+   * 
+   * @param chunk
+   * @param off
+   * @param len
+   */
+  void push(char[] chunk, int off, int len)
+  {
+    ensureSpace(len);
+    System.arraycopy(chunk, off, buffer, limit, len);
+    if(lineIndex != null) lineIndex.scan(buffer, limit, len, origin + limit);
+    limit += len;
+  }
+  
+  /**
+   * <p>Append UTF-8 bytes to the input.  The buffer's position is moved to its limit.
+   * 
+   * @param chunk
+   * @throws MalformedInputException
+   */
+  void push(ByteBuffer chunk) throws MalformedInputException
+  {
+    //Every byte gives at most one char, plus a surrogate pair for a sequence finished by the first byte.
+    ensureSpace(chunk.remaining() + 1);
+    
+    int first = limit;
+    while(chunk.hasRemaining())
+    {
+      int b = chunk.get();
+      if(pendingNeed == 0)
+      {
+        //Lead byte.
+        if(b >= 0)
+        {
+          buffer[limit++] = (char) b;
+          continue;
+        }
+        b &= 0xff;
+        if(b >= 0xc2 && b < 0xe0)
+        {
+          pendingLength = 2;
+          pendingCode = b & 0x1f;
+        }
+        else if(b >= 0xe0 && b < 0xf0)
+        {
+          pendingLength = 3;
+          pendingCode = b & 0x0f;
+        }
+        else if(b >= 0xf0 && b < 0xf5)
+        {
+          pendingLength = 4;
+          pendingCode = b & 0x07;
+        }
+        else
+        {
+          throw new MalformedInputException(1);
+        }
+        pendingNeed = pendingLength - 1;
+      }
+      else
+      {
+        //Continuation byte.
+        if((b & 0xc0) != 0x80) throw new MalformedInputException(1);
+        pendingCode = (pendingCode << 6) | (b & 0x3f);
+        if(--pendingNeed == 0) appendCodePoint();
+      }
+    }
+    if(lineIndex != null) lineIndex.scan(buffer, first, limit - first, origin + first);
+  }
+  
+  /**
+   * <p>Append the finished UTF-8 sequence.  Reject anything that isn't the shortest encoding of a char.
+   * 
+   * @throws MalformedInputException
+   */
+  private void appendCodePoint() throws MalformedInputException
+  {
+    int cp = pendingCode;
+    if(pendingLength == 3 && (cp < 0x800 || Character.isSurrogate((char) cp))) throw new MalformedInputException(3);
+    if(pendingLength == 4 && (cp < 0x10000 || cp > Character.MAX_CODE_POINT)) throw new MalformedInputException(4);
+    if(cp < 0x10000)
+    {
+      buffer[limit++] = (char) cp;
+    }
+    else
+    {
+      buffer[limit++] = Character.highSurrogate(cp);
+      buffer[limit++] = Character.lowSurrogate(cp);
+    }
+  }
+  
+  /**
+   * <p>Mark the end of input.
+   * 
+   * @throws MalformedInputException if a UTF-8 sequence was left unfinished.
+   */
+  void end() throws MalformedInputException
+  {
+    if(pendingNeed != 0) throw new MalformedInputException(pendingLength - pendingNeed);
+    ended = true;
+  }
+  
+  /**
+   * <p>Make room for the given number of chars.  Chars before the last one delivered have been dealt with and are
+   * dropped; the last one delivered is the first char of the next token.
+   * 
+   * @param count
+   */
+  private void ensureSpace(int count)
+  {
+    //Drop what's been dealt with.
+    int drop = charStart;
+    if(drop > 0)
+    {
+      System.arraycopy(buffer, drop, buffer, 0, limit - drop);
+      limit -= drop;
+      pos -= drop;
+      origin += drop;
+      charStart = 0;
+      mark = -1;
+    }
+    
+    //Grow if needed.
+    if(limit + count > buffer.length)
+    {
+      char[] grown = new char[Math.max(buffer.length << 1, limit + count)];
+      System.arraycopy(buffer, 0, grown, 0, limit);
+      buffer = grown;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>Character source that reads blocks of characters from a {@link Reader}.  The source is reused across parses by
+ * binding it to each new reader.
+ * <p>When the reader is a {@link MappedFileReader} the source also knows the byte offset in the file of each character
+ * in the block.  The offset of the first character in the block is kept, and offsets further on are found by adding up
+ * the UTF-8 lengths of the characters before them.  Tokens are asked for in order, so each character is counted once.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+final class ReaderCharSource extends CharSource
+{
+  /**
+   * <p>The reader currently bound to the source.
+   */
+  private Reader reader;
+  
+  /**
+   * <p>Byte offsets are tracked for the bound reader.
+   */
+  private boolean trackBytes;
+  
+  /**
+   * <p>The byte offset of the first character in the block.
+   */
+  private long blockByteOffset;
+  
+  /**
+   * <p>The index in the block up to which byte offsets have been counted.
+   */
+  private int scanIndex;
+  
+  /**
+   * <p>The byte offset of the character at the scan index.
+   */
+  private long scanByteOffset;
+  
+  /**
+   * <p>Create the reader source with the default block size.
+   */
+  ReaderCharSource()
+  {
+    super(DEFAULT_BLOCK_SIZE);
+  }
+  
+  /**
+   * <p>Bind the source to the given reader, discarding anything buffered from the previous reader.
+   * 
+   * @param reader the reader to bind, or null to unbind.
+   */
+  void bind(Reader reader)
+  {
+    this.reader = reader;
+    clear();
+    
+    //Track byte offsets from where the mapped file reader has got to.
+    trackBytes = (reader instanceof MappedFileReader);
+    blockByteOffset = trackBytes ? ((MappedFileReader) reader).getBytePosition() : 0;
+    scanIndex = 0;
+    scanByteOffset = blockByteOffset;
+  }
+  
+  /**
+   * <p>Get the reader currently bound to the source.
+   * 
+   * @return
+   */
+  Reader getReader()
+  {
+    return reader;
+  }
+
+  /**
+   * <p>Get the byte offset in the file of the character at the given index in the block.
+   * 
+   * @param index
+   * @return the byte offset, or -1 if byte offsets aren't tracked for the bound reader.
+   */
+  long getByteOffset(int index)
+  {
+    if(!trackBytes) return -1;
+    
+    //Count from the start of the block if the index is behind the scan.
+    if(index < scanIndex)
+    {
+      scanIndex = 0;
+      scanByteOffset = blockByteOffset;
+    }
+    while(scanIndex < index) scanByteOffset += MappedFileReader.utf8Length(block[scanIndex++]);
+    return scanByteOffset;
+  }
+  
+  /**
+   * <p>Move the block byte offset past the dropped characters.
+   */
+  @Override
+  protected void discarded(int count)
+  {
+    if(trackBytes)
+    {
+      blockByteOffset = getByteOffset(count);
+      scanIndex = 0;
+      scanByteOffset = blockByteOffset;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int fill(char[] dst, int off, int len) throws IOException
+  {
+    return reader.read(dst, off, len);
+  }
+}
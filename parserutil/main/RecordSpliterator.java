@@ -0,0 +1,208 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>Spliterator over the records a {@link RecordReader} reads with a general parser.  Records from a reader are read
+ * in order by one parser, and never split.  Records from UTF-8 byte input divided into {@link InputSegments} split as
+ * tokens do (see {@link SegmentTokenSpliterator}): a run of whole segments is handed to a new spliterator, which reads
+ * them with a parser session of its own.  A record must not cross a segment boundary.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ * @param <T>
+ * @param <P>
+ * @param <R>
+ */
+final class RecordSpliterator<T extends TokenDescriptor, P extends GeneralParser<T>, R> implements Spliterator<R>
+{
+  /**
+   * <p>The input bytes, or null if reading from a reader.
+   */
+  private final ByteBuffer content;
+  
+  /**
+   * <p>The segments of the input bytes.
+   */
+  private final InputSegments segments;
+  
+  /**
+   * <p>Creates the parser session for each spliterator reading segments.
+   */
+  private final Supplier<? extends P> sessions;
+  
+  /**
+   * <p>Reads each record.
+   */
+  private final RecordReader<? super P, ? extends R> records;
+  
+  /**
+   * <p>The next segment to read, or the segment being read.
+   */
+  private int segment;
+  
+  /**
+   * <p>The segment after the last one for this spliterator.
+   */
+  private final int end;
+  
+  /**
+   * <p>The parser, or the parser session once created.
+   */
+  private P session;
+  
+  /**
+   * <p>The input being read, or null between segments.
+   */
+  private Reader reader;
+  
+  /**
+   * <p>Create the spliterator over the records in the given content.  The parser must have been initialised.
+   * 
+   * @param parser
+   * @param content
+   * @param records
+   */
+  RecordSpliterator(P parser, Reader content, RecordReader<? super P, ? extends R> records)
+  {
+    this.content = null;
+    this.segments = null;
+    this.sessions = null;
+    this.records = records;
+    this.session = parser;
+    this.reader = content;
+    segment = 0;
+    end = 1;
+  }
+  
+  /**
+   * <p>Create the spliterator over the records in the given segments.
+   * 
+   * @param content
+   * @param segments
+   * @param sessions
+   * @param records
+   * @param segment the first segment.
+   * @param end the segment after the last.
+   */
+  RecordSpliterator(ByteBuffer content, InputSegments segments, Supplier<? extends P> sessions, RecordReader<? super P, ? extends R> records, int segment, int end)
+  {
+    this.content = content;
+    this.segments = segments;
+    this.sessions = sessions;
+    this.records = records;
+    this.segment = segment;
+    this.end = end;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryAdvance(Consumer<? super R> action)
+  {
+    try
+    {
+      while(true)
+      {
+        //Start the next segment.
+        if(reader == null)
+        {
+          if(segment >= end || content == null) return false;
+          if(session == null) session = sessions.get();
+          ByteBuffer bytes = content.duplicate();
+          bytes.limit(segments.getEnd(segment)).position(segments.getStart(segment));
+          Utf8BufferReader segmentReader = new Utf8BufferReader(bytes, content.position());
+          session.beginSegment(segmentReader, segments.getLine(segment), segments.getColumn(segment), List.of());
+          reader = segmentReader;
+        }
+        R record = records.read(session, reader);
+        if(record != null)
+        {
+          action.accept(record);
+          return true;
+        }
+        //End of the segment.
+        reader = null;
+        segment++;
+      }
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    catch(GeneralParserException e)
+    {
+      throw new UncheckedGeneralParserException(e);
+    }
+  }
+  
+  /**
+   * <p>Split off the first half of the segments not yet started.  An ordered split has to be a prefix, so nothing is
+   * split off once a segment has been started, and a reader is never split.
+   */
+  @Override
+  public Spliterator<R> trySplit()
+  {
+    if(content == null || reader != null || end - segment < 2) return null;
+    int mid = (segment + end) >>> 1;
+    Spliterator<R> prefix = new RecordSpliterator<>(content, segments, sessions, records, segment, mid);
+    segment = mid;
+    return prefix;
+  }
+  
+  /**
+   * <p>Estimate from the bytes left.  No record is shorter than a byte.  The number of records in a reader isn't known.
+   */
+  @Override
+  public long estimateSize()
+  {
+    if(content == null) return Long.MAX_VALUE;
+    return (segment >= end) ? 0 : segments.getEnd(end - 1) - segments.getStart(segment);
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int characteristics()
+  {
+    return ORDERED | NONNULL;
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <p>Spliterator over the tokens in UTF-8 byte input divided into {@link InputSegments}.  Splitting hands a run of
+ * whole segments to a new spliterator, which reads them with a parser session of its own.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ * @param <T>
+ */
+final class SegmentTokenSpliterator<T extends TokenDescriptor> implements Spliterator<GeneralParserToken<T>>
+{
+  /**
+   * <p>The input bytes.
+   */
+  private final ByteBuffer content;
+  
+  /**
+   * <p>The segments of the input.
+   */
+  private final InputSegments segments;
+  
+  /**
+   * <p>Creates the parser session for each spliterator.
+   */
+  private final Supplier<? extends GeneralParser<T>> sessions;
+  
+  /**
+   * <p>Token descriptors to validate before each segment but the first, to put the validation machine in the state it
+   * would be in at a boundary.
+   */
+  private final List<T> resume;
+  
+  /**
+   * <p>The next segment to read, or the segment being read.
+   */
+  private int segment;
+  
+  /**
+   * <p>The segment after the last one for this spliterator.
+   */
+  private final int end;
+  
+  /**
+   * <p>The parser session, created when first needed.
+   */
+  private GeneralParser<T> session;
+  
+  /**
+   * <p>The input of the segment being read, or null between segments.
+   */
+  private Utf8BufferReader reader;
+  
+  /**
+   * <p>Create the spliterator over the given segments.
+   * 
+   * @param content
+   * @param segments
+   * @param sessions
+   * @param resume
+   * @param segment the first segment.
+   * @param end the segment after the last.
+   */
+  SegmentTokenSpliterator(ByteBuffer content, InputSegments segments, Supplier<? extends GeneralParser<T>> sessions, List<T> resume, int segment, int end)
+  {
+    this.content = content;
+    this.segments = segments;
+    this.sessions = sessions;
+    this.resume = resume;
+    this.segment = segment;
+    this.end = end;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryAdvance(Consumer<? super GeneralParserToken<T>> action)
+  {
+    try
+    {
+      while(true)
+      {
+        //Start the next segment.
+        if(reader == null)
+        {
+          if(segment >= end) return false;
+          if(session == null) session = sessions.get();
+          ByteBuffer bytes = content.duplicate();
+          bytes.limit(segments.getEnd(segment)).position(segments.getStart(segment));
+          reader = new Utf8BufferReader(bytes, content.position());
+          session.beginSegment(reader, segments.getLine(segment), segments.getColumn(segment), (segment == 0) ? List.of() : resume);
+        }
+        
+        GeneralParserToken<T> token = session.getNextToken(reader);
+        if(token != null)
+        {
+          action.accept(token);
+          return true;
+        }
+        
+        //End of the segment.
+        reader = null;
+        segment++;
+      }
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    catch(GeneralParserException e)
+    {
+      throw new UncheckedGeneralParserException(e);
+    }
+  }
+
+  /**
+   * <p>Split off the first half of the segments not yet started.  An ordered split has to be a prefix, so nothing is
+   * split off once a segment has been started.
+   */
+  @Override
+  public Spliterator<GeneralParserToken<T>> trySplit()
+  {
+    if(reader != null || end - segment < 2) return null;
+    int mid = (segment + end) >>> 1;
+    Spliterator<GeneralParserToken<T>> prefix = new SegmentTokenSpliterator<>(content, segments, sessions, resume, segment, mid);
+    segment = mid;
+    return prefix;
+  }
+
+  /**
+   * <p>Estimate from the bytes left.  No token is shorter than a byte.
+   */
+  @Override
+  public long estimateSize()
+  {
+    return (segment >= end) ? 0 : segments.getEnd(end - 1) - segments.getStart(segment);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int characteristics()
+  {
+    return ORDERED | NONNULL;
+  }
+}
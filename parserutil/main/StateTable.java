@@ -0,0 +1,317 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.Arrays;
+
+/**
+ * <p>Transition table for a {@link TableStateMachine}.  States and token symbols are int codes, and the action for
+ * each state and symbol is in a flat array at state * symbolCount + symbol.  An action moves to another state, enters
+ * a nested section by pushing the state to return to, leaves a section by popping it, ignores the token, or fails with
+ * the message given for the state.  Anything not defined fails.
+ * <p>The table is immutable once built, so one instance can be shared by any number of machines.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class StateTable
+{
+  /**
+   * <p>Action operation: fail.
+   */
+  static final int FAIL = 0;
+  
+  /**
+   * <p>Action operation: move to the target state.
+   */
+  static final int MOVE = 1;
+  
+  /**
+   * <p>Action operation: push the return state and move to the target state.
+   */
+  static final int PUSH = 2;
+  
+  /**
+   * <p>Action operation: move to the state popped.
+   */
+  static final int POP = 3;
+  
+  /**
+   * <p>Action operation: stay in the same state.
+   */
+  static final int IGNORE = 4;
+  
+  /**
+   * <p>Bits for each state in an action.
+   */
+  private static final int STATE_BITS = 14;
+  
+  /**
+   * <p>Mask of a state in an action.
+   */
+  private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+  
+  /**
+   * <p>The number of symbols, which is the length of an action row.
+   */
+  private final int symbolCount;
+  
+  /**
+   * <p>Action rows.  The operation is in the top bits, the return state of a push in the next {@link #STATE_BITS} and
+   * the target state in the bottom {@link #STATE_BITS}.
+   */
+  private final int[] actions;
+  
+  /**
+   * <p>Failure message for each state.
+   */
+  private final String[] messages;
+  
+  /**
+   * <p>Create the table from the built arrays.
+   * 
+   * @param symbolCount
+   * @param actions
+   * @param messages
+   */
+  private StateTable(int symbolCount, int[] actions, String[] messages)
+  {
+    this.symbolCount = symbolCount;
+    this.actions = actions;
+    this.messages = messages;
+  }
+  
+  /**
+   * <p>Get the action for a symbol in a state.
+   * 
+   * @param state
+   * @param symbol
+   * @return
+   */
+  int action(int state, int symbol)
+  {
+    return actions[state * symbolCount + symbol];
+  }
+  
+  /**
+   * <p>Get the operation of an action.
+   * 
+   * @param action
+   * @return
+   */
+  static int operation(int action)
+  {
+    return action >>> (STATE_BITS << 1);
+  }
+  
+  /**
+   * <p>Get the target state of an action.
+   * 
+   * @param action
+   * @return
+   */
+  static int target(int action)
+  {
+    return action & STATE_MASK;
+  }
+  
+  /**
+   * <p>Get the return state of a push action.
+   * 
+   * @param action
+   * @return
+   */
+  static int returnState(int action)
+  {
+    return (action >>> STATE_BITS) & STATE_MASK;
+  }
+  
+  /**
+   * <p>Get the failure message for a state.
+   * 
+   * @param state
+   * @return
+   */
+  String getMessage(int state)
+  {
+    return messages[state];
+  }
+  
+  /**
+   * <p>Get the number of states.
+   * 
+   * @return
+   */
+  public int getStateCount()
+  {
+    return messages.length;
+  }
+  
+  /**
+   * <p>Get the number of symbols.
+   * 
+   * @return
+   */
+  public int getSymbolCount()
+  {
+    return symbolCount;
+  }
+  
+  /**
+   * <p>Builds a state table.  State 0 is the start state.
+   * 
+   * @author James David Foster jdfoster73@gmail.com
+   *
+   */
+  public static final class Builder
+  {
+    /**
+     * <p>The number of symbols.
+     */
+    private final int symbolCount;
+    
+    /**
+     * <p>Action rows so far.
+     */
+    private final int[] actions;
+    
+    /**
+     * <p>Failure messages so far.
+     */
+    private final String[] messages;
+    
+    /**
+     * <p>Start a table with the given numbers of states and symbols.
+     * 
+     * @param stateCount
+     * @param symbolCount
+     */
+    public Builder(int stateCount, int symbolCount)
+    {
+      if(stateCount < 1 || stateCount > STATE_MASK + 1 || symbolCount < 1) throw new IllegalArgumentException();
+      this.symbolCount = symbolCount;
+      actions = new int[stateCount * symbolCount];
+      messages = new String[stateCount];
+    }
+    
+    /**
+     * <p>Move to the next state on the symbol.
+     * 
+     * @param state
+     * @param symbol
+     * @param next
+     * @return this builder.
+     */
+    public Builder move(int state, int symbol, int next)
+    {
+      return set(state, symbol, MOVE, 0, next);
+    }
+    
+    /**
+     * <p>Enter a nested section on the symbol: remember the state to return to when the section is left, and move to
+     * the first state of the section.
+     * 
+     * @param state
+     * @param symbol
+     * @param returnState the state once the section is left.
+     * @param next the first state of the section.
+     * @return this builder.
+     */
+    public Builder push(int state, int symbol, int returnState, int next)
+    {
+      return set(state, symbol, PUSH, returnState, next);
+    }
+    
+    /**
+     * <p>Leave the current section on the symbol, returning to the state remembered when it was entered.
+     * 
+     * @param state
+     * @param symbol
+     * @return this builder.
+     */
+    public Builder pop(int state, int symbol)
+    {
+      return set(state, symbol, POP, 0, 0);
+    }
+    
+    /**
+     * <p>Ignore the symbol in every state.
+     * 
+     * @param symbol
+     * @return this builder.
+     */
+    public Builder ignore(int symbol)
+    {
+      for(int state = 0; state < messages.length; state++) set(state, symbol, IGNORE, 0, 0);
+      return this;
+    }
+    
+    /**
+     * <p>Set the message for symbols with no action in the state.
+     * 
+     * @param state
+     * @param message
+     * @return this builder.
+     */
+    public Builder fail(int state, String message)
+    {
+      messages[state] = message;
+      return this;
+    }
+    
+    /**
+     * <p>Build the table.
+     * 
+     * @return
+     */
+    public StateTable build()
+    {
+      return new StateTable(symbolCount, actions.clone(), Arrays.copyOf(messages, messages.length));
+    }
+    
+    /**
+     * <p>Set an action.
+     * 
+     * @param state
+     * @param symbol
+     * @param operation
+     * @param returnState
+     * @param next
+     * @return this builder.
+     */
+    private Builder set(int state, int symbol, int operation, int returnState, int next)
+    {
+      if(symbol < 0 || symbol >= symbolCount) throw new IllegalArgumentException();
+      if(returnState < 0 || returnState >= messages.length || next < 0 || next >= messages.length) throw new IllegalArgumentException();
+      actions[state * symbolCount + symbol] = (operation << (STATE_BITS << 1)) | (returnState << STATE_BITS) | next;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.Arrays;
+
+/**
+ * <p>Validation state machine driven by a {@link StateTable}.  Checking a token is one lookup in the table for the
+ * token's symbol in the current state.  Nesting is kept on a stack of ints, which only grows when a section goes
+ * deeper than any before it, so nothing is allocated per section.
+ * <p>Subclasses give each token its symbol.  The table can be shared; the machine holds the state of one parse.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public abstract class TableStateMachine<T extends TokenDescriptor> implements GeneralParserStateMachine<T>
+{
+  /**
+   * <p>The transition table.
+   */
+  private final StateTable table;
+  
+  /**
+   * <p>The current state.
+   */
+  private int state;
+  
+  /**
+   * <p>States to return to as sections are left, innermost last.
+   */
+  private int[] stack = new int[16];
+  
+  /**
+   * <p>The number of sections entered and not yet left.
+   */
+  private int depth;
+  
+  /**
+   * <p>Create the machine in the start state.
+   * 
+   * @param table
+   */
+  protected TableStateMachine(StateTable table)
+  {
+    this.table = table;
+  }
+  
+  /**
+   * <p>Get the symbol of a token.
+   * 
+   * @param t
+   * @return a symbol code less than the table's symbol count.
+   */
+  protected abstract int symbol(T t);
+  
+  /**
+   * <p>Check the token against the current state and move on.
+   * 
+   * @throws GeneralParserStateMachineException if the token can't follow the tokens before it.
+   */
+  @Override
+  public void check(T t) throws GeneralParserStateMachineException
+  {
+    int action = table.action(state, symbol(t));
+    switch(StateTable.operation(action))
+    {
+      case StateTable.MOVE:
+        state = StateTable.target(action);
+        return;
+      case StateTable.IGNORE:
+        return;
+      case StateTable.PUSH:
+        if(depth == stack.length) stack = Arrays.copyOf(stack, depth << 1);
+        stack[depth++] = StateTable.returnState(action);
+        state = StateTable.target(action);
+        ParserEvents.nested(this, depth);
+        return;
+      case StateTable.POP:
+        if(depth > 0)
+        {
+          state = stack[--depth];
+          return;
+        }
+        break;
+      default:
+    }
+    
+    throw new GeneralParserStateMachineException(table.getMessage(state));
+  }
+  
+  /**
+   * <p>Go back to the start state with no sections entered.
+   */
+  @Override
+  public void initialise()
+  {
+    state = 0;
+    depth = 0;
+  }
+  
+  /**
+   * <p>Get the current state.
+   * 
+   * @return
+   */
+  public int getState()
+  {
+    return state;
+  }
+  
+  /**
+   * <p>Get the number of sections entered and not yet left.
+   * 
+   * @return
+   */
+  public int getDepth()
+  {
+    return depth;
+  }
+}
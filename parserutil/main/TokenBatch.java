@@ -0,0 +1,319 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>A block of tokens in parallel primitive arrays, for receivers that work through tokens in a loop rather than take
+ * a call per token.  Token i has the descriptor code {@link #getCodes()}[i], which is the position of its descriptor in
+ * the grammar (-1 for input matching no descriptor), and its text in {@link #getText()} from
+ * {@link #getTextStarts()}[i] for {@link #getTextLengths()}[i] chars.
+ * <p>A parser fills the same batch each time, so the batch and its arrays are only valid until the receiver returns.
+ * Use {@link #copy()} to keep a batch, for example to hand it to another thread.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ * @param <T>
+ */
+public final class TokenBatch<T extends TokenDescriptor>
+{
+  /**
+   * <p>Default number of tokens in a batch.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+  
+  /**
+   * <p>The grammar's token descriptors, indexed by code.
+   */
+  private final List<T> descriptors;
+  
+  /**
+   * <p>The number of tokens in the batch.
+   */
+  private int size;
+  
+  /**
+   * <p>Token descriptor codes.
+   */
+  private final int[] codes;
+  
+  /**
+   * <p>Index in the text of the first char of each token.
+   */
+  private final int[] textStarts;
+  
+  /**
+   * <p>Length of each token.
+   */
+  private final int[] textLengths;
+  
+  /**
+   * <p>Start line of each token.
+   */
+  private final int[] lineStarts;
+  
+  /**
+   * <p>Start column of each token.
+   */
+  private final int[] columnStarts;
+  
+  /**
+   * <p>Offset of the first byte of each token, or -1 if not known.
+   */
+  private final long[] byteStarts;
+  
+  /**
+   * <p>The text of the tokens, one after another.
+   */
+  private char[] text;
+  
+  /**
+   * <p>The number of chars of text in use.
+   */
+  private int textLength;
+  
+  /**
+   * <p>Create an empty batch.
+   * 
+   * @param descriptors the grammar's token descriptors.
+   * @param capacity the number of tokens the batch holds.
+   */
+  public TokenBatch(List<T> descriptors, int capacity)
+  {
+    if(capacity < 1) throw new IllegalArgumentException();
+    this.descriptors = descriptors;
+    codes = new int[capacity];
+    textStarts = new int[capacity];
+    textLengths = new int[capacity];
+    lineStarts = new int[capacity];
+    columnStarts = new int[capacity];
+    byteStarts = new long[capacity];
+    text = new char[capacity << 4];
+  }
+  
+  /**
+   * <p>Empty the batch.  The memory is kept for the next tokens.
+   */
+  public void clear()
+  {
+    size = 0;
+    textLength = 0;
+  }
+  
+  /**
+   * <p>Add the token the cursor points at.
+   * 
+   * @param cursor
+   * @param code
+   */
+  void add(GeneralParserCursor<T> cursor, int code)
+  {
+    int length = cursor.length();
+    if(textLength + length > text.length) text = Arrays.copyOf(text, Math.max(text.length << 1, textLength + length));
+    System.arraycopy(cursor.getBuffer(), cursor.getOffset(), text, textLength, length);
+    
+    codes[size] = code;
+    textStarts[size] = textLength;
+    textLengths[size] = length;
+    lineStarts[size] = cursor.getLineStart();
+    columnStarts[size] = cursor.getColumnStart();
+    byteStarts[size] = cursor.getByteStart();
+    textLength += length;
+    size++;
+  }
+  
+  /**
+   * <p>Get a copy of the batch that can be kept.
+   * 
+   * @return
+   */
+  public TokenBatch<T> copy()
+  {
+    TokenBatch<T> ret = new TokenBatch<>(descriptors, Math.max(size, 1));
+    System.arraycopy(codes, 0, ret.codes, 0, size);
+    System.arraycopy(textStarts, 0, ret.textStarts, 0, size);
+    System.arraycopy(textLengths, 0, ret.textLengths, 0, size);
+    System.arraycopy(lineStarts, 0, ret.lineStarts, 0, size);
+    System.arraycopy(columnStarts, 0, ret.columnStarts, 0, size);
+    System.arraycopy(byteStarts, 0, ret.byteStarts, 0, size);
+    ret.text = Arrays.copyOf(text, textLength);
+    ret.textLength = textLength;
+    ret.size = size;
+    return ret;
+  }
+  
+  /**
+   * <p>Get the number of tokens in the batch.
+   * 
+   * @return
+   */
+  public int getSize()
+  {
+    return size;
+  }
+  
+  /**
+   * <p>Get the number of tokens the batch holds.
+   * 
+   * @return
+   */
+  public int getCapacity()
+  {
+    return codes.length;
+  }
+  
+  /**
+   * <p>Is the batch full?
+   * 
+   * @return
+   */
+  public boolean isFull()
+  {
+    return size == codes.length;
+  }
+  
+  /**
+   * <p>Get the descriptor of the given token.
+   * 
+   * @param index
+   * @return the descriptor, or null for input matching no descriptor.
+   */
+  public T getDescriptor(int index)
+  {
+    int code = codes[index];
+    return (code < 0) ? null : descriptors.get(code);
+  }
+  
+  /**
+   * <p>Get the descriptor for a code.
+   * 
+   * @param code
+   * @return
+   */
+  public T getDescriptorForCode(int code)
+  {
+    return descriptors.get(code);
+  }
+  
+  /**
+   * <p>Get the text of the given token as a view of the batch text.
+   * 
+   * @param index
+   * @return
+   */
+  public CharSequence getText(int index)
+  {
+    return new TokenText(text, textStarts[index], textLengths[index]);
+  }
+  
+  /**
+   * <p>Get the text of the given token as a string.
+   * 
+   * @param index
+   * @return
+   */
+  public String getValue(int index)
+  {
+    return new String(text, textStarts[index], textLengths[index]);
+  }
+  
+  /**
+   * <p>Get the descriptor codes.  Only the first {@link #getSize()} are in use.
+   * 
+   * @return
+   */
+  public int[] getCodes()
+  {
+    return codes;
+  }
+  
+  /**
+   * <p>Get the index in the text of the first char of each token.
+   * 
+   * @return
+   */
+  public int[] getTextStarts()
+  {
+    return textStarts;
+  }
+  
+  /**
+   * <p>Get the length of each token.
+   * 
+   * @return
+   */
+  public int[] getTextLengths()
+  {
+    return textLengths;
+  }
+  
+  /**
+   * <p>Get the text of the tokens.
+   * 
+   * @return
+   */
+  public char[] getText()
+  {
+    return text;
+  }
+  
+  /**
+   * <p>Get the start line of each token.
+   * 
+   * @return
+   */
+  public int[] getLineStarts()
+  {
+    return lineStarts;
+  }
+  
+  /**
+   * <p>Get the start column of each token.
+   * 
+   * @return
+   */
+  public int[] getColumnStarts()
+  {
+    return columnStarts;
+  }
+  
+  /**
+   * <p>Get the offset of the first byte of each token.  These are -1 unless the input is bytes or a
+   * {@link MappedFileReader}.
+   * 
+   * @return
+   */
+  public long[] getByteStarts()
+  {
+    return byteStarts;
+  }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>A directory of the tokens read from files, so that a file parsed again is replayed from its tokens rather than
+ * lexed.  A parser given a cache with {@link GeneralParser#setTokenCache(TokenCache)} looks up each file it is asked to
+ * parse.  If the cache has an entry for the file, the parser's grammar and the file's current content, the tokens are
+ * read from the entry; otherwise the file is lexed and the tokens are recorded in a new entry when it has been parsed.
+ * <p>Each entry is keyed by the file's absolute path, size, modification time and a CRC32C of its content, and is
+ * versioned by the cache format and the grammar - its lexer engine, its version (see
+ * {@link GeneralParserGrammar#getVersion()}) and each descriptor's class, start chars and token pattern.  All of these
+ * are checked each time a file is opened, so an entry that is out of date is never used and is replaced by the next
+ * parse.  Entries for the same file with different grammars are kept apart.
+ * <p>The cheap checks come first: the entry's header is compared with the file's size and modification time and the
+ * grammar before anything is hashed.  Only if they match is the CRC of the file taken, as its bytes are read.  The CRC
+ * of an entry's records is checked the first time the cache opens the entry, and again only if the entry file
+ * changes.
+ * <p>An entry is a header followed by a stream of token records, each the descriptor code, byte offset, byte length and
+ * start and end lines and columns of one token.  Fields are delta coded from the previous token as variable length
+ * integers, and a token on one line straight after the previous one needs only its code and length, so most records
+ * are two bytes.  Entries are memory mapped when replayed, and are written to a temporary
+ * file and moved into place so that a reader never sees part of an entry.  Any number of parsers, on any number of
+ * threads or processes, can share a cache directory.
+ * <p>Files are read whole and lexed as UTF-8 bytes, so a file must be under 2GB to be cached; bigger files are memory
+ * mapped and lexed as usual.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class TokenCache
+{
+  /**
+   * <p>The version of the entry format.  Entries written in another format are never used.
+   */
+  public static final int FORMAT_VERSION = 1;
+  
+  /**
+   * <p>The first int of each entry.
+   */
+  private static final int MAGIC = 0x50555443;
+  
+  /**
+   * <p>The size of the fixed part of the header, before the key.
+   */
+  private static final int HEADER_SIZE = 44;
+  
+  /**
+   * <p>The position in the header of the CRC of the file's content.
+   */
+  private static final int CRC_POSITION = 24;
+  
+  /**
+   * <p>The position in the header of the record count.
+   */
+  private static final int COUNT_POSITION = 28;
+  
+  /**
+   * <p>The most bytes of a file read and hashed at once.
+   */
+  private static final int READ_SIZE = 1 << 16;
+  
+  /**
+   * <p>The largest file cached.
+   */
+  private static final long MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+  
+  /**
+   * <p>The cache directory.
+   */
+  private final Path directory;
+  
+  /**
+   * <p>Files replayed from an entry.
+   */
+  private final LongAdder hits = new LongAdder();
+  
+  /**
+   * <p>Files lexed because there was no entry or it was out of date.
+   */
+  private final LongAdder misses = new LongAdder();
+  
+  /**
+   * <p>The identity of each entry file whose records have passed their CRC, by entry path.  An entry whose file has
+   * changed since is checked again.
+   */
+  private final Map<Path, String> verified = new ConcurrentHashMap<>();
+  
+  /**
+   * <p>Create a cache keeping its entries in the given directory.  The directory is created when the first entry is
+   * written.
+   * 
+   * @param directory
+   */
+  public TokenCache(Path directory)
+  {
+    if(directory == null) throw new IllegalArgumentException();
+    this.directory = directory;
+  }
+  
+  /**
+   * <p>Get the cache directory.
+   * 
+   * @return
+   */
+  public Path getDirectory()
+  {
+    return directory;
+  }
+  
+  /**
+   * <p>Get the number of files replayed from the cache.
+   * 
+   * @return
+   */
+  public long getHits()
+  {
+    return hits.sum();
+  }
+  
+  /**
+   * <p>Get the number of files that had to be lexed because the cache had no entry for them, or the entry was out of
+   * date.
+   * 
+   * @return
+   */
+  public long getMisses()
+  {
+    return misses.sum();
+  }
+  
+  /**
+   * <p>Get the path of the entry for the given file and grammar.  There may not be an entry there.
+   * 
+   * @param file
+   * @param grammar
+   * @return
+   */
+  public Path getEntry(Path file, GeneralParserGrammar<?> grammar)
+  {
+    return entry(key(file.toAbsolutePath().normalize(), grammar));
+  }
+  
+  /**
+   * <p>Open the given file for the given grammar.  The reader replays the file's entry if it is up to date, or lexes the
+   * file and records a new entry if not.  A file too big to cache is opened with a {@link MappedFileReader}.
+   * 
+   * @param file
+   * @param grammar
+   * @return
+   * @throws IOException
+   */
+  Reader open(Path file, GeneralParserGrammar<?> grammar) throws IOException
+  {
+    Path source = file.toAbsolutePath().normalize();
+    
+    //Take the modification time before the content, so a change made while reading makes the entry out of date.
+    long modified = Files.getLastModifiedTime(source).toMillis();
+    try(FileChannel channel = FileChannel.open(source, StandardOpenOption.READ))
+    {
+      long size = channel.size();
+      if(size > MAX_FILE_SIZE) return new MappedFileReader(file);
+      
+      //Build the header the entry must have.  The CRC of the content is only known once it has been read.
+      byte[] key = key(source, grammar);
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + key.length);
+      header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(size).putLong(modified).putInt(0);
+      header.putInt(0).putInt(0).putInt(0).putInt(key.length).put(key).flip();
+      
+      //Check everything but the content first.  The content is hashed as it is read, only if the rest matches.
+      Path entry = entry(key);
+      ByteBuffer records = replayable(entry, header);
+      CRC32C crc = (records != null) ? new CRC32C() : null;
+      byte[] content = new byte[(int) size];
+      int length = read(channel, content, crc);
+      if(records != null && length == content.length && (int) crc.getValue() == records.getInt(CRC_POSITION))
+      {
+        hits.increment();
+        return new TokenCacheReader(this, content, entry, header, records, records.getInt(COUNT_POSITION));
+      }
+      
+      //A file cut short while it was read is lexed as far as it goes.  Its modification time has changed, so the entry
+      //recorded for it will be out of date.
+      if(length < content.length) content = Arrays.copyOf(content, length);
+      misses.increment();
+      return new TokenCacheReader(this, content, entry, header, null, 0);
+    }
+  }
+  
+  /**
+   * <p>Read a file from the start, a block at a time.
+   * 
+   * @param channel
+   * @param content filled with the file's bytes.
+   * @param crc updated with each block read, or null.
+   * @return the number of bytes read, less than the length of the content if the file is shorter.
+   * @throws IOException
+   */
+  private static int read(FileChannel channel, byte[] content, CRC32C crc) throws IOException
+  {
+    int pos = 0;
+    while(pos < content.length)
+    {
+      int n = channel.read(ByteBuffer.wrap(content, pos, Math.min(READ_SIZE, content.length - pos)), pos);
+      if(n < 0) break;
+      if(crc != null) crc.update(content, pos, n);
+      pos += n;
+    }
+    return pos;
+  }
+  
+  /**
+   * <p>Map the given entry and check its header against the one given.  The CRC of the content and the count, length
+   * and CRC of the records are taken from the entry.  The records are checked against their CRC unless this entry file
+   * has been checked before.
+   * 
+   * @param entry
+   * @param header
+   * @return the entry positioned at the records, or null if there is no entry or it is out of date or damaged.
+   * @throws IOException
+   */
+  private ByteBuffer replayable(Path entry, ByteBuffer header) throws IOException
+  {
+    MappedByteBuffer map;
+    String identity;
+    try
+    {
+      //Identify the entry file before it is opened.  If it is replaced in between, the identity is of the old file and
+      //won't be seen again.
+      BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+      identity = attributes.fileKey() + " " + attributes.lastModifiedTime() + " " + attributes.size();
+      
+      try(FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ))
+      {
+        long size = channel.size();
+        if(size < header.remaining() || size > Integer.MAX_VALUE) return null;
+        
+        //The mapping stays valid after the channel is closed.
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+    }
+    catch(NoSuchFileException e)
+    {
+      return null;
+    }
+    
+    //Everything but the content and the records must match.
+    int contentCrc = map.getInt(CRC_POSITION);
+    int count = map.getInt(COUNT_POSITION);
+    int length = map.getInt(COUNT_POSITION + 4);
+    int recordsCrc = map.getInt(COUNT_POSITION + 8);
+    ByteBuffer expected = header.duplicate().putInt(CRC_POSITION, contentCrc).putInt(COUNT_POSITION, count).putInt(COUNT_POSITION + 4, length).putInt(COUNT_POSITION + 8, recordsCrc);
+    if(!map.slice(0, header.remaining()).equals(expected)) return null;
+    
+    //The records must all be there.
+    if(count < 0 || length != map.capacity() - header.remaining()) return null;
+    map.position(header.remaining());
+    if(identity.equals(verified.get(entry))) return map;
+    CRC32C crc = new CRC32C();
+    crc.update(map.duplicate());
+    if((int) crc.getValue() != recordsCrc) return null;
+    verified.put(entry, identity);
+    return map;
+  }
+  
+  /**
+   * <p>Write an entry, replacing any there is.  The header's content CRC, record count, length and CRC are filled in.
+   * An entry that can't be written is left out; the file will be lexed again next time.
+   * 
+   * @param entry
+   * @param header
+   * @param content the file's bytes.
+   * @param count
+   * @param records
+   * @param length
+   */
+  void write(Path entry, ByteBuffer header, byte[] content, int count, byte[] records, int length)
+  {
+    CRC32C contentCrc = new CRC32C();
+    contentCrc.update(content);
+    CRC32C crc = new CRC32C();
+    crc.update(records, 0, length);
+    ByteBuffer head = header.duplicate().putInt(CRC_POSITION, (int) contentCrc.getValue()).putInt(COUNT_POSITION, count).putInt(COUNT_POSITION + 4, length).putInt(COUNT_POSITION + 8, (int) crc.getValue());
+    
+    Path temp = null;
+    try
+    {
+      Files.createDirectories(directory);
+      temp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+      try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+      {
+        ByteBuffer body = ByteBuffer.wrap(records, 0, length);
+        while(head.hasRemaining()) channel.write(head);
+        while(body.hasRemaining()) channel.write(body);
+      }
+      
+      //Readers see the old entry or the new one, never part of one.
+      try
+      {
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch(AtomicMoveNotSupportedException e)
+      {
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+      temp = null;
+    }
+    catch(IOException e)
+    {
+      //Not cached.
+    }
+    finally
+    {
+      if(temp != null)
+      {
+        try
+        {
+          Files.deleteIfExists(temp);
+        }
+        catch(IOException e)
+        {
+          //Left for the directory's owner to clear.
+        }
+      }
+    }
+  }
+  
+  /**
+   * <p>Get the key of the entry for the given file and grammar: the file's absolute path and the grammar's signature.
+   * 
+   * @param source
+   * @param grammar
+   * @return the key as UTF-8.
+   */
+  private static byte[] key(Path source, GeneralParserGrammar<?> grammar)
+  {
+    return (source.toString() + '\n' + grammar.getSignature()).getBytes(StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * <p>Get the path of the entry with the given key.  The name is a hash of the key; the header has the key itself.
+   * 
+   * @param key
+   * @return
+   */
+  private Path entry(byte[] key)
+  {
+    CRC32C crc = new CRC32C();
+    crc.update(key);
+    return directory.resolve(String.format("%08x%08x.tokens", (int) crc.getValue(), Arrays.hashCode(key)));
+  }
+}
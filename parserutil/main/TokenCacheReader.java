@@ -0,0 +1,434 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * <p>Reader for a file opened through a {@link TokenCache}.  The file's bytes are read by a {@link Utf8BufferReader}, so
+ * the general parser lexes them in place.  If the cache had an up to date entry for the file, the parser replays the
+ * tokens from the entry's records instead of lexing; otherwise it records each token it reads, and the entry is written
+ * when the end of the file is reached.
+ * <p>Used anywhere else, this is an ordinary reader that decodes the file's bytes.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+final class TokenCacheReader extends Reader
+{
+  /**
+   * <p>Record flag: the token is ASCII on one line, straight after the previous token, and only its length follows.
+   */
+  private static final int SHORT = 1;
+  
+  /**
+   * <p>Record flag: the token is all ASCII.
+   */
+  private static final int ASCII = 2;
+  
+  /**
+   * <p>The cache the file was opened from.
+   */
+  private final TokenCache cache;
+  
+  /**
+   * <p>The file's bytes.
+   */
+  private final byte[] content;
+  
+  /**
+   * <p>Reads the file's bytes.
+   */
+  private final Utf8BufferReader source;
+  
+  /**
+   * <p>The path of the file's entry.
+   */
+  private final Path entry;
+  
+  /**
+   * <p>The header of the file's entry, without the CRC of the content and the record count, length and CRC.
+   */
+  private final ByteBuffer header;
+  
+  /**
+   * <p>The entry being replayed, positioned at the next record.  Null if the tokens are being lexed.
+   */
+  private final ByteBuffer replay;
+  
+  /**
+   * <p>Records to replay.
+   */
+  private int remaining;
+  
+  /**
+   * <p>The records of the tokens read so far, or null if they aren't being recorded.
+   */
+  private byte[] records;
+  
+  /**
+   * <p>The length of the records.
+   */
+  private int length;
+  
+  /**
+   * <p>The number of tokens recorded.
+   */
+  private int count;
+  
+  /**
+   * <p>The descriptor code of the current token, or -1 if it has no type.
+   */
+  private int code;
+  
+  /**
+   * <p>Set if the current token is all ASCII.
+   */
+  private boolean ascii;
+  
+  /**
+   * <p>The byte offset of the current token.
+   */
+  private int offset;
+  
+  /**
+   * <p>The byte length of the current token.
+   */
+  private int byteLength;
+  
+  /**
+   * <p>The start line of the current token.
+   */
+  private int lineStart;
+  
+  /**
+   * <p>The start column of the current token.
+   */
+  private int columnStart;
+  
+  /**
+   * <p>The end line of the current token.
+   */
+  private int lineEnd;
+  
+  /**
+   * <p>The end column of the current token.
+   */
+  private int columnEnd;
+  
+  /**
+   * <p>Create the reader.
+   * 
+   * @param cache
+   * @param content the file's bytes.
+   * @param entry the path of the file's entry.
+   * @param header the header the entry has.
+   * @param replay the entry positioned at its records, or null to record them.
+   * @param count the number of records to replay.
+   */
+  TokenCacheReader(TokenCache cache, byte[] content, Path entry, ByteBuffer header, ByteBuffer replay, int count)
+  {
+    this.cache = cache;
+    this.content = content;
+    source = new Utf8BufferReader(content);
+    this.entry = entry;
+    this.header = header;
+    this.replay = replay;
+    remaining = count;
+    if(replay == null) records = new byte[256];
+    
+    //Deltas start from before the first char.
+    columnEnd = -1;
+  }
+  
+  /**
+   * <p>Get the reader of the file's bytes.
+   * 
+   * @return
+   */
+  Utf8BufferReader getSource()
+  {
+    return source;
+  }
+  
+  /**
+   * <p>Are the tokens being replayed from the cache?
+   * 
+   * @return
+   */
+  boolean isReplaying()
+  {
+    return replay != null;
+  }
+  
+  /**
+   * <p>Stop recording the tokens read.  No entry will be written for this parse.
+   */
+  void abandon()
+  {
+    records = null;
+  }
+  
+  /**
+   * <p>Record a token that has been read.
+   * 
+   * @param code the descriptor code, or -1 if the token has no type.
+   * @param offset
+   * @param byteLength
+   * @param ascii
+   * @param lineStart
+   * @param columnStart
+   * @param lineEnd
+   * @param columnEnd
+   */
+  void record(int code, int offset, int byteLength, boolean ascii, int lineStart, int columnStart, int lineEnd, int columnEnd)
+  {
+    if(records == null) return;
+    
+    //Seven ints at most five bytes each.
+    if(records.length - length < 35) records = Arrays.copyOf(records, records.length << 1);
+    
+    //Most tokens are ASCII on one line, straight after the previous token, so only their code and length are needed.
+    int gap = offset - (this.offset + this.byteLength);
+    if(ascii && gap == 0 && lineStart == this.lineEnd && columnStart == this.columnEnd + 1 && lineEnd == lineStart && columnEnd == columnStart + byteLength - 1)
+    {
+      putVarint(((code + 1) << 2) | SHORT);
+      putVarint(byteLength);
+    }
+    else
+    {
+      putVarint(((code + 1) << 2) | (ascii ? ASCII : 0));
+      putVarint(gap);
+      putVarint(byteLength);
+      putVarint(zigzag(lineStart - this.lineEnd));
+      putVarint(zigzag(columnStart - this.columnEnd - 1));
+      putVarint(zigzag(lineEnd - lineStart));
+      putVarint(zigzag(columnEnd - columnStart));
+    }
+    count++;
+    
+    this.offset = offset;
+    this.byteLength = byteLength;
+    this.lineEnd = lineEnd;
+    this.columnEnd = columnEnd;
+  }
+  
+  /**
+   * <p>The end of the file has been reached.  Write the entry if the tokens were recorded.
+   */
+  void finish()
+  {
+    if(records == null) return;
+    cache.write(entry, header, content, count, records, length);
+    records = null;
+  }
+  
+  /**
+   * <p>Move to the next token to replay.
+   * 
+   * @return false if there are no more.
+   */
+  boolean next()
+  {
+    if(remaining == 0) return false;
+    remaining--;
+    
+    int flags = getVarint();
+    code = (flags >>> 2) - 1;
+    if((flags & SHORT) != 0)
+    {
+      ascii = true;
+      offset += byteLength;
+      byteLength = getVarint();
+      lineStart = lineEnd;
+      columnStart = columnEnd + 1;
+      columnEnd = columnStart + byteLength - 1;
+      return true;
+    }
+    
+    ascii = (flags & ASCII) != 0;
+    offset += byteLength + getVarint();
+    byteLength = getVarint();
+    lineStart = lineEnd + unzigzag(getVarint());
+    columnStart = columnEnd + 1 + unzigzag(getVarint());
+    lineEnd = lineStart + unzigzag(getVarint());
+    columnEnd = columnStart + unzigzag(getVarint());
+    return true;
+  }
+  
+  /**
+   * <p>Get the descriptor code of the token replayed.
+   * 
+   * @return the code, or -1 if the token has no type.
+   */
+  int getCode()
+  {
+    return code;
+  }
+  
+  /**
+   * <p>Is the token replayed all ASCII?
+   * 
+   * @return
+   */
+  boolean isAscii()
+  {
+    return ascii;
+  }
+  
+  /**
+   * <p>Get the byte offset of the token replayed.
+   * 
+   * @return
+   */
+  int getOffset()
+  {
+    return offset;
+  }
+  
+  /**
+   * <p>Get the byte length of the token replayed.
+   * 
+   * @return
+   */
+  int getByteLength()
+  {
+    return byteLength;
+  }
+  
+  /**
+   * <p>Get the start line of the token replayed.
+   * 
+   * @return
+   */
+  int getLineStart()
+  {
+    return lineStart;
+  }
+  
+  /**
+   * <p>Get the start column of the token replayed.
+   * 
+   * @return
+   */
+  int getColumnStart()
+  {
+    return columnStart;
+  }
+  
+  /**
+   * <p>Get the end line of the token replayed.
+   * 
+   * @return
+   */
+  int getLineEnd()
+  {
+    return lineEnd;
+  }
+  
+  /**
+   * <p>Get the end column of the token replayed.
+   * 
+   * @return
+   */
+  int getColumnEnd()
+  {
+    return columnEnd;
+  }
+  
+  /**
+   * <p>Append an int to the records as an unsigned variable length integer, seven bits a byte, low bits first.
+   * 
+   * @param v
+   */
+  private void putVarint(int v)
+  {
+    while((v & ~0x7f) != 0)
+    {
+      records[length++] = (byte) ((v & 0x7f) | 0x80);
+      v >>>= 7;
+    }
+    records[length++] = (byte) v;
+  }
+  
+  /**
+   * <p>Get the next variable length integer from the replayed records.
+   * 
+   * @return
+   */
+  private int getVarint()
+  {
+    int v = 0;
+    for(int shift = 0; ; shift += 7)
+    {
+      byte b = replay.get();
+      v |= (b & 0x7f) << shift;
+      if(b >= 0) return v;
+    }
+  }
+  
+  /**
+   * <p>Map a signed int to an unsigned one with small magnitudes staying small.
+   * 
+   * @param v
+   * @return
+   */
+  private static int zigzag(int v)
+  {
+    return (v << 1) ^ (v >> 31);
+  }
+  
+  /**
+   * <p>Reverse {@link #zigzag(int)}.
+   * 
+   * @param v
+   * @return
+   */
+  private static int unzigzag(int v)
+  {
+    return (v >>> 1) ^ -(v & 1);
+  }
+  
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException
+  {
+    return source.read(cbuf, off, len);
+  }
+  
+  @Override
+  public void close() throws IOException
+  {
+    source.close();
+  }
+}
@@ -29,6 +29,8 @@
  */
 package parserutil.main;
 
+import parserutil.main.lexer.TokenPattern;
+
 /**
  * <p>Users of this library will implement token descriptors which will be used
  * to match the character input to token types. 
@@ -43,4 +45,43 @@ public interface TokenDescriptor
   public boolean isTokenContentChar(char ch);
 
   public void init();
+  
+  /**
+   * <p>Optionally declare the characters that can start this token.  The general parser uses the declaration to build its
+   * start character dispatch table once per configuration, rather than offering every start character to every descriptor.
+   * <p>Return null (the default) if the start characters can't be listed.  The dispatch table will then ask
+   * {@link #isTokenStartChar(char)} about each character when it is first needed, so the answer must depend only on the
+   * character given.
+   * 
+   * @return the characters that can start this token, or null if they are not declared.
+   */
+  public default char[] getTokenStartChars()
+  {
+    return null;
+  }
+  
+  /**
+   * <p>Optionally declare the token as a {@link TokenPattern}.  The general parser needs a pattern from every descriptor
+   * to run the compiled lexer engine; the interpreted engine doesn't use it.
+   * <p>Return null (the default) if the token has no pattern.
+   * 
+   * @return the pattern, or null if there is none.
+   */
+  public default TokenPattern getTokenPattern()
+  {
+    return null;
+  }
+  
+  /**
+   * <p>Is the token read so far complete?  The interpreted engine asks the descriptor of each token once the token has
+   * ended, and rejects a token that stops part way through, as the compiled engine rejects a token that ends outside an
+   * accepting state of its pattern.
+   * <p>Return true (the default) if every token the descriptor accepts char by char is complete.
+   * 
+   * @return
+   */
+  public default boolean isTokenComplete()
+  {
+    return true;
+  }
 }
@@ -30,7 +30,8 @@
 package parserutil.main;
 
 /**
- * <p>The location in the input of a token. 
+ * <p>The location in the input of a token.  Byte offsets are only known for input read from a
+ * {@link MappedFileReader}; otherwise they are -1.
  * 
  * @author James David Foster jdfoster73@gmail.com
  *
@@ -41,13 +42,32 @@ public class TokenLocation
   private final int sourceStartPos;
   private final int sourceEndLine;
   private final int sourceEndPos;
+  private final long sourceStartByte;
+  private final long sourceEndByte;
   
   public TokenLocation(int sourceStartLine, int sourceStartPos, int sourceEndLine, int sourceEndPos)
+  {
+    this(sourceStartLine, sourceStartPos, sourceEndLine, sourceEndPos, -1, -1);
+  }
+  
+  /**
+   * <p>Create a location with the absolute byte offsets of the token in the input.
+   * 
+   * @param sourceStartLine
+   * @param sourceStartPos
+   * @param sourceEndLine
+   * @param sourceEndPos
+   * @param sourceStartByte the offset of the first byte of the token, or -1 if not known.
+   * @param sourceEndByte the offset just past the last byte of the token, or -1 if not known.
+   */
+  public TokenLocation(int sourceStartLine, int sourceStartPos, int sourceEndLine, int sourceEndPos, long sourceStartByte, long sourceEndByte)
   {
     this.sourceStartLine = sourceStartLine;
     this.sourceStartPos = sourceStartPos;
     this.sourceEndLine = sourceEndLine;
     this.sourceEndPos = sourceEndPos;
+    this.sourceStartByte = sourceStartByte;
+    this.sourceEndByte = sourceEndByte;
   }
 
   public int getSourceStartLine()
@@ -70,6 +90,26 @@ public class TokenLocation
     return sourceEndPos;
   }
   
+  /**
+   * <p>Get the offset in the input of the first byte of the token.
+   * 
+   * @return the offset, or -1 if not known.
+   */
+  public long getSourceStartByte()
+  {
+    return sourceStartByte;
+  }
+  
+  /**
+   * <p>Get the offset in the input just past the last byte of the token.
+   * 
+   * @return the offset, or -1 if not known.
+   */
+  public long getSourceEndByte()
+  {
+    return sourceEndByte;
+  }
+  
   public String toString()
   {
     return sourceStartLine + " : " + sourceStartPos + " >> " + sourceEndLine + " : " + sourceEndPos;
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <p>Spliterator over the tokens a general parser reads from a reader.  A reader can only be read in order, so this
+ * never splits.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ * @param <T>
+ */
+final class TokenSpliterator<T extends TokenDescriptor> implements Spliterator<GeneralParserToken<T>>
+{
+  /**
+   * <p>The parser reading the tokens.
+   */
+  private final GeneralParser<T> parser;
+  
+  /**
+   * <p>The content being parsed.
+   */
+  private final Reader content;
+  
+  /**
+   * <p>Set once the end of the content has been reached.
+   */
+  private boolean ended;
+  
+  /**
+   * <p>Create the spliterator.  The parser must have been initialised.
+   * 
+   * @param parser
+   * @param content
+   */
+  TokenSpliterator(GeneralParser<T> parser, Reader content)
+  {
+    this.parser = parser;
+    this.content = content;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean tryAdvance(Consumer<? super GeneralParserToken<T>> action)
+  {
+    if(ended) return false;
+    try
+    {
+      GeneralParserToken<T> token = parser.getNextToken(content);
+      if(token == null)
+      {
+        ended = true;
+        return false;
+      }
+      action.accept(token);
+      return true;
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    catch(GeneralParserException e)
+    {
+      throw new UncheckedGeneralParserException(e);
+    }
+  }
+
+  /**
+   * <p>Readers can't be split.
+   */
+  @Override
+  public Spliterator<GeneralParserToken<T>> trySplit()
+  {
+    return null;
+  }
+
+  /**
+   * <p>The number of tokens isn't known.
+   */
+  @Override
+  public long estimateSize()
+  {
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int characteristics()
+  {
+    return ORDERED | NONNULL;
+  }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>Start character dispatch table.  Maps each start character to a bitmask of the token descriptors that can start
+ * a token with it, so finding the candidates for a new token is an array lookup rather than a call to every configured
+ * descriptor.
+ * <p>Bit n of a mask is the nth configured descriptor.  The first 64 descriptors are held in a single long; any beyond
+ * that spill into further words, which are only present for grammars that need them.
+ * <p>ASCII characters are resolved when the table is built.  The rest of the BMP is resolved a page at a time the first
+ * time a character from the page is seen.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+final class TokenStartTable
+{
+  /**
+   * <p>Number of characters in the ASCII fast path.
+   */
+  private static final int ASCII_SIZE = 128;
+  
+  /**
+   * <p>Number of bits of a character used to index within a page.
+   */
+  private static final int PAGE_BITS = 8;
+  
+  /**
+   * <p>Mask for the index within a page.
+   */
+  private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+  
+  /**
+   * <p>The configured descriptors, in configuration order.
+   */
+  private final TokenDescriptor[] descriptors;
+  
+  /**
+   * <p>The declared start characters of each descriptor, sorted; null if the descriptor doesn't declare them.
+   */
+  private final char[][] declared;
+  
+  /**
+   * <p>Number of spill words per mask; zero if all descriptors fit in the first word.
+   */
+  private final int spillWords;
+  
+  /**
+   * <p>Candidates for each ASCII character; descriptors 0 to 63.
+   */
+  private final long[] ascii = new long[ASCII_SIZE];
+  
+  /**
+   * <p>Spill candidates for each ASCII character; descriptors 64 onwards.  Null if there are no spill words.
+   */
+  private final long[][] asciiSpill;
+  
+  /**
+   * <p>Candidate pages for the rest of the BMP, filled on demand.
+   */
+  private final Page[] pages = new Page[1 << (16 - PAGE_BITS)];
+  
+  /**
+   * <p>Build the dispatch table for the given descriptors.
+   * 
+   * @param tokenTypes
+   */
+  TokenStartTable(List<? extends TokenDescriptor> tokenTypes)
+  {
+    //Store the descriptors and their declared start characters.
+    descriptors = tokenTypes.toArray(new TokenDescriptor[0]);
+    declared = new char[descriptors.length][];
+    for(int i = 0; i < descriptors.length; i++)
+    {
+      char[] startChars = descriptors[i].getTokenStartChars();
+      if(startChars != null)
+      {
+        declared[i] = startChars.clone();
+        Arrays.sort(declared[i]);
+      }
+    }
+    
+    //Spill words are only needed beyond 64 descriptors.
+    spillWords = (descriptors.length > 64) ? ((descriptors.length - 1) >>> 6) : 0;
+    asciiSpill = (spillWords > 0) ? new long[ASCII_SIZE][] : null;
+    
+    //Resolve the ASCII fast path.
+    for(char ch = 0; ch < ASCII_SIZE; ch++)
+    {
+      long[] mask = resolve(ch);
+      ascii[ch] = mask[0];
+      if(asciiSpill != null) asciiSpill[ch] = Arrays.copyOfRange(mask, 1, mask.length);
+    }
+  }
+  
+  /**
+   * <p>Get the number of spill words in each mask.  Zero if there are 64 or fewer descriptors.
+   * 
+   * @return
+   */
+  int getSpillWords()
+  {
+    return spillWords;
+  }
+  
+  /**
+   * <p>Get the mask of descriptors 0 to 63 that can start a token with the given character.
+   * 
+   * @param ch
+   * @return
+   */
+  long candidates(char ch)
+  {
+    //ASCII fast path.
+    if(ch < ASCII_SIZE) return ascii[ch];
+    
+    //Rest of the BMP.
+    return page(ch).candidates[ch & PAGE_MASK];
+  }
+  
+  /**
+   * <p>Get the spill mask of descriptors 64 onwards that can start a token with the given character.  Only valid if
+   * there are spill words.
+   * 
+   * @param ch
+   * @return
+   */
+  long[] spillCandidates(char ch)
+  {
+    //ASCII fast path.
+    if(ch < ASCII_SIZE) return asciiSpill[ch];
+    
+    //Rest of the BMP.
+    return page(ch).spill[ch & PAGE_MASK];
+  }
+  
+  /**
+   * <p>Find the page for the given character, filling it if this is the first character seen from it.
+   * 
+   * @param ch
+   * @return
+   */
+  private Page page(char ch)
+  {
+    Page page = pages[ch >>> PAGE_BITS];
+    if(page == null)
+    {
+      page = new Page((char) (ch & ~PAGE_MASK));
+      pages[ch >>> PAGE_BITS] = page;
+    }
+    return page;
+  }
+  
+  /**
+   * <p>Work out the full candidate mask for a single character, first word and spill words together.
+   * 
+   * @param ch
+   * @return
+   */
+  private long[] resolve(char ch)
+  {
+    long[] mask = new long[1 + spillWords];
+    for(int i = 0; i < descriptors.length; i++)
+    {
+      //Use the declaration if there is one, otherwise ask the descriptor.
+      boolean starts = (declared[i] != null) ? (Arrays.binarySearch(declared[i], ch) >= 0) : descriptors[i].isTokenStartChar(ch);
+      if(starts) mask[i >>> 6] |= 1L << i;
+    }
+    return mask;
+  }
+  
+  /**
+   * <p>A page of candidates.  Candidates are held in final fields so a page is safely visible to any thread that sees it.
+   */
+  private final class Page
+  {
+    /**
+     * <p>Candidates for each character in the page; descriptors 0 to 63.
+     */
+    private final long[] candidates = new long[PAGE_MASK + 1];
+    
+    /**
+     * <p>Spill candidates for each character in the page; null if there are no spill words.
+     */
+    private final long[][] spill = (spillWords > 0) ? new long[PAGE_MASK + 1][] : null;
+    
+    /**
+     * <p>Resolve the candidates for every character in the page.
+     * 
+     * @param first the first character in the page.
+     */
+    private Page(char first)
+    {
+      for(int i = 0; i <= PAGE_MASK; i++)
+      {
+        long[] mask = resolve((char) (first + i));
+        candidates[i] = mask[0];
+        if(spill != null) spill[i] = Arrays.copyOfRange(mask, 1, mask.length);
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+/**
+ * <p>Token text as a view into the general parser's read buffer.  No characters are copied when the view is created;
+ * the view is only valid until the parser reads its next token, after which the buffer may be overwritten.  Call
+ * {@link #toString()} to keep the text beyond that.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class TokenText implements CharSequence
+{
+  /**
+   * <p>The buffer holding the text.
+   */
+  private final char[] buffer;
+  
+  /**
+   * <p>The offset of the text in the buffer.
+   */
+  private final int offset;
+  
+  /**
+   * <p>The length of the text.
+   */
+  private final int length;
+  
+  /**
+   * <p>Create a view of the given buffer region.
+   * 
+   * @param buffer
+   * @param offset
+   * @param length
+   */
+  public TokenText(char[] buffer, int offset, int length)
+  {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int length()
+  {
+    return length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public char charAt(int index)
+  {
+    if( (index < 0) || (index >= length) ) throw new IndexOutOfBoundsException(index);
+    return buffer[offset + index];
+  }
+
+  /**
+   * <p>Get a view of part of this text.  The view shares the buffer and has the same validity as this one.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end)
+  {
+    if( (start < 0) || (end > length) || (start > end) ) throw new IndexOutOfBoundsException();
+    return new TokenText(buffer, offset + start, end - start);
+  }
+  
+  /**
+   * <p>Compare the text with the given characters without copying it.
+   * 
+   * @param cs
+   * @return true if the text and the given characters are the same.
+   */
+  public boolean contentEquals(CharSequence cs)
+  {
+    //Lengths must match.
+    if(cs.length() != length) return false;
+    
+    //Compare in place.
+    for(int i = 0; i < length; i++)
+    {
+      if(buffer[offset + i] != cs.charAt(i)) return false;
+    }
+    return true;
+  }
+  
+  /**
+   * <p>Test whether the text starts with the given character.
+   * 
+   * @param ch
+   * @return
+   */
+  public boolean startsWith(char ch)
+  {
+    return (length > 0) && (buffer[offset] == ch);
+  }
+
+  /**
+   * <p>Copy the text into a new string.  This is the way to keep the text once the parser has moved on.
+   */
+  @Override
+  public String toString()
+  {
+    return new String(buffer, offset, length);
+  }
+}
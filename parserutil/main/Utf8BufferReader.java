@@ -0,0 +1,350 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * <p>Reader for UTF-8 input that is already in memory.  The general parser recognises this reader and lexes its bytes
+ * directly: ASCII bytes go straight to the lexer and only multibyte sequences are decoded, one char at a time, to be
+ * classified.  Nothing is copied into a char buffer, and token text stays as a {@link Utf8Text} view of the input
+ * bytes which is decoded only when a value is asked for.  The input must not be changed while it is being parsed or
+ * while any value taken from it is in use.
+ * <p>Used anywhere else, this is an ordinary reader that decodes its bytes.  Decoding is strict: malformed UTF-8 is
+ * reported with a {@link MalformedInputException}.  A leading byte order mark is skipped.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class Utf8BufferReader extends Reader
+{
+  /**
+   * <p>The input bytes.  A duplicate of the buffer given, so the caller's position and limit are left alone.
+   */
+  private final ByteBuffer buffer;
+  
+  /**
+   * <p>The index in the buffer of the start of the input.  Byte offsets are counted from here.
+   */
+  private final int origin;
+  
+  /**
+   * <p>The index in the buffer of the first char, past any byte order mark.
+   */
+  private final int start;
+  
+  /**
+   * <p>The index in the buffer just past the end of the input.
+   */
+  private final int limit;
+  
+  /**
+   * <p>The index in the buffer of the next byte to read.
+   */
+  private int pos;
+  
+  /**
+   * <p>The index in the buffer where the last char delivered starts.  At the end of input this is the limit.
+   */
+  private int charStart;
+  
+  /**
+   * <p>The index in the buffer of the first byte of the marked token, or -1.
+   */
+  private int mark = -1;
+  
+  /**
+   * <p>Set if the marked token may have non-ASCII chars in it.
+   */
+  private boolean nonAscii;
+  
+  /**
+   * <p>The low surrogate of a supplementary char whose high surrogate was the last char delivered, or 0.
+   */
+  private char pendingLow;
+  
+  /**
+   * <p>Closed flag.
+   */
+  private boolean closed;
+  
+  /**
+   * <p>Create a reader for the given UTF-8 bytes.
+   * 
+   * @param bytes
+   */
+  public Utf8BufferReader(byte[] bytes)
+  {
+    this(ByteBuffer.wrap(bytes));
+  }
+  
+  /**
+   * <p>Create a reader for the UTF-8 bytes between the position and limit of the given buffer.
+   * 
+   * @param bytes
+   */
+  public Utf8BufferReader(ByteBuffer bytes)
+  {
+    this(bytes, bytes.position());
+  }
+  
+  /**
+   * <p>Create a reader for the UTF-8 bytes between the position and limit of the given buffer, which are part of a
+   * larger input starting at the given index.  Offsets are from the start of the larger input.
+   * 
+   * @param bytes
+   * @param origin the index in the buffer of the start of the input.
+   */
+  Utf8BufferReader(ByteBuffer bytes, int origin)
+  {
+    buffer = bytes.duplicate();
+    this.origin = origin;
+    limit = buffer.limit();
+    pos = buffer.position();
+    
+    //Skip the byte order mark at the start of the input.
+    if(pos == origin && limit - pos >= 3 && (buffer.get(pos) & 0xff) == 0xef && (buffer.get(pos + 1) & 0xff) == 0xbb && (buffer.get(pos + 2) & 0xff) == 0xbf)
+    {
+      pos += 3;
+    }
+    start = charStart = pos;
+  }
+  
+  /**
+   * <p>Get the next char, or {@link CharSource#END} at the end of input.
+   * 
+   * @return
+   * @throws IOException
+   */
+  char next() throws IOException
+  {
+    //Second half of a supplementary char.
+    if(pendingLow != 0)
+    {
+      char ret = pendingLow;
+      pendingLow = 0;
+      charStart = pos;
+      return ret;
+    }
+    
+    charStart = pos;
+    if(pos >= limit) return CharSource.END;
+    
+    //ASCII.
+    byte b = buffer.get(pos);
+    if(b >= 0)
+    {
+      pos++;
+      return (char) b;
+    }
+    return nextMultibyte(b & 0xff);
+  }
+  
+  /**
+   * <p>Decode the multibyte sequence at the read position.  Reject anything that doesn't decode to a char of the same
+   * encoded length.
+   * 
+   * @param b0 the lead byte.
+   * @return
+   * @throws MalformedInputException
+   */
+  private char nextMultibyte(int b0) throws MalformedInputException
+  {
+    nonAscii = true;
+    
+    int cp;
+    if(b0 >= 0xc2 && b0 < 0xe0)
+    {
+      cp = ((b0 & 0x1f) << 6) | continuation(1);
+      pos += 2;
+    }
+    else if(b0 >= 0xe0 && b0 < 0xf0)
+    {
+      cp = ((b0 & 0x0f) << 12) | (continuation(1) << 6) | continuation(2);
+      if(cp < 0x800 || Character.isSurrogate((char) cp)) throw new MalformedInputException(3);
+      pos += 3;
+    }
+    else if(b0 >= 0xf0 && b0 < 0xf5)
+    {
+      cp = ((b0 & 0x07) << 18) | (continuation(1) << 12) | (continuation(2) << 6) | continuation(3);
+      if(cp < 0x10000 || cp > Character.MAX_CODE_POINT) throw new MalformedInputException(4);
+      pos += 4;
+      
+      //Deliver the high surrogate now and the low one next time.
+      pendingLow = Character.lowSurrogate(cp);
+      return Character.highSurrogate(cp);
+    }
+    else
+    {
+      throw new MalformedInputException(1);
+    }
+    return (char) cp;
+  }
+  
+  /**
+   * <p>Get the payload of the continuation byte at the given distance from the read position.
+   * 
+   * @param i
+   * @return
+   * @throws MalformedInputException if the byte is missing or isn't a continuation byte.
+   */
+  private int continuation(int i) throws MalformedInputException
+  {
+    if(pos + i >= limit) throw new MalformedInputException(limit - pos);
+    int b = buffer.get(pos + i);
+    if((b & 0xc0) != 0x80) throw new MalformedInputException(i);
+    return b & 0x3f;
+  }
+  
+  /**
+   * <p>Mark the last char delivered as the first char of a token.
+   */
+  void markTokenStart()
+  {
+    mark = charStart;
+    nonAscii = (charStart < limit) && (buffer.get(charStart) < 0);
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the first byte of the marked token.
+   * 
+   * @return
+   */
+  int getTokenStart()
+  {
+    return mark;
+  }
+  
+  /**
+   * <p>Get the index in the buffer just past the last byte of the marked token.  The token ends where the last char
+   * delivered, the first char after the token, starts.
+   * 
+   * @return
+   */
+  int getTokenEnd()
+  {
+    return charStart;
+  }
+  
+  /**
+   * <p>Is the marked token all ASCII?  This can be false for an ASCII token followed by a non-ASCII char.
+   * 
+   * @return
+   */
+  boolean isTokenAscii()
+  {
+    return !nonAscii;
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the start of the input.
+   * 
+   * @return
+   */
+  int getOrigin()
+  {
+    return origin;
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the first char, past any byte order mark.
+   * 
+   * @return
+   */
+  int getStart()
+  {
+    return start;
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the end of the input.
+   * 
+   * @return
+   */
+  int getLimit()
+  {
+    return limit;
+  }
+  
+  /**
+   * <p>Get the index in the buffer of the char before the one at the given index, by stepping back over continuation
+   * bytes.
+   * 
+   * @param index
+   * @return
+   */
+  int getCharBefore(int index)
+  {
+    int i = index - 1;
+    while(i > start && (buffer.get(i) & 0xc0) == 0x80) i--;
+    return i;
+  }
+  
+  /**
+   * <p>Get the input buffer.
+   * 
+   * @return
+   */
+  ByteBuffer getBuffer()
+  {
+    return buffer;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException
+  {
+    if(closed) throw new IOException("Stream closed");
+    if(len == 0) return 0;
+    
+    int n = 0;
+    while(n < len)
+    {
+      char ch = next();
+      if(ch == CharSource.END && charStart >= limit) break;
+      cbuf[off + n++] = ch;
+    }
+    return (n == 0) ? -1 : n;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close()
+  {
+    closed = true;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Token text as a view of UTF-8 input bytes, for input read through a {@link Utf8BufferReader}.  The bytes are
+ * decoded the first time the text is needed as chars, and the decoded string is kept.  All-ASCII text is never decoded
+ * for {@link #length()} and {@link #charAt(int)}.
+ * <p>Unlike a {@link TokenText} the view doesn't depend on the parser's read buffer, so it stays valid after the parser
+ * moves on for as long as the input bytes are left unchanged.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class Utf8Text implements CharSequence
+{
+  /**
+   * <p>The input bytes.
+   */
+  private final ByteBuffer bytes;
+  
+  /**
+   * <p>The index of the text in the input bytes.
+   */
+  private final int offset;
+  
+  /**
+   * <p>The length of the text in bytes.
+   */
+  private final int byteLength;
+  
+  /**
+   * <p>Set if the text is known to be all ASCII, so each byte is a char.
+   */
+  private final boolean ascii;
+  
+  /**
+   * <p>The decoded text.  Null until first needed.
+   */
+  private String decoded;
+  
+  /**
+   * <p>Create a view of the given byte region.
+   * 
+   * @param bytes
+   * @param offset
+   * @param byteLength
+   * @param ascii set if the region is known to be all ASCII.
+   */
+  Utf8Text(ByteBuffer bytes, int offset, int byteLength, boolean ascii)
+  {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.byteLength = byteLength;
+    this.ascii = ascii;
+  }
+  
+  /**
+   * <p>Get text that can be kept after the parser has moved on.  A {@link Utf8Text} is kept as it is, the cursor's text
+   * for byte input becomes a {@link Utf8Text}, and anything else is copied into a string.
+   * 
+   * @param text
+   * @return
+   */
+  public static CharSequence keep(CharSequence text)
+  {
+    if(text instanceof Utf8Text) return text;
+    if(text instanceof GeneralParserCursor) return ((GeneralParserCursor<?>) text).keepText();
+    return text.toString();
+  }
+  
+  /**
+   * <p>Decode the given UTF-8 byte region.
+   * 
+   * @param bytes
+   * @param offset
+   * @param length
+   * @return
+   */
+  static String decode(ByteBuffer bytes, int offset, int length)
+  {
+    if(bytes.hasArray()) return new String(bytes.array(), bytes.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+    
+    //Not on the heap - copy the region out.
+    byte[] copy = new byte[length];
+    bytes.get(offset, copy);
+    return new String(copy, StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * <p>Get the length of the text in bytes.
+   * 
+   * @return
+   */
+  public int getByteLength()
+  {
+    return byteLength;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int length()
+  {
+    return ascii ? byteLength : toString().length();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public char charAt(int index)
+  {
+    if(!ascii) return toString().charAt(index);
+    if( (index < 0) || (index >= byteLength) ) throw new IndexOutOfBoundsException(index);
+    return (char) bytes.get(offset + index);
+  }
+
+  /**
+   * <p>Get part of this text.  All-ASCII text gives a view of the same bytes.
+   */
+  @Override
+  public CharSequence subSequence(int start, int end)
+  {
+    if(!ascii) return toString().subSequence(start, end);
+    if( (start < 0) || (end > byteLength) || (start > end) ) throw new IndexOutOfBoundsException();
+    return new Utf8Text(bytes, offset + start, end - start, true);
+  }
+
+  /**
+   * <p>Decode the text.  The string is kept, so this only decodes once.
+   */
+  @Override
+  public String toString()
+  {
+    String ret = decoded;
+    if(ret == null)
+    {
+      ret = decode(bytes, offset, byteLength);
+      decoded = ret;
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,390 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * <p>Immutable set of characters used by {@link TokenPattern}s.  The set is held as sorted, non-overlapping, inclusive
+ * ranges.  Character 0xFFFF is the general parser's end of stream marker and is never a member.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class CharClass
+{
+  /**
+   * <p>The highest character that can be a member.
+   */
+  private static final char MAX = 0xFFFE;
+  
+  /**
+   * <p>The empty class.
+   */
+  private static final CharClass NONE = new CharClass(new char[0]);
+  
+  /**
+   * <p>The class of every character.
+   */
+  private static final CharClass ANY = new CharClass(new char[] {0, MAX});
+  
+  /**
+   * <p>Range bounds.  Each pair of entries is the inclusive low and high character of a range.  Ranges are sorted, don't
+   * overlap and don't touch.
+   */
+  final char[] ranges;
+  
+  /**
+   * <p>Create a class from normalised ranges.
+   * 
+   * @param ranges
+   */
+  private CharClass(char[] ranges)
+  {
+    this.ranges = ranges;
+  }
+  
+  /**
+   * <p>Get the empty class.
+   * 
+   * @return
+   */
+  public static CharClass none()
+  {
+    return NONE;
+  }
+  
+  /**
+   * <p>Get the class of every character.
+   * 
+   * @return
+   */
+  public static CharClass any()
+  {
+    return ANY;
+  }
+  
+  /**
+   * <p>Create a class of the given characters.
+   * 
+   * @param chars
+   * @return
+   */
+  public static CharClass of(char... chars)
+  {
+    char[] r = new char[chars.length * 2];
+    for(int i = 0; i < chars.length; i++)
+    {
+      r[2 * i] = chars[i];
+      r[2 * i + 1] = chars[i];
+    }
+    return normalise(r);
+  }
+  
+  /**
+   * <p>Create a class of the characters from low to high inclusive.
+   * 
+   * @param low
+   * @param high
+   * @return
+   */
+  public static CharClass range(char low, char high)
+  {
+    if(low > high) throw new IllegalArgumentException();
+    return normalise(new char[] {low, high});
+  }
+  
+  /**
+   * <p>Create a class of the characters that pass the given test, for example {@code Character::isWhitespace}.  Every
+   * character is tested, so classes made this way should be built once and kept.
+   * 
+   * @param test
+   * @return
+   */
+  public static CharClass matching(IntPredicate test)
+  {
+    char[] r = new char[16];
+    int n = 0;
+    int low = -1;
+    for(int ch = 0; ch <= MAX + 1; ch++)
+    {
+      boolean in = (ch <= MAX) && test.test(ch);
+      if(in && (low < 0))
+      {
+        low = ch;
+      }
+      else if(!in && (low >= 0))
+      {
+        if(n == r.length) r = Arrays.copyOf(r, n * 2);
+        r[n++] = (char) low;
+        r[n++] = (char) (ch - 1);
+        low = -1;
+      }
+    }
+    return new CharClass(Arrays.copyOf(r, n));
+  }
+  
+  /**
+   * <p>Get the characters in this class or the other.
+   * 
+   * @param other
+   * @return
+   */
+  public CharClass union(CharClass other)
+  {
+    char[] r = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+    System.arraycopy(other.ranges, 0, r, ranges.length, other.ranges.length);
+    return normalise(r);
+  }
+  
+  /**
+   * <p>Get the characters not in this class.
+   * 
+   * @return
+   */
+  public CharClass complement()
+  {
+    char[] r = new char[ranges.length + 2];
+    int n = 0;
+    int next = 0;
+    for(int i = 0; i < ranges.length; i += 2)
+    {
+      if(ranges[i] > next)
+      {
+        r[n++] = (char) next;
+        r[n++] = (char) (ranges[i] - 1);
+      }
+      next = ranges[i + 1] + 1;
+    }
+    if(next <= MAX)
+    {
+      r[n++] = (char) next;
+      r[n++] = MAX;
+    }
+    return new CharClass(Arrays.copyOf(r, n));
+  }
+  
+  /**
+   * <p>Get the characters in this class but not the other.
+   * 
+   * @param other
+   * @return
+   */
+  public CharClass minus(CharClass other)
+  {
+    return intersect(other.complement());
+  }
+  
+  /**
+   * <p>Get the characters in both this class and the other.
+   * 
+   * @param other
+   * @return
+   */
+  public CharClass intersect(CharClass other)
+  {
+    char[] r = new char[ranges.length + other.ranges.length];
+    int n = 0;
+    int i = 0;
+    int j = 0;
+    while( (i < ranges.length) && (j < other.ranges.length) )
+    {
+      char low = (char) Math.max(ranges[i], other.ranges[j]);
+      char high = (char) Math.min(ranges[i + 1], other.ranges[j + 1]);
+      if(low <= high)
+      {
+        r[n++] = low;
+        r[n++] = high;
+      }
+      
+      //Move past whichever range ends first.
+      if(ranges[i + 1] < other.ranges[j + 1]) i += 2;
+      else j += 2;
+    }
+    return new CharClass(Arrays.copyOf(r, n));
+  }
+  
+  /**
+   * <p>Test whether the character is in this class.
+   * 
+   * @param ch
+   * @return
+   */
+  public boolean contains(char ch)
+  {
+    //Find the last range starting at or before the char.
+    int lo = 0;
+    int hi = (ranges.length >> 1) - 1;
+    while(lo <= hi)
+    {
+      int mid = (lo + hi) >>> 1;
+      if(ranges[2 * mid] <= ch)
+      {
+        if(ch <= ranges[2 * mid + 1]) return true;
+        lo = mid + 1;
+      }
+      else
+      {
+        hi = mid - 1;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * <p>Is the class empty?
+   * 
+   * @return
+   */
+  public boolean isEmpty()
+  {
+    return ranges.length == 0;
+  }
+  
+  /**
+   * <p>Get the number of characters in the class.
+   * 
+   * @return
+   */
+  public int size()
+  {
+    int size = 0;
+    for(int i = 0; i < ranges.length; i += 2) size += ranges[i + 1] - ranges[i] + 1;
+    return size;
+  }
+  
+  /**
+   * <p>Get the characters in the class, in order.
+   * 
+   * @return
+   */
+  public char[] toArray()
+  {
+    char[] ret = new char[size()];
+    int n = 0;
+    for(int i = 0; i < ranges.length; i += 2)
+    {
+      for(int ch = ranges[i]; ch <= ranges[i + 1]; ch++) ret[n++] = (char) ch;
+    }
+    return ret;
+  }
+
+  /**
+   * <p>Classes are equal if they hold the same characters.
+   */
+  @Override
+  public boolean equals(Object obj)
+  {
+    return (obj instanceof CharClass) && Arrays.equals(ranges, ((CharClass) obj).ranges);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(ranges);
+  }
+
+  /**
+   * <p>Stringify as a list of ranges.
+   */
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; i < ranges.length; i += 2)
+    {
+      appendChar(sb, ranges[i]);
+      if(ranges[i + 1] != ranges[i])
+      {
+        sb.append('-');
+        appendChar(sb, ranges[i + 1]);
+      }
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>Append a char for {@link #toString()}.  Printable ASCII is shown as is, with class syntax chars escaped.
+   * 
+   * @param sb
+   * @param ch
+   */
+  private static void appendChar(StringBuilder sb, char ch)
+  {
+    if( (ch > 0x20) && (ch < 0x7F) )
+    {
+      if( (ch == '\\') || (ch == '-') || (ch == '[') || (ch == ']') ) sb.append('\\');
+      sb.append(ch);
+    }
+    else
+    {
+      sb.append(String.format("\\u%04x", (int) ch));
+    }
+  }
+  
+  /**
+   * <p>Sort and merge ranges, dropping the end of stream marker.
+   * 
+   * @param r range pairs in any order.
+   * @return
+   */
+  private static CharClass normalise(char[] r)
+  {
+    //Sort the pairs by low bound.
+    int pairs = r.length >> 1;
+    long[] packed = new long[pairs];
+    for(int i = 0; i < pairs; i++) packed[i] = ((long) r[2 * i] << 16) | r[2 * i + 1];
+    Arrays.sort(packed);
+    
+    //Merge overlapping and touching pairs.
+    char[] out = new char[r.length];
+    int n = 0;
+    for(long p : packed)
+    {
+      int low = (int) (p >>> 16);
+      int high = Math.min((int) (p & 0xFFFF), MAX);
+      if(low > high) continue;
+      if( (n > 0) && (low <= out[n - 1] + 1) )
+      {
+        if(high > out[n - 1]) out[n - 1] = (char) high;
+      }
+      else
+      {
+        out[n++] = (char) low;
+        out[n++] = (char) high;
+      }
+    }
+    return new CharClass(Arrays.copyOf(out, n));
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Table-driven lexer built by {@link LexerCompiler}.  Each character maps to a character class, and each state has a
+ * row of next states indexed by class.  A state accepts at most one pattern: the first in the compiled list that can
+ * end there.
+ * <p>The lexer holds no per-token state and is immutable, so one instance can be shared by any number of parsers.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class CompiledLexer
+{
+  /**
+   * <p>No transition.
+   */
+  public static final int NONE = -1;
+  
+  /**
+   * <p>Character classes in pages of 256 characters, indexed by the high byte.  Identical pages are shared.
+   */
+  private final char[][] classPages;
+  
+  /**
+   * <p>The number of character classes, which is the length of a transition row.
+   */
+  private final int classCount;
+  
+  /**
+   * <p>Transition rows.  The next state from state s on class c is at s * classCount + c, or {@link #NONE}.
+   */
+  private final int[] next;
+  
+  /**
+   * <p>The pattern accepted by each state, or {@link #NONE}.
+   */
+  private final int[] accept;
+  
+  /**
+   * <p>The number of patterns compiled.
+   */
+  private final int patternCount;
+  
+  /**
+   * <p>Create the lexer from the compiled tables.
+   * 
+   * @param classOf the class of each character.
+   * @param classCount
+   * @param next
+   * @param accept
+   * @param patternCount
+   */
+  CompiledLexer(char[] classOf, int classCount, int[] next, int[] accept, int patternCount)
+  {
+    //Split the class map into pages, sharing pages that are the same.
+    Map<String, char[]> shared = new HashMap<>();
+    classPages = new char[256][];
+    for(int p = 0; p < 256; p++)
+    {
+      char[] page = new char[256];
+      System.arraycopy(classOf, p << 8, page, 0, 256);
+      classPages[p] = shared.computeIfAbsent(new String(page), k -> page);
+    }
+    
+    this.classCount = classCount;
+    this.next = next;
+    this.accept = accept;
+    this.patternCount = patternCount;
+  }
+  
+  /**
+   * <p>Get the start state.
+   * 
+   * @return
+   */
+  public int getStartState()
+  {
+    return 0;
+  }
+  
+  /**
+   * <p>Get the state after the given character.
+   * 
+   * @param state
+   * @param ch
+   * @return the next state, or {@link #NONE} if the character can't follow.
+   */
+  public int next(int state, char ch)
+  {
+    return next[state * classCount + classPages[ch >>> 8][ch & 0xFF]];
+  }
+  
+  /**
+   * <p>Get the pattern accepted by the state.
+   * 
+   * @param state
+   * @return the position of the pattern in the compiled list, or {@link #NONE} if a token can't end in this state.
+   */
+  public int getAccepted(int state)
+  {
+    return accept[state];
+  }
+  
+  /**
+   * <p>Get the character class of a character.
+   * 
+   * @param ch
+   * @return
+   */
+  public int getCharClass(char ch)
+  {
+    return classPages[ch >>> 8][ch & 0xFF];
+  }
+  
+  /**
+   * <p>Get the characters in a character class.  Every character is tested, so this is for building code and tables
+   * from the lexer rather than for lexing.
+   * 
+   * @param charClass
+   * @return
+   */
+  public CharClass getClassChars(int charClass)
+  {
+    return CharClass.matching(ch -> classPages[ch >>> 8][ch & 0xFF] == charClass);
+  }
+  
+  /**
+   * <p>Get the number of character classes.
+   * 
+   * @return
+   */
+  public int getClassCount()
+  {
+    return classCount;
+  }
+  
+  /**
+   * <p>Get the number of states.
+   * 
+   * @return
+   */
+  public int getStateCount()
+  {
+    return accept.length;
+  }
+  
+  /**
+   * <p>Get the number of patterns compiled.
+   * 
+   * @return
+   */
+  public int getPatternCount()
+  {
+    return patternCount;
+  }
+  
+  /**
+   * <p>Get the characters that can start a token.
+   * 
+   * @return
+   */
+  public CharClass getStartChars()
+  {
+    return CharClass.matching(ch -> next(0, (char) ch) != NONE);
+  }
+}
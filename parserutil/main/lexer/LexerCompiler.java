@@ -0,0 +1,495 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <p>Compiles a list of {@link TokenPattern}s into a {@link CompiledLexer}.  The patterns are turned into a
+ * nondeterministic automaton, the characters are split into classes that no pattern tells apart, and the automaton is
+ * made deterministic over those classes and minimised.
+ * <p>Where patterns overlap, a state accepts the pattern that comes first in the list.  This is the same priority the
+ * general parser gives to the configured token descriptors.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class LexerCompiler
+{
+  /**
+   * <p>Nondeterministic automaton states.  Each state has epsilon moves and character class moves.
+   */
+  private final List<int[]> epsilon = new ArrayList<>();
+  
+  /**
+   * <p>Character class moves from each state, as pairs of class index and target state.
+   */
+  private final List<int[]> moves = new ArrayList<>();
+  
+  /**
+   * <p>Accepted pattern for each state, or -1.
+   */
+  private final List<Integer> accept = new ArrayList<>();
+  
+  /**
+   * <p>The distinct character classes used by the patterns.
+   */
+  private final List<CharClass> classes = new ArrayList<>();
+  
+  /**
+   * <p>Class index lookup.
+   */
+  private final Map<CharClass, Integer> classIndex = new HashMap<>();
+  
+  /**
+   * <p>Compilers are used through {@link #compile(List)}.
+   */
+  private LexerCompiler()
+  {
+  }
+  
+  /**
+   * <p>Compile the patterns.  The accepted pattern of each lexer state is the position of the pattern in the list.
+   * 
+   * @param patterns
+   * @return
+   */
+  public static CompiledLexer compile(List<TokenPattern> patterns)
+  {
+    LexerCompiler c = new LexerCompiler();
+    
+    //Build the automaton.  State 0 is the start and has an epsilon move to the start of each pattern.
+    int start = c.newState();
+    for(int i = 0; i < patterns.size(); i++)
+    {
+      TokenPattern p = patterns.get(i);
+      if(p == null) throw new IllegalArgumentException("No token pattern at position " + i);
+      int s = c.newState();
+      c.addEpsilon(start, s);
+      int end = c.newState();
+      c.addEpsilon(c.build(p, s), end);
+      c.accept.set(end, i);
+    }
+    
+    //Split the characters into classes and make the automaton deterministic over them.
+    char[] classOf = new char[0x10000];
+    BitSet[] alphabet = c.buildAlphabet(classOf);
+    return c.buildLexer(classOf, alphabet, patterns.size());
+  }
+  
+  /**
+   * <p>Add a state.
+   * 
+   * @return
+   */
+  private int newState()
+  {
+    epsilon.add(new int[0]);
+    moves.add(new int[0]);
+    accept.add(-1);
+    return accept.size() - 1;
+  }
+  
+  /**
+   * <p>Add an epsilon move.
+   * 
+   * @param from
+   * @param to
+   */
+  private void addEpsilon(int from, int to)
+  {
+    int[] e = epsilon.get(from);
+    e = Arrays.copyOf(e, e.length + 1);
+    e[e.length - 1] = to;
+    epsilon.set(from, e);
+  }
+  
+  /**
+   * <p>Add a character class move.
+   * 
+   * @param from
+   * @param chars
+   * @param to
+   */
+  private void addMove(int from, CharClass chars, int to)
+  {
+    Integer index = classIndex.get(chars);
+    if(index == null)
+    {
+      index = classes.size();
+      classes.add(chars);
+      classIndex.put(chars, index);
+    }
+    int[] m = moves.get(from);
+    m = Arrays.copyOf(m, m.length + 2);
+    m[m.length - 2] = index;
+    m[m.length - 1] = to;
+    moves.set(from, m);
+  }
+  
+  /**
+   * <p>Add the states for a pattern.
+   * 
+   * @param p
+   * @param from the state the pattern starts from.
+   * @return the state the pattern ends at.
+   */
+  private int build(TokenPattern p, int from)
+  {
+    switch(p.kind)
+    {
+      case CHARS:
+      {
+        int to = newState();
+        if(!p.chars.isEmpty()) addMove(from, p.chars, to);
+        return to;
+      }
+      case SEQ:
+      {
+        int cur = from;
+        for(TokenPattern part : p.parts) cur = build(part, cur);
+        return cur;
+      }
+      case ALT:
+      {
+        int end = newState();
+        for(TokenPattern part : p.parts)
+        {
+          int s = newState();
+          addEpsilon(from, s);
+          addEpsilon(build(part, s), end);
+        }
+        return end;
+      }
+      default:
+      {
+        //Required repeats.
+        TokenPattern part = p.parts[0];
+        int cur = from;
+        for(int i = 0; i < p.min; i++) cur = build(part, cur);
+        
+        //Unbounded - loop back to a state that is also the exit.
+        if(p.max == TokenPattern.UNBOUNDED)
+        {
+          int loop = newState();
+          addEpsilon(cur, loop);
+          addEpsilon(build(part, loop), loop);
+          return loop;
+        }
+        
+        //Bounded - each further repeat can be skipped to the end.
+        int end = newState();
+        addEpsilon(cur, end);
+        for(int i = p.min; i < p.max; i++)
+        {
+          cur = build(part, cur);
+          addEpsilon(cur, end);
+        }
+        return end;
+      }
+    }
+  }
+  
+  /**
+   * <p>Split the characters into classes.  Two characters are in the same class if every pattern character class
+   * contains both or neither.
+   * 
+   * @param classOf filled with the class of each character.
+   * @return for each class, the pattern character classes containing it.
+   */
+  private BitSet[] buildAlphabet(char[] classOf)
+  {
+    //Membership can only change at range bounds.
+    TreeSet<Integer> bounds = new TreeSet<>();
+    bounds.add(0);
+    bounds.add(0x10000);
+    for(CharClass cc : classes)
+    {
+      for(int i = 0; i < cc.ranges.length; i += 2)
+      {
+        bounds.add((int) cc.ranges[i]);
+        bounds.add(cc.ranges[i + 1] + 1);
+      }
+    }
+    
+    //Give each distinct membership a class.  The end of stream marker is in no pattern class.
+    Map<BitSet, Integer> ids = new HashMap<>();
+    List<BitSet> alphabet = new ArrayList<>();
+    Integer low = null;
+    for(Integer high : bounds)
+    {
+      if(low != null)
+      {
+        BitSet members = new BitSet();
+        if(low < 0xFFFF)
+        {
+          for(int c = 0; c < classes.size(); c++) if(classes.get(c).contains((char) (int) low)) members.set(c);
+        }
+        Integer id = ids.get(members);
+        if(id == null)
+        {
+          id = alphabet.size();
+          alphabet.add(members);
+          ids.put(members, id);
+        }
+        Arrays.fill(classOf, low, high, (char) (int) id);
+      }
+      low = high;
+    }
+    
+    //The marker sits in the last interval; give it the class of no members.
+    BitSet none = new BitSet();
+    Integer noneId = ids.get(none);
+    if(noneId == null)
+    {
+      noneId = alphabet.size();
+      alphabet.add(none);
+    }
+    classOf[0xFFFF] = (char) (int) noneId;
+    
+    return alphabet.toArray(new BitSet[0]);
+  }
+  
+  /**
+   * <p>Get the epsilon closure of a set of states.
+   * 
+   * @param set updated in place.
+   */
+  private void close(BitSet set)
+  {
+    int[] stack = new int[accept.size()];
+    int n = 0;
+    for(int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) stack[n++] = s;
+    while(n > 0)
+    {
+      for(int t : epsilon.get(stack[--n]))
+      {
+        if(!set.get(t))
+        {
+          set.set(t);
+          stack[n++] = t;
+        }
+      }
+    }
+  }
+  
+  /**
+   * <p>Make the automaton deterministic and minimise it.
+   * 
+   * @param classOf
+   * @param alphabet
+   * @param patternCount
+   * @return
+   */
+  private CompiledLexer buildLexer(char[] classOf, BitSet[] alphabet, int patternCount)
+  {
+    int classCount = alphabet.length;
+    
+    //Subset construction.
+    List<BitSet> states = new ArrayList<>();
+    Map<BitSet, Integer> stateIds = new HashMap<>();
+    List<int[]> trans = new ArrayList<>();
+    BitSet first = new BitSet();
+    first.set(0);
+    close(first);
+    states.add(first);
+    stateIds.put(first, 0);
+    for(int d = 0; d < states.size(); d++)
+    {
+      BitSet set = states.get(d);
+      int[] row = new int[classCount];
+      for(int a = 0; a < classCount; a++)
+      {
+        BitSet target = new BitSet();
+        for(int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+        {
+          int[] m = moves.get(s);
+          for(int i = 0; i < m.length; i += 2) if(alphabet[a].get(m[i])) target.set(m[i + 1]);
+        }
+        if(target.isEmpty())
+        {
+          row[a] = -1;
+          continue;
+        }
+        close(target);
+        Integer id = stateIds.get(target);
+        if(id == null)
+        {
+          id = states.size();
+          states.add(target);
+          stateIds.put(target, id);
+        }
+        row[a] = id;
+      }
+      trans.add(row);
+    }
+    
+    //Accepted pattern of each state - the first in the list.
+    int count = states.size();
+    int[] accepted = new int[count];
+    for(int d = 0; d < count; d++)
+    {
+      int best = -1;
+      BitSet set = states.get(d);
+      for(int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1))
+      {
+        int a = accept.get(s);
+        if( (a >= 0) && ( (best < 0) || (a < best) ) ) best = a;
+      }
+      accepted[d] = best;
+    }
+    
+    //Drop states that can't reach an accepting state; a token can never end well from them.
+    boolean[] live = new boolean[count];
+    boolean changed = true;
+    for(int d = 0; d < count; d++) live[d] = accepted[d] >= 0;
+    while(changed)
+    {
+      changed = false;
+      for(int d = 0; d < count; d++)
+      {
+        if(live[d]) continue;
+        for(int t : trans.get(d))
+        {
+          if( (t >= 0) && live[t] )
+          {
+            live[d] = true;
+            changed = true;
+            break;
+          }
+        }
+      }
+    }
+    for(int[] row : trans)
+    {
+      for(int a = 0; a < classCount; a++) if( (row[a] >= 0) && !live[row[a]] ) row[a] = -1;
+    }
+    
+    //Minimise by refining blocks of states with the same accepted pattern until each block's states move alike.
+    int[] block = new int[count];
+    int blocks = refine(block, accepted, trans, classCount, true);
+    while(true)
+    {
+      int next = refine(block, accepted, trans, classCount, false);
+      if(next == blocks) break;
+      blocks = next;
+    }
+    
+    //Number blocks so the start state is 0, keeping only live blocks and the start.
+    int[] number = new int[blocks];
+    Arrays.fill(number, -1);
+    number[block[0]] = 0;
+    int n = 1;
+    for(int d = 0; d < count; d++)
+    {
+      if(live[d] && (number[block[d]] < 0)) number[block[d]] = n++;
+    }
+    int[] next = new int[n * classCount];
+    int[] acceptOut = new int[n];
+    Arrays.fill(next, -1);
+    for(int d = 0; d < count; d++)
+    {
+      int to = number[block[d]];
+      if( (to < 0) || ( (d != 0) && !live[d] ) ) continue;
+      acceptOut[to] = accepted[d];
+      int[] row = trans.get(d);
+      for(int a = 0; a < classCount; a++) next[to * classCount + a] = (row[a] < 0) ? -1 : number[block[row[a]]];
+    }
+    
+    //Characters in different pattern classes can still move alike in every state.  Merge their classes.
+    Map<List<Integer>, Integer> columns = new HashMap<>();
+    int[] merged = new int[classCount];
+    for(int a = 0; a < classCount; a++)
+    {
+      List<Integer> column = new ArrayList<>(n);
+      for(int d = 0; d < n; d++) column.add(next[d * classCount + a]);
+      Integer id = columns.get(column);
+      if(id == null)
+      {
+        id = columns.size();
+        columns.put(column, id);
+      }
+      merged[a] = id;
+    }
+    int mergedCount = columns.size();
+    int[] mergedNext = new int[n * mergedCount];
+    for(int d = 0; d < n; d++)
+    {
+      for(int a = 0; a < classCount; a++) mergedNext[d * mergedCount + merged[a]] = next[d * classCount + a];
+    }
+    for(int ch = 0; ch < classOf.length; ch++) classOf[ch] = (char) merged[classOf[ch]];
+    
+    return new CompiledLexer(classOf, mergedCount, mergedNext, acceptOut, patternCount);
+  }
+  
+  /**
+   * <p>One round of partition refinement.
+   * 
+   * @param block the block of each state, updated in place.
+   * @param accepted
+   * @param trans
+   * @param classCount
+   * @param initial if true, blocks are made from the accepted patterns only.
+   * @return the number of blocks.
+   */
+  private static int refine(int[] block, int[] accepted, List<int[]> trans, int classCount, boolean initial)
+  {
+    Map<List<Integer>, Integer> ids = new HashMap<>();
+    int[] out = new int[block.length];
+    for(int d = 0; d < block.length; d++)
+    {
+      List<Integer> key = new ArrayList<>(classCount + 1);
+      if(initial)
+      {
+        key.add(accepted[d]);
+      }
+      else
+      {
+        key.add(block[d]);
+        for(int t : trans.get(d)) key.add( (t < 0) ? -1 : block[t]);
+      }
+      Integer id = ids.get(key);
+      if(id == null)
+      {
+        id = ids.size();
+        ids.put(key, id);
+      }
+      out[d] = id;
+    }
+    System.arraycopy(out, 0, block, 0, block.length);
+    return ids.size();
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+/**
+ * <p>The ways the general parser can find tokens.
+ * <p>Every engine reads the same tokens from the same input.  Each rejects a token that stops part way through (such
+ * as <code>-</code>, <code>1e</code> or <code>tru</code> in JSON, or a string without its closing quote) with a
+ * {@link parserutil.main.GeneralParserException}, and each reads an escaped escape char as a plain char, so that the
+ * quote after it ends the string.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public enum LexerEngine
+{
+  /**
+   * <p>Ask the token descriptors about each character.  Descriptors can hold any state they need.
+   */
+  INTERPRETED,
+  
+  /**
+   * <p>Compile the descriptors' {@link TokenPattern}s into a table-driven lexer and run the table.  Every descriptor
+   * must declare a pattern.
+   */
+  COMPILED,
+  
+  /**
+   * <p>Run a lexer generated into a parser subclass by {@link LexerGenerator}.  The subclass must be generated from the
+   * descriptors its parser is configured with.
+   */
+  GENERATED
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import parserutil.main.GeneralParser;
+import parserutil.main.TokenDescriptor;
+
+/**
+ * <p>Generates Java source for a lexer specialised to a list of token descriptors.  The lexer is written as a subclass
+ * of a parser, overriding {@link GeneralParser}'s generated lexer hook with a switch over the states and characters of
+ * the compiled patterns.  There are no descriptor calls or table lookups on the per-character path.
+ * <p>The generator is a build-time tool.  Run {@link #main(String[])} with the parser class, the name of the class to
+ * generate, the source root to write it under and, optionally, a file holding a header to put at the top.  The parser
+ * class needs a constructor taking a {@link LexerEngine}; it is created with the compiled engine so that its descriptor
+ * list is the one the generated subclass will be configured with.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class LexerGenerator
+{
+  /**
+   * <p>The most ASCII chars of a transition to list as case labels.  Larger sets are tested as ranges.
+   */
+  private static final int MAX_CASE_LABELS = 16;
+  
+  /**
+   * <p>The longest pattern description to put in the generated class comment.
+   */
+  private static final int MAX_PATTERN_DOC = 100;
+  
+  /**
+   * <p>The token descriptors, in configured order.
+   */
+  private final List<? extends TokenDescriptor> descriptors;
+  
+  /**
+   * <p>The lexer compiled from the descriptors' patterns.
+   */
+  private final CompiledLexer lexer;
+  
+  /**
+   * <p>The chars of each character class.
+   */
+  private final CharClass[] classChars;
+  
+  /**
+   * <p>Create a generator for the descriptors.  Every descriptor must declare a {@link TokenPattern}.
+   * 
+   * @param descriptors
+   */
+  public LexerGenerator(List<? extends TokenDescriptor> descriptors)
+  {
+    this.descriptors = descriptors;
+    
+    List<TokenPattern> patterns = new ArrayList<>();
+    for(TokenDescriptor d : descriptors) patterns.add(d.getTokenPattern());
+    lexer = LexerCompiler.compile(patterns);
+    
+    classChars = new CharClass[lexer.getClassCount()];
+    for(int c = 0; c < classChars.length; c++) classChars[c] = lexer.getClassChars(c);
+  }
+  
+  /**
+   * <p>Write the lexer source.
+   * 
+   * @param out
+   * @param header text to put at the top of the source, or null.
+   * @param packageName the package of the generated class.
+   * @param className the name of the generated class.
+   * @param parserClass the parser the generated class extends.
+   * @throws IOException
+   */
+  public void generate(Writer out, String header, String packageName, String className, Class<?> parserClass) throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    if(header != null) sb.append(header.endsWith("\n") ? header : header + "\n");
+    sb.append("package ").append(packageName).append(";\n\n");
+    sb.append("import java.io.IOException;\n\n");
+    if(!parserClass.getPackageName().equals(packageName)) sb.append("import ").append(parserClass.getName()).append(";\n");
+    sb.append("import ").append(LexerEngine.class.getName()).append(";\n\n");
+    sb.append("/**\n");
+    sb.append(" * <p>{@link ").append(parserClass.getSimpleName()).append("} with a generated lexer.  Generated by {@link ").append(getClass().getName()).append("}\n");
+    sb.append(" * from the parser's token patterns; regenerate rather than edit when the patterns change.\n");
+    sb.append(" * <p>Token descriptors:\n");
+    sb.append(" * <ol start=\"0\">\n");
+    for(TokenDescriptor d : descriptors) sb.append(" * <li>").append(docText(d.getTokenPattern().toString())).append("</li>\n");
+    sb.append(" * </ol>\n");
+    sb.append(" */\n");
+    sb.append("public class ").append(className).append(" extends ").append(parserClass.getSimpleName()).append("\n{\n");
+    sb.append("  /**\n   * <p>Create the parser with the generated lexer.\n   */\n");
+    sb.append("  public ").append(className).append("()\n  {\n    super(LexerEngine.GENERATED);\n  }\n\n");
+    sb.append("  /**\n   * {@inheritDoc}\n   */\n");
+    sb.append("  @Override\n  protected int lexGenerated(char ch) throws IOException\n  {\n");
+    sb.append("    //First char.\n");
+    sb.append("    int state;\n");
+    writeTransitions(sb, lexer.getStartState(), "LEX_NO_TOKEN", "    ");
+    sb.append("\n    //Further chars until there is no transition.\n");
+    sb.append("    while(true)\n    {\n");
+    sb.append("      ch = nextChar();\n");
+    sb.append("      switch(state)\n      {\n");
+    boolean[] entered = enteredStates();
+    for(int s = 0; s < lexer.getStateCount(); s++)
+    {
+      //The start state only needs a case if a transition leads back to it.
+      if(!entered[s]) continue;
+      int accepted = lexer.getAccepted(s);
+      sb.append("        case ").append(s).append(":\n");
+      if(writeTransitions(sb, s, (accepted == CompiledLexer.NONE) ? "LEX_INCOMPLETE" : String.valueOf(accepted), "          "))
+      {
+        sb.append("          break;\n");
+      }
+    }
+    sb.append("      }\n    }\n  }\n}\n");
+    out.write(sb.toString());
+  }
+  
+  /**
+   * <p>Find the states that some transition leads to.
+   * 
+   * @return
+   */
+  private boolean[] enteredStates()
+  {
+    boolean[] entered = new boolean[lexer.getStateCount()];
+    for(int s = 0; s < entered.length; s++)
+    {
+      for(CharClass chars : classChars)
+      {
+        if(chars.isEmpty()) continue;
+        int to = lexer.next(s, chars.ranges[0]);
+        if(to != CompiledLexer.NONE) entered[to] = true;
+      }
+    }
+    return entered;
+  }
+  
+  /**
+   * <p>Write the code moving from a state on the char in {@code ch}.
+   * 
+   * @param sb
+   * @param state
+   * @param otherwise the value to return if there is no transition.
+   * @param indent
+   * @return true if the code can complete normally, false if it always returns.
+   */
+  private boolean writeTransitions(StringBuilder sb, int state, String otherwise, String indent)
+  {
+    //Gather the chars leading to each target state.
+    Map<Integer, CharClass> targets = new LinkedHashMap<>();
+    for(int c = 0; c < classChars.length; c++)
+    {
+      if(classChars[c].isEmpty()) continue;
+      int to = lexer.next(state, classChars[c].ranges[0]);
+      if(to == CompiledLexer.NONE) continue;
+      targets.merge(to, classChars[c], CharClass::union);
+    }
+    
+    //Small ASCII sets become case labels; everything else is tested as ranges.
+    CharClass ascii = CharClass.range((char) 0, (char) 0x7F);
+    StringBuilder cases = new StringBuilder();
+    StringBuilder tests = new StringBuilder();
+    for(Map.Entry<Integer, CharClass> e : targets.entrySet())
+    {
+      CharClass chars = e.getValue();
+      CharClass low = chars.intersect(ascii);
+      if( (!low.isEmpty()) && (low.size() <= MAX_CASE_LABELS) )
+      {
+        cases.append(indent).append(" ");
+        for(char ch : low.toArray()) cases.append(" case ").append(literal(ch)).append(":");
+        cases.append("\n").append(indent).append("    state = ").append(e.getKey()).append(";\n");
+        cases.append(indent).append("    break;\n");
+        chars = chars.minus(ascii);
+      }
+      if(!chars.isEmpty())
+      {
+        tests.append( (tests.length() == 0) ? "if" : "else if").append("(").append(condition(chars)).append(") state = ").append(e.getKey()).append(";\n");
+      }
+    }
+    
+    //No transition.
+    String fallback = "return " + otherwise + ";";
+    if(cases.length() == 0)
+    {
+      if(tests.length() == 0)
+      {
+        sb.append(indent).append(fallback).append("\n");
+        return false;
+      }
+      appendLines(sb, tests, indent);
+      sb.append(indent).append("else ").append(fallback).append("\n");
+      return true;
+    }
+    sb.append(indent).append("switch(ch)\n").append(indent).append("{\n");
+    sb.append(cases);
+    sb.append(indent).append("  default:\n");
+    if(tests.length() > 0)
+    {
+      appendLines(sb, tests, indent + "    ");
+      sb.append(indent).append("    else ").append(fallback).append("\n");
+    }
+    else
+    {
+      sb.append(indent).append("    ").append(fallback).append("\n");
+    }
+    sb.append(indent).append("}\n");
+    return true;
+  }
+  
+  /**
+   * <p>Make text safe for a doc comment.  Unicode escapes would be processed by the compiler, and comment and HTML syntax
+   * would be read as such.
+   * 
+   * @param text
+   * @return
+   */
+  private static String docText(String text)
+  {
+    if(text.length() > MAX_PATTERN_DOC) text = text.substring(0, MAX_PATTERN_DOC) + "...";
+    return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("@", "&#64;").replace("/", "&#47;").replace("\\u", "U+");
+  }
+  
+  /**
+   * <p>Append each line with the indent.
+   * 
+   * @param sb
+   * @param lines
+   * @param indent
+   */
+  private static void appendLines(StringBuilder sb, CharSequence lines, String indent)
+  {
+    for(String line : lines.toString().split("\n")) sb.append(indent).append(line).append("\n");
+  }
+  
+  /**
+   * <p>Get a Java condition testing {@code ch} for membership of the class.
+   * 
+   * @param chars
+   * @return
+   */
+  private static String condition(CharClass chars)
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < chars.ranges.length; i += 2)
+    {
+      char low = chars.ranges[i];
+      char high = chars.ranges[i + 1];
+      //Long tests get a range per line.
+      if(sb.length() > 0) sb.append( (chars.ranges.length > 8) ? "\n    || " : " || ");
+      if(low == high) sb.append("ch == ").append(literal(low));
+      else if(low == 0) sb.append("ch <= ").append(literal(high));
+      else sb.append("(ch >= ").append(literal(low)).append(" && ch <= ").append(literal(high)).append(")");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Get a Java literal for the char.  Unicode escapes are avoided as they are processed before the source is lexed.
+   * 
+   * @param ch
+   * @return
+   */
+  private static String literal(char ch)
+  {
+    switch(ch)
+    {
+      case '\'':
+        return "'\\''";
+      case '\\':
+        return "'\\\\'";
+      case '\t':
+        return "'\\t'";
+      case '\n':
+        return "'\\n'";
+      case '\r':
+        return "'\\r'";
+      default:
+        return ( (ch >= 0x20) && (ch < 0x7F) ) ? "'" + ch + "'" : String.format("0x%04x", (int) ch);
+    }
+  }
+  
+  /**
+   * <p>Generate a lexer subclass for a parser.
+   * <p>Arguments: the parser class name, the simple name of the class to generate, the source root directory and
+   * optionally a header file.
+   * 
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if( (args.length < 3) || (args.length > 4) )
+    {
+      System.err.println("Usage: LexerGenerator <parser class> <generated class name> <source root> [header file]");
+      System.exit(1);
+    }
+    
+    //Create the parser to get its descriptors.
+    Class<?> parserClass = Class.forName(args[0]);
+    GeneralParser<?> parser = (GeneralParser<?>) parserClass.getConstructor(LexerEngine.class).newInstance(LexerEngine.COMPILED);
+    String header = (args.length == 4) ? Files.readString(new File(args[3]).toPath(), StandardCharsets.UTF_8) : null;
+    
+    //Write the source into the parser's package.
+    String packageName = parserClass.getPackageName();
+    File dir = new File(args[2], packageName.replace('.', File.separatorChar));
+    File file = new File(dir, args[1] + ".java");
+    try(Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+    {
+      new LexerGenerator(parser.getTokenDescriptors()).generate(out, header, packageName, args[1], parserClass);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+import java.util.List;
+
+/**
+ * <p>Declarative description of the characters making up a token.  Patterns are built from character classes, literals,
+ * sequences, alternatives, repetition and escape rules, and are immutable so one pattern can be shared by every parser
+ * of a grammar.
+ * <p>A set of patterns, one per token descriptor, is compiled by {@link LexerCompiler} into a table-driven lexer.  A
+ * token runs for as long as there is a transition on the next character; it then ends, and must be at an accepting
+ * point of its pattern.  There is no backtracking, so patterns should be written so that no token is a prefix of a
+ * longer token of a different kind unless the longer one is the one wanted.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class TokenPattern
+{
+  /**
+   * <p>Pattern kinds.
+   */
+  enum Kind
+  {
+    CHARS,
+    SEQ,
+    ALT,
+    REPEAT
+  }
+  
+  /**
+   * <p>Unbounded repeat maximum.
+   */
+  public static final int UNBOUNDED = -1;
+  
+  /**
+   * <p>The kind of pattern.
+   */
+  final Kind kind;
+  
+  /**
+   * <p>The matched characters for a {@link Kind#CHARS} pattern.
+   */
+  final CharClass chars;
+  
+  /**
+   * <p>The parts of a sequence or alternative, or the repeated pattern.
+   */
+  final TokenPattern[] parts;
+  
+  /**
+   * <p>Minimum repeat count.
+   */
+  final int min;
+  
+  /**
+   * <p>Maximum repeat count, or {@link #UNBOUNDED}.
+   */
+  final int max;
+  
+  /**
+   * <p>The lexer for this pattern on its own, built on first use by {@link TokenPatternMatcher}.
+   */
+  private volatile CompiledLexer compiled;
+  
+  /**
+   * <p>Create a pattern.
+   * 
+   * @param kind
+   * @param chars
+   * @param parts
+   * @param min
+   * @param max
+   */
+  private TokenPattern(Kind kind, CharClass chars, TokenPattern[] parts, int min, int max)
+  {
+    this.kind = kind;
+    this.chars = chars;
+    this.parts = parts;
+    this.min = min;
+    this.max = max;
+  }
+  
+  /**
+   * <p>Match one character from the class.
+   * 
+   * @param chars
+   * @return
+   */
+  public static TokenPattern chars(CharClass chars)
+  {
+    return new TokenPattern(Kind.CHARS, chars, null, 1, 1);
+  }
+  
+  /**
+   * <p>Match the given character.
+   * 
+   * @param ch
+   * @return
+   */
+  public static TokenPattern character(char ch)
+  {
+    return chars(CharClass.of(ch));
+  }
+  
+  /**
+   * <p>Match the characters of the string in order.
+   * 
+   * @param text
+   * @return
+   */
+  public static TokenPattern literal(String text)
+  {
+    if(text.isEmpty()) throw new IllegalArgumentException();
+    TokenPattern[] parts = new TokenPattern[text.length()];
+    for(int i = 0; i < parts.length; i++) parts[i] = character(text.charAt(i));
+    return (parts.length == 1) ? parts[0] : new TokenPattern(Kind.SEQ, null, parts, 1, 1);
+  }
+  
+  /**
+   * <p>Match each of the parts in turn.
+   * 
+   * @param parts
+   * @return
+   */
+  public static TokenPattern seq(TokenPattern... parts)
+  {
+    if(parts.length == 0) throw new IllegalArgumentException();
+    return new TokenPattern(Kind.SEQ, null, parts.clone(), 1, 1);
+  }
+  
+  /**
+   * <p>Match any one of the options.
+   * 
+   * @param options
+   * @return
+   */
+  public static TokenPattern alt(TokenPattern... options)
+  {
+    if(options.length == 0) throw new IllegalArgumentException();
+    return new TokenPattern(Kind.ALT, null, options.clone(), 1, 1);
+  }
+  
+  /**
+   * <p>Match the pattern between min and max times.
+   * 
+   * @param pattern
+   * @param min
+   * @param max the maximum, or {@link #UNBOUNDED}.
+   * @return
+   */
+  public static TokenPattern repeat(TokenPattern pattern, int min, int max)
+  {
+    if( (min < 0) || ( (max != UNBOUNDED) && (max < Math.max(min, 1)) ) ) throw new IllegalArgumentException();
+    return new TokenPattern(Kind.REPEAT, null, new TokenPattern[] {pattern}, min, max);
+  }
+  
+  /**
+   * <p>Match the pattern any number of times, including none.
+   * 
+   * @param pattern
+   * @return
+   */
+  public static TokenPattern zeroOrMore(TokenPattern pattern)
+  {
+    return repeat(pattern, 0, UNBOUNDED);
+  }
+  
+  /**
+   * <p>Match the pattern one or more times.
+   * 
+   * @param pattern
+   * @return
+   */
+  public static TokenPattern oneOrMore(TokenPattern pattern)
+  {
+    return repeat(pattern, 1, UNBOUNDED);
+  }
+  
+  /**
+   * <p>Match the pattern once or not at all.
+   * 
+   * @param pattern
+   * @return
+   */
+  public static TokenPattern optional(TokenPattern pattern)
+  {
+    return repeat(pattern, 0, 1);
+  }
+  
+  /**
+   * <p>Escape rule.  Match one character from the class, other than the escape character, or the escape character
+   * followed by any character.
+   * 
+   * @param escapeChar
+   * @param plain the characters that stand for themselves.
+   * @return
+   */
+  public static TokenPattern escaped(char escapeChar, CharClass plain)
+  {
+    return alt(chars(plain.minus(CharClass.of(escapeChar))), seq(character(escapeChar), chars(CharClass.any())));
+  }
+  
+  /**
+   * <p>Get the lexer for this pattern on its own.  It is compiled on first use and kept with the pattern.
+   * 
+   * @return
+   */
+  CompiledLexer getCompiled()
+  {
+    CompiledLexer ret = compiled;
+    if(ret == null)
+    {
+      //Compiling twice in a race is harmless; both results are the same.
+      ret = LexerCompiler.compile(List.of(this));
+      compiled = ret;
+    }
+    return ret;
+  }
+
+  /**
+   * <p>Stringify in a regular expression like form.
+   */
+  @Override
+  public String toString()
+  {
+    switch(kind)
+    {
+      case CHARS:
+        return chars.toString();
+      case SEQ:
+      {
+        StringBuilder sb = new StringBuilder("(");
+        for(TokenPattern p : parts) sb.append(p);
+        return sb.append(')').toString();
+      }
+      case ALT:
+      {
+        StringBuilder sb = new StringBuilder("(");
+        for(int i = 0; i < parts.length; i++) sb.append( (i == 0) ? "" : "|").append(parts[i]);
+        return sb.append(')').toString();
+      }
+      default:
+        return parts[0] + "{" + min + "," + ( (max == UNBOUNDED) ? "" : String.valueOf(max) ) + "}";
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package parserutil.main.lexer;
+
+/**
+ * <p>Runs a single {@link TokenPattern} one character at a time.  This lets a declarative token descriptor answer the
+ * interpreted engine's start and content character questions from its pattern, so the same descriptor can be used with
+ * either engine.  A matcher holds the state of the token being read and must not be shared between parsers.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class TokenPatternMatcher
+{
+  /**
+   * <p>The pattern lexer.
+   */
+  private final CompiledLexer lexer;
+  
+  /**
+   * <p>The current state, or {@link CompiledLexer#NONE} if the pattern has stopped matching.
+   */
+  private int state = CompiledLexer.NONE;
+  
+  /**
+   * <p>Create a matcher for the pattern.
+   * 
+   * @param pattern
+   */
+  public TokenPatternMatcher(TokenPattern pattern)
+  {
+    lexer = pattern.getCompiled();
+  }
+  
+  /**
+   * <p>Start a new token with the given character.
+   * 
+   * @param ch
+   * @return true if the pattern can start with the character.
+   */
+  public boolean start(char ch)
+  {
+    state = lexer.next(lexer.getStartState(), ch);
+    return state != CompiledLexer.NONE;
+  }
+  
+  /**
+   * <p>Continue the token with the given character.
+   * 
+   * @param ch
+   * @return true if the character is part of the token.
+   */
+  public boolean next(char ch)
+  {
+    if(state == CompiledLexer.NONE) return false;
+    int n = lexer.next(state, ch);
+    if(n == CompiledLexer.NONE) return false;
+    state = n;
+    return true;
+  }
+  
+  /**
+   * <p>Can the token end after the characters matched so far?
+   * 
+   * @return
+   */
+  public boolean isAccepted()
+  {
+    return (state != CompiledLexer.NONE) && (lexer.getAccepted(state) != CompiledLexer.NONE);
+  }
+  
+  /**
+   * <p>Reset to no token.
+   */
+  public void reset()
+  {
+    state = CompiledLexer.NONE;
+  }
+  
+  /**
+   * <p>Get the characters the pattern can start with, for {@link parserutil.main.TokenDescriptor#getTokenStartChars()}.
+   * 
+   * @param limit the most characters to list.
+   * @return the characters, or null if there are more than the limit.
+   */
+  public char[] getStartChars(int limit)
+  {
+    CharClass start = lexer.getStartChars();
+    return (start.size() <= limit) ? start.toArray() : null;
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.csv.parser.CSVTokenDescriptor;
+import parserutil.impl.csv.parser.CSVTokenType;
+import parserutil.main.GeneralParserCursor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+
+/**
+ * <p>Cursor API tests.  Make sure tokens read through the cursor match those read as token objects, and that reading
+ * them allocates nothing once the parser has warmed up.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVCursorAllocationTests
+{
+  /**
+   * <p>CSV parser exposing the cursor API.
+   */
+  private static class CursorCSVParser extends CSVParser
+  {
+    /**
+     * <p>Count the tokens in the content, reading them through the cursor.
+     * 
+     * @param content
+     * @return
+     * @throws IOException
+     * @throws GeneralParserException
+     */
+    long countTokens(Reader content) throws IOException, GeneralParserException
+    {
+      init();
+      GeneralParserCursor<CSVTokenDescriptor> cursor = getCursor();
+      long count = 0;
+      while(advance(content))
+      {
+        //Touch the descriptor and the text so the cursor isn't optimised away.
+        if( (cursor.getDescriptor().getTokenType() == CSVTokenType.VALUE) && (cursor.length() > 0) ) count += cursor.charAt(0) & 1;
+        count++;
+      }
+      return count;
+    }
+    
+    /**
+     * <p>Read the content through the cursor and render each token with its position.
+     * 
+     * @param content
+     * @return
+     * @throws IOException
+     * @throws GeneralParserException
+     */
+    String renderCursor(Reader content) throws IOException, GeneralParserException
+    {
+      init();
+      GeneralParserCursor<CSVTokenDescriptor> cursor = getCursor();
+      StringBuilder sb = new StringBuilder();
+      while(advance(content))
+      {
+        sb.append(cursor.getDescriptor().getTokenType()).append('[').append(cursor).append(']').append(cursor.getLocation()).append('\n');
+      }
+      return sb.toString();
+    }
+    
+    /**
+     * <p>Read the content as token objects and render each token with its position.
+     * 
+     * @param content
+     * @return
+     * @throws IOException
+     * @throws GeneralParserException
+     */
+    String renderTokens(Reader content) throws IOException, GeneralParserException
+    {
+      init();
+      StringBuilder sb = new StringBuilder();
+      GeneralParserToken<CSVTokenDescriptor> token = getNextToken(content);
+      while(token != null)
+      {
+        sb.append(token.descriptor.getTokenType()).append('[').append(token.getText()).append(']').append(token.getLocation()).append('\n');
+        token = getNextToken(content);
+      }
+      return sb.toString();
+    }
+  }
+  
+  /**
+   * <p>Build CSV content with the given number of rows.
+   * 
+   * @param rows
+   * @return
+   */
+  private static String buildContent(int rows)
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < rows; i++)
+    {
+      sb.append("row").append(i).append(",field value ").append(i).append(",").append(i * 31).append(",,last\n");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Test 1.  Cursor tokens are the same as token objects.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_cursor_matches_tokens() throws IOException, GeneralParserException
+  {
+    String content = buildContent(2000);
+    CursorCSVParser cp = new CursorCSVParser();
+    
+    assertEquals(cp.renderTokens(new StringReader(content)), cp.renderCursor(new StringReader(content)));
+  }
+  
+  /**
+   * <p>Test 2.  Reading tokens through the cursor allocates nothing in the steady state.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_cursor_no_allocation() throws IOException, GeneralParserException
+  {
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    String content = buildContent(30000);
+    CursorCSVParser cp = new CursorCSVParser();
+    
+    //Warm up so the read buffer has reached its working size and the lexing code has been compiled.
+    for(int i = 0; i < 5; i++) cp.countTokens(new StringReader(content));
+    
+    //Measure a full pass.  The reader is created before measuring starts.
+    Reader rd = new StringReader(content);
+    long before = bean.getThreadAllocatedBytes(threadId);
+    long count = cp.countTokens(rd);
+    long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+    
+    //Over 200000 tokens were read.  Allow a little for the measurement itself but nothing per token.
+    assertTrue(count > 200000);
+    assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.main.GeneralParserCursor;
+import parserutil.main.GeneralParserException;
+
+/**
+ * <p>Lazy location tests.  Make sure locations looked up from offsets match the counted ones across read blocks.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVLazyLocationTests
+{
+  /**
+   * <p>Parser that records the location of each value.
+   */
+  private static class LocationParser extends CSVParser
+  {
+    private final StringBuilder locations = new StringBuilder();
+    
+    String locations(String csv) throws IOException, GeneralParserException
+    {
+      GeneralParserCursor<?> cursor = getCursor();
+      parse(new StringReader(csv), v -> locations.append(cursor.getLocation()).append('|'));
+      return locations.toString();
+    }
+  }
+  
+  /**
+   * <p>Test 1.  Input much longer than a read block, with quoted fields over several lines.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_many_blocks() throws IOException, GeneralParserException
+  {
+    StringBuilder csv = new StringBuilder();
+    for(int i = 0; i < 5000; i++)
+    {
+      csv.append(i).append(",value ").append(i).append(",\"quoted\n").append(i).append("\"\r\n");
+    }
+    
+    String expected = new LocationParser().locations(csv.toString());
+    LocationParser lazy = new LocationParser();
+    lazy.setLazyLocations(true);
+    assertEquals(expected, lazy.locations(csv.toString()));
+  }
+}
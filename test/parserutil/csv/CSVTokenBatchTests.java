@@ -0,0 +1,89 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Batch receiver tests.  Make sure CSV tokens delivered in batches match the values delivered one at a time.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVTokenBatchTests
+{
+  /**
+   * <p>Test 1.  Batches from text and bytes, with each engine, hold the values' types and text.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_batches_match() throws IOException, GeneralParserException
+  {
+    String csv = "a,caf\u00e9,c\nd,\"e,\u4e16\",\"g\"\"h\"\r\n,,x\n\n";
+    StringBuilder expected = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv), v -> expected.append(v.getType()).append(v.getValue()));
+    
+    for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+    {
+      CSVParser cp = new CSVParser(engine);
+      cp.setBatchSize(5);
+      StringBuilder fromText = new StringBuilder();
+      cp.parseBatches(new StringReader(csv), b -> {
+        for(int i = 0; i < b.getSize(); i++)
+        {
+          fromText.append(b.getDescriptor(i).getValue(b.getText(i)).getType()).append(b.getDescriptor(i).getValue(b.getText(i)).getValue());
+        }
+      });
+      assertEquals(expected.toString(), fromText.toString());
+      
+      StringBuilder fromBytes = new StringBuilder();
+      cp.parseBatches(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), b -> {
+        for(int i = 0; i < b.getSize(); i++)
+        {
+          fromBytes.append(b.getDescriptorForCode(b.getCodes()[i]).getValue(b.getValue(i)).getType()).append(b.getDescriptor(i).getValue(b.getValue(i)).getValue());
+        }
+      });
+      assertEquals(expected.toString(), fromBytes.toString());
+    }
+  }
+}
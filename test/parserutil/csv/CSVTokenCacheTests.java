@@ -0,0 +1,88 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.TokenCache;
+
+/**
+ * <p>Token cache tests.  Make sure a CSV file replayed from the cache parses the same as a reader.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVTokenCacheTests
+{
+  /**
+   * <p>Test 1.  A file replayed from the cache parses to the same values as a reader.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_replay_matches_reader() throws IOException, GeneralParserException
+  {
+    StringBuilder csv = new StringBuilder();
+    for(int i = 0; i < 2000; i++) csv.append("row").append(i).append(",caf\u00e9 ").append(i).append(",\"q,\u4e16\n\"\"x\"\"\"\r\n");
+    Path file = Files.createTempFile("parserutil", ".csv");
+    file.toFile().deleteOnExit();
+    Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+    Path directory = Files.createTempDirectory("parserutil");
+    directory.toFile().deleteOnExit();
+    
+    StringBuilder fromReader = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv.toString()), v -> fromReader.append(v.getType()).append(v.getValue()));
+    
+    TokenCache cache = new TokenCache(directory);
+    CSVParser parser = new CSVParser();
+    parser.setTokenCache(cache);
+    for(int i = 0; i < 2; i++)
+    {
+      StringBuilder fromFile = new StringBuilder();
+      parser.parse(file, v -> fromFile.append(v.getType()).append(v.getValue()));
+      assertEquals(fromReader.toString(), fromFile.toString());
+    }
+    assertEquals(1, cache.getHits());
+    
+    Path entry = cache.getEntry(file, parser.getGrammar());
+    entry.toFile().deleteOnExit();
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVGeneratedParser;
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.csv.parser.CSVTokenDescriptor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Token stream tests.  Make sure CSV streams split between rows give the same tokens as reading in order.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVTokenStreamTests
+{
+  /**
+   * <p>Test 1.  Quoted fields over several lines, blank lines and CRLF rows, in memory and from a mapped file.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void test1_parallel_matches() throws IOException
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 500; i++)
+    {
+      sb.append(i).append(",caf\u00e9 ").append(i).append(",\"quoted\n,").append(i).append("\"\"\"").append((i % 3 == 0) ? "\r\n" : "\n");
+      if(i % 11 == 0) sb.append("\n\n");
+    }
+    String csv = sb.toString();
+    ByteBuffer bytes = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    
+    CSVParser cp = new CSVParser(LexerEngine.COMPILED);
+    String expected = cp.tokens(new StringReader(csv)).map(t -> t.toString()).collect(Collectors.joining("|"));
+    assertNotNull(cp.tokens(bytes, 100).spliterator().trySplit());
+    assertEquals(expected, cp.tokens(bytes, 100).parallel().map(t -> t.toString()).collect(Collectors.joining("|")));
+    
+    Path file = Files.createTempFile("parserutil", ".csv");
+    try
+    {
+      Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+      try(Stream<GeneralParserToken<CSVTokenDescriptor>> tokens = cp.tokens(file))
+      {
+        assertEquals(expected, tokens.parallel().map(t -> t.toString()).collect(Collectors.joining("|")));
+      }
+    }
+    finally
+    {
+      Files.delete(file);
+    }
+  }
+  
+  /**
+   * <p>Test 2.  A quote inside a field is a plain char: it doesn't quote the delimiters after it, in any engine, and
+   * doesn't stop the stream splitting at the rows after it.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_stray_quotes() throws IOException, GeneralParserException
+  {
+    String row = "5 o\"clock,\"a\"\"b\",c\"d,\"e,f\"\n";
+    for(CSVParser cp : new CSVParser[] {new CSVParser(LexerEngine.INTERPRETED), new CSVParser(LexerEngine.COMPILED), new CSVGeneratedParser()})
+    {
+      StringBuilder values = new StringBuilder();
+      cp.parse(new StringReader(row), v -> values.append(v.getValue()).append('|'));
+      assertEquals("5 o\"clock|,|a\"b|,|c\"d|,|e,f||", values.toString());
+    }
+    
+    String csv = row.repeat(50);
+    ByteBuffer bytes = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+    CSVParser cp = new CSVParser(LexerEngine.COMPILED);
+    String expected = cp.tokens(new StringReader(csv)).map(t -> t.toString()).collect(Collectors.joining("|"));
+    assertNotNull(cp.tokens(bytes, 100).spliterator().trySplit());
+    assertEquals(expected, cp.tokens(bytes, 100).parallel().map(t -> t.toString()).collect(Collectors.joining("|")));
+  }
+}
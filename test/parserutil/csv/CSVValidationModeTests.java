@@ -0,0 +1,112 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Validation mode tests.  Make sure well-formed CSV gives the same values in every mode.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CSVValidationModeTests
+{
+  /**
+   * <p>Test 1.  Values are the same in every mode with both engines, from text and bytes.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_values_match() throws IOException, GeneralParserException
+  {
+    String csv = "a,b,c\nd,\"e,f\",\"g\"\"h\"\r\n,,x\n\n";
+    StringBuilder expected = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv), v -> expected.append(v.getType()).append(v.getValue()));
+    
+    for(ValidationMode mode : ValidationMode.values())
+    {
+      for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+      {
+        CSVParser cp = new CSVParser(engine);
+        cp.setValidationMode(mode);
+        
+        StringBuilder fromText = new StringBuilder();
+        cp.parse(new StringReader(csv), v -> fromText.append(v.getType()).append(v.getValue()));
+        assertEquals(expected.toString(), fromText.toString());
+        
+        StringBuilder fromBytes = new StringBuilder();
+        cp.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), v -> fromBytes.append(v.getType()).append(v.getValue()));
+        assertEquals(expected.toString(), fromBytes.toString());
+      }
+    }
+  }
+  
+  /**
+   * <p>Test 2.  A mode given to a parse applies to that parse only.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_per_parse_mode() throws IOException, GeneralParserException
+  {
+    String csv = "a,b,c\nd,\"e,f\",\"g\"\"h\"\r\n,,x\n\n";
+    StringBuilder expected = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv), v -> expected.append(v.getType()).append(v.getValue()));
+    
+    CSVParser cp = new CSVParser();
+    cp.setValidationMode(ValidationMode.STRUCTURAL);
+    for(ValidationMode mode : ValidationMode.values())
+    {
+      StringBuilder fromText = new StringBuilder();
+      cp.parse(new StringReader(csv), v -> fromText.append(v.getType()).append(v.getValue()), mode);
+      assertEquals(expected.toString(), fromText.toString());
+      
+      StringBuilder fromBytes = new StringBuilder();
+      cp.parse(ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8)), v -> fromBytes.append(v.getType()).append(v.getValue()), mode);
+      assertEquals(expected.toString(), fromBytes.toString());
+      assertEquals(ValidationMode.STRUCTURAL, cp.getValidationMode());
+    }
+  }
+}
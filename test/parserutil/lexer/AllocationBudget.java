@@ -0,0 +1,114 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * <p>Allocation measurement for budget tests.  A parse is run until warmed up, then measured over a few passes with
+ * the thread allocation counter, and the bytes allocated per unit (token, field, char) are compared with a budget.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public final class AllocationBudget
+{
+  /**
+   * <p>A parse to measure.
+   */
+  public interface Parse
+  {
+    /**
+     * <p>Run the parse once.
+     * 
+     * @return the number of units parsed.
+     * @throws Exception
+     */
+    public long run() throws Exception;
+  }
+  
+  /**
+   * <p>Passes before measuring, so buffers have reached their working size and the parsing code has been compiled.
+   */
+  private static final int WARMUP = 10;
+  
+  /**
+   * <p>Passes measured.  The smallest is taken, so an allocation by the VM during one pass doesn't fail the budget.
+   */
+  private static final int PASSES = 3;
+  
+  /**
+   * <p>Measure the bytes allocated per unit by the parse.
+   * 
+   * @param parse
+   * @return
+   * @throws Exception
+   */
+  public static double perUnit(Parse parse) throws Exception
+  {
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    
+    for(int i = 0; i < WARMUP; i++) parse.run();
+    
+    double least = Double.MAX_VALUE;
+    for(int i = 0; i < PASSES; i++)
+    {
+      long before = bean.getThreadAllocatedBytes(threadId);
+      long units = parse.run();
+      long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+      least = Math.min(least, (double) allocated / units);
+    }
+    return least;
+  }
+  
+  /**
+   * <p>Fail if the parse allocates more than the budget per unit.
+   * 
+   * @param what the parse and unit, for the failure message.
+   * @param budget bytes allowed per unit.
+   * @param parse
+   * @throws Exception
+   */
+  public static void assertWithin(String what, double budget, Parse parse) throws Exception
+  {
+    double used = perUnit(parse);
+    assertTrue(String.format("%s: %.1f bytes allocated, budget %.1f", what, used, budget), used <= budget);
+  }
+  
+  /**
+   * <p>Static methods only.
+   */
+  private AllocationBudget()
+  {
+  }
+}
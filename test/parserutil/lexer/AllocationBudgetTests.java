@@ -0,0 +1,246 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVGeneratedParser;
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.textreplace.parser.TextReplaceParser;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Allocation budget tests.  Each grammar has a budget of bytes allocated per value, token or char in the steady
+ * state, for each way of parsing it.  The budgets are about a quarter over what is allocated now, so an accidental
+ * allocation per token fails them.  Lower a budget when a change brings the allocation down.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class AllocationBudgetTests
+{
+  /**
+   * <p>CSV: a value object per value, as well as the text.
+   */
+  private static final double CSV_PER_VALUE = 48;
+  
+  /**
+   * <p>CSV: nothing per token once the batch has grown.
+   */
+  private static final double CSV_BATCH_PER_TOKEN = 1;
+  
+  /**
+   * <p>JSON elements: a token object per token, as well as the text.
+   */
+  private static final double JSON_PER_TOKEN = 200;
+  
+  /**
+   * <p>JSON element batches: nothing per token once the batch has grown.
+   */
+  private static final double JSON_BATCH_PER_TOKEN = 1;
+  
+  /**
+   * <p>JSON documents: the value tree.
+   */
+  private static final double JSON_DOCUMENT_PER_CHAR = 72;
+  
+  /**
+   * <p>JSON documents in the arena: nothing per char once the arena has grown.
+   */
+  private static final double JSON_ARENA_PER_CHAR = 1;
+  
+  /**
+   * <p>Text replacement: the tokens and the replaced text.
+   */
+  private static final double TEXT_REPLACE_PER_CHAR = 96;
+  
+  /**
+   * <p>The engines each grammar is measured with.  Only CSV and JSON elements have generated parsers.
+   */
+  private static final LexerEngine[] ENGINES = {LexerEngine.INTERPRETED, LexerEngine.COMPILED};
+  
+  /**
+   * <p>Build CSV content.
+   * 
+   * @return
+   */
+  private static String buildCSV()
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 20000; i++)
+    {
+      sb.append("row").append(i).append(",field value ").append(i).append(',').append(i * 31).append(",\"q,").append(i).append("\",last\n");
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Build JSON content: an array of objects.
+   * 
+   * @return
+   */
+  private static String buildJSON()
+  {
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; i < 20000; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      sb.append("{\"id\":").append(i).append(", \"name\":\"item ").append(i).append("\", \"v\":[").append(i * 0.5).append(", true, null]}");
+    }
+    return sb.append(']').toString();
+  }
+  
+  /**
+   * <p>Test 1.  CSV values and batches, from chars and bytes, with each engine.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test1_csv() throws Exception
+  {
+    String csv = buildCSV();
+    byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+    long[] count = new long[1];
+    
+    for(CSVParser cp : new CSVParser[] {new CSVParser(LexerEngine.INTERPRETED), new CSVParser(LexerEngine.COMPILED), new CSVGeneratedParser()})
+    {
+      String engine = cp.getLexerEngine().name();
+      AllocationBudget.assertWithin("CSVParser chars per value, " + engine, CSV_PER_VALUE, () -> {
+        count[0] = 0;
+        cp.parse(new StringReader(csv), v -> count[0]++);
+        return count[0];
+      });
+      AllocationBudget.assertWithin("CSVParser bytes per value, " + engine, CSV_PER_VALUE, () -> {
+        count[0] = 0;
+        cp.parse(ByteBuffer.wrap(bytes), v -> count[0]++);
+        return count[0];
+      });
+      AllocationBudget.assertWithin("CSVParser batches per token, " + engine, CSV_BATCH_PER_TOKEN, () -> {
+        count[0] = 0;
+        cp.parseBatches(ByteBuffer.wrap(bytes), b -> count[0] += b.getSize());
+        return count[0];
+      });
+    }
+  }
+  
+  /**
+   * <p>Test 2.  JSON elements and batches, from chars and bytes, with each engine.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test2_json_elements() throws Exception
+  {
+    String json = buildJSON();
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    long[] count = new long[1];
+    
+    for(JSONElementParser jp : new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()})
+    {
+      String engine = jp.getLexerEngine().name();
+      AllocationBudget.assertWithin("JSONElementParser chars per token, " + engine, JSON_PER_TOKEN, () -> {
+        count[0] = 0;
+        jp.parse(new StringReader(json), t -> count[0]++);
+        return count[0];
+      });
+      AllocationBudget.assertWithin("JSONElementParser bytes per token, " + engine, JSON_PER_TOKEN, () -> {
+        count[0] = 0;
+        jp.parse(ByteBuffer.wrap(bytes), t -> count[0]++);
+        return count[0];
+      });
+      AllocationBudget.assertWithin("JSONElementParser batches per token, " + engine, JSON_BATCH_PER_TOKEN, () -> {
+        count[0] = 0;
+        jp.parseBatches(ByteBuffer.wrap(bytes), b -> count[0] += b.getSize());
+        return count[0];
+      });
+    }
+  }
+  
+  /**
+   * <p>Test 3.  JSON documents as value trees and in the arena, with each engine.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test3_json_document() throws Exception
+  {
+    String json = buildJSON();
+    byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    for(LexerEngine engine : ENGINES)
+    {
+      JSONDocumentParser dp = new JSONDocumentParser(engine);
+      AllocationBudget.assertWithin("JSONDocumentParser per char, " + engine, JSON_DOCUMENT_PER_CHAR, () -> {
+        dp.parse(new StringReader(json));
+        return json.length();
+      });
+      AllocationBudget.assertWithin("JSONDocumentParser arena chars per char, " + engine, JSON_ARENA_PER_CHAR, () -> {
+        dp.parseToArena(new StringReader(json)).release();
+        return json.length();
+      });
+      AllocationBudget.assertWithin("JSONDocumentParser arena bytes per char, " + engine, JSON_ARENA_PER_CHAR, () -> {
+        dp.parseToArena(ByteBuffer.wrap(bytes)).release();
+        return json.length();
+      });
+    }
+  }
+  
+  /**
+   * <p>Test 4.  Text replacement with each engine.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test4_text_replace() throws Exception
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 20000; i++) sb.append("some text ~key").append(i % 8).append("~ more ");
+    String template = sb.toString();
+    Map<String, String> replacements = new HashMap<>();
+    for(int i = 0; i < 8; i++) replacements.put("key" + i, "value " + i);
+    
+    for(LexerEngine engine : ENGINES)
+    {
+      TextReplaceParser tp = new TextReplaceParser(engine);
+      AllocationBudget.assertWithin("TextReplaceParser per char, " + engine, TEXT_REPLACE_PER_CHAR, () -> {
+        tp.doReplacement(new StringReader(template), replacements);
+        return template.length();
+      });
+    }
+  }
+}
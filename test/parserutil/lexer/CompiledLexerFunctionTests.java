@@ -0,0 +1,191 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.textreplace.parser.TextReplaceParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.CharClass;
+import parserutil.main.lexer.CompiledLexer;
+import parserutil.main.lexer.LexerCompiler;
+import parserutil.main.lexer.LexerEngine;
+import parserutil.main.lexer.TokenPattern;
+
+/**
+ * <p>Compiled lexer function tests.  Make sure patterns compile to the expected tables and that the compiled engine
+ * finds the same tokens as the interpreted engine.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class CompiledLexerFunctionTests
+{
+  /**
+   * <p>Run the lexer over the text from the start state.
+   * 
+   * @param lexer
+   * @param text
+   * @return the accepted pattern, or {@link CompiledLexer#NONE} if the text isn't a whole token.
+   */
+  private static int lex(CompiledLexer lexer, String text)
+  {
+    int state = lexer.getStartState();
+    for(int i = 0; i < text.length(); i++)
+    {
+      state = lexer.next(state, text.charAt(i));
+      if(state == CompiledLexer.NONE) return CompiledLexer.NONE;
+    }
+    return lexer.getAccepted(state);
+  }
+  
+  /**
+   * <p>Test 1.  Overlapping patterns are resolved at the end of the token, earlier patterns first.
+   */
+  @Test
+  public void test1_pattern_priority()
+  {
+    TokenPattern digits = TokenPattern.oneOrMore(TokenPattern.chars(CharClass.range('0', '9')));
+    TokenPattern keyword = TokenPattern.literal("if");
+    TokenPattern word = TokenPattern.oneOrMore(TokenPattern.chars(CharClass.range('a', 'z')));
+    TokenPattern real = TokenPattern.seq(digits, TokenPattern.character('.'), digits);
+    CompiledLexer lexer = LexerCompiler.compile(List.of(digits, keyword, word, real));
+    
+    assertEquals(0, lex(lexer, "123"));
+    assertEquals(1, lex(lexer, "if"));
+    assertEquals(2, lex(lexer, "iff"));
+    assertEquals(2, lex(lexer, "i"));
+    assertEquals(3, lex(lexer, "12.5"));
+    assertEquals(CompiledLexer.NONE, lex(lexer, "12."));
+    assertEquals(CompiledLexer.NONE, lex(lexer, "1a"));
+  }
+  
+  /**
+   * <p>Test 2.  Equivalent states are merged and characters no pattern tells apart share a class.
+   */
+  @Test
+  public void test2_minimised()
+  {
+    //(ab|cb)* needs a start/accept state and a state after 'a' or 'c'.
+    TokenPattern p = TokenPattern.zeroOrMore(TokenPattern.alt(TokenPattern.literal("ab"), TokenPattern.literal("cb")));
+    CompiledLexer lexer = LexerCompiler.compile(List.of(p));
+    
+    assertEquals(2, lexer.getStateCount());
+    assertEquals(lexer.getCharClass('a'), lexer.getCharClass('c'));
+    assertNotEquals(lexer.getCharClass('a'), lexer.getCharClass('b'));
+    assertEquals(lexer.getCharClass('x'), lexer.getCharClass('\u4e16'));
+  }
+  
+  /**
+   * <p>Test 3.  JSON documents parse the same with both engines.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_json_engines_match() throws IOException, GeneralParserException
+  {
+    String tststr = "# comment\n{\"f1\":\"v1 \\\" q\", \"f2\":-1234.3234, \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {}]}";
+    JSONDocumentParser interpreted = new JSONDocumentParser();
+    JSONDocumentParser compiled = new JSONDocumentParser(LexerEngine.COMPILED);
+    
+    assertEquals(LexerEngine.COMPILED, compiled.getLexerEngine());
+    assertEquals(interpreted.parse(new StringReader(tststr)).toString(), compiled.parse(new StringReader(tststr)).toString());
+  }
+  
+  /**
+   * <p>Test 4.  JSON elements have the same designations with both engines.  Numbers in particular are designated by
+   * pattern in the compiled engine.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test4_json_designations_match() throws IOException, GeneralParserException
+  {
+    String tststr = "[1, -2, 3.5, 4e2, \"s\", true, null]";
+    StringBuilder interpreted = new StringBuilder();
+    StringBuilder compiled = new StringBuilder();
+    new JSONElementParser().parse(new StringReader(tststr), t -> interpreted.append(t.getTokenValue()).append(t.descriptor.getDesignation()).append(t.getLocation()));
+    new JSONElementParser(LexerEngine.COMPILED).parse(new StringReader(tststr), t -> compiled.append(t.getTokenValue()).append(t.descriptor.getDesignation()).append(t.getLocation()));
+    
+    assertEquals(interpreted.toString(), compiled.toString());
+  }
+  
+  /**
+   * <p>Test 5.  CSV and text replacement parse the same with both engines.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test5_csv_textreplace_engines_match() throws IOException, GeneralParserException
+  {
+    String csv = "a,b,c\nd,\"e,f\",\"g\"\"h\"\r\n,,x\n\n";
+    StringBuilder interpreted = new StringBuilder();
+    StringBuilder compiled = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv), v -> interpreted.append(v.getType()).append(v.getValue()));
+    new CSVParser(LexerEngine.COMPILED).parse(new StringReader(csv), v -> compiled.append(v.getType()).append(v.getValue()));
+    assertEquals(interpreted.toString(), compiled.toString());
+    
+    String text = "Hello ~world~, esc \\~ tilde ~x~!";
+    Map<String, String> map = new HashMap<>();
+    map.put("world", "Earth");
+    map.put("x", "X");
+    assertEquals(new TextReplaceParser().doReplacement(new StringReader(text), map), new TextReplaceParser(LexerEngine.COMPILED).doReplacement(new StringReader(text), map));
+  }
+  
+  /**
+   * <p>Test 6.  The compiled engine rejects tokens that stop part way through their pattern.
+   */
+  @Test
+  public void test6_incomplete_token()
+  {
+    JSONDocumentParser jp = new JSONDocumentParser(LexerEngine.COMPILED);
+    
+    assertThrows(GeneralParserException.class, () -> {
+      jp.parse(new StringReader("[1, tru]"));
+    });
+    assertThrows(GeneralParserException.class, () -> {
+      jp.parse(new StringReader("[\"unterminated"));
+    });
+  }
+}
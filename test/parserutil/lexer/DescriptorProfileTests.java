@@ -0,0 +1,214 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.DescriptorProfile;
+import parserutil.main.GeneralParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+import parserutil.main.TokenDescriptor;
+
+/**
+ * <p>Descriptor profile tests.  Make sure adaptive ordering reads the same tokens whichever descriptor is ranked first,
+ * and that profiles count, store and load correctly.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class DescriptorProfileTests
+{
+  /**
+   * <p>Test document.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" x\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\u00e9\":[]}]}\n";
+  
+  /**
+   * <p>Test CSV.
+   */
+  private static final String CSV = "a,b,c\nd,\"e,f\",\"g\"\"h\"\r\n,,x\n\n";
+  
+  /**
+   * <p>Test 1.  JSON and CSV tokens are the same without a profile, with a new profile that ranks the descriptors as it
+   * goes, and with a loaded profile ranking each descriptor in turn first.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_tokens_unchanged() throws IOException, GeneralParserException
+  {
+    //Long enough to be ranked again part way through.
+    String json = DOCUMENT.repeat(500);
+    String csv = CSV.repeat(500);
+    String expectedJSON = tokens(new JSONElementParser(), json);
+    String expectedCSV = tokens(new CSVParser(), csv);
+    
+    JSONElementParser jp = new JSONElementParser();
+    jp.setDescriptorProfile(new DescriptorProfile(jp.getTokenDescriptors()));
+    assertEquals(expectedJSON, tokens(jp, json));
+    CSVParser cp = new CSVParser();
+    cp.setDescriptorProfile(new DescriptorProfile(cp.getTokenDescriptors()));
+    assertEquals(expectedCSV, tokens(cp, csv));
+    
+    for(int i = 0; i < jp.getTokenDescriptors().size(); i++)
+    {
+      jp.setDescriptorProfile(ranked(jp.getTokenDescriptors(), i));
+      assertEquals(expectedJSON, tokens(jp, json));
+    }
+    for(int i = 0; i < cp.getTokenDescriptors().size(); i++)
+    {
+      cp.setDescriptorProfile(ranked(cp.getTokenDescriptors(), i));
+      assertEquals(expectedCSV, tokens(cp, csv));
+    }
+  }
+  
+  /**
+   * <p>Test 2.  Every token read is counted against its descriptor, by parsers sharing a profile.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_counts() throws IOException, GeneralParserException
+  {
+    JSONElementParser jp = new JSONElementParser();
+    List<JSONTokenDescriptor> descriptors = jp.getTokenDescriptors();
+    List<GeneralParserToken<JSONTokenDescriptor>> tokens = new ArrayList<>();
+    jp.tokens(new StringReader(DOCUMENT)).forEach(tokens::add);
+    
+    DescriptorProfile profile = new DescriptorProfile(descriptors);
+    JSONElementParser other = new JSONElementParser();
+    jp.setDescriptorProfile(profile);
+    other.setDescriptorProfile(profile);
+    assertSame(profile, jp.getDescriptorProfile());
+    jp.parse(new StringReader(DOCUMENT), t -> {});
+    other.parse(new StringReader(DOCUMENT), t -> {});
+    
+    long total = 0;
+    for(int i = 0; i < descriptors.size(); i++)
+    {
+      JSONTokenDescriptor d = descriptors.get(i);
+      assertEquals(2 * tokens.stream().filter(t -> t.descriptor == d).count(), profile.getMatches(i));
+      total += profile.getMatches(i);
+    }
+    assertEquals(2 * tokens.size(), total);
+    
+    //Ranked most matched first.
+    int[] ranking = profile.getRanking();
+    for(int i = 1; i < ranking.length; i++) assertTrue(profile.getMatches(ranking[i - 1]) >= profile.getMatches(ranking[i]));
+    
+    //Switched off, nothing more is counted.
+    jp.setDescriptorProfile(null);
+    jp.parse(new StringReader(DOCUMENT), t -> {});
+    assertEquals(total, Arrays.stream(ranking).mapToLong(profile::getMatches).sum());
+  }
+  
+  /**
+   * <p>Test 3.  A stored profile loads back with the same counts, entries for other descriptors are ignored, and bad
+   * counts and profiles for other grammars are rejected.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_store_load() throws IOException, GeneralParserException
+  {
+    JSONElementParser jp = new JSONElementParser();
+    DescriptorProfile profile = new DescriptorProfile(jp.getTokenDescriptors());
+    jp.setDescriptorProfile(profile);
+    jp.parse(new StringReader(DOCUMENT), t -> {});
+    
+    StringWriter stored = new StringWriter();
+    profile.store(stored);
+    DescriptorProfile loaded = new DescriptorProfile(jp.getTokenDescriptors());
+    loaded.load(new StringReader(stored.toString() + "99.some.OtherDescriptor=5\n"));
+    for(int i = 0; i < profile.getDescriptorCount(); i++) assertEquals(profile.getMatches(i), loaded.getMatches(i));
+    assertEquals(Arrays.toString(profile.getRanking()), Arrays.toString(loaded.getRanking()));
+    
+    //Another grammar's descriptors don't match.
+    DescriptorProfile csv = new DescriptorProfile(new CSVParser().getTokenDescriptors());
+    csv.load(new StringReader(stored.toString()));
+    for(int i = 0; i < csv.getDescriptorCount(); i++) assertEquals(0, csv.getMatches(i));
+    assertThrows(IllegalArgumentException.class, () -> new CSVParser().setDescriptorProfile(profile));
+    
+    String key = "0." + jp.getTokenDescriptors().get(0).getClass().getName();
+    assertThrows(IllegalArgumentException.class, () -> loaded.load(new StringReader(key + "=-1\n")));
+    assertThrows(IllegalArgumentException.class, () -> loaded.load(new StringReader(key + "=many\n")));
+    
+    loaded.reset();
+    assertEquals(0, loaded.getMatches(0));
+  }
+  
+  /**
+   * <p>Make a profile that ranks the given descriptor first.
+   * 
+   * @param descriptors
+   * @param code
+   * @return
+   * @throws IOException
+   */
+  private static DescriptorProfile ranked(List<? extends TokenDescriptor> descriptors, int code) throws IOException
+  {
+    DescriptorProfile profile = new DescriptorProfile(descriptors);
+    profile.load(new StringReader(code + "." + descriptors.get(code).getClass().getName() + "=1000000\n"));
+    assertEquals(code, profile.getRanking()[0]);
+    return profile;
+  }
+  
+  /**
+   * <p>Read the tokens of the input into a string of their descriptors, text and locations.
+   * 
+   * @param parser
+   * @param input
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static <T extends TokenDescriptor> String tokens(GeneralParser<T> parser, String input) throws IOException, GeneralParserException
+  {
+    StringBuilder sb = new StringBuilder();
+    parser.tokens(new StringReader(input)).forEach(t -> sb.append(parser.getTokenDescriptors().indexOf(t.descriptor)).append(t.getText()).append(t.getLocation()).append('\n'));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import parserutil.impl.csv.parser.CSVGeneratedParser;
+import parserutil.impl.csv.parser.CSVParser;
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+import parserutil.main.lexer.LexerGenerator;
+
+/**
+ * <p>Generated lexer function tests.  Make sure the generated parsers find the same tokens as the interpreted engine.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class GeneratedLexerFunctionTests
+{
+  /**
+   * <p>Test 1.  JSON elements have the same values, designations and locations with the generated lexer.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_json_generated_matches() throws IOException, GeneralParserException
+  {
+    String tststr = "# comment\n{\"f1\":\"v1 \\\" q\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {}]}";
+    StringBuilder interpreted = new StringBuilder();
+    StringBuilder generated = new StringBuilder();
+    JSONElementGeneratedParser gp = new JSONElementGeneratedParser();
+    new JSONElementParser().parse(new StringReader(tststr), t -> interpreted.append(t.getTokenValue()).append(t.descriptor.getDesignation()).append(t.getLocation()));
+    gp.parse(new StringReader(tststr), t -> generated.append(t.getTokenValue()).append(t.descriptor.getDesignation()).append(t.getLocation()));
+    
+    assertEquals(LexerEngine.GENERATED, gp.getLexerEngine());
+    assertEquals(interpreted.toString(), generated.toString());
+  }
+  
+  /**
+   * <p>Test 2.  CSV values are the same with the generated lexer.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_csv_generated_matches() throws IOException, GeneralParserException
+  {
+    String csv = "a,b,c\nd,\"e,f\",\"g\"\"h\"\r\n,,x\n\n";
+    StringBuilder interpreted = new StringBuilder();
+    StringBuilder generated = new StringBuilder();
+    new CSVParser().parse(new StringReader(csv), v -> interpreted.append(v.getType()).append(v.getValue()));
+    new CSVGeneratedParser().parse(new StringReader(csv), v -> generated.append(v.getType()).append(v.getValue()));
+    
+    assertEquals(interpreted.toString(), generated.toString());
+  }
+  
+  /**
+   * <p>Test 3.  The generated lexer rejects tokens that stop part way through their pattern.
+   */
+  @Test
+  public void test3_incomplete_token()
+  {
+    assertThrows(GeneralParserException.class, () -> {
+      new JSONElementGeneratedParser().parse(new StringReader("[1, tru]"), t -> {});
+    });
+    assertThrows(GeneralParserException.class, () -> {
+      new JSONElementGeneratedParser().parse(new StringReader("[\"unterminated"), t -> {});
+    });
+  }
+  
+  /**
+   * <p>Test 4.  The generator writes a subclass of the parser that overrides the lexer.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void test4_generator_output() throws IOException
+  {
+    StringWriter out = new StringWriter();
+    new LexerGenerator(new JSONElementParser(LexerEngine.COMPILED).getTokenDescriptors()).generate(out, "", "parserutil.impl.json.parser", "JSONElementGeneratedParser", JSONElementParser.class);
+    String src = out.toString();
+    
+    assertTrue(src.contains("public class JSONElementGeneratedParser extends JSONElementParser"));
+    assertTrue(src.contains("protected int lexGenerated(char ch)"));
+  }
+  
+  /**
+   * <p>Test 5.  The generated engine is refused when the parser is built if the parser has no generated lexer.
+   */
+  @Test
+  public void test5_generated_engine_needs_generated_parser()
+  {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+      new JSONElementParser(LexerEngine.GENERATED);
+    });
+    assertTrue(e.getMessage().contains(JSONElementParser.class.getName()));
+    assertThrows(IllegalArgumentException.class, () -> {
+      new CSVParser(LexerEngine.GENERATED);
+    });
+    
+    assertEquals(LexerEngine.GENERATED, new JSONElementGeneratedParser().getLexerEngine());
+    assertEquals(LexerEngine.GENERATED, new CSVGeneratedParser().getLexerEngine());
+  }
+  
+  /**
+   * <p>Test 6.  All three engines reject the same malformed JSON tokens and read escaped quotes the same way.
+   */
+  @Test
+  public void test6_engines_agree()
+  {
+    String[] malformed = {"[-]", "[1e]", "[1e+]", "[tru]", "[fals]", "[nul]", "[\"unterminated", "[--1]", "[-a]", "[.5]", "[+1]", "[truex]"};
+    for(String in : malformed)
+    {
+      assertEquals(in, "error", lex(new JSONElementParser(LexerEngine.INTERPRETED), in));
+      assertEquals(in, "error", lex(new JSONElementParser(LexerEngine.COMPILED), in));
+      assertEquals(in, "error", lex(new JSONElementGeneratedParser(), in));
+    }
+    
+    String[][] wellformed = {
+      {"{\"a\":\"x\\\\\"}", "{|\"a\"|:|\"x\\\\\"|}|"},
+      {"[\"a\\\"b\"]", "[|\"a\\\"b\"|]|"},
+      {"[\"x\\\\\\\"y\"]", "[|\"x\\\\\\\"y\"|]|"},
+      {"[1.5e3, -0, 1.]", "[|1.5e3|,|-0|,|1.|]|"}
+    };
+    for(String[] in : wellformed)
+    {
+      assertEquals(in[0], in[1], lex(new JSONElementParser(LexerEngine.INTERPRETED), in[0]));
+      assertEquals(in[0], in[1], lex(new JSONElementParser(LexerEngine.COMPILED), in[0]));
+      assertEquals(in[0], in[1], lex(new JSONElementGeneratedParser(), in[0]));
+    }
+  }
+  
+  /**
+   * <p>Lex the input without validating it.
+   * 
+   * @param parser
+   * @param in
+   * @return The token values, each followed by '|', or "error" if the input is rejected.
+   */
+  private static String lex(JSONElementParser parser, String in)
+  {
+    StringBuilder sb = new StringBuilder();
+    parser.setValidationMode(ValidationMode.NONE);
+    try
+    {
+      parser.parse(new StringReader(in), t -> sb.append(t.getTokenValue()).append('|'));
+    }
+    catch(IOException | GeneralParserException e)
+    {
+      return "error";
+    }
+    return sb.toString();
+  }
+}
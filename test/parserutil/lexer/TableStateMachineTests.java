@@ -0,0 +1,186 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.lexer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import parserutil.main.GeneralParserStateMachineException;
+import parserutil.main.StateTable;
+import parserutil.main.TableStateMachine;
+import parserutil.main.TokenDescriptor;
+
+/**
+ * <p>Table-driven state machine tests.  Make sure moves, nested sections, ignored symbols and failures follow the
+ * table.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class TableStateMachineTests
+{
+  /**
+   * <p>Token descriptor for a single char, whose symbol is its position in {@link #SYMBOLS}.
+   */
+  private static class CharDescriptor implements TokenDescriptor
+  {
+    private final char ch;
+    
+    CharDescriptor(char ch)
+    {
+      this.ch = ch;
+    }
+    
+    @Override
+    public boolean isTokenStartChar(char ch)
+    {
+      return ch == this.ch;
+    }
+
+    @Override
+    public boolean isTokenContentChar(char ch)
+    {
+      return false;
+    }
+
+    @Override
+    public void init()
+    {
+    }
+  }
+  
+  /**
+   * <p>Symbols: open, close, item, separator, space.
+   */
+  private static final String SYMBOLS = "()x, ";
+  
+  /**
+   * <p>Lists: '(' items separated by ',' ')', where an item is 'x' or a list.  Spaces are ignored.  A list is followed
+   * by the end of input.
+   */
+  private static final StateTable TABLE = new StateTable.Builder(4, SYMBOLS.length())
+      .push(0, 0, 3, 1)
+      .fail(0, "start")
+      .move(1, 2, 2).push(1, 0, 2, 1).pop(1, 1)
+      .fail(1, "item")
+      .move(2, 3, 1).pop(2, 1)
+      .fail(2, "separator")
+      .fail(3, "end")
+      .ignore(4)
+      .build();
+  
+  /**
+   * <p>List machine.
+   */
+  private static class ListMachine extends TableStateMachine<CharDescriptor>
+  {
+    ListMachine()
+    {
+      super(TABLE);
+    }
+    
+    @Override
+    protected int symbol(CharDescriptor t)
+    {
+      return SYMBOLS.indexOf(t.ch);
+    }
+  }
+  
+  /**
+   * <p>Check the text, one char per token.
+   * 
+   * @param machine
+   * @param text
+   * @return the failure message, or null if every token was accepted.
+   */
+  private static String check(ListMachine machine, String text)
+  {
+    machine.initialise();
+    try
+    {
+      for(int i = 0; i < text.length(); i++) machine.check(new CharDescriptor(text.charAt(i)));
+      return null;
+    }
+    catch(GeneralParserStateMachineException e)
+    {
+      return e.getMessage();
+    }
+  }
+  
+  /**
+   * <p>Test 1.  Accepted and failed input, with the message of the state failed in.
+   */
+  @Test
+  public void test1_accept_and_fail()
+  {
+    ListMachine machine = new ListMachine();
+    assertNull(check(machine, "()"));
+    assertNull(check(machine, "( x, (x, ()), x )"));
+    assertEquals(3, machine.getState());
+    assertEquals(0, machine.getDepth());
+    
+    assertEquals("start", check(machine, "x"));
+    assertEquals("item", check(machine, "(,"));
+    assertEquals("separator", check(machine, "(x x"));
+    assertEquals("end", check(machine, "() ()"));
+    assertEquals("item", check(machine, "((x, ,"));
+    assertEquals(2, machine.getDepth());
+  }
+  
+  /**
+   * <p>Test 2.  Nesting deeper than the initial stack.
+   */
+  @Test
+  public void test2_deep_nesting()
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 10000; i++) sb.append('(');
+    sb.append('x');
+    for(int i = 0; i < 10000; i++) sb.append(')');
+    
+    ListMachine machine = new ListMachine();
+    assertNull(check(machine, sb.toString()));
+    assertEquals(3, machine.getState());
+  }
+  
+  /**
+   * <p>Test 3.  Builder arguments outside the table are refused.
+   */
+  @Test
+  public void test3_builder_bounds()
+  {
+    assertThrows(IllegalArgumentException.class, () -> new StateTable.Builder(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new StateTable.Builder(2, 2).move(0, 2, 1));
+    assertThrows(IllegalArgumentException.class, () -> new StateTable.Builder(2, 2).push(0, 0, 2, 1));
+    assertEquals(4, TABLE.getStateCount());
+    assertEquals(5, TABLE.getSymbolCount());
+  }
+}
@@ -29,9 +29,15 @@
  */
 package test.parserutil.textreplace;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
 import org.junit.Test;
 
+import parserutil.impl.textreplace.parser.TextReplaceParser;
 import parserutil.main.GeneralParserException;
 
 /**
@@ -62,4 +68,22 @@ public class TextReplaceFunctionTests
 //      System.out.println(next.getValue() + ( (next.isReplacement()) ? " [replacement]" : ""));
 //    }
   }
+  
+  /**
+   * <p>Test 2.  Replacement gives the same text in zero-copy mode, where token values are views of the read buffer.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_zero_copy() throws IOException, GeneralParserException
+  {
+    Map<String, String> replacements = Map.of("world", "Earth", "x", "y");
+    for(boolean zeroCopy : new boolean[] {false, true})
+    {
+      TextReplaceParser trp = new TextReplaceParser();
+      trp.setZeroCopyTokens(zeroCopy);
+      assertEquals("Hello Earth and y end ", trp.doReplacement(new StringReader("Hello ~world~ and ~x~ end"), replacements));
+    }
+  }
 }
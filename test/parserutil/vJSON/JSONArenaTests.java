@@ -0,0 +1,191 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import parserutil.impl.json.JSONInstanceType;
+import parserutil.impl.json.JSONValueImpl.VALTYPE;
+import parserutil.impl.json.parser.JSONArena;
+import parserutil.impl.json.parser.JSONArenaDocument;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON arena tests.  Make sure documents parsed into the arena match the value tree, can be navigated, and free the
+ * arena for reuse when released.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONArenaTests
+{
+  /**
+   * <p>Test document, with a 2 byte char and a supplementary char.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" x\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\u00e9\":[]}], \"f7\":{\"\ud83d\ude00\":{}}}";
+  
+  /**
+   * <p>Test 1.  Arena documents print the same as the value tree, from text and bytes, with both engines, for objects,
+   * arrays and simple values at the top level.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_matches_tree() throws IOException, GeneralParserException
+  {
+    for(String json : new String[] {DOCUMENT, "[1, \"a\", [], {}, [[null]]]", "\"simple\"", "{}"})
+    {
+      String expected = new JSONDocumentParser().parse(new StringReader(json)).toString();
+      for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+      {
+        JSONDocumentParser dp = new JSONDocumentParser(engine);
+        try(JSONArenaDocument doc = dp.parseToArena(new StringReader(json)))
+        {
+          assertEquals(expected, doc.toString());
+          assertEquals(expected, doc.toValueHolder(doc.getRoot()).toString());
+        }
+        try(JSONArenaDocument doc = dp.parseToArena(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))))
+        {
+          assertEquals(expected, doc.toString());
+        }
+      }
+    }
+  }
+  
+  /**
+   * <p>Test 2.  Nodes are navigated by index and by name.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_navigate() throws IOException, GeneralParserException
+  {
+    try(JSONArenaDocument doc = new JSONDocumentParser().parseToArena(new StringReader(DOCUMENT)))
+    {
+      int root = doc.getRoot();
+      assertEquals(JSONInstanceType.OBJECT, doc.getType(root));
+      assertEquals(7, doc.size(root));
+      assertEquals("f1", doc.getFieldName(root, 0));
+      assertEquals("f7", doc.getFieldName(root, 6));
+      
+      int f1 = doc.getField(root, "f1");
+      assertEquals(f1, doc.getField(root, 0));
+      assertEquals(VALTYPE.STR, doc.getValueType(f1));
+      assertEquals("v1 \\\" x", doc.getValue(f1));
+      assertEquals("\"v1 \\\" x\"", doc.getText(f1).toString());
+      assertEquals(VALTYPE.NUM_REA, doc.getValueType(doc.getField(root, "f2")));
+      assertEquals("-1234.3234", doc.getValue(doc.getField(root, "f2")));
+      assertEquals("true", doc.getValue(doc.getField(root, "f3")));
+      assertEquals(VALTYPE.NULL, doc.getValueType(doc.getField(root, "f5")));
+      
+      int f6 = doc.getField(root, "f6");
+      assertEquals(JSONInstanceType.ARRAY, doc.getType(f6));
+      assertEquals(3, doc.size(f6));
+      assertEquals(1234, doc.getIntegerValue(doc.getElement(f6, 0)));
+      int inner = doc.getElement(f6, 2);
+      assertEquals(JSONInstanceType.OBJECT, doc.getType(inner));
+      assertEquals(0, doc.size(doc.getField(inner, "\u00e9")));
+      assertEquals("[ 1234 , 1e-5 , { \"\u00e9\":[  ] } ]", doc.getValue(f6));
+      
+      //Fields after nested containers are found.
+      assertEquals(1, doc.size(doc.getField(root, "f7")));
+      
+      assertEquals(-1, doc.peekField(root, "f8"));
+      assertThrows(IllegalArgumentException.class, () -> doc.getField(root, "f8"));
+      assertThrows(IllegalStateException.class, () -> doc.getIntegerValue(f1));
+      assertThrows(IllegalStateException.class, () -> doc.size(f1));
+      assertThrows(IllegalStateException.class, () -> doc.getElement(root, 0));
+      assertThrows(IndexOutOfBoundsException.class, () -> doc.getElement(f6, 3));
+      assertThrows(IndexOutOfBoundsException.class, () -> doc.getType(1));
+    }
+  }
+  
+  /**
+   * <p>Test 3.  The arena is reused once a document is released, not before, and keeps its high-water marks.  A
+   * released document can't be used, and a failed parse leaves the arena free.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_release() throws IOException, GeneralParserException
+  {
+    JSONDocumentParser dp = new JSONDocumentParser();
+    assertNull(dp.getArena());
+    
+    JSONArenaDocument doc = dp.parseToArena(new StringReader(DOCUMENT));
+    JSONArena arena = dp.getArena();
+    assertTrue(arena.isInUse());
+    assertThrows(IllegalStateException.class, () -> dp.parseToArena(new StringReader("[]")));
+    
+    //The whole document's text and nodes: the root, seven fields of a name and a value, three elements of f6 and a
+    //field in each inner object.
+    int textHighWater = arena.getTextHighWater();
+    int nodeHighWater = arena.getNodeHighWater();
+    assertTrue(textHighWater > 0 && textHighWater < DOCUMENT.length());
+    assertEquals(1 + 7 * 2 + 3 + 2 + 2, nodeHighWater);
+    assertTrue(arena.getHighWaterBytes() <= arena.getCapacityBytes());
+    
+    doc.release();
+    doc.release();
+    assertFalse(arena.isInUse());
+    assertThrows(IllegalStateException.class, () -> doc.getRoot());
+    assertThrows(IllegalStateException.class, () -> doc.getType(0));
+    
+    //A smaller document reuses the arena and leaves the high-water marks.
+    long capacity = arena.getCapacityBytes();
+    try(JSONArenaDocument small = dp.parseToArena(new StringReader("[1]")))
+    {
+      assertSame(arena, dp.getArena());
+      assertEquals("[ 1 ]", small.toString());
+      assertEquals(capacity, arena.getCapacityBytes());
+      assertEquals(textHighWater, arena.getTextHighWater());
+      assertEquals(nodeHighWater, arena.getNodeHighWater());
+      assertThrows(IllegalStateException.class, () -> doc.getRoot());
+    }
+    
+    //Bad input fails without holding on to the arena.
+    assertThrows(GeneralParserException.class, () -> dp.parseToArena(new StringReader("{\"a\" 1}")));
+    assertThrows(GeneralParserException.class, () -> dp.parseToArena(new StringReader("[1, 2")));
+    assertFalse(arena.isInUse());
+    dp.parseToArena(new StringReader("{}")).close();
+  }
+}
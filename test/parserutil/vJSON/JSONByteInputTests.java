@@ -0,0 +1,133 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import parserutil.impl.json.JSONValueHolder;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON byte input tests.  Make sure UTF-8 bytes lexed directly give the same results as decoded text.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONByteInputTests
+{
+  /**
+   * <p>Test document, with 2 and 3 byte chars and a supplementary char.
+   */
+  private static final String DOCUMENT = "# caf\u00e9\n{\"f1\":\"v1 \\\" \u4e16\u754c\", \"f\u00e9\":-1234.3234, \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\ud83d\ude00\":[]}]}";
+  
+  /**
+   * <p>Test 1.  Documents parse the same from bytes as from text with both engines.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_document_matches() throws IOException, GeneralParserException
+  {
+    String expected = new JSONDocumentParser().parse(new StringReader(DOCUMENT)).toString();
+    byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    
+    for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+    {
+      JSONValueHolder fromBytes = new JSONDocumentParser(engine).parse(ByteBuffer.wrap(bytes));
+      assertEquals(expected, fromBytes.toString());
+      
+      //Off heap.
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes).flip();
+      assertEquals(expected, new JSONDocumentParser(engine).parse(direct).toString());
+      assertEquals(0, direct.position());
+    }
+  }
+  
+  /**
+   * <p>Test 2.  Zero-copy element tokens from bytes are views that stay valid after the parse, with the same values and
+   * lines as from text and byte offsets that hold their UTF-8 text.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_element_tokens() throws IOException, GeneralParserException
+  {
+    byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    List<GeneralParserToken<JSONTokenDescriptor>> fromText = new ArrayList<>();
+    List<GeneralParserToken<JSONTokenDescriptor>> fromBytes = new ArrayList<>();
+    new JSONElementParser().parse(new StringReader(DOCUMENT), t -> fromText.add(t));
+    JSONElementParser jp = new JSONElementParser(LexerEngine.COMPILED);
+    jp.setZeroCopyTokens(true);
+    jp.parse(ByteBuffer.wrap(bytes), t -> fromBytes.add(t));
+    
+    assertEquals(fromText.size(), fromBytes.size());
+    for(int i = 0; i < fromText.size(); i++)
+    {
+      GeneralParserToken<JSONTokenDescriptor> t = fromBytes.get(i);
+      assertTrue(t.isView());
+      assertEquals(fromText.get(i).getTokenValue(), t.getTokenValue());
+      assertEquals(fromText.get(i).getLocation().toString(), t.getLocation().toString());
+      assertEquals(t.getTokenValue(), new String(Arrays.copyOfRange(bytes, (int) t.byteStart, (int) t.byteEnd), StandardCharsets.UTF_8));
+    }
+  }
+  
+  /**
+   * <p>Test 3.  Malformed UTF-8 is rejected.
+   */
+  @Test
+  public void test3_malformed()
+  {
+    assertThrows(MalformedInputException.class, () -> {
+      new JSONDocumentParser().parse(ByteBuffer.wrap(new byte[] {'[', '"', (byte) 0xed, (byte) 0xa0, (byte) 0x80, '"', ']'}));
+    });
+    assertThrows(MalformedInputException.class, () -> {
+      new JSONDocumentParser().parse(ByteBuffer.wrap(new byte[] {'[', '"', (byte) 0xf0, (byte) 0x9f}));
+    });
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import parserutil.impl.json.JSONValueHolder;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.UncheckedGeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON document stream tests.  Make sure newline delimited and concatenated JSON is read as one document per value,
+ * in order and in parallel.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONDocumentStreamTests
+{
+  /**
+   * <p>Build newline delimited JSON records, with strings holding the chars the split scan looks for.
+   * 
+   * @param records
+   * @return
+   */
+  private static List<String> buildRecords(int records)
+  {
+    List<String> ret = new ArrayList<>();
+    for(int i = 0; i < records; i++)
+    {
+      switch(i % 4)
+      {
+        case 0:
+          ret.add("{\"id\":" + i + ", \"msg\":\"caf\u00e9 {[# \\\" ]}\", \"tags\":[\"a\", \"b\"]}");
+          break;
+        case 1:
+          ret.add("[" + i + ", 1.5e3, true, null, {}]");
+          break;
+        case 2:
+          ret.add("\"\ud83d\ude00 " + i + "\"");
+          break;
+        default:
+          ret.add(Integer.toString(i));
+      }
+    }
+    return ret;
+  }
+  
+  /**
+   * <p>Get the documents each parsed on its own.
+   * 
+   * @param records
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static List<String> parseEach(List<String> records) throws IOException, GeneralParserException
+  {
+    List<String> ret = new ArrayList<>();
+    for(String r : records) ret.add(new JSONDocumentParser().parse(new StringReader(r)).toString());
+    return ret;
+  }
+  
+  /**
+   * <p>Get the documents of a stream as strings.
+   * 
+   * @param documents
+   * @return
+   */
+  private static List<String> strings(Stream<JSONValueHolder> documents)
+  {
+    return documents.map(JSONValueHolder::toString).collect(Collectors.toList());
+  }
+  
+  /**
+   * <p>Test 1.  Newline delimited and concatenated documents, with comments and blank lines between them, are read from
+   * one reader as the documents parsed on their own.  The parser can be used again afterwards.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_reader() throws IOException, GeneralParserException
+  {
+    List<String> records = buildRecords(200);
+    List<String> expected = parseEach(records);
+    
+    for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+    {
+      JSONDocumentParser dp = new JSONDocumentParser(engine);
+      assertEquals(expected, strings(dp.documents(new StringReader(String.join("\n", records) + "\n"))));
+      assertEquals(expected, strings(dp.documents(new StringReader("# log\n\n" + String.join(" \n# next\n", records)))));
+      assertEquals(expected, strings(dp.documents(new StringReader(String.join(" ", records)))));
+      
+      assertEquals(3, dp.documents(new StringReader("{}[]{}")).count());
+      assertEquals(0, dp.documents(new StringReader(" \n# nothing\n")).count());
+      assertEquals(expected.get(0), dp.parse(new StringReader(records.get(0))).toString());
+    }
+  }
+  
+  /**
+   * <p>Test 2.  Byte input and files split between documents, including ones over several lines, and read the same in
+   * parallel as in order.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_parallel() throws IOException, GeneralParserException
+  {
+    List<String> records = buildRecords(2000);
+    List<String> expected = parseEach(records);
+    byte[] ndjson = (String.join("\n", records) + "\n").getBytes(StandardCharsets.UTF_8);
+    
+    JSONDocumentParser dp = new JSONDocumentParser(LexerEngine.COMPILED);
+    assertEquals(expected, strings(dp.documents(ByteBuffer.wrap(ndjson), 64).parallel()));
+    assertEquals(expected, strings(dp.documents(ByteBuffer.wrap(ndjson))));
+    
+    //Documents over several lines only split between documents.
+    String pretty = "{\n \"a\":[\n1,\n\"x\\\n}\"\n],\n \"b\":{}\n}\n[\n]\n";
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 100; i++) sb.append(pretty);
+    List<String> expectedPretty = strings(dp.documents(new StringReader(sb.toString())));
+    assertEquals(200, expectedPretty.size());
+    assertEquals(expectedPretty, strings(dp.documents(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)), 1).parallel()));
+    
+    Path file = Files.createTempFile("parserutil", ".ndjson");
+    file.toFile().deleteOnExit();
+    Files.write(file, ndjson);
+    try(Stream<JSONValueHolder> documents = dp.documents(file))
+    {
+      assertEquals(expected, strings(documents.parallel()));
+    }
+  }
+  
+  /**
+   * <p>Test 3.  A bad document stops the stream with its location, the same in parallel as in order.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void test3_errors() throws IOException
+  {
+    List<String> records = buildRecords(500);
+    records.set(321, "{\"id\":1 \"msg\":2}");
+    String ndjson = String.join("\n", records);
+    JSONDocumentParser dp = new JSONDocumentParser(LexerEngine.COMPILED);
+    
+    UncheckedGeneralParserException inOrder = assertThrows(UncheckedGeneralParserException.class, () -> {
+      dp.documents(new StringReader(ndjson)).count();
+    });
+    assertTrue(inOrder.getCause().toString().startsWith("[321 : 8 "));
+    
+    UncheckedGeneralParserException parallel = assertThrows(UncheckedGeneralParserException.class, () -> {
+      dp.documents(ByteBuffer.wrap(ndjson.getBytes(StandardCharsets.UTF_8)), 256).parallel().count();
+    });
+    assertEquals(inOrder.getCause().toString(), parallel.getCause().toString());
+    
+    //A simple value can't run into the next document.
+    assertThrows(UncheckedGeneralParserException.class, () -> {
+      dp.documents(new StringReader("1 2 }")).count();
+    });
+  }
+}
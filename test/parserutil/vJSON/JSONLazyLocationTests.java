@@ -0,0 +1,149 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Lazy location tests.  Make sure locations looked up from offsets match the ones counted as the input is read.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONLazyLocationTests
+{
+  /**
+   * <p>Test document, over several lines with multibyte chars.
+   */
+  private static final String DOCUMENT = "# caf\u00e9\n{\"f1\":\"v1 \\\" \u4e16\u754c\",\r\n \"f\u00e9\":-1234.3234,\n\n  \"f3\":true, \"f4\":false, \"f5\":null,\n \"f6\":[1234, 1e-5, {\"\ud83d\ude00\":[]}]}\n";
+  
+  /**
+   * <p>Get the elements of the document with their locations.
+   * 
+   * @param jp
+   * @param bytes parse the document from bytes.
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static String locations(JSONElementParser jp, boolean bytes) throws IOException, GeneralParserException
+  {
+    StringBuilder sb = new StringBuilder();
+    if(bytes) jp.parse(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)), t -> sb.append(t).append(t.getLocation().getSourceStartByte()).append('|'));
+    else jp.parse(new StringReader(DOCUMENT), t -> sb.append(t).append('|'));
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Test 1.  Token locations match for text and byte input with both engines, and the line fields are left unset.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_tokens_match() throws IOException, GeneralParserException
+  {
+    for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+    {
+      for(boolean bytes : new boolean[] {false, true})
+      {
+        String expected = locations(new JSONElementParser(engine), bytes);
+        JSONElementParser lazy = new JSONElementParser(engine);
+        lazy.setLazyLocations(true);
+        assertEquals(expected, locations(lazy, bytes));
+      }
+    }
+    
+    JSONElementParser lazy = new JSONElementParser();
+    lazy.setLazyLocations(true);
+    lazy.parse(new StringReader(DOCUMENT), t -> assertEquals(-1, t.lineStart));
+  }
+  
+  /**
+   * <p>Test 2.  Pushed input gives the same locations.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_pushed() throws IOException, GeneralParserException
+  {
+    String expected = locations(new JSONElementParser(), false);
+    char[] chars = DOCUMENT.toCharArray();
+    
+    JSONElementParser lazy = new JSONElementParser(LexerEngine.COMPILED);
+    lazy.setLazyLocations(true);
+    StringBuilder sb = new StringBuilder();
+    lazy.beginFeed(t -> sb.append(t).append('|'));
+    for(int i = 0; i < chars.length; i += 5) lazy.feed(chars, i, Math.min(5, chars.length - i));
+    lazy.endOfInput();
+    assertEquals(expected, sb.toString());
+  }
+  
+  /**
+   * <p>Test 3.  Error locations match.
+   */
+  @Test
+  public void test3_errors()
+  {
+    for(String bad : new String[] {"{\"a\":1,\n \"b\" 2}", "[1,\n  tru]", "[1,\n\"abc", "[1,\n  @]"})
+    {
+      for(boolean bytes : new boolean[] {false, true})
+      {
+        JSONDocumentParser eager = new JSONDocumentParser(LexerEngine.COMPILED);
+        JSONDocumentParser lazy = new JSONDocumentParser(LexerEngine.COMPILED);
+        lazy.setLazyLocations(true);
+        String expected = "", actual = "";
+        for(JSONDocumentParser dp : new JSONDocumentParser[] {eager, lazy})
+        {
+          GeneralParserException e = assertThrows(GeneralParserException.class, () -> {
+            if(bytes) dp.parse(ByteBuffer.wrap(bad.getBytes(StandardCharsets.UTF_8)));
+            else dp.parse(new StringReader(bad));
+          });
+          if(dp == eager) expected = e.toString();
+          else actual = e.toString();
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+}
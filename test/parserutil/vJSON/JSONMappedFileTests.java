@@ -0,0 +1,185 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.MappedFileReader;
+
+/**
+ * <p>JSON memory mapped file tests.  Make sure files parse the same as readers and that token byte offsets point at the
+ * token in the file.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONMappedFileTests
+{
+  /**
+   * <p>Build a JSON array with multibyte and supplementary chars in it.
+   * 
+   * @param entries
+   * @return
+   */
+  private static String buildContent(int entries)
+  {
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; i < entries; i++)
+    {
+      if(i > 0) sb.append(",\n");
+      sb.append("{\"k\u00e9").append(i).append("\":\"\u4e16\u754c \ud83d\ude00 ").append(i).append("\", \"n\":").append(i * 1.5).append("}");
+    }
+    return sb.append("]").toString();
+  }
+  
+  /**
+   * <p>Write the content to a temporary UTF-8 file.
+   * 
+   * @param content
+   * @param bom
+   * @return
+   * @throws IOException
+   */
+  private static Path write(String content, boolean bom) throws IOException
+  {
+    Path file = Files.createTempFile("parserutil", ".json");
+    file.toFile().deleteOnExit();
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    if(bom)
+    {
+      byte[] withBom = new byte[bytes.length + 3];
+      withBom[0] = (byte) 0xef;
+      withBom[1] = (byte) 0xbb;
+      withBom[2] = (byte) 0xbf;
+      System.arraycopy(bytes, 0, withBom, 3, bytes.length);
+      bytes = withBom;
+    }
+    Files.write(file, bytes);
+    return file;
+  }
+  
+  /**
+   * <p>Test 1.  A file parses to the same tokens as a reader, and each token's byte offsets hold its UTF-8 text.  The
+   * content is bigger than the read block so tokens move in the block.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_element_byte_offsets() throws IOException, GeneralParserException
+  {
+    String content = buildContent(2000);
+    Path file = write(content, true);
+    byte[] bytes = Files.readAllBytes(file);
+    
+    StringBuilder fromReader = new StringBuilder();
+    new JSONElementParser().parse(new StringReader(content), t -> fromReader.append(t.getTokenValue()).append(t.getLocation()));
+    
+    StringBuilder fromFile = new StringBuilder();
+    List<String> mismatches = new ArrayList<>();
+    new JSONElementParser().parse(file, t -> {
+      fromFile.append(t.getTokenValue()).append(t.getLocation());
+      String inFile = new String(Arrays.copyOfRange(bytes, (int) t.getLocation().getSourceStartByte(), (int) t.getLocation().getSourceEndByte()), StandardCharsets.UTF_8);
+      if(!inFile.equals(t.getTokenValue())) mismatches.add(inFile);
+    });
+    
+    assertEquals(fromReader.toString(), fromFile.toString());
+    assertEquals(0, mismatches.size());
+  }
+  
+  /**
+   * <p>Test 2.  Files are read the same with windows too small for a multibyte sequence to fit at every boundary.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_small_windows() throws IOException, GeneralParserException
+  {
+    String content = buildContent(500);
+    Path file = write(content, false);
+    
+    for(int windowSize : new int[] {4, 5, 7, 4096})
+    {
+      StringBuilder sb = new StringBuilder();
+      char[] buf = new char[3];
+      try(MappedFileReader in = new MappedFileReader(file, windowSize))
+      {
+        int read;
+        while( (read = in.read(buf, 0, buf.length)) >= 0) sb.append(buf, 0, read);
+      }
+      assertEquals(content, sb.toString());
+    }
+    
+    try(MappedFileReader in = new MappedFileReader(file, 7))
+    {
+      assertEquals(new JSONDocumentParser().parse(new StringReader(content)).toString(), new JSONDocumentParser().parse(in).toString());
+    }
+  }
+  
+  /**
+   * <p>Test 3.  Malformed and truncated UTF-8 is rejected.
+   * 
+   * @throws IOException
+   */
+  @Test
+  public void test3_malformed() throws IOException
+  {
+    Path bad = Files.createTempFile("parserutil", ".json");
+    bad.toFile().deleteOnExit();
+    
+    //Overlong encoding of '/'.
+    Files.write(bad, new byte[] {'[', '"', (byte) 0xc0, (byte) 0xaf, '"', ']'});
+    assertThrows(MalformedInputException.class, () -> {
+      new JSONDocumentParser().parse(bad);
+    });
+    
+    //Truncated 3 byte sequence.
+    Files.write(bad, new byte[] {'[', '"', (byte) 0xe4, (byte) 0xb8});
+    assertThrows(MalformedInputException.class, () -> {
+      new JSONDocumentParser().parse(bad);
+    });
+  }
+}
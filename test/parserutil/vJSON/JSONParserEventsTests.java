@@ -0,0 +1,121 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.LongTokenEvent;
+import parserutil.main.NestingEvent;
+import parserutil.main.ParseEvent;
+import parserutil.main.ParserEvents;
+
+/**
+ * <p>Flight recorder event tests.  Make sure parse, long token and nesting events are recorded when enabled.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONParserEventsTests
+{
+  /**
+   * <p>Test 1.  Each input parsed gets a parse event with its outcome, and the thresholds give long token and nesting
+   * events.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_events_recorded() throws IOException, GeneralParserException
+  {
+    String good = "{\"name\":\"a long value\", \"n\":[[[[1]]], 2]}";
+    String bad = "{\"name\" \"value\"}";
+    JSONElementParser jp = new JSONElementParser();
+    Path file = Files.createTempFile("parser", ".jfr");
+    
+    int longTokenLength = ParserEvents.getLongTokenLength();
+    int nestingDepth = ParserEvents.getNestingDepth();
+    try(Recording recording = new Recording())
+    {
+      ParserEvents.setLongTokenLength(10);
+      ParserEvents.setNestingDepth(3);
+      
+      //Not recording yet.
+      jp.parse(new StringReader(good), t -> {});
+      
+      recording.enable(ParseEvent.NAME);
+      recording.enable(LongTokenEvent.NAME);
+      recording.enable(NestingEvent.NAME);
+      recording.start();
+      jp.parse(new StringReader(good), t -> {});
+      assertThrows(GeneralParserException.class, () -> jp.parse(new StringReader(bad), t -> {}));
+      recording.stop();
+      recording.dump(file);
+      
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      List<RecordedEvent> parses = events.stream().filter(e -> e.getEventType().getName().equals(ParseEvent.NAME)).collect(Collectors.toList());
+      assertEquals(2, parses.size());
+      assertEquals("complete", parses.get(0).getString("outcome"));
+      assertEquals(good.length(), parses.get(0).getLong("chars"));
+      assertEquals(21, parses.get(0).getLong("tokens"));
+      assertEquals(JSONElementParser.class.getName(), parses.get(0).getString("parser"));
+      assertEquals("failed", parses.get(1).getString("outcome"));
+      assertNotNull(parses.get(1).getString("error"));
+      
+      List<RecordedEvent> longTokens = events.stream().filter(e -> e.getEventType().getName().equals(LongTokenEvent.NAME)).collect(Collectors.toList());
+      assertEquals(1, longTokens.size());
+      assertEquals("\"a long value\"".length(), longTokens.get(0).getInt("length"));
+      assertEquals(8, longTokens.get(0).getInt("column"));
+      
+      List<RecordedEvent> nesting = events.stream().filter(e -> e.getEventType().getName().equals(NestingEvent.NAME)).collect(Collectors.toList());
+      assertEquals(1, nesting.size());
+      assertEquals(4, nesting.get(0).getInt("depth"));
+    }
+    finally
+    {
+      ParserEvents.setLongTokenLength(longTokenLength);
+      ParserEvents.setNestingDepth(nestingDepth);
+      Files.deleteIfExists(file);
+    }
+  }
+}
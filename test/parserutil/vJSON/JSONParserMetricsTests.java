@@ -0,0 +1,117 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+import parserutil.main.ParserMetricsRecorder;
+import parserutil.main.ParserMetricsSnapshot;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Parser metrics tests.  Make sure the recorded counts match the tokens parsed.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONParserMetricsTests
+{
+  /**
+   * <p>Test document.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" x\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\u00e9\":[]}]}";
+  
+  /**
+   * <p>Test 1.  Tokens, chars and lengths are counted per descriptor with each engine, from text and bytes.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_counts_match() throws IOException, GeneralParserException
+  {
+    for(JSONElementParser jp : new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()})
+    {
+      assertNull(jp.getMetrics());
+      List<JSONTokenDescriptor> descriptors = jp.getTokenDescriptors();
+      List<GeneralParserToken<JSONTokenDescriptor>> tokens = jp.tokens(new StringReader(DOCUMENT)).collect(Collectors.toList());
+      
+      ParserMetricsRecorder recorder = new ParserMetricsRecorder(descriptors);
+      jp.setMetrics(recorder);
+      jp.parse(new StringReader(DOCUMENT), t -> {});
+      jp.parse(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)), t -> {});
+      ParserMetricsSnapshot s = recorder.snapshot();
+      
+      assertEquals(2, s.getParses());
+      assertEquals(2 * tokens.size(), s.getTokens());
+      assertEquals(2 * tokens.size(), s.getChecks());
+      assertEquals(2 * DOCUMENT.length(), s.getCharsRead());
+      assertEquals(0, s.getUnmatchedTokens());
+      for(int i = 0; i < descriptors.size(); i++)
+      {
+        JSONTokenDescriptor d = descriptors.get(i);
+        assertEquals(2 * tokens.stream().filter(t -> t.descriptor == d).count(), s.getTokenCount(i));
+        assertTrue(s.toString().contains("parser_tokens_total{code=\"" + i + "\",descriptor=\"" + d + "\"} " + s.getTokenCount(i) + "\n"));
+      }
+      
+      //Lengths 4 to 7 - true, null, false, "f1" and so on.
+      long fourToSeven = tokens.stream().filter(t -> t.getText().length() >= 4 && t.getText().length() <= 7).count();
+      assertEquals(2 * fourToSeven, s.getLengthCount(2));
+      long histogram = 0;
+      for(int i = 0; i < ParserMetricsRecorder.LENGTH_BUCKETS; i++) histogram += s.getLengthCount(i);
+      assertEquals(s.getTokens(), histogram);
+      
+      //Only the interpreted engine whittles down candidates.
+      if(jp.getLexerEngine() == LexerEngine.INTERPRETED) assertTrue(s.getEliminationSteps() >= s.getAmbiguousTokens());
+      else assertEquals(0, s.getEliminationSteps());
+      
+      //Switched off, nothing more is recorded.
+      recorder.reset();
+      jp.setMetrics(null);
+      jp.parse(new StringReader(DOCUMENT), t -> {});
+      assertEquals(0, recorder.snapshot().getTokens());
+      assertEquals(0, recorder.snapshot().getParses());
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONArenaDocument;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.main.DescriptorProfile;
+import parserutil.main.GeneralParserException;
+import parserutil.main.ParserMetricsRecorder;
+import parserutil.main.ParserPool;
+import parserutil.main.TokenCache;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON parser pool tests.  Make sure pooled parsers are reused, reset between users and counted.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONParserPoolTests
+{
+  /**
+   * <p>Test 1.  Released parsers are reused until the pool is empty, and dropped when it is full.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test1_hits_misses() throws Exception
+  {
+    ParserPool<JSONDocumentParser> pool = new ParserPool<>(JSONDocumentParser::new, 2);
+    
+    JSONDocumentParser p1 = pool.acquire();
+    JSONDocumentParser p2 = pool.acquire();
+    JSONDocumentParser p3 = pool.acquire();
+    assertEquals(0, pool.getHits());
+    assertEquals(3, pool.getMisses());
+    
+    pool.release(p1);
+    pool.release(p2);
+    pool.release(p3);
+    assertEquals(2, pool.getSize());
+    assertEquals(1, pool.getDiscards());
+    
+    JSONDocumentParser p4 = pool.acquire();
+    assertTrue(p4 == p1 || p4 == p2);
+    assertEquals(1, pool.getHits());
+    assertEquals(1, pool.getSize());
+    
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ParserPool<>(JSONDocumentParser::new, 0);
+    });
+  }
+  
+  /**
+   * <p>Test 2.  A parser released part way through a document is reset for the next user.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test2_reset_on_release() throws Exception
+  {
+    ParserPool<JSONDocumentParser> pool = new ParserPool<>(JSONDocumentParser::new, 1);
+    
+    //Fail part way through.
+    JSONDocumentParser p = pool.acquire();
+    assertThrows(GeneralParserException.class, () -> {
+      p.parse(new StringReader("{\"a\":[1, 2"));
+    });
+    pool.release(p);
+    
+    JSONDocumentParser q = pool.acquire();
+    assertTrue(p == q);
+    String doc = "{\"b\":true}";
+    assertEquals(new JSONDocumentParser().parse(new StringReader(doc)).toString(), q.parse(new StringReader(doc)).toString());
+  }
+  
+  /**
+   * <p>Test 3.  Many threads share a pool of compiled parsers.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test3_concurrent() throws Exception
+  {
+    ParserPool<JSONDocumentParser> pool = new ParserPool<>(() -> new JSONDocumentParser(LexerEngine.COMPILED), 4);
+    String doc = "{\"f1\":\"v1\", \"f2\":[1, 2.5, null, {\"g\":false}]}";
+    String expected = new JSONDocumentParser().parse(new StringReader(doc)).toString();
+    
+    ExecutorService exec = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for(int t = 0; t < 16; t++)
+      {
+        results.add(exec.submit(() -> {
+          for(int i = 0; i < 500; i++)
+          {
+            JSONDocumentParser p = pool.acquire();
+            try
+            {
+              if(!expected.equals(p.parse(new StringReader(doc)).toString())) return false;
+            }
+            finally
+            {
+              pool.release(p);
+            }
+          }
+          return true;
+        }));
+      }
+      for(Future<Boolean> f : results) assertTrue(f.get());
+    }
+    finally
+    {
+      exec.shutdown();
+    }
+    
+    assertEquals(16 * 500, pool.getHits() + pool.getMisses());
+    assertTrue(pool.getSize() <= pool.getCapacity());
+  }
+  
+  /**
+   * <p>Test 4.  Settings made by one user are back to their defaults for the next.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test4_settings_reset_on_release() throws Exception
+  {
+    ParserPool<JSONDocumentParser> pool = new ParserPool<>(JSONDocumentParser::new, 1);
+    
+    JSONDocumentParser p = pool.acquire();
+    ParserMetricsRecorder recorder = new ParserMetricsRecorder(p.getTokenDescriptors());
+    p.setValidationMode(ValidationMode.NONE);
+    p.setZeroCopyTokens(false);
+    p.setLazyLocations(true);
+    p.setBatchSize(7);
+    p.setMetrics(recorder);
+    p.setDescriptorProfile(new DescriptorProfile(p.getTokenDescriptors()));
+    p.setTokenCache(new TokenCache(Paths.get("unused")));
+    pool.release(p);
+    
+    JSONDocumentParser q = pool.acquire();
+    assertTrue(p == q);
+    assertEquals(ValidationMode.FULL, q.getValidationMode());
+    assertTrue(q.isZeroCopyTokens());
+    assertFalse(q.isLazyLocations());
+    assertEquals(new JSONDocumentParser().getBatchSize(), q.getBatchSize());
+    assertNull(q.getMetrics());
+    assertNull(q.getDescriptorProfile());
+    assertNull(q.getTokenCache());
+    
+    //The next user's parse isn't recorded in the first user's metrics, and is validated.
+    String doc = "{\"b\":true}";
+    assertEquals(new JSONDocumentParser().parse(new StringReader(doc)).toString(), q.parse(new StringReader(doc)).toString());
+    assertEquals(0, recorder.snapshot().getParses());
+    assertThrows(GeneralParserException.class, () -> {
+      q.parse(new StringReader("{\"b\" true}"));
+    });
+  }
+  
+  /**
+   * <p>Test 5.  A parser released while a document still holds its arena can parse into an arena for the next user,
+   * and the first document can still be read.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test5_arena_in_use_on_release() throws Exception
+  {
+    ParserPool<JSONDocumentParser> pool = new ParserPool<>(JSONDocumentParser::new, 1);
+    
+    JSONDocumentParser p = pool.acquire();
+    JSONArenaDocument held = p.parseToArena(new StringReader("{\"a\":\"first\"}"));
+    pool.release(p);
+    
+    JSONDocumentParser q = pool.acquire();
+    assertTrue(p == q);
+    try(JSONArenaDocument doc = q.parseToArena(new StringReader("{\"b\":\"second\"}")))
+    {
+      assertEquals("b", doc.getFieldName(doc.getRoot(), 0));
+    }
+    assertEquals("a", held.getFieldName(held.getRoot(), 0));
+    held.close();
+  }
+}
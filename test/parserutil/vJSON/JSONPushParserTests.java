@@ -0,0 +1,199 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON push parser tests.  Make sure input fed in chunks gives the same elements as the whole input, wherever the
+ * chunks are split.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONPushParserTests
+{
+  /**
+   * <p>Test document, with a comment, escapes, multibyte and supplementary chars.
+   */
+  private static final String DOCUMENT = "# caf\u00e9\n{\"f1\":\"v1 \\\" \u4e16\u754c\", \"f\u00e9\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\ud83d\ude00\":[]}]}";
+  
+  /**
+   * <p>Get a parser for each lexer engine.
+   * 
+   * @return
+   */
+  private static JSONElementParser[] parsers()
+  {
+    return new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()};
+  }
+  
+  /**
+   * <p>Get the elements of the whole document with their locations.
+   * 
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static String expected() throws IOException, GeneralParserException
+  {
+    StringBuilder sb = new StringBuilder();
+    new JSONElementParser().parse(new StringReader(DOCUMENT), t -> sb.append(t.getTokenValue()).append(t.getLocation()).append('|'));
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Test 1.  Chars fed in two chunks split at every position, and one char at a time, with every engine.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_char_chunks() throws IOException, GeneralParserException
+  {
+    String expected = expected();
+    char[] chars = DOCUMENT.toCharArray();
+    
+    for(JSONElementParser jp : parsers())
+    {
+      StringBuilder sb = new StringBuilder();
+      for(int split = 0; split <= chars.length; split++)
+      {
+        sb.setLength(0);
+        jp.beginFeed(t -> sb.append(t.getTokenValue()).append(t.getLocation()).append('|'));
+        jp.feed(chars, 0, split);
+        jp.feed(chars, split, chars.length - split);
+        jp.endOfInput();
+        assertEquals(jp.getGrammar().getLexerEngine() + " split " + split, expected, sb.toString());
+      }
+      
+      sb.setLength(0);
+      jp.beginFeed(t -> sb.append(t.getTokenValue()).append(t.getLocation()).append('|'));
+      for(int i = 0; i < chars.length; i++) jp.feed(chars, i, 1);
+      jp.endOfInput();
+      assertEquals(expected, sb.toString());
+    }
+  }
+  
+  /**
+   * <p>Test 2.  UTF-8 bytes fed one at a time, splitting every multibyte char.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_byte_chunks() throws IOException, GeneralParserException
+  {
+    String expected = expected();
+    byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    
+    for(JSONElementParser jp : parsers())
+    {
+      StringBuilder sb = new StringBuilder();
+      jp.beginFeed(t -> sb.append(t.getTokenValue()).append(t.getLocation()).append('|'));
+      for(int i = 0; i < bytes.length; i++) jp.feed(ByteBuffer.wrap(bytes, i, 1));
+      jp.endOfInput();
+      assertEquals(expected, sb.toString());
+    }
+  }
+  
+  /**
+   * <p>Test 3.  A string literal left open is only an error at the end of input, and a feed before beginning is refused.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_incomplete() throws IOException, GeneralParserException
+  {
+    assertThrows(IllegalStateException.class, () -> {
+      new JSONElementParser().feed(new char[] {'['}, 0, 1);
+    });
+    
+    JSONElementParser jp = new JSONElementParser(LexerEngine.COMPILED);
+    StringBuilder sb = new StringBuilder();
+    jp.beginFeed(t -> sb.append(t.getTokenValue()));
+    char[] chars = "[\"abc".toCharArray();
+    jp.feed(chars, 0, chars.length);
+    assertEquals("[", sb.toString());
+    assertThrows(GeneralParserException.class, () -> {
+      jp.endOfInput();
+    });
+  }
+  
+  /**
+   * <p>Test 4.  A long string literal split over many small chunks arrives whole, once the char after it is fed.  The
+   * parser is reused for a reader in between, and the pushed input starts afresh.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test4_long_token() throws IOException, GeneralParserException
+  {
+    StringBuilder literal = new StringBuilder("\"");
+    for(int i = 0; i < 20000; i++) literal.append((char) ('a' + (i % 26)));
+    literal.append('"');
+    char[] chars = ("[" + literal + "]").toCharArray();
+    
+    for(JSONElementParser jp : parsers())
+    {
+      for(int run = 0; run < 2; run++)
+      {
+        StringBuilder sb = new StringBuilder();
+        jp.beginFeed(t -> sb.append(t.getTokenValue()).append('|'));
+        int off = 0;
+        for(; off < chars.length - 1; off += 16)
+        {
+          jp.feed(chars, off, Math.min(16, chars.length - 1 - off));
+          assertEquals("[|", sb.toString());
+        }
+        jp.feed(chars, chars.length - 1, 1);
+        assertEquals("[|" + literal + "|", sb.toString());
+        jp.endOfInput();
+        assertEquals("[|" + literal + "|]|", sb.toString());
+        
+        jp.parse(new StringReader("[1]"), t -> {});
+      }
+    }
+  }
+}
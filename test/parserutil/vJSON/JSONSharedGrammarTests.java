@@ -0,0 +1,123 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.GeneralParserGrammar;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON shared grammar tests.  Make sure parsers created from one grammar share its configuration and can parse
+ * concurrently.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONSharedGrammarTests
+{
+  /**
+   * <p>Test document.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" q\", \"f2\":-1234.3234, \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"g\":[]}]}";
+  
+  /**
+   * <p>Test 1.  Parsers created with an engine are sessions of the same grammar.  Compiled sessions share the grammar's
+   * descriptors and interpreted sessions have their own.
+   */
+  @Test
+  public void test1_grammar_shared()
+  {
+    GeneralParserGrammar<JSONTokenDescriptor> compiled = JSONDocumentParser.getSharedGrammar(LexerEngine.COMPILED);
+    JSONDocumentParser p1 = new JSONDocumentParser(LexerEngine.COMPILED);
+    JSONDocumentParser p2 = new JSONDocumentParser(compiled);
+    
+    assertTrue(compiled == p1.getGrammar());
+    assertTrue(compiled == p2.getGrammar());
+    assertTrue(compiled.getTokenDescriptors() == p1.getTokenDescriptors());
+    
+    JSONDocumentParser i1 = new JSONDocumentParser();
+    JSONDocumentParser i2 = new JSONDocumentParser();
+    
+    assertTrue(i1.getGrammar() == i2.getGrammar());
+    assertTrue(i1.getTokenDescriptors().get(0) != i2.getTokenDescriptors().get(0));
+    assertThrows(UnsupportedOperationException.class, () -> {
+      compiled.getTokenDescriptors().clear();
+    });
+  }
+  
+  /**
+   * <p>Test 2.  Sessions of one grammar parse concurrently on many threads with the same results as a single parser.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void test2_concurrent_sessions() throws Exception
+  {
+    for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+    {
+      GeneralParserGrammar<JSONTokenDescriptor> grammar = JSONDocumentParser.getSharedGrammar(engine);
+      String expected = new JSONDocumentParser(grammar).parse(new StringReader(DOCUMENT)).toString();
+      
+      ExecutorService pool = Executors.newFixedThreadPool(8);
+      try
+      {
+        List<Future<Boolean>> results = new ArrayList<>();
+        for(int t = 0; t < 32; t++)
+        {
+          results.add(pool.submit(() -> {
+            for(int i = 0; i < 200; i++)
+            {
+              //New session per document.
+              if(!expected.equals(new JSONDocumentParser(grammar).parse(new StringReader(DOCUMENT)).toString())) return false;
+            }
+            return true;
+          }));
+        }
+        for(Future<Boolean> f : results) assertTrue(f.get());
+      }
+      finally
+      {
+        pool.shutdown();
+      }
+    }
+  }
+}
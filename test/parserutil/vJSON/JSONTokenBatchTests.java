@@ -0,0 +1,125 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserToken;
+import parserutil.main.TokenBatch;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Batch receiver tests.  Make sure elements delivered in batches match the ones delivered one at a time.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONTokenBatchTests
+{
+  /**
+   * <p>Test document.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" x\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"a\":[]}]}";
+  
+  /**
+   * <p>Test 1.  Batches hold the same descriptors, text and locations with each engine, and the batch is reused.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_batches_match() throws IOException, GeneralParserException
+  {
+    for(JSONElementParser jp : new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()})
+    {
+      List<GeneralParserToken<JSONTokenDescriptor>> tokens = new ArrayList<>();
+      jp.parse(new StringReader(DOCUMENT), t -> tokens.add(t));
+      
+      jp.setBatchSize(7);
+      List<TokenBatch<JSONTokenDescriptor>> batches = new ArrayList<>();
+      List<JSONTokenDescriptor> descriptors = new ArrayList<>();
+      StringBuilder sb = new StringBuilder();
+      jp.parseBatches(new StringReader(DOCUMENT), b -> {
+        assertTrue(b.getSize() <= 7);
+        batches.add(b);
+        for(int i = 0; i < b.getSize(); i++)
+        {
+          descriptors.add(b.getDescriptor(i));
+          sb.append(new String(b.getText(), b.getTextStarts()[i], b.getTextLengths()[i])).append(b.getLineStarts()[i]).append(':').append(b.getColumnStarts()[i]).append('|');
+        }
+      });
+      
+      StringBuilder expected = new StringBuilder();
+      for(int i = 0; i < tokens.size(); i++)
+      {
+        GeneralParserToken<JSONTokenDescriptor> t = tokens.get(i);
+        assertSame(t.descriptor, descriptors.get(i));
+        expected.append(t.getTokenValue()).append(t.lineStart).append(':').append(t.columnStart).append('|');
+      }
+      assertEquals(expected.toString(), sb.toString());
+      assertEquals((tokens.size() + 6) / 7, batches.size());
+      assertSame(batches.get(0), batches.get(batches.size() - 1));
+    }
+  }
+  
+  /**
+   * <p>Test 2.  A copied batch keeps its tokens after the parser moves on.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_copy() throws IOException, GeneralParserException
+  {
+    JSONElementParser jp = new JSONElementParser(LexerEngine.COMPILED);
+    jp.setBatchSize(4);
+    List<TokenBatch<JSONTokenDescriptor>> kept = new ArrayList<>();
+    jp.parseBatches(new StringReader("[\"first\", 2, 3, 4, \"fifth\"]"), b -> kept.add(b.copy()));
+    
+    assertEquals(3, kept.size());
+    assertEquals("\"first\"", kept.get(0).getValue(1));
+    assertEquals("\"fifth\"", kept.get(2).getText(1).toString());
+    assertEquals("]", kept.get(2).getValue(2));
+    assertThrows(IllegalArgumentException.class, () -> {
+      jp.setBatchSize(0);
+    });
+  }
+}
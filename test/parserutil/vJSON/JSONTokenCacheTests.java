@@ -0,0 +1,307 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONAbstractParser;
+import parserutil.impl.json.parser.JSONArenaDocument;
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.impl.json.parser.JSONTokenDescriptor;
+import parserutil.main.GeneralParserException;
+import parserutil.main.GeneralParserGrammar;
+import parserutil.main.TokenCache;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>JSON token cache tests.  Make sure files replayed from the cache parse the same as files lexed, and that entries
+ * are only used while they are up to date.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONTokenCacheTests
+{
+  /**
+   * <p>Build a JSON array over several lines with multibyte and supplementary chars in it.
+   * 
+   * @param entries
+   * @return
+   */
+  private static String buildContent(int entries)
+  {
+    StringBuilder sb = new StringBuilder("# comment\n[");
+    for(int i = 0; i < entries; i++)
+    {
+      if(i > 0) sb.append(",\n  ");
+      sb.append("{\"k\u00e9").append(i).append("\":\"\u4e16\u754c \ud83d\ude00 ").append(i).append("\", \"n\":").append(i * 1.5).append(", \"b\":[true, null]}");
+    }
+    return sb.append("]").toString();
+  }
+  
+  /**
+   * <p>Write the content to a temporary UTF-8 file.
+   * 
+   * @param content
+   * @return
+   * @throws IOException
+   */
+  private static Path write(String content) throws IOException
+  {
+    Path file = Files.createTempFile("parserutil", ".json");
+    file.toFile().deleteOnExit();
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+  
+  /**
+   * <p>Get the tokens of the file with their locations, parsed with the given cache.
+   * 
+   * @param file
+   * @param cache
+   * @param engine
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static String tokens(Path file, TokenCache cache, LexerEngine engine) throws IOException, GeneralParserException
+  {
+    StringBuilder sb = new StringBuilder();
+    JSONElementParser ep = new JSONElementParser(engine);
+    ep.setTokenCache(cache);
+    ep.parse(file, t -> sb.append(t.getTokenValue()).append(t.getLocation()).append(t.getLocation().getSourceStartByte()).append('-').append(t.getLocation().getSourceEndByte()).append('\n'));
+    return sb.toString();
+  }
+  
+  /**
+   * <p>Delete the cache directory and its entries.
+   * 
+   * @param directory
+   * @throws IOException
+   */
+  private static void delete(Path directory) throws IOException
+  {
+    try(Stream<Path> entries = Files.list(directory))
+    {
+      for(Path p : (Iterable<Path>) entries::iterator) Files.delete(p);
+    }
+    Files.delete(directory);
+  }
+  
+  /**
+   * <p>Test 1.  Tokens, locations, documents and arena documents replayed from the cache are the same as lexed, with
+   * both engines.  The first parse records the entry and the rest replay it.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_replay_matches_lexing() throws IOException, GeneralParserException
+  {
+    String content = buildContent(1000);
+    Path file = write(content);
+    Path directory = Files.createTempDirectory("parserutil");
+    try
+    {
+      TokenCache cache = new TokenCache(directory);
+      String expectedDocument = new JSONDocumentParser().parse(new StringReader(content)).toString();
+      for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+      {
+        String expected = tokens(file, null, engine);
+        long hits = cache.getHits();
+        assertEquals(expected, tokens(file, cache, engine));
+        assertEquals(hits, cache.getHits());
+        assertTrue(Files.exists(cache.getEntry(file, new JSONElementParser(engine).getGrammar())));
+        assertEquals(expected, tokens(file, cache, engine));
+        assertEquals(hits + 1, cache.getHits());
+        
+        JSONDocumentParser dp = new JSONDocumentParser(engine);
+        dp.setTokenCache(cache);
+        assertEquals(expectedDocument, dp.parse(file).toString());
+        assertEquals(expectedDocument, dp.parse(file).toString());
+        try(JSONArenaDocument doc = dp.parseToArena(file))
+        {
+          assertEquals(expectedDocument, doc.toString());
+        }
+      }
+      
+      //Each engine has its own entry.
+      assertNotEquals(cache.getEntry(file, new JSONElementParser(LexerEngine.INTERPRETED).getGrammar()), cache.getEntry(file, new JSONElementParser(LexerEngine.COMPILED).getGrammar()));
+      assertEquals(2, cache.getMisses());
+    }
+    finally
+    {
+      delete(directory);
+    }
+  }
+  
+  /**
+   * <p>Test 2.  An entry is out of date when the file changes, even if its size and modification time are the same,
+   * and a damaged entry isn't used.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_invalidation() throws IOException, GeneralParserException
+  {
+    Path file = write(buildContent(100));
+    Path directory = Files.createTempDirectory("parserutil");
+    try
+    {
+      TokenCache cache = new TokenCache(directory);
+      tokens(file, cache, LexerEngine.COMPILED);
+      assertEquals(1, cache.getMisses());
+      
+      //Same size and modification time, different content.
+      FileTime modified = Files.getLastModifiedTime(file);
+      String changed = buildContent(100).replace("\"n\":1.5", "\"n\":7.5").replace("true", "null");
+      Files.write(file, changed.getBytes(StandardCharsets.UTF_8));
+      Files.setLastModifiedTime(file, modified);
+      String expected = tokens(file, null, LexerEngine.COMPILED);
+      assertEquals(expected, tokens(file, cache, LexerEngine.COMPILED));
+      assertEquals(2, cache.getMisses());
+      assertEquals(expected, tokens(file, cache, LexerEngine.COMPILED));
+      assertEquals(1, cache.getHits());
+      
+      //Damage a record.
+      try(FileChannel channel = FileChannel.open(cache.getEntry(file, new JSONElementParser(LexerEngine.COMPILED).getGrammar()), StandardOpenOption.WRITE))
+      {
+        channel.write(ByteBuffer.wrap(new byte[] {0x7f}), channel.size() - 2);
+      }
+      assertEquals(expected, tokens(file, cache, LexerEngine.COMPILED));
+      assertEquals(3, cache.getMisses());
+    }
+    finally
+    {
+      delete(directory);
+    }
+  }
+  
+  /**
+   * <p>Test 3.  Only complete parses with full validation are recorded.  Other parses still replay.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_recorded_parses() throws IOException, GeneralParserException
+  {
+    Path file = write(buildContent(10));
+    Path bad = write("[1, 2 3]");
+    Path directory = Files.createTempDirectory("parserutil");
+    try
+    {
+      TokenCache cache = new TokenCache(directory);
+      JSONDocumentParser dp = new JSONDocumentParser();
+      dp.setTokenCache(cache);
+      Path entry = cache.getEntry(file, dp.getGrammar());
+      
+      dp.setValidationMode(ValidationMode.STRUCTURAL);
+      String expected = dp.parse(file).toString();
+      assertFalse(Files.exists(entry));
+      
+      dp.setValidationMode(ValidationMode.FULL);
+      assertEquals(expected, dp.parse(file).toString());
+      assertTrue(Files.exists(entry));
+      
+      dp.setValidationMode(ValidationMode.NONE);
+      assertEquals(expected, dp.parse(file).toString());
+      assertEquals(1, cache.getHits());
+      
+      //Errors are still reported, and nothing is recorded.
+      dp.setValidationMode(ValidationMode.FULL);
+      assertThrows(GeneralParserException.class, () -> {
+        dp.parse(bad);
+      });
+      assertFalse(Files.exists(cache.getEntry(bad, dp.getGrammar())));
+    }
+    finally
+    {
+      delete(directory);
+    }
+  }
+  
+  /**
+   * <p>Test 4.  An entry recorded by one version of a grammar isn't replayed by another version with the same
+   * descriptors.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test4_grammar_version() throws IOException, GeneralParserException
+  {
+    Path file = write(buildContent(10));
+    Path directory = Files.createTempDirectory("parserutil");
+    try
+    {
+      TokenCache cache = new TokenCache(directory);
+      GeneralParserGrammar<JSONTokenDescriptor> shared = JSONAbstractParser.getSharedGrammar(LexerEngine.COMPILED);
+      GeneralParserGrammar<JSONTokenDescriptor> next = new GeneralParserGrammar<>(shared::getTokenDescriptors, LexerEngine.COMPILED, JSONAbstractParser.GRAMMAR_VERSION + 1);
+      assertNotEquals(cache.getEntry(file, shared), cache.getEntry(file, next));
+      
+      String expected = tokens(file, null, LexerEngine.COMPILED);
+      assertEquals(expected, tokens(file, cache, LexerEngine.COMPILED));
+      assertEquals(expected, tokens(file, cache, LexerEngine.COMPILED));
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, cache.getHits());
+      
+      //The new version lexes and records its own entry.
+      StringBuilder sb = new StringBuilder();
+      JSONElementParser ep = new JSONElementParser(next);
+      ep.setTokenCache(cache);
+      ep.parse(file, t -> sb.append(t.getTokenValue()));
+      assertEquals(2, cache.getMisses());
+      assertTrue(Files.exists(cache.getEntry(file, next)));
+      ep.parse(file, t -> {});
+      assertEquals(2, cache.getHits());
+    }
+    finally
+    {
+      delete(directory);
+    }
+  }
+}
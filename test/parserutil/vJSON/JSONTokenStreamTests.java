@@ -0,0 +1,143 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.ParserMetricsRecorder;
+import parserutil.main.UncheckedGeneralParserException;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Token stream tests.  Make sure split streams over a top-level array give the same tokens as reading it in order.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONTokenStreamTests
+{
+  /**
+   * <p>Build a top-level array with separators, brackets and quotes hidden in strings and comments.
+   * 
+   * @return
+   */
+  private static String document()
+  {
+    StringBuilder sb = new StringBuilder("# ids, [not] \"structure\"\n[\n");
+    for(int i = 0; i < 200; i++)
+    {
+      if(i > 0) sb.append(",\n  ");
+      sb.append("{\"id\":").append(i).append(", \"s\":\"a,b]} \\\" caf\u00e9 ").append(i).append("\", \"l\":[1, [2, 3], {\"x\":null}]}");
+      if(i % 7 == 0) sb.append(" # ,]\n");
+    }
+    return sb.append("\n]").toString();
+  }
+  
+  /**
+   * <p>Test 1.  A split parallel stream gives the same tokens, with the same locations and byte offsets, as one read in
+   * order, for each engine.
+   */
+  @Test
+  public void test1_parallel_matches()
+  {
+    String doc = document();
+    ByteBuffer bytes = ByteBuffer.wrap(doc.getBytes(StandardCharsets.UTF_8));
+    
+    for(JSONElementParser jp : new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()})
+    {
+      String expected = jp.tokens(new StringReader(doc)).map(t -> t.toString()).collect(Collectors.joining("|"));
+      String ordered = jp.tokens(bytes, Integer.MAX_VALUE).map(t -> t.toString() + t.byteStart).collect(Collectors.joining("|"));
+      
+      assertNotNull(jp.tokens(bytes, 64).spliterator().trySplit());
+      assertEquals(ordered, jp.tokens(bytes, 64).parallel().map(t -> t.toString() + t.byteStart).collect(Collectors.joining("|")));
+      assertEquals(expected, jp.tokens(bytes, 64).parallel().map(t -> t.toString()).collect(Collectors.joining("|")));
+    }
+  }
+  
+  /**
+   * <p>Test 2.  A document that isn't an array doesn't split, and errors in later segments are found with their
+   * locations.
+   */
+  @Test
+  public void test2_no_split_and_errors()
+  {
+    JSONElementParser jp = new JSONElementParser(LexerEngine.COMPILED);
+    ByteBuffer object = ByteBuffer.wrap("{\"a\":1, \"b\":2, \"c\":3, \"d\":4}".getBytes(StandardCharsets.UTF_8));
+    assertNull(jp.tokens(object, 1).spliterator().trySplit());
+    assertEquals(20, jp.tokens(object, 1).count());
+    
+    String bad = "[1,\n 2,\n 3,\n 4 5]";
+    String expected = assertThrows(UncheckedGeneralParserException.class, () -> {
+      jp.tokens(new StringReader(bad)).count();
+    }).getCause().toString();
+    String split = assertThrows(UncheckedGeneralParserException.class, () -> {
+      jp.tokens(ByteBuffer.wrap(bad.getBytes(StandardCharsets.UTF_8)), 1).parallel().count();
+    }).getCause().toString();
+    assertEquals(expected, split);
+  }
+  
+  /**
+   * <p>Test 3.  The sessions reading a split stream have the parser's settings: lazy locations give the same locations,
+   * tokens are copies if zero-copy mode is off, metrics are recorded and the validation mode is kept.
+   */
+  @Test
+  public void test3_session_settings()
+  {
+    String doc = document();
+    ByteBuffer bytes = ByteBuffer.wrap(doc.getBytes(StandardCharsets.UTF_8));
+    JSONElementParser jp = new JSONElementParser(LexerEngine.COMPILED);
+    String expected = jp.tokens(new StringReader(doc)).map(t -> t.getLocation().toString()).collect(Collectors.joining("|"));
+    
+    ParserMetricsRecorder recorder = new ParserMetricsRecorder(jp.getTokenDescriptors());
+    jp.setLazyLocations(true);
+    jp.setZeroCopyTokens(false);
+    jp.setMetrics(recorder);
+    assertEquals(expected, jp.tokens(bytes, 64).parallel().map(t -> {
+      assertEquals(-1, t.lineStart);
+      assertFalse(t.isView());
+      return t.getLocation().toString();
+    }).collect(Collectors.joining("|")));
+    assertEquals(expected.split("\\|").length, recorder.snapshot().getTokens());
+    
+    String bad = "[1,\n 2,\n 3 4]";
+    jp.setValidationMode(ValidationMode.NONE);
+    assertEquals(jp.tokens(new StringReader(bad)).count(), jp.tokens(ByteBuffer.wrap(bad.getBytes(StandardCharsets.UTF_8)), 1).parallel().count());
+  }
+}
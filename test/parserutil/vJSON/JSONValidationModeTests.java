@@ -0,0 +1,189 @@
+/**
+ * Copyright 2021 James David Foster jdfoster73@gmail.com
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its contributors
+ * may be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package test.parserutil.vJSON;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import parserutil.impl.json.parser.JSONDocumentParser;
+import parserutil.impl.json.parser.JSONElementGeneratedParser;
+import parserutil.impl.json.parser.JSONElementParser;
+import parserutil.main.GeneralParserException;
+import parserutil.main.ValidationMode;
+import parserutil.main.lexer.LexerEngine;
+
+/**
+ * <p>Validation mode tests.  Make sure well-formed input gives the same results in every mode, and that the lower modes
+ * check what they say they check.
+ * 
+ * @author James David Foster jdfoster73@gmail.com
+ *
+ */
+public class JSONValidationModeTests
+{
+  /**
+   * <p>Test document.
+   */
+  private static final String DOCUMENT = "# comment\n{\"f1\":\"v1 \\\" x\", \"f2\":-1234.3234,\n \"f3\":true, \"f4\":false, \"f5\":null, \"f6\":[1234, 1e-5, {\"\u00e9\":[]}]}";
+  
+  /**
+   * <p>Test 1.  Element tokens are the same in every mode with each engine, from text and bytes.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test1_elements_match() throws IOException, GeneralParserException
+  {
+    String expected = elements(new JSONElementParser(), DOCUMENT);
+    byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+    
+    for(ValidationMode mode : ValidationMode.values())
+    {
+      for(JSONElementParser jp : new JSONElementParser[] {new JSONElementParser(LexerEngine.INTERPRETED), new JSONElementParser(LexerEngine.COMPILED), new JSONElementGeneratedParser()})
+      {
+        jp.setValidationMode(mode);
+        assertEquals(mode, jp.getValidationMode());
+        assertEquals(expected, elements(jp, DOCUMENT));
+        
+        StringBuilder fromBytes = new StringBuilder();
+        jp.parse(ByteBuffer.wrap(bytes), t -> fromBytes.append(t.descriptor.getDesignation()).append(t.getTokenValue()).append(t.getLocation()));
+        assertEquals(expected, fromBytes.toString());
+      }
+    }
+  }
+  
+  /**
+   * <p>Test 2.  Documents are the same in every mode.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test2_documents_match() throws IOException, GeneralParserException
+  {
+    String expected = new JSONDocumentParser().parse(new StringReader(DOCUMENT)).toString();
+    
+    for(ValidationMode mode : ValidationMode.values())
+    {
+      for(LexerEngine engine : new LexerEngine[] {LexerEngine.INTERPRETED, LexerEngine.COMPILED})
+      {
+        JSONDocumentParser jp = new JSONDocumentParser(engine);
+        jp.setValidationMode(mode);
+        assertEquals(expected, jp.parse(new StringReader(DOCUMENT)).toString());
+        assertEquals(expected, jp.parse(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8))).toString());
+      }
+    }
+  }
+  
+  /**
+   * <p>Test 3.  Structural mode rejects unbalanced closes but not misplaced tokens; no validation rejects nothing.  Full
+   * validation is back in force when it's set again.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test3_lower_modes() throws IOException, GeneralParserException
+  {
+    JSONElementParser jp = new JSONElementParser();
+    jp.setValidationMode(ValidationMode.STRUCTURAL);
+    assertThrows(GeneralParserException.class, () -> elements(jp, "[1, 2]]"));
+    assertThrows(GeneralParserException.class, () -> elements(jp, "{\"a\":[1]}}"));
+    elements(jp, "{\"a\" \"b\"}");
+    
+    jp.setValidationMode(ValidationMode.NONE);
+    elements(jp, "[1, 2]]");
+    elements(jp, "{\"a\" \"b\"}");
+    
+    jp.setValidationMode(ValidationMode.FULL);
+    assertThrows(GeneralParserException.class, () -> elements(jp, "{\"a\" \"b\"}"));
+    assertThrows(IllegalArgumentException.class, () -> jp.setValidationMode(null));
+    assertEquals(ValidationMode.FULL, jp.getValidationMode());
+  }
+  
+  /**
+   * <p>Test 4.  A mode given to a parse applies to that parse only, even if it fails.
+   * 
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  @Test
+  public void test4_per_parse_mode() throws IOException, GeneralParserException
+  {
+    JSONElementParser jp = new JSONElementParser();
+    jp.parse(new StringReader("{\"a\" \"b\"}"), t -> {}, ValidationMode.NONE);
+    jp.parse(ByteBuffer.wrap("[1, 2]]".getBytes(StandardCharsets.UTF_8)), t -> {}, ValidationMode.NONE);
+    assertEquals(ValidationMode.FULL, jp.getValidationMode());
+    assertThrows(GeneralParserException.class, () -> elements(jp, "{\"a\" \"b\"}"));
+    
+    assertThrows(GeneralParserException.class, () -> jp.parse(new StringReader("[1, 2]]"), t -> {}, ValidationMode.STRUCTURAL));
+    assertEquals(ValidationMode.FULL, jp.getValidationMode());
+    
+    jp.setValidationMode(ValidationMode.NONE);
+    assertThrows(GeneralParserException.class, () -> jp.parse(new StringReader("{\"a\" \"b\"}"), t -> {}, ValidationMode.FULL));
+    assertEquals(ValidationMode.NONE, jp.getValidationMode());
+    assertThrows(IllegalArgumentException.class, () -> jp.parse(new StringReader("[]"), t -> {}, null));
+    assertEquals(ValidationMode.NONE, jp.getValidationMode());
+    
+    String expected = new JSONDocumentParser().parse(new StringReader(DOCUMENT)).toString();
+    JSONDocumentParser dp = new JSONDocumentParser();
+    for(ValidationMode mode : ValidationMode.values())
+    {
+      assertEquals(expected, dp.parse(new StringReader(DOCUMENT), mode).toString());
+      assertEquals(expected, dp.parse(ByteBuffer.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)), mode).toString());
+      assertEquals(ValidationMode.FULL, dp.getValidationMode());
+    }
+  }
+  
+  /**
+   * <p>Parse elements into a string of their designations, values and locations.
+   * 
+   * @param jp
+   * @param json
+   * @return
+   * @throws IOException
+   * @throws GeneralParserException
+   */
+  private static String elements(JSONElementParser jp, String json) throws IOException, GeneralParserException
+  {
+    List<String> tokens = new ArrayList<>();
+    jp.parse(new StringReader(json), t -> tokens.add(t.descriptor.getDesignation() + t.getTokenValue() + t.getLocation()));
+    return String.join("", tokens);
+  }
+}